@@ -0,0 +1,69 @@
+package com.isoft.rfid.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import com.isoft.rfid.config.CRLFLogConverter;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of {@link CRLFLogConverter} on each formatted log message, with and without line breaks to neutralize.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CRLFLogConverterBenchmark {
+
+    @Param({ "clean", "crlf" })
+    public String message;
+
+    private ExposedConverter converter;
+
+    private ILoggingEvent event;
+
+    private String formatted;
+
+    /**
+     * Exposes the transformation, which the pattern layout calls after rendering the message.
+     */
+    static class ExposedConverter extends CRLFLogConverter {
+
+        String apply(ILoggingEvent event, String in) {
+            return transform(event, in);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        converter = new ExposedConverter();
+        converter.setOptionList(Collections.singletonList("red"));
+        converter.start();
+        LoggingEvent loggingEvent = new LoggingEvent();
+        loggingEvent.setLoggerName("com.isoft.rfid.web.rest.TagReadHistoryResource");
+        loggingEvent.setLevel(Level.DEBUG);
+        event = loggingEvent;
+        formatted = "crlf".equals(message)
+            ? "REST request to get the tag reads matching TagReadCriteria{epc='3034257BF7194E4000001A85',\r\nreaderId='dock-1'}"
+            : "REST request to get the tag reads matching TagReadCriteria{epc='3034257BF7194E4000001A85', readerId='dock-1'}";
+    }
+
+    @Benchmark
+    public String transform() {
+        return converter.apply(event, formatted);
+    }
+}
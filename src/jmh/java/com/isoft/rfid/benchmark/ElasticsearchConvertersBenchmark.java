@@ -0,0 +1,78 @@
+package com.isoft.rfid.benchmark;
+
+import com.isoft.rfid.config.ElasticsearchConfiguration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.convert.support.DefaultConversionService;
+
+/**
+ * Cost of the date converters of {@link ElasticsearchConfiguration}, through a conversion service as Spring Data
+ * Elasticsearch calls them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ElasticsearchConvertersBenchmark {
+
+    private final DefaultConversionService conversionService = new DefaultConversionService();
+
+    private final Instant instant = Instant.parse("2022-11-14T08:15:30.123Z");
+
+    private final ZonedDateTime zonedDateTime = ZonedDateTime.parse("2022-11-14T09:15:30.123+01:00[Europe/Paris]");
+
+    private final LocalDate localDate = LocalDate.of(2022, 11, 14);
+
+    private final String instantString = "2022-11-14T08:15:30.123Z";
+
+    private final String localDateString = "2022-11-14";
+
+    @Setup
+    public void setUp() {
+        new ElasticsearchConfiguration().elasticsearchCustomConversions().registerConvertersIn(conversionService);
+    }
+
+    @Benchmark
+    public String writeInstant() {
+        return conversionService.convert(instant, String.class);
+    }
+
+    @Benchmark
+    public Instant readInstant() {
+        return conversionService.convert(instantString, Instant.class);
+    }
+
+    @Benchmark
+    public String writeZonedDateTime() {
+        return conversionService.convert(zonedDateTime, String.class);
+    }
+
+    @Benchmark
+    public ZonedDateTime readZonedDateTime() {
+        return conversionService.convert(instantString, ZonedDateTime.class);
+    }
+
+    @Benchmark
+    public String writeLocalDate() {
+        return conversionService.convert(localDate, String.class);
+    }
+
+    @Benchmark
+    public LocalDate readLocalDate() {
+        return conversionService.convert(localDateString, LocalDate.class);
+    }
+}
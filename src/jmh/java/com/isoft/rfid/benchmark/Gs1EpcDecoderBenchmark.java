@@ -0,0 +1,63 @@
+package com.isoft.rfid.benchmark;
+
+import com.isoft.rfid.domain.Epc;
+import com.isoft.rfid.domain.Gs1Identity;
+import com.isoft.rfid.service.Gs1EpcDecoder;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of {@link Gs1EpcDecoder} over a mix of SGTIN, SSCC, GRAI and GIAI EPCs.
+ * <p>
+ * Run with {@code -Djmh.args="Gs1EpcDecoder -prof gc"}: {@code gc.alloc.rate.norm} should be the size of a single
+ * {@link Gs1Identity} per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Gs1EpcDecoderBenchmark {
+
+    private static final String[] EPCS = {
+        "3074257BF7194E4000001A85",
+        "302072FA6468507FFFFFFFFF",
+        "3174257BF4499602D2000000",
+        "3374257BF40C0E400000162E",
+        "3474257BF40000000000162E",
+        "E2801160600002054CC2096F",
+    };
+
+    private final Gs1EpcDecoder decoder = new Gs1EpcDecoder();
+
+    private Epc[] epcs;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        epcs = new Epc[EPCS.length * 16];
+        for (int i = 0; i < epcs.length; i++) {
+            // Vary the serial so that the branch predictor does not learn a single EPC
+            Epc epc = Epc.parse(EPCS[i % EPCS.length]);
+            epcs[i] = Epc.of(epc.getBitLength(), epc.getWord(0), epc.getWord(1) ^ ((long) i << 32));
+        }
+    }
+
+    @Benchmark
+    public Gs1Identity decode() {
+        Epc epc = epcs[next];
+        next = (next + 1) % epcs.length;
+        return decoder.decode(epc);
+    }
+}
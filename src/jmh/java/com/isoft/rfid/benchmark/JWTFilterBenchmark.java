@@ -0,0 +1,70 @@
+package com.isoft.rfid.benchmark;
+
+import com.isoft.rfid.security.jwt.JWTFilter;
+import com.isoft.rfid.security.jwt.TokenProvider;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Latency of the {@link JWTFilter} for a request with a valid bearer token, an invalid one, or none.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JWTFilterBenchmark {
+
+    @Param({ "valid", "invalid", "none" })
+    public String token;
+
+    private final FilterChain chain = (request, response) -> {};
+
+    private JWTFilter filter;
+
+    private MockHttpServletRequest request;
+
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() {
+        TokenProvider tokenProvider = TokenProviderBenchmark.tokenProvider();
+        filter = new JWTFilter(tokenProvider);
+        request = new MockHttpServletRequest("GET", "/api/tag-reads");
+        if ("valid".equals(token)) {
+            request.addHeader(JWTFilter.AUTHORIZATION_HEADER, "Bearer " + TokenProviderBenchmark.token(tokenProvider));
+        } else if ("invalid".equals(token)) {
+            request.addHeader(JWTFilter.AUTHORIZATION_HEADER, "Bearer not.a.token");
+        }
+        response = new MockHttpServletResponse();
+    }
+
+    @TearDown(Level.Invocation)
+    public void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public void doFilter() throws IOException, ServletException {
+        filter.doFilter(request, response, chain);
+    }
+}
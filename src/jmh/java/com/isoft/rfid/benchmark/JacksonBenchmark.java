@@ -0,0 +1,99 @@
+package com.isoft.rfid.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.isoft.rfid.config.JacksonConfiguration;
+import com.isoft.rfid.domain.Epc;
+import com.isoft.rfid.domain.TagRead;
+import com.isoft.rfid.service.dto.TagReadDTO;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of Jackson with the modules of {@link JacksonConfiguration}: a page of the read history as the REST API writes
+ * it, and tag reads, whose {@link Epc} goes through the EPC module, written and read back.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JacksonBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    private ObjectWriter pageWriter;
+
+    private ObjectWriter readWriter;
+
+    private ObjectReader readReader;
+
+    private List<TagReadDTO> page;
+
+    private TagRead read;
+
+    private String readJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        JacksonConfiguration configuration = new JacksonConfiguration();
+        ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(configuration.javaTimeModule())
+            .registerModule(configuration.jdk8TimeModule())
+            .registerModule(configuration.problemModule())
+            .registerModule(configuration.constraintViolationProblemModule())
+            .registerModule(configuration.epcModule());
+        pageWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, TagReadDTO.class));
+        readWriter = objectMapper.writerFor(TagRead.class);
+        readReader = objectMapper.readerFor(TagRead.class);
+        page = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            page.add(
+                new TagReadDTO(
+                    String.format("3074257BF7194E40000%05X", i),
+                    "dock-" + (i % 4),
+                    1 + i % 4,
+                    -60.5 + i % 10,
+                    1668413730123L + i,
+                    "urn:epc:id:sgtin:0614141.812345." + i
+                )
+            );
+        }
+        read = new TagRead();
+        read.setEpc(Epc.parse("3074257BF7194E4000001A85"));
+        read.setReaderId("dock-1");
+        read.setAntenna(2);
+        read.setRssi(-61.5);
+        read.setTimestamp(1668413730123L);
+        readJson = readWriter.writeValueAsString(read);
+    }
+
+    @Benchmark
+    public byte[] writeHistoryPage() throws JsonProcessingException {
+        return pageWriter.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public String writeTagRead() throws JsonProcessingException {
+        return readWriter.writeValueAsString(read);
+    }
+
+    @Benchmark
+    public TagRead readTagRead() throws JsonProcessingException {
+        return readReader.readValue(readJson);
+    }
+}
@@ -0,0 +1,117 @@
+package com.isoft.rfid.benchmark;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.management.SecurityMetersService;
+import com.isoft.rfid.security.AuthoritiesConstants;
+import com.isoft.rfid.security.jwt.TokenProvider;
+import com.isoft.rfid.security.jwt.TokenRevocationList;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Latency of the {@link TokenProvider} on every authenticated request: validating the token, then building the
+ * authentication from it, each of which parses and verifies the token, or authenticating it, which only does so once
+ * per token.
+ * <p>
+ * The invalid tokens measure the rejections: a tampered signature and garbage, which go through exceptions, and an
+ * expired token, which the precheck rejects without one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenProviderBenchmark {
+
+    static final String BASE64_SECRET =
+        "fd54a45s65fds737b9aafcb3412e07ed99b267f33413274720ddbb7f6c5e64e9f14075f2d7ed041592f0b7657baf8";
+
+    private TokenProvider tokenProvider;
+
+    private String token;
+
+    private String tamperedToken;
+
+    private String expiredToken;
+
+    @Setup
+    public void setUp() {
+        tokenProvider = tokenProvider();
+        token = token(tokenProvider);
+        // Not the last character of the signature, whose low bits are padding
+        int tampered = token.length() - 10;
+        tamperedToken = token.substring(0, tampered) + (token.charAt(tampered) == 'A' ? 'B' : 'A') + token.substring(tampered + 1);
+        expiredToken = token(tokenProvider(-3600));
+    }
+
+    static TokenProvider tokenProvider() {
+        return tokenProvider(24 * 3600);
+    }
+
+    private static TokenProvider tokenProvider(long tokenValidityInSeconds) {
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setBase64Secret(BASE64_SECRET);
+        jHipsterProperties.getSecurity().getAuthentication().getJwt().setTokenValidityInSeconds(tokenValidityInSeconds);
+        return new TokenProvider(
+            jHipsterProperties,
+            new SecurityMetersService(new SimpleMeterRegistry()),
+            new ApplicationProperties(),
+            new TokenRevocationList(new ApplicationProperties())
+        );
+    }
+
+    static String token(TokenProvider tokenProvider) {
+        Authentication authentication = new UsernamePasswordAuthenticationToken(
+            "supervisor",
+            "",
+            Arrays.asList(new SimpleGrantedAuthority(AuthoritiesConstants.USER), new SimpleGrantedAuthority(AuthoritiesConstants.ADMIN))
+        );
+        return tokenProvider.createToken(authentication, false);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return tokenProvider.validateToken(token);
+    }
+
+    @Benchmark
+    public Authentication getAuthentication() {
+        return tokenProvider.getAuthentication(token);
+    }
+
+    @Benchmark
+    public Authentication authenticate() {
+        return tokenProvider.authenticate(token);
+    }
+
+    @Benchmark
+    public boolean validateTamperedToken() {
+        return tokenProvider.validateToken(tamperedToken);
+    }
+
+    @Benchmark
+    public boolean validateExpiredToken() {
+        return tokenProvider.validateToken(expiredToken);
+    }
+
+    @Benchmark
+    public boolean validateMalformedToken() {
+        return tokenProvider.validateToken("not.a.token");
+    }
+}
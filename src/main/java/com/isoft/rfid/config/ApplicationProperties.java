@@ -1,5 +1,10 @@
 package com.isoft.rfid.config;
 
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -10,7 +15,1265 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  */
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
+
+    private final Ingest ingest = new Ingest();
+
+    private final Llrp llrp = new Llrp();
+
+    private final Indexing indexing = new Indexing();
+
+    private final Spool spool = new Spool();
+
+    private final Live live = new Live();
+
+    private final Portals portals = new Portals();
+
+    private final LastSeen lastSeen = new LastSeen();
+
+    private final History history = new History();
+
+    private final Export export = new Export();
+
+    private final Dashboard dashboard = new Dashboard();
+
+    private final Security security = new Security();
+
+    private final Logging logging = new Logging();
+
     // jhipster-needle-application-properties-property
+
+    public Ingest getIngest() {
+        return ingest;
+    }
+
+    public Llrp getLlrp() {
+        return llrp;
+    }
+
+    public Indexing getIndexing() {
+        return indexing;
+    }
+
+    public Spool getSpool() {
+        return spool;
+    }
+
+    public Live getLive() {
+        return live;
+    }
+
+    public Portals getPortals() {
+        return portals;
+    }
+
+    public LastSeen getLastSeen() {
+        return lastSeen;
+    }
+
+    public History getHistory() {
+        return history;
+    }
+
+    public Export getExport() {
+        return export;
+    }
+
+    public Dashboard getDashboard() {
+        return dashboard;
+    }
+
+    public Security getSecurity() {
+        return security;
+    }
+
+    public Logging getLogging() {
+        return logging;
+    }
+
     // jhipster-needle-application-properties-property-getter
+
+    public static class Ingest {
+
+        /**
+         * Maximum size in bytes of a single line of an NDJSON bulk ingestion request.
+         */
+        private int maxLineLength = 16 * 1024;
+
+        /**
+         * Number of slots of the ingestion ring buffer, must be a power of two.
+         */
+        private int bufferSize = 64 * 1024;
+
+        /**
+         * How long a producer waits for a free slot before the read is reported as overloaded.
+         */
+        private long publishTimeoutMillis = 50;
+
+        /**
+         * Reads timestamped further in the future than this are dropped.
+         */
+        private long maxClockSkewSeconds = 300;
+
+        private final Dedup dedup = new Dedup();
+
+        public int getMaxLineLength() {
+            return maxLineLength;
+        }
+
+        public void setMaxLineLength(int maxLineLength) {
+            this.maxLineLength = maxLineLength;
+        }
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        public long getPublishTimeoutMillis() {
+            return publishTimeoutMillis;
+        }
+
+        public void setPublishTimeoutMillis(long publishTimeoutMillis) {
+            this.publishTimeoutMillis = publishTimeoutMillis;
+        }
+
+        public long getMaxClockSkewSeconds() {
+            return maxClockSkewSeconds;
+        }
+
+        public void setMaxClockSkewSeconds(long maxClockSkewSeconds) {
+            this.maxClockSkewSeconds = maxClockSkewSeconds;
+        }
+
+        public Dedup getDedup() {
+            return dedup;
+        }
+
+        public static class Dedup {
+
+            /**
+             * Reads of a tag by the same reader antenna within this window are dropped as duplicates.
+             */
+            private long windowMillis = 5000;
+
+            /**
+             * Window overrides, by reader id.
+             */
+            private Map<String, Long> readerWindowMillis = new HashMap<>();
+
+            /**
+             * Resolution of the windows.
+             */
+            private long tickMillis = 100;
+
+            private int initialCapacity = 64 * 1024;
+
+            private int maxCapacity = 4 * 1024 * 1024;
+
+            public long getWindowMillis() {
+                return windowMillis;
+            }
+
+            public void setWindowMillis(long windowMillis) {
+                this.windowMillis = windowMillis;
+            }
+
+            public Map<String, Long> getReaderWindowMillis() {
+                return readerWindowMillis;
+            }
+
+            public void setReaderWindowMillis(Map<String, Long> readerWindowMillis) {
+                this.readerWindowMillis = readerWindowMillis;
+            }
+
+            public long getTickMillis() {
+                return tickMillis;
+            }
+
+            public void setTickMillis(long tickMillis) {
+                this.tickMillis = tickMillis;
+            }
+
+            public int getInitialCapacity() {
+                return initialCapacity;
+            }
+
+            public void setInitialCapacity(int initialCapacity) {
+                this.initialCapacity = initialCapacity;
+            }
+
+            public int getMaxCapacity() {
+                return maxCapacity;
+            }
+
+            public void setMaxCapacity(int maxCapacity) {
+                this.maxCapacity = maxCapacity;
+            }
+        }
+    }
+
+    public static class Llrp {
+
+        /**
+         * Number of threads, each multiplexing the connections of a share of the readers on its own selector.
+         */
+        private int ioThreads = 2;
+
+        private long connectTimeoutMillis = 5000;
+
+        /**
+         * Delay before the first reconnection attempt; it doubles after each failure, up to the maximum.
+         */
+        private long reconnectMinDelayMillis = 1000;
+
+        private long reconnectMaxDelayMillis = 60000;
+
+        /**
+         * A connection on which nothing was received for this long is reestablished, 0 to disable. It should be longer
+         * than the keepalive period configured on the readers.
+         */
+        private long idleTimeoutMillis = 0;
+
+        /**
+         * Size of the pooled receive buffers, larger messages get a buffer of their own.
+         */
+        private int bufferSize = 64 * 1024;
+
+        /**
+         * Number of idle receive buffers kept by each thread.
+         */
+        private int maxPooledBuffers = 16;
+
+        /**
+         * Messages announcing a larger length are treated as a protocol error.
+         */
+        private int maxMessageLength = 4 * 1024 * 1024;
+
+        private List<Reader> readers = new ArrayList<>();
+
+        public int getIoThreads() {
+            return ioThreads;
+        }
+
+        public void setIoThreads(int ioThreads) {
+            this.ioThreads = ioThreads;
+        }
+
+        public long getConnectTimeoutMillis() {
+            return connectTimeoutMillis;
+        }
+
+        public void setConnectTimeoutMillis(long connectTimeoutMillis) {
+            this.connectTimeoutMillis = connectTimeoutMillis;
+        }
+
+        public long getReconnectMinDelayMillis() {
+            return reconnectMinDelayMillis;
+        }
+
+        public void setReconnectMinDelayMillis(long reconnectMinDelayMillis) {
+            this.reconnectMinDelayMillis = reconnectMinDelayMillis;
+        }
+
+        public long getReconnectMaxDelayMillis() {
+            return reconnectMaxDelayMillis;
+        }
+
+        public void setReconnectMaxDelayMillis(long reconnectMaxDelayMillis) {
+            this.reconnectMaxDelayMillis = reconnectMaxDelayMillis;
+        }
+
+        public long getIdleTimeoutMillis() {
+            return idleTimeoutMillis;
+        }
+
+        public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+            this.idleTimeoutMillis = idleTimeoutMillis;
+        }
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        public int getMaxPooledBuffers() {
+            return maxPooledBuffers;
+        }
+
+        public void setMaxPooledBuffers(int maxPooledBuffers) {
+            this.maxPooledBuffers = maxPooledBuffers;
+        }
+
+        public int getMaxMessageLength() {
+            return maxMessageLength;
+        }
+
+        public void setMaxMessageLength(int maxMessageLength) {
+            this.maxMessageLength = maxMessageLength;
+        }
+
+        public List<Reader> getReaders() {
+            return readers;
+        }
+
+        public void setReaders(List<Reader> readers) {
+            this.readers = readers;
+        }
+
+        public static class Reader {
+
+            /**
+             * Identifier given to the reads of this reader.
+             */
+            private String id;
+
+            private String host;
+
+            private int port = 5084;
+
+            public String getId() {
+                return id;
+            }
+
+            public void setId(String id) {
+                this.id = id;
+            }
+
+            public String getHost() {
+                return host;
+            }
+
+            public void setHost(String host) {
+                this.host = host;
+            }
+
+            public int getPort() {
+                return port;
+            }
+
+            public void setPort(int port) {
+                this.port = port;
+            }
+        }
+    }
     // jhipster-needle-application-properties-property-class
+
+    public static class Indexing {
+
+        /**
+         * Base name of the tag read indices: the name of the read alias, and the prefix of the time partitions.
+         */
+        private String indexName = "tag-read";
+
+        /**
+         * Period covered by each partition, days or weeks.
+         */
+        private ChronoUnit partitionUnit = ChronoUnit.DAYS;
+
+        /**
+         * Searches over a time range spanning more partitions than this go through the read alias.
+         */
+        private int maxSearchedPartitions = 64;
+
+        private long maintenanceIntervalMillis = 10 * 60 * 1000;
+
+        /**
+         * Partitions over for this long are made read-only and force-merged; it must exceed how late reads can arrive.
+         */
+        private long sealDelayMillis = 6 * 60 * 60 * 1000;
+
+        /**
+         * A batch is sent once its oldest document has waited for this long, even if it is not full.
+         */
+        private long flushIntervalMillis = 200;
+
+        private int minBatchBytes = 256 * 1024;
+
+        /**
+         * Size a batch is sent at to begin with; it then moves between the minimum and the maximum.
+         */
+        private int initialBatchBytes = 1024 * 1024;
+
+        private int maxBatchBytes = 5 * 1024 * 1024;
+
+        /**
+         * Added to the batch size after each bulk request completed within the target latency.
+         */
+        private int batchBytesIncrement = 256 * 1024;
+
+        /**
+         * The batch size is multiplied by this after a rejection or a bulk request slower than the target latency.
+         */
+        private double batchBytesDecreaseFactor = 0.5;
+
+        private long targetLatencyMillis = 1000;
+
+        /**
+         * Maximum number of concurrent bulk requests; indexing blocks, and the ingestion pipeline fills up, beyond it.
+         */
+        private int maxInFlight = 4;
+
+        /**
+         * Retries of a rejected or failed bulk request before its documents are handed to the failure handler.
+         */
+        private int maxRetries = 3;
+
+        /**
+         * Delay before the first retry, doubled for each of the next ones.
+         */
+        private long retryDelayMillis = 200;
+
+        /**
+         * How long stopping waits for the bulk requests in flight.
+         */
+        private long shutdownTimeoutMillis = 30000;
+
+        public String getIndexName() {
+            return indexName;
+        }
+
+        public void setIndexName(String indexName) {
+            this.indexName = indexName;
+        }
+
+        public ChronoUnit getPartitionUnit() {
+            return partitionUnit;
+        }
+
+        public void setPartitionUnit(ChronoUnit partitionUnit) {
+            this.partitionUnit = partitionUnit;
+        }
+
+        public int getMaxSearchedPartitions() {
+            return maxSearchedPartitions;
+        }
+
+        public void setMaxSearchedPartitions(int maxSearchedPartitions) {
+            this.maxSearchedPartitions = maxSearchedPartitions;
+        }
+
+        public long getMaintenanceIntervalMillis() {
+            return maintenanceIntervalMillis;
+        }
+
+        public void setMaintenanceIntervalMillis(long maintenanceIntervalMillis) {
+            this.maintenanceIntervalMillis = maintenanceIntervalMillis;
+        }
+
+        public long getSealDelayMillis() {
+            return sealDelayMillis;
+        }
+
+        public void setSealDelayMillis(long sealDelayMillis) {
+            this.sealDelayMillis = sealDelayMillis;
+        }
+
+        public long getFlushIntervalMillis() {
+            return flushIntervalMillis;
+        }
+
+        public void setFlushIntervalMillis(long flushIntervalMillis) {
+            this.flushIntervalMillis = flushIntervalMillis;
+        }
+
+        public int getMinBatchBytes() {
+            return minBatchBytes;
+        }
+
+        public void setMinBatchBytes(int minBatchBytes) {
+            this.minBatchBytes = minBatchBytes;
+        }
+
+        public int getInitialBatchBytes() {
+            return initialBatchBytes;
+        }
+
+        public void setInitialBatchBytes(int initialBatchBytes) {
+            this.initialBatchBytes = initialBatchBytes;
+        }
+
+        public int getMaxBatchBytes() {
+            return maxBatchBytes;
+        }
+
+        public void setMaxBatchBytes(int maxBatchBytes) {
+            this.maxBatchBytes = maxBatchBytes;
+        }
+
+        public int getBatchBytesIncrement() {
+            return batchBytesIncrement;
+        }
+
+        public void setBatchBytesIncrement(int batchBytesIncrement) {
+            this.batchBytesIncrement = batchBytesIncrement;
+        }
+
+        public double getBatchBytesDecreaseFactor() {
+            return batchBytesDecreaseFactor;
+        }
+
+        public void setBatchBytesDecreaseFactor(double batchBytesDecreaseFactor) {
+            this.batchBytesDecreaseFactor = batchBytesDecreaseFactor;
+        }
+
+        public long getTargetLatencyMillis() {
+            return targetLatencyMillis;
+        }
+
+        public void setTargetLatencyMillis(long targetLatencyMillis) {
+            this.targetLatencyMillis = targetLatencyMillis;
+        }
+
+        public int getMaxInFlight() {
+            return maxInFlight;
+        }
+
+        public void setMaxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+        }
+
+        public int getMaxRetries() {
+            return maxRetries;
+        }
+
+        public void setMaxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+        }
+
+        public long getRetryDelayMillis() {
+            return retryDelayMillis;
+        }
+
+        public void setRetryDelayMillis(long retryDelayMillis) {
+            this.retryDelayMillis = retryDelayMillis;
+        }
+
+        public long getShutdownTimeoutMillis() {
+            return shutdownTimeoutMillis;
+        }
+
+        public void setShutdownTimeoutMillis(long shutdownTimeoutMillis) {
+            this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        }
+    }
+
+    public static class Spool {
+
+        /**
+         * Directory of the segment files of the spool.
+         */
+        private String directory = "spool";
+
+        /**
+         * Size of each memory-mapped segment file; a larger batch gets a segment of its own.
+         */
+        private int segmentBytes = 64 * 1024 * 1024;
+
+        /**
+         * Reads that cannot be indexed are dropped once the spool holds this much.
+         */
+        private long maxBytes = 4L * 1024 * 1024 * 1024;
+
+        /**
+         * Maximum number of reads replayed per second once Elasticsearch accepts them again.
+         */
+        private int replayRate = 20000;
+
+        private long replayIntervalMillis = 1000;
+
+        /**
+         * Replays that fail are attempted again after a delay that doubles up to this.
+         */
+        private long replayMaxBackoffMillis = 60000;
+
+        private long replayTimeoutMillis = 60000;
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public int getSegmentBytes() {
+            return segmentBytes;
+        }
+
+        public void setSegmentBytes(int segmentBytes) {
+            this.segmentBytes = segmentBytes;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        public int getReplayRate() {
+            return replayRate;
+        }
+
+        public void setReplayRate(int replayRate) {
+            this.replayRate = replayRate;
+        }
+
+        public long getReplayIntervalMillis() {
+            return replayIntervalMillis;
+        }
+
+        public void setReplayIntervalMillis(long replayIntervalMillis) {
+            this.replayIntervalMillis = replayIntervalMillis;
+        }
+
+        public long getReplayMaxBackoffMillis() {
+            return replayMaxBackoffMillis;
+        }
+
+        public void setReplayMaxBackoffMillis(long replayMaxBackoffMillis) {
+            this.replayMaxBackoffMillis = replayMaxBackoffMillis;
+        }
+
+        public long getReplayTimeoutMillis() {
+            return replayTimeoutMillis;
+        }
+
+        public void setReplayTimeoutMillis(long replayTimeoutMillis) {
+            this.replayTimeoutMillis = replayTimeoutMillis;
+        }
+    }
+
+    public static class Live {
+
+        /**
+         * Reads buffered for each subscriber between two sends; the reads that do not fit are folded into per-zone summaries.
+         */
+        private int bufferSize = 1024;
+
+        private long flushIntervalMillis = 250;
+
+        /**
+         * An idle stream gets a comment this often, so that proxies keep it open.
+         */
+        private long heartbeatMillis = 15000;
+
+        private int maxSubscribers = 100;
+
+        /**
+         * Streams are closed after this long, and reopened by the browser.
+         */
+        private long timeoutMillis = 30 * 60 * 1000;
+
+        /**
+         * Threads writing to the subscribers; a slow subscriber only holds one of them.
+         */
+        private int senderThreads = 4;
+
+        /**
+         * A subscriber taking longer than this to receive a batch is closed, freeing its sender thread.
+         */
+        private long sendTimeoutMillis = 10000;
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        public long getFlushIntervalMillis() {
+            return flushIntervalMillis;
+        }
+
+        public void setFlushIntervalMillis(long flushIntervalMillis) {
+            this.flushIntervalMillis = flushIntervalMillis;
+        }
+
+        public long getHeartbeatMillis() {
+            return heartbeatMillis;
+        }
+
+        public void setHeartbeatMillis(long heartbeatMillis) {
+            this.heartbeatMillis = heartbeatMillis;
+        }
+
+        public int getMaxSubscribers() {
+            return maxSubscribers;
+        }
+
+        public void setMaxSubscribers(int maxSubscribers) {
+            this.maxSubscribers = maxSubscribers;
+        }
+
+        public long getTimeoutMillis() {
+            return timeoutMillis;
+        }
+
+        public void setTimeoutMillis(long timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        public int getSenderThreads() {
+            return senderThreads;
+        }
+
+        public void setSenderThreads(int senderThreads) {
+            this.senderThreads = senderThreads;
+        }
+
+        public long getSendTimeoutMillis() {
+            return sendTimeoutMillis;
+        }
+
+        public void setSendTimeoutMillis(long sendTimeoutMillis) {
+            this.sendTimeoutMillis = sendTimeoutMillis;
+        }
+    }
+
+    public static class Portals {
+
+        /**
+         * Longest time between the sightings of a tag on both sides of a portal for its direction to be reported.
+         */
+        private long transitionMillis = 3000;
+
+        /**
+         * A tag not seen by a portal for that long exits it; keep it above the deduplication window of its reader.
+         */
+        private long absentMillis = 10000;
+
+        private long expiryIntervalMillis = 1000;
+
+        private int initialCapacity = 16 * 1024;
+
+        /**
+         * Tags tracked at once; beyond that, the tag seen the longest ago exits early.
+         */
+        private int maxCapacity = 1024 * 1024;
+
+        private List<Portal> doors = new ArrayList<>();
+
+        public long getTransitionMillis() {
+            return transitionMillis;
+        }
+
+        public void setTransitionMillis(long transitionMillis) {
+            this.transitionMillis = transitionMillis;
+        }
+
+        public long getAbsentMillis() {
+            return absentMillis;
+        }
+
+        public void setAbsentMillis(long absentMillis) {
+            this.absentMillis = absentMillis;
+        }
+
+        public long getExpiryIntervalMillis() {
+            return expiryIntervalMillis;
+        }
+
+        public void setExpiryIntervalMillis(long expiryIntervalMillis) {
+            this.expiryIntervalMillis = expiryIntervalMillis;
+        }
+
+        public int getInitialCapacity() {
+            return initialCapacity;
+        }
+
+        public void setInitialCapacity(int initialCapacity) {
+            this.initialCapacity = initialCapacity;
+        }
+
+        public int getMaxCapacity() {
+            return maxCapacity;
+        }
+
+        public void setMaxCapacity(int maxCapacity) {
+            this.maxCapacity = maxCapacity;
+        }
+
+        public List<Portal> getDoors() {
+            return doors;
+        }
+
+        public void setDoors(List<Portal> doors) {
+            this.doors = doors;
+        }
+
+        public static class Portal {
+
+            private String id;
+
+            private String readerId;
+
+            /**
+             * Antennas of the reader facing in, for example to the warehouse.
+             */
+            private List<Integer> innerAntennas = new ArrayList<>();
+
+            /**
+             * Antennas of the reader facing out, for example to the dock.
+             */
+            private List<Integer> outerAntennas = new ArrayList<>();
+
+            public String getId() {
+                return id;
+            }
+
+            public void setId(String id) {
+                this.id = id;
+            }
+
+            public String getReaderId() {
+                return readerId;
+            }
+
+            public void setReaderId(String readerId) {
+                this.readerId = readerId;
+            }
+
+            public List<Integer> getInnerAntennas() {
+                return innerAntennas;
+            }
+
+            public void setInnerAntennas(List<Integer> innerAntennas) {
+                this.innerAntennas = innerAntennas;
+            }
+
+            public List<Integer> getOuterAntennas() {
+                return outerAntennas;
+            }
+
+            public void setOuterAntennas(List<Integer> outerAntennas) {
+                this.outerAntennas = outerAntennas;
+            }
+        }
+    }
+
+    public static class LastSeen {
+
+        /**
+         * Independently locked parts of the index (power of two); more stripes mean less contention between updates.
+         */
+        private int stripes = 64;
+
+        private int initialCapacity = 64 * 1024;
+
+        /**
+         * Tags remembered at most; beyond that, the tags seen the longest ago are forgotten.
+         */
+        private int maxCapacity = 4 * 1024 * 1024;
+
+        /**
+         * Most EPCs looked up by one bulk request.
+         */
+        private int maxBulkLookup = 10000;
+
+        public int getStripes() {
+            return stripes;
+        }
+
+        public void setStripes(int stripes) {
+            this.stripes = stripes;
+        }
+
+        public int getInitialCapacity() {
+            return initialCapacity;
+        }
+
+        public void setInitialCapacity(int initialCapacity) {
+            this.initialCapacity = initialCapacity;
+        }
+
+        public int getMaxCapacity() {
+            return maxCapacity;
+        }
+
+        public void setMaxCapacity(int maxCapacity) {
+            this.maxCapacity = maxCapacity;
+        }
+
+        public int getMaxBulkLookup() {
+            return maxBulkLookup;
+        }
+
+        public void setMaxBulkLookup(int maxBulkLookup) {
+            this.maxBulkLookup = maxBulkLookup;
+        }
+    }
+
+    public static class History {
+
+        /**
+         * How long the point in time of a paginated search is kept between two pages, as an Elasticsearch time value.
+         */
+        private String keepAlive = "1m";
+
+        private int defaultPageSize = 100;
+
+        private int maxPageSize = 1000;
+
+        public String getKeepAlive() {
+            return keepAlive;
+        }
+
+        public void setKeepAlive(String keepAlive) {
+            this.keepAlive = keepAlive;
+        }
+
+        public int getDefaultPageSize() {
+            return defaultPageSize;
+        }
+
+        public void setDefaultPageSize(int defaultPageSize) {
+            this.defaultPageSize = defaultPageSize;
+        }
+
+        public int getMaxPageSize() {
+            return maxPageSize;
+        }
+
+        public void setMaxPageSize(int maxPageSize) {
+            this.maxPageSize = maxPageSize;
+        }
+    }
+
+    public static class Export {
+
+        /**
+         * Slices of the point in time read concurrently by an export.
+         */
+        private int slices = 4;
+
+        private int pageSize = 5000;
+
+        /**
+         * Exports running at once; further ones are refused until one ends.
+         */
+        private int maxConcurrentExports = 2;
+
+        /**
+         * How long the point in time of an export is kept between two pages, as an Elasticsearch time value.
+         */
+        private String keepAlive = "5m";
+
+        /**
+         * How long an export may take to be written; it is cut off beyond that.
+         */
+        private long timeoutMillis = 2 * 60 * 60 * 1000;
+
+        public int getSlices() {
+            return slices;
+        }
+
+        public void setSlices(int slices) {
+            this.slices = slices;
+        }
+
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        public void setPageSize(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        public int getMaxConcurrentExports() {
+            return maxConcurrentExports;
+        }
+
+        public void setMaxConcurrentExports(int maxConcurrentExports) {
+            this.maxConcurrentExports = maxConcurrentExports;
+        }
+
+        public String getKeepAlive() {
+            return keepAlive;
+        }
+
+        public void setKeepAlive(String keepAlive) {
+            this.keepAlive = keepAlive;
+        }
+
+        public long getTimeoutMillis() {
+            return timeoutMillis;
+        }
+
+        public void setTimeoutMillis(long timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+        }
+    }
+
+    public static class Dashboard {
+
+        /**
+         * Buckets of a histogram cached together; a late read only invalidates the block of its bucket.
+         */
+        private int bucketsPerBlock = 60;
+
+        /**
+         * Buckets a histogram request may span.
+         */
+        private int maxBuckets = 10000;
+
+        private int cacheMaxEntries = 10000;
+
+        /**
+         * Buckets held by the cache, all entries together.
+         */
+        private long cacheMaxWeight = 2000000;
+
+        /**
+         * How long after its last indexed read a block is cached: longer than indexed reads take to become searchable,
+         * that is the refresh interval of the partitions.
+         */
+        private long settleMillis = 10000;
+
+        public int getBucketsPerBlock() {
+            return bucketsPerBlock;
+        }
+
+        public void setBucketsPerBlock(int bucketsPerBlock) {
+            this.bucketsPerBlock = bucketsPerBlock;
+        }
+
+        public int getMaxBuckets() {
+            return maxBuckets;
+        }
+
+        public void setMaxBuckets(int maxBuckets) {
+            this.maxBuckets = maxBuckets;
+        }
+
+        public int getCacheMaxEntries() {
+            return cacheMaxEntries;
+        }
+
+        public void setCacheMaxEntries(int cacheMaxEntries) {
+            this.cacheMaxEntries = cacheMaxEntries;
+        }
+
+        public long getCacheMaxWeight() {
+            return cacheMaxWeight;
+        }
+
+        public void setCacheMaxWeight(long cacheMaxWeight) {
+            this.cacheMaxWeight = cacheMaxWeight;
+        }
+
+        public long getSettleMillis() {
+            return settleMillis;
+        }
+
+        public void setSettleMillis(long settleMillis) {
+            this.settleMillis = settleMillis;
+        }
+    }
+
+    public static class Security {
+
+        /**
+         * Verified JWTs remembered, by digest, until they expire; {@code 0} verifies every request again.
+         */
+        private int tokenCacheSize = 10000;
+
+        /**
+         * Successful password checks remembered, by salted digest of the credentials; {@code 0} checks them every time.
+         */
+        private int credentialCacheSize = 1000;
+
+        /**
+         * How long a successful password check is remembered.
+         */
+        private long credentialCacheMillis = 60000;
+
+        /**
+         * Properties file of the API keys of the readers, by reader name, as hexadecimal SHA-256 digests; none if empty.
+         */
+        private String apiKeysFile;
+
+        private long apiKeysReloadMillis = 10000;
+
+        /**
+         * File the revoked JWTs are kept in, to survive restarts; kept in memory only if empty.
+         */
+        private String revocationFile = "revoked-tokens";
+
+        /**
+         * Revoked JWTs the Bloom filter in front of the revocation list is sized for; it grows beyond.
+         */
+        private int revocationCapacity = 10000;
+
+        public int getTokenCacheSize() {
+            return tokenCacheSize;
+        }
+
+        public void setTokenCacheSize(int tokenCacheSize) {
+            this.tokenCacheSize = tokenCacheSize;
+        }
+
+        public int getCredentialCacheSize() {
+            return credentialCacheSize;
+        }
+
+        public void setCredentialCacheSize(int credentialCacheSize) {
+            this.credentialCacheSize = credentialCacheSize;
+        }
+
+        public long getCredentialCacheMillis() {
+            return credentialCacheMillis;
+        }
+
+        public void setCredentialCacheMillis(long credentialCacheMillis) {
+            this.credentialCacheMillis = credentialCacheMillis;
+        }
+
+        public String getApiKeysFile() {
+            return apiKeysFile;
+        }
+
+        public void setApiKeysFile(String apiKeysFile) {
+            this.apiKeysFile = apiKeysFile;
+        }
+
+        public long getApiKeysReloadMillis() {
+            return apiKeysReloadMillis;
+        }
+
+        public void setApiKeysReloadMillis(long apiKeysReloadMillis) {
+            this.apiKeysReloadMillis = apiKeysReloadMillis;
+        }
+
+        public String getRevocationFile() {
+            return revocationFile;
+        }
+
+        public void setRevocationFile(String revocationFile) {
+            this.revocationFile = revocationFile;
+        }
+
+        public int getRevocationCapacity() {
+            return revocationCapacity;
+        }
+
+        public void setRevocationCapacity(int revocationCapacity) {
+            this.revocationCapacity = revocationCapacity;
+        }
+    }
+
+    public static class Logging {
+
+        /**
+         * Log events buffered for the thread writing them, dropped once it is full; {@code 0} writes them synchronously.
+         */
+        private int bufferSize = 8192;
+
+        /**
+         * How long the buffered events are written for on shutdown.
+         */
+        private long maxFlushMillis = 1000;
+
+        private final Shipping shipping = new Shipping();
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        public long getMaxFlushMillis() {
+            return maxFlushMillis;
+        }
+
+        public void setMaxFlushMillis(long maxFlushMillis) {
+            this.maxFlushMillis = maxFlushMillis;
+        }
+
+        public Shipping getShipping() {
+            return shipping;
+        }
+
+        public static class Shipping {
+
+            /**
+             * Directory the batches of logs are spooled to while the collector is unavailable or behind.
+             */
+            private String spoolDirectory = "log-spool";
+
+            /**
+             * Most bytes of compressed logs spooled, the oldest batches being dropped beyond.
+             */
+            private long spoolMaxBytes = 268435456;
+
+            private int batchMaxBytes = 262144;
+
+            private long batchMaxMillis = 1000;
+
+            /**
+             * Batches waiting in memory for the shipping thread, which the threads logging wait for room beyond.
+             */
+            private int queueSize = 16;
+
+            private long reconnectDelayMillis = 5000;
+
+            public String getSpoolDirectory() {
+                return spoolDirectory;
+            }
+
+            public void setSpoolDirectory(String spoolDirectory) {
+                this.spoolDirectory = spoolDirectory;
+            }
+
+            public long getSpoolMaxBytes() {
+                return spoolMaxBytes;
+            }
+
+            public void setSpoolMaxBytes(long spoolMaxBytes) {
+                this.spoolMaxBytes = spoolMaxBytes;
+            }
+
+            public int getBatchMaxBytes() {
+                return batchMaxBytes;
+            }
+
+            public void setBatchMaxBytes(int batchMaxBytes) {
+                this.batchMaxBytes = batchMaxBytes;
+            }
+
+            public long getBatchMaxMillis() {
+                return batchMaxMillis;
+            }
+
+            public void setBatchMaxMillis(long batchMaxMillis) {
+                this.batchMaxMillis = batchMaxMillis;
+            }
+
+            public int getQueueSize() {
+                return queueSize;
+            }
+
+            public void setQueueSize(int queueSize) {
+                this.queueSize = queueSize;
+            }
+
+            public long getReconnectDelayMillis() {
+                return reconnectDelayMillis;
+            }
+
+            public void setReconnectDelayMillis(long reconnectDelayMillis) {
+                this.reconnectDelayMillis = reconnectDelayMillis;
+            }
+        }
+    }
 }
@@ -5,6 +5,7 @@ import ch.qos.logback.core.pattern.CompositeConverter;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
 import org.springframework.boot.ansi.AnsiColor;
@@ -19,6 +20,13 @@ public class CRLFLogConverter extends CompositeConverter<ILoggingEvent> {
     private static final String[] SAFE_LOGGERS = { "org.hibernate" };
     private static final Map<String, AnsiElement> ELEMENTS;
 
+    /**
+     * Whether each logger is safe, by logger name: there are only so many loggers.
+     */
+    private final Map<String, Boolean> safeLoggers = new ConcurrentHashMap<>();
+
+    private AnsiElement element;
+
     static {
         Map<String, AnsiElement> ansiElements = new HashMap<>();
         ansiElements.put("faint", AnsiStyle.FAINT);
@@ -31,19 +39,46 @@ public class CRLFLogConverter extends CompositeConverter<ILoggingEvent> {
         ELEMENTS = Collections.unmodifiableMap(ansiElements);
     }
 
+    @Override
+    public void start() {
+        element = ELEMENTS.get(getFirstOption());
+        super.start();
+    }
+
     @Override
     protected String transform(ILoggingEvent event, String in) {
-        AnsiElement element = ELEMENTS.get(getFirstOption());
-        if ((event.getMarker() != null && event.getMarker().contains(CRLF_SAFE_MARKER)) || isLoggerSafe(event)) {
+        // Most messages have nothing to replace, and are returned as is without being copied
+        int first = indexOfUnsafe(in, 0);
+        if (first < 0 || (event.getMarker() != null && event.getMarker().contains(CRLF_SAFE_MARKER)) || isLoggerSafe(event)) {
             return in;
         }
         String replacement = element == null ? "_" : toAnsiString("_", element);
-        return in.replaceAll("[\n\r\t]", replacement);
+        StringBuilder out = new StringBuilder(in.length() + 16);
+        int from = 0;
+        for (int i = first; i >= 0; i = indexOfUnsafe(in, from)) {
+            out.append(in, from, i).append(replacement);
+            from = i + 1;
+        }
+        return out.append(in, from, in.length()).toString();
+    }
+
+    private static int indexOfUnsafe(String in, int from) {
+        for (int i = from; i < in.length(); i++) {
+            char c = in.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\t') {
+                return i;
+            }
+        }
+        return -1;
     }
 
     protected boolean isLoggerSafe(ILoggingEvent event) {
+        return safeLoggers.computeIfAbsent(event.getLoggerName(), CRLFLogConverter::startsWithSafeLogger);
+    }
+
+    private static boolean startsWithSafeLogger(String loggerName) {
         for (String safeLogger : SAFE_LOGGERS) {
-            if (event.getLoggerName().startsWith(safeLogger)) {
+            if (loggerName.startsWith(safeLogger)) {
                 return true;
             }
         }
@@ -1,10 +1,15 @@
 package com.isoft.rfid.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isoft.rfid.repository.search.TagReadIndexMaintenance;
+import com.isoft.rfid.repository.search.TagReadIndexPartitions;
+import com.isoft.rfid.service.spool.ReadSpool;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.Arrays;
+import org.elasticsearch.client.RestClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.convert.converter.Converter;
@@ -16,6 +21,31 @@ import org.springframework.data.elasticsearch.core.convert.ElasticsearchCustomCo
 @Configuration
 public class ElasticsearchConfiguration extends ElasticsearchConfigurationSupport {
 
+    @Bean
+    public TagReadIndexPartitions tagReadIndexPartitions(ApplicationProperties applicationProperties) {
+        ApplicationProperties.Indexing properties = applicationProperties.getIndexing();
+        return new TagReadIndexPartitions(properties.getIndexName(), properties.getPartitionUnit(), properties.getMaxSearchedPartitions());
+    }
+
+    @Bean
+    public TagReadIndexMaintenance tagReadIndexMaintenance(
+        RestClient restClient,
+        ObjectMapper objectMapper,
+        TagReadIndexPartitions tagReadIndexPartitions,
+        ApplicationProperties applicationProperties,
+        ReadSpool readSpool
+    ) {
+        TagReadIndexMaintenance tagReadIndexMaintenance = new TagReadIndexMaintenance(
+            restClient,
+            objectMapper,
+            tagReadIndexPartitions,
+            applicationProperties.getIndexing().getSealDelayMillis()
+        );
+        // A spooled read may belong to a partition due to be sealed, which would then refuse it for good
+        tagReadIndexMaintenance.setSealingDeferred(() -> readSpool.getPendingBytes() > 0);
+        return tagReadIndexMaintenance;
+    }
+
     @Bean
     @Override
     public ElasticsearchCustomConversions elasticsearchCustomConversions() {
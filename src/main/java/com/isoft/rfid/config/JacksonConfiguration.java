@@ -1,7 +1,18 @@
 package com.isoft.rfid.config;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.KeyDeserializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.isoft.rfid.domain.Epc;
+import java.io.IOException;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.zalando.problem.jackson.ProblemModule;
@@ -39,4 +50,61 @@ public class JacksonConfiguration {
     public ConstraintViolationProblemModule constraintViolationProblemModule() {
         return new ConstraintViolationProblemModule();
     }
+
+    /**
+     * Support for {@link Epc}, written as a hexadecimal string.
+     * @return the corresponding Jackson module.
+     */
+    @Bean
+    public SimpleModule epcModule() {
+        SimpleModule module = new SimpleModule("EpcModule");
+        module.addSerializer(Epc.class, new EpcSerializer());
+        module.addDeserializer(Epc.class, new EpcDeserializer());
+        module.addKeySerializer(Epc.class, new EpcKeySerializer());
+        module.addKeyDeserializer(Epc.class, new EpcKeyDeserializer());
+        return module;
+    }
+
+    static class EpcSerializer extends JsonSerializer<Epc> {
+
+        @Override
+        public void serialize(Epc value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeString(value.toString());
+        }
+    }
+
+    static class EpcDeserializer extends JsonDeserializer<Epc> {
+
+        @Override
+        public Epc deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() != JsonToken.VALUE_STRING) {
+                return (Epc) ctxt.handleUnexpectedToken(Epc.class, p);
+            }
+            Epc epc = Epc.tryParse(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+            if (epc == null) {
+                return (Epc) ctxt.handleWeirdStringValue(Epc.class, p.getText(), "not a hexadecimal EPC");
+            }
+            return epc;
+        }
+    }
+
+    static class EpcKeySerializer extends JsonSerializer<Epc> {
+
+        @Override
+        public void serialize(Epc value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeFieldName(value.toString());
+        }
+    }
+
+    static class EpcKeyDeserializer extends KeyDeserializer {
+
+        @Override
+        public Object deserializeKey(String key, DeserializationContext ctxt) throws IOException {
+            Epc epc = Epc.tryParse(key);
+            if (epc == null) {
+                return ctxt.handleWeirdKey(Epc.class, key, "not a hexadecimal EPC");
+            }
+            return epc;
+        }
+    }
 }
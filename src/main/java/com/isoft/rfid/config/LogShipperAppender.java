@@ -0,0 +1,623 @@
+package com.isoft.rfid.config;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.encoder.Encoder;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Ships the log events, encoded as lines of JSON, to a TCP collector such as Logstash, from a thread of its own.
+ * <p>
+ * The events are encoded into batches, handed over to the shipping thread once full or old enough. While the collector
+ * is unavailable, or slower than the logs, the shipping thread compresses the batches into a spool directory instead,
+ * which drops the oldest ones once full, and ships them from there in order once it is back, including after a restart.
+ * The threads logging never compress nor write to the spool: they wait for room in the queue of the shipping thread
+ * when it is full, and fail the write it is stuck in if it does not make room in time. Only the batches queued for the
+ * shipping thread are kept in memory, and the batches left on shutdown are spooled.
+ * <p>
+ * A batch is shipped at least once. The collector acknowledges nothing, so a batch written is only deemed received once
+ * the connection is found still open afterwards, before the next write or once idle: until then a spooled batch is kept
+ * in the spool, and a batch from memory is spooled again if the connection turns out to be closed.
+ */
+public class LogShipperAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+
+    private static final int CHECK_TIMEOUT_MILLIS = 1;
+
+    private final ByteArrayOutputStream batch = new ByteArrayOutputStream();
+
+    private Encoder<ILoggingEvent> encoder;
+
+    private String host;
+
+    private int port;
+
+    private Path spoolDirectory;
+
+    private long spoolMaxBytes = 256L << 20;
+
+    private int batchMaxBytes = 256 << 10;
+
+    private long batchMaxMillis = 1000;
+
+    private int queueSize = 16;
+
+    private long reconnectDelayMillis = 5000;
+
+    private long maxFlushMillis = 1000;
+
+    // Guarded by this
+    private long batchStartedAt;
+
+    private BlockingQueue<byte[]> batches;
+
+    private Spool spool;
+
+    private Thread shipper;
+
+    private volatile Socket socket;
+
+    // Only accessed by the shipping thread
+    private boolean unavailable;
+
+    private byte[] unconfirmed;
+
+    private Path unconfirmedFile;
+
+    private final byte[] discarded = new byte[512];
+
+    public void setEncoder(Encoder<ILoggingEvent> encoder) {
+        this.encoder = encoder;
+    }
+
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public void setSpoolDirectory(Path spoolDirectory) {
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    /**
+     * @param spoolMaxBytes the most bytes of compressed batches spooled, the oldest batches being dropped beyond.
+     */
+    public void setSpoolMaxBytes(long spoolMaxBytes) {
+        this.spoolMaxBytes = spoolMaxBytes;
+    }
+
+    public void setBatchMaxBytes(int batchMaxBytes) {
+        this.batchMaxBytes = batchMaxBytes;
+    }
+
+    public void setBatchMaxMillis(long batchMaxMillis) {
+        this.batchMaxMillis = batchMaxMillis;
+    }
+
+    /**
+     * @param queueSize the batches waiting in memory for the shipping thread, which the threads logging wait for room
+     * beyond.
+     */
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public void setReconnectDelayMillis(long reconnectDelayMillis) {
+        this.reconnectDelayMillis = reconnectDelayMillis;
+    }
+
+    /**
+     * @param maxFlushMillis how long stopping waits for the queued batches to be shipped, before spooling them, and how
+     * long a thread logging waits for room in the queue before failing the write the shipping thread is stuck in.
+     */
+    public void setMaxFlushMillis(long maxFlushMillis) {
+        this.maxFlushMillis = maxFlushMillis;
+    }
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        if (encoder == null || host == null || spoolDirectory == null || queueSize < 1) {
+            addError("An encoder, a host, a spool directory and a queue size are required");
+            return;
+        }
+        try {
+            spool = new Spool(spoolDirectory, spoolMaxBytes);
+        } catch (IOException e) {
+            addError("Cannot open the log spool " + spoolDirectory, e);
+            return;
+        }
+        if (!spool.isEmpty()) {
+            addInfo("Shipping " + spool.size() + " batches of logs spooled in " + spoolDirectory + " first");
+        }
+        // Fair, so that the threads waiting for room hand their batches over in order
+        batches = new ArrayBlockingQueue<>(queueSize, true);
+        shipper = new Thread(this::ship, "rfid-log-shipper");
+        shipper.setDaemon(true);
+        super.start();
+        shipper.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        byte[] sealed;
+        synchronized (this) {
+            sealed = seal();
+        }
+        handOver(sealed);
+        shipper.interrupt();
+        try {
+            shipper.join(maxFlushMillis);
+            if (shipper.isAlive()) {
+                // Stuck writing to the collector: failing the write spools the batch
+                disconnect();
+                shipper.join(maxFlushMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        spoolQueued();
+        disconnect();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        byte[] sealed = null;
+        synchronized (this) {
+            byte[] encoded = encoder.encode(event);
+            if (batch.size() == 0) {
+                batchStartedAt = System.currentTimeMillis();
+            }
+            batch.write(encoded, 0, encoded.length);
+            if (batch.size() >= batchMaxBytes) {
+                sealed = seal();
+            }
+        }
+        handOver(sealed);
+    }
+
+    /**
+     * Seal the current batch if it is older than the given age; called by the shipping thread, which spools the batch
+     * rather than wait for room in its own queue.
+     */
+    private void sealIfOlderThan(long millis) {
+        byte[] sealed = null;
+        synchronized (this) {
+            if (batch.size() > 0 && System.currentTimeMillis() - batchStartedAt >= millis) {
+                sealed = seal();
+            }
+        }
+        if (sealed != null && !batches.offer(sealed)) {
+            spoolQueued();
+            spool(sealed, false);
+        }
+    }
+
+    /**
+     * @return the current batch, or {@code null} if it is empty; called holding the lock of the appender.
+     */
+    private byte[] seal() {
+        if (batch.size() == 0) {
+            return null;
+        }
+        byte[] sealed = batch.toByteArray();
+        batch.reset();
+        return sealed;
+    }
+
+    /**
+     * Hand a batch over to the shipping thread, waiting for room in its queue; never called holding the lock of the
+     * appender, so that the shipping thread can seal the current batch meanwhile.
+     */
+    private void handOver(byte[] sealed) {
+        if (sealed == null) {
+            return;
+        }
+        try {
+            if (batches.offer(sealed) || batches.offer(sealed, maxFlushMillis, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+            // Stuck writing to the collector: failing the write has the shipping thread spool the queued batches
+            disconnect();
+            if (batches.offer(sealed, maxFlushMillis, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        addError("Dropped a batch of " + sealed.length + " bytes of logs, the shipping thread did not take it in time");
+    }
+
+    /**
+     * Spool the queued batches after the spooled ones, which are older.
+     */
+    private void spoolQueued() {
+        List<byte[]> queued = new ArrayList<>();
+        batches.drainTo(queued);
+        for (byte[] sealed : queued) {
+            spool(sealed, false);
+        }
+    }
+
+    private void spool(byte[] sealed, boolean first) {
+        try {
+            int dropped = first ? spool.addFirst(sealed) : spool.add(sealed);
+            if (dropped > 0) {
+                addWarn("Dropped the " + dropped + " oldest batches of logs, over " + spoolMaxBytes + " bytes spooled");
+            }
+        } catch (IOException e) {
+            addError("Dropped a batch of " + sealed.length + " bytes of logs, which cannot be spooled", e);
+        }
+    }
+
+    private void ship() {
+        for (;;) {
+            boolean stopping = !isStarted();
+            byte[] queued = null;
+            Path spooledFile = spool.next(unconfirmedFile);
+            byte[] spooled = null;
+            try {
+                if (spooledFile != null) {
+                    // The queued batches are newer than the spooled ones: they follow them there, to be shipped in order
+                    spoolQueued();
+                    if (stopping) {
+                        confirm();
+                        return;
+                    }
+                    if ((spooled = readSpooled(spooledFile)) == null) {
+                        continue;
+                    }
+                } else if ((queued = batches.poll()) == null) {
+                    if (stopping) {
+                        confirm();
+                        return;
+                    }
+                    queued = batches.poll(batchMaxMillis, TimeUnit.MILLISECONDS);
+                    if (queued == null) {
+                        confirm();
+                        sealIfOlderThan(batchMaxMillis);
+                        continue;
+                    }
+                }
+                write(queued != null ? queued : spooled);
+                unconfirmed = queued;
+                unconfirmedFile = spooled != null ? spooledFile : null;
+                if (unavailable) {
+                    addInfo("Shipping logs to " + host + ":" + port + " again");
+                    unavailable = false;
+                }
+            } catch (InterruptedException e) {
+                // Stopping: the batches still queued are shipped first
+            } catch (IOException e) {
+                disconnect();
+                // The batch written last is older than the spooled ones, the batch that failed newer
+                if (unconfirmed != null) {
+                    spool(unconfirmed, true);
+                }
+                if (queued != null) {
+                    spool(queued, false);
+                }
+                unconfirmed = null;
+                unconfirmedFile = null;
+                if (!unavailable) {
+                    addWarn("Cannot ship logs to " + host + ":" + port + ", spooling them until it is back: " + e);
+                    unavailable = true;
+                }
+                if (stopping) {
+                    return;
+                }
+                awaitReconnect();
+            }
+        }
+    }
+
+    /**
+     * Wait before connecting again, spooling the batches handed over meanwhile so that the threads logging never wait.
+     */
+    private void awaitReconnect() {
+        long deadline = System.currentTimeMillis() + reconnectDelayMillis;
+        try {
+            for (long left = reconnectDelayMillis; left > 0 && isStarted(); left = deadline - System.currentTimeMillis()) {
+                byte[] queued = batches.poll(Math.min(left, batchMaxMillis), TimeUnit.MILLISECONDS);
+                if (queued != null) {
+                    spool(queued, false);
+                } else {
+                    sealIfOlderThan(batchMaxMillis);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Stopping
+        }
+    }
+
+    private byte[] readSpooled(Path file) {
+        try {
+            return spool.read(file);
+        } catch (IOException e) {
+            addError("Dropped a spooled batch of logs, which cannot be read", e);
+            try {
+                spool.remove(file);
+            } catch (IOException removal) {
+                addError("Cannot delete a spooled batch of logs", removal);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Write a batch, once the batch written before is confirmed.
+     */
+    private void write(byte[] lines) throws IOException {
+        confirm();
+        Socket connected = socket;
+        if (connected == null) {
+            connected = new Socket();
+            try {
+                connected.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+                connected.setSoTimeout(CHECK_TIMEOUT_MILLIS);
+            } catch (IOException e) {
+                connected.close();
+                throw e;
+            }
+            socket = connected;
+        }
+        OutputStream out = connected.getOutputStream();
+        out.write(lines);
+        out.flush();
+    }
+
+    /**
+     * Confirm that the batch written last was received, as the collector did not close the connection since: only
+     * then is it deleted from the spool if it was spooled.
+     *
+     * @throws IOException if the connection was closed or reset, and the batch may have been lost.
+     */
+    private void confirm() throws IOException {
+        if (unconfirmed == null && unconfirmedFile == null) {
+            return;
+        }
+        Socket connected = socket;
+        if (connected == null) {
+            throw new SocketException("Disconnected from the collector");
+        }
+        try {
+            // The collector sends nothing, but closing the connection
+            while (connected.getInputStream().read(discarded) >= 0) {
+                // Discarded
+            }
+            throw new EOFException("Connection closed by the collector");
+        } catch (SocketTimeoutException e) {
+            // Still open
+        }
+        if (unconfirmedFile != null) {
+            // Batches may have been dropped or added before it meanwhile
+            spool.remove(unconfirmedFile);
+        }
+        unconfirmed = null;
+        unconfirmedFile = null;
+    }
+
+    private void disconnect() {
+        Socket connected = socket;
+        socket = null;
+        if (connected != null) {
+            try {
+                connected.close();
+            } catch (IOException e) {
+                // Already broken
+            }
+        }
+    }
+
+    /**
+     * The spooled batches, a compressed file each named after its sequence number, the oldest first.
+     * <p>
+     * Batches are added after the spooled ones, or before them for the batches queued in memory, which are older. The
+     * sequence numbers are written in hexadecimal with the sign bit flipped, so that the names sort as the numbers,
+     * even below zero.
+     */
+    static final class Spool {
+
+        private static final String SUFFIX = ".json.gz";
+
+        private final Path directory;
+
+        private final long maxBytes;
+
+        private final Deque<Path> files = new ArrayDeque<>();
+
+        private final Deque<Long> sizes = new ArrayDeque<>();
+
+        private long bytes;
+
+        private long first;
+
+        private long next;
+
+        Spool(Path directory, long maxBytes) throws IOException {
+            this.directory = directory;
+            this.maxBytes = maxBytes;
+            Files.createDirectories(directory);
+            List<Path> spooled;
+            try (Stream<Path> listed = Files.list(directory)) {
+                spooled = listed.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).sorted().collect(Collectors.toList());
+            }
+            for (Path file : spooled) {
+                String name = file.getFileName().toString();
+                long sequence;
+                try {
+                    sequence = Long.parseUnsignedLong(name.substring(0, name.length() - SUFFIX.length()), 16) ^ Long.MIN_VALUE;
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                if (files.isEmpty()) {
+                    first = sequence;
+                }
+                next = sequence + 1;
+                long size = Files.size(file);
+                files.addLast(file);
+                sizes.addLast(size);
+                bytes += size;
+            }
+        }
+
+        synchronized boolean isEmpty() {
+            return files.isEmpty();
+        }
+
+        synchronized int size() {
+            return files.size();
+        }
+
+        /**
+         * Add a batch after the spooled ones.
+         *
+         * @return how many of the oldest batches were dropped to make room.
+         */
+        synchronized int add(byte[] lines) throws IOException {
+            long size = write(next, lines);
+            Path file = file(next++);
+            files.addLast(file);
+            sizes.addLast(size);
+            return added(size);
+        }
+
+        /**
+         * Add a batch before the spooled ones.
+         *
+         * @return how many of the oldest batches were dropped to make room.
+         */
+        synchronized int addFirst(byte[] lines) throws IOException {
+            if (files.isEmpty()) {
+                return add(lines);
+            }
+            long size = write(first - 1, lines);
+            Path file = file(--first);
+            files.addFirst(file);
+            sizes.addFirst(size);
+            return added(size);
+        }
+
+        /**
+         * @return the file of the oldest batch, or {@code null} if none is spooled.
+         */
+        synchronized Path head() {
+            return files.peekFirst();
+        }
+
+        /**
+         * @return the file of the oldest batch after the given one, or of the oldest batch if the given one is
+         * {@code null} or was dropped, or {@code null} if there is none.
+         */
+        synchronized Path next(Path previous) {
+            if (previous == null) {
+                return files.peekFirst();
+            }
+            Iterator<Path> spooledFiles = files.iterator();
+            while (spooledFiles.hasNext()) {
+                if (spooledFiles.next().equals(previous)) {
+                    return spooledFiles.hasNext() ? spooledFiles.next() : null;
+                }
+            }
+            return files.peekFirst();
+        }
+
+        /**
+         * @return the lines of a spooled batch; fails if the batch was dropped since.
+         */
+        byte[] read(Path file) throws IOException {
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+                return in.readAllBytes();
+            }
+        }
+
+        /**
+         * Remove a batch, unless it was already dropped.
+         */
+        synchronized void remove(Path file) throws IOException {
+            if (file.equals(files.peekFirst())) {
+                removeFirst();
+                return;
+            }
+            Iterator<Path> spooledFiles = files.iterator();
+            Iterator<Long> spooledSizes = sizes.iterator();
+            while (spooledFiles.hasNext()) {
+                long size = spooledSizes.next();
+                if (spooledFiles.next().equals(file)) {
+                    spooledFiles.remove();
+                    spooledSizes.remove();
+                    bytes -= size;
+                    Files.deleteIfExists(file);
+                    return;
+                }
+            }
+        }
+
+        private void removeFirst() throws IOException {
+            Path file = files.removeFirst();
+            bytes -= sizes.removeFirst();
+            first++;
+            Files.deleteIfExists(file);
+        }
+
+        private Path file(long sequence) {
+            return directory.resolve(String.format("%016x%s", sequence ^ Long.MIN_VALUE, SUFFIX));
+        }
+
+        private long write(long sequence, byte[] lines) throws IOException {
+            Path file = file(sequence);
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temporary))) {
+                out.write(lines);
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+            return Files.size(file);
+        }
+
+        private int added(long size) throws IOException {
+            if (files.size() == 1) {
+                first = next - 1;
+            }
+            bytes += size;
+            int dropped = 0;
+            while (bytes > maxBytes && files.size() > 1) {
+                removeFirst();
+                dropped++;
+            }
+            return dropped;
+        }
+    }
+}
@@ -2,18 +2,30 @@ package com.isoft.rfid.config;
 
 import static tech.jhipster.config.logging.LoggingUtils.*;
 
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggerContextListener;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.AsyncAppenderBase;
+import ch.qos.logback.core.spi.ContextAwareBase;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import net.logstash.logback.encoder.LogstashEncoder;
+import net.logstash.logback.stacktrace.ShortenedThrowableConverter;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import tech.jhipster.config.JHipsterProperties;
 
 /*
- * Configures the console and Logstash log appenders from the app properties
+ * Configures the console and Logstash log appenders from the app properties, and moves them behind a ring buffer
  */
 @Configuration
 public class LoggingConfiguration {
@@ -22,6 +34,7 @@ public class LoggingConfiguration {
         @Value("${spring.application.name}") String appName,
         @Value("${server.port}") String serverPort,
         JHipsterProperties jHipsterProperties,
+        ApplicationProperties applicationProperties,
         ObjectMapper mapper
     ) throws JsonProcessingException {
         LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
@@ -32,16 +45,128 @@ public class LoggingConfiguration {
         String customFields = mapper.writeValueAsString(map);
 
         JHipsterProperties.Logging loggingProperties = jHipsterProperties.getLogging();
-        JHipsterProperties.Logging.Logstash logstashProperties = loggingProperties.getLogstash();
+        ApplicationProperties.Logging applicationLogging = applicationProperties.getLogging();
 
+        configure(context, customFields, loggingProperties, applicationLogging);
+        if (loggingProperties.isUseJsonFormat() || loggingProperties.getLogstash().isEnabled() || applicationLogging.getBufferSize() > 0) {
+            ReconfiguringListener listener = new ReconfiguringListener(
+                () -> configure(context, customFields, loggingProperties, applicationLogging)
+            );
+            listener.setContext(context);
+            context.addListener(listener);
+        }
+    }
+
+    private static void configure(
+        LoggerContext context,
+        String customFields,
+        JHipsterProperties.Logging loggingProperties,
+        ApplicationProperties.Logging applicationLogging
+    ) {
         if (loggingProperties.isUseJsonFormat()) {
             addJsonConsoleAppender(context, customFields);
         }
-        if (logstashProperties.isEnabled()) {
-            addLogstashTcpSocketAppender(context, customFields, logstashProperties);
+        if (loggingProperties.getLogstash().isEnabled()) {
+            addLogShipperAppender(context, customFields, loggingProperties.getLogstash(), applicationLogging);
         }
-        if (loggingProperties.isUseJsonFormat() || logstashProperties.isEnabled()) {
-            addContextListener(context, customFields, loggingProperties);
+        if (applicationLogging.getBufferSize() > 0) {
+            addRingBufferAppender(context, applicationLogging);
         }
     }
+
+    /**
+     * Ships the logs to Logstash with a {@link LogShipperAppender}, in place of the Logstash TCP appender, with the
+     * same JSON encoding.
+     */
+    private static void addLogShipperAppender(
+        LoggerContext context,
+        String customFields,
+        JHipsterProperties.Logging.Logstash logstashProperties,
+        ApplicationProperties.Logging properties
+    ) {
+        ShortenedThrowableConverter throwableConverter = new ShortenedThrowableConverter();
+        throwableConverter.setRootCauseFirst(true);
+        LogstashEncoder encoder = new LogstashEncoder();
+        encoder.setContext(context);
+        encoder.setThrowableConverter(throwableConverter);
+        encoder.setCustomFields(customFields);
+        encoder.setLineSeparator("UNIX");
+        encoder.start();
+
+        ApplicationProperties.Logging.Shipping shipping = properties.getShipping();
+        LogShipperAppender logShipperAppender = new LogShipperAppender();
+        logShipperAppender.setContext(context);
+        logShipperAppender.setName("LOGSTASH");
+        logShipperAppender.setEncoder(encoder);
+        logShipperAppender.setHost(logstashProperties.getHost());
+        logShipperAppender.setPort(logstashProperties.getPort());
+        logShipperAppender.setSpoolDirectory(Paths.get(shipping.getSpoolDirectory()));
+        logShipperAppender.setSpoolMaxBytes(shipping.getSpoolMaxBytes());
+        logShipperAppender.setBatchMaxBytes(shipping.getBatchMaxBytes());
+        logShipperAppender.setBatchMaxMillis(shipping.getBatchMaxMillis());
+        logShipperAppender.setQueueSize(shipping.getQueueSize());
+        logShipperAppender.setReconnectDelayMillis(shipping.getReconnectDelayMillis());
+        logShipperAppender.setMaxFlushMillis(properties.getMaxFlushMillis());
+        logShipperAppender.start();
+        context.getLogger(Logger.ROOT_LOGGER_NAME).addAppender(logShipperAppender);
+    }
+
+    /**
+     * Moves the appenders of the root logger, but those already writing from a thread of their own, behind a
+     * {@link RingBufferAppender}. The {@link LogShipperAppender} is one of them: the ring drops events when full, which
+     * must not lose the shipped logs, audit events included.
+     * <p>
+     * When logback resets the configuration after the file changed, the appenders of the file are added after this
+     * ran again, and are written synchronously from then on.
+     */
+    private static void addRingBufferAppender(LoggerContext context, ApplicationProperties.Logging properties) {
+        Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        List<Appender<ILoggingEvent>> appenders = new ArrayList<>();
+        root.iteratorForAppenders().forEachRemaining(appender -> {
+            if (!(appender instanceof AsyncAppenderBase) && !(appender instanceof LogShipperAppender)) {
+                appenders.add(appender);
+            }
+        });
+        if (appenders.isEmpty()) {
+            return;
+        }
+        RingBufferAppender ringBufferAppender = new RingBufferAppender();
+        ringBufferAppender.setContext(context);
+        ringBufferAppender.setName("RING_BUFFER");
+        ringBufferAppender.setBufferSize(properties.getBufferSize());
+        ringBufferAppender.setMaxFlushMillis(properties.getMaxFlushMillis());
+        ringBufferAppender.start();
+        ringBufferAppender.takeOver(root, appenders);
+    }
+
+    /**
+     * Configures the appenders again once logback has reset them, when it scanned a change of its configuration file.
+     */
+    private static class ReconfiguringListener extends ContextAwareBase implements LoggerContextListener {
+
+        private final Runnable configure;
+
+        ReconfiguringListener(Runnable configure) {
+            this.configure = configure;
+        }
+
+        @Override
+        public boolean isResetResistant() {
+            return true;
+        }
+
+        @Override
+        public void onStart(LoggerContext context) {}
+
+        @Override
+        public void onReset(LoggerContext context) {
+            configure.run();
+        }
+
+        @Override
+        public void onStop(LoggerContext context) {}
+
+        @Override
+        public void onLevelChange(Logger logger, Level level) {}
+    }
 }
@@ -0,0 +1,328 @@
+package com.isoft.rfid.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.filter.Filter;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+import ch.qos.logback.core.spi.FilterReply;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands the log events over to a single thread writing them to the attached appenders, so that the threads logging
+ * never wait for the console or the files.
+ * <p>
+ * Unlike the logback {@code AsyncAppender}, whose blocking queue takes a lock on every event and blocks the threads
+ * logging when it is full, the events go through a lock-free bounded ring buffer, and are dropped when it is full:
+ * how many were dropped is logged once the writer catches up.
+ */
+public class RingBufferAppender extends UnsynchronizedAppenderBase<ILoggingEvent> implements AppenderAttachable<ILoggingEvent> {
+
+    private static final long MAX_IDLE_NANOS = 100_000_000L;
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private int bufferSize = 8192;
+
+    private long maxFlushMillis = 1000;
+
+    private Ring ring;
+
+    private Thread writer;
+
+    private volatile boolean idle;
+
+    private volatile Handover[] handovers = new Handover[0];
+
+    /**
+     * @param bufferSize the events the buffer holds, rounded up to a power of two.
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * @param maxFlushMillis how long stopping waits for the buffered events to be written.
+     */
+    public void setMaxFlushMillis(long maxFlushMillis) {
+        this.maxFlushMillis = maxFlushMillis;
+    }
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        if (bufferSize < 1) {
+            addError("Invalid buffer size " + bufferSize);
+            return;
+        }
+        ring = new Ring(Integer.highestOneBit(Math.max(1, bufferSize - 1)) << 1);
+        writer = new Thread(this::write, "rfid-log-writer");
+        writer.setDaemon(true);
+        super.start();
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        LockSupport.unpark(writer);
+        try {
+            writer.join(maxFlushMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            addWarn("Stopped before all the buffered events were written");
+        }
+    }
+
+    /**
+     * Move appenders of a logger behind this started appender, which is attached to the logger in their place.
+     * <p>
+     * The appenders cannot be swapped atomically: a thread logging meanwhile may still write an event to some of them
+     * directly, then hand it to this appender. Each of them is given a filter noting the events it was given directly,
+     * which this appender then writes synchronously to the others only, so that no event is lost nor written twice.
+     */
+    public void takeOver(Logger logger, List<Appender<ILoggingEvent>> moved) {
+        Handover[] taken = new Handover[moved.size()];
+        for (int i = 0; i < taken.length; i++) {
+            Appender<ILoggingEvent> appender = moved.get(i);
+            taken[i] = new Handover(appender);
+            // Last in the chain of filters, so that it only notes the events the appender writes
+            appender.addFilter(taken[i]);
+            addAppender(appender);
+        }
+        handovers = taken;
+        logger.addAppender(this);
+        moved.forEach(logger::detachAppender);
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        // Captures the thread name, the MDC and the formatted message before the event changes hands
+        event.prepareForDeferredProcessing();
+        Handover[] taken = handovers;
+        if (taken.length > 0 && appendHandedOver(event, taken)) {
+            return;
+        }
+        if (!ring.offer(event)) {
+            dropped.incrementAndGet();
+            return;
+        }
+        if (idle) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * @return {@code true} if some of the appenders taken over were given the event directly, in which case it was
+     * written to the others.
+     */
+    private boolean appendHandedOver(ILoggingEvent event, Handover[] taken) {
+        boolean[] given = new boolean[taken.length];
+        boolean any = false;
+        for (int i = 0; i < taken.length; i++) {
+            given[i] = taken[i].wasGiven(event);
+            any |= given[i];
+        }
+        if (any) {
+            for (int i = 0; i < taken.length; i++) {
+                if (!given[i]) {
+                    taken[i].appender.doAppend(event);
+                }
+            }
+        }
+        return any;
+    }
+
+    private void write() {
+        try {
+            for (;;) {
+                ILoggingEvent event = ring.poll();
+                if (event != null) {
+                    appenders.appendLoopOnAppenders(event);
+                    continue;
+                }
+                reportDropped();
+                if (!isStarted()) {
+                    return;
+                }
+                idle = true;
+                if (ring.isEmpty() && isStarted()) {
+                    LockSupport.parkNanos(this, MAX_IDLE_NANOS);
+                }
+                idle = false;
+            }
+        } finally {
+            appenders.detachAndStopAllAppenders();
+        }
+    }
+
+    private void reportDropped() {
+        long count = dropped.getAndSet(0);
+        if (count > 0 && getContext() instanceof LoggerContext) {
+            LoggingEvent event = new LoggingEvent(
+                RingBufferAppender.class.getName(),
+                ((LoggerContext) getContext()).getLogger(RingBufferAppender.class),
+                Level.WARN,
+                "{} log events were dropped, as they came faster than they could be written",
+                null,
+                new Object[] { count }
+            );
+            appenders.appendLoopOnAppenders(event);
+        }
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> newAppender) {
+        appenders.addAppender(newAppender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+
+    /**
+     * Notes the last event a thread logging gave an appender directly, rather than through the buffer.
+     */
+    private final class Handover extends Filter<ILoggingEvent> {
+
+        private final Appender<ILoggingEvent> appender;
+
+        private final ThreadLocal<ILoggingEvent> given = new ThreadLocal<>();
+
+        Handover(Appender<ILoggingEvent> appender) {
+            this.appender = appender;
+            start();
+        }
+
+        @Override
+        public FilterReply decide(ILoggingEvent event) {
+            if (Thread.currentThread() != writer) {
+                given.set(event);
+            }
+            return FilterReply.NEUTRAL;
+        }
+
+        boolean wasGiven(ILoggingEvent event) {
+            if (given.get() != event) {
+                return false;
+            }
+            given.remove();
+            return true;
+        }
+    }
+
+    /**
+     * A bounded queue of many producers and a single consumer, where each slot has a sequence number telling whether
+     * it is free for the producer claiming its position, or filled for the consumer.
+     */
+    static final class Ring {
+
+        private final int mask;
+
+        private final AtomicReferenceArray<ILoggingEvent> events;
+
+        private final AtomicLongArray sequences;
+
+        private final AtomicLong tail = new AtomicLong();
+
+        private long head;
+
+        Ring(int capacity) {
+            this.mask = capacity - 1;
+            this.events = new AtomicReferenceArray<>(capacity);
+            this.sequences = new AtomicLongArray(capacity);
+            for (int i = 0; i < capacity; i++) {
+                sequences.set(i, i);
+            }
+        }
+
+        /**
+         * @return {@code false} if the ring is full.
+         */
+        boolean offer(ILoggingEvent event) {
+            long position;
+            for (;;) {
+                position = tail.get();
+                long sequence = sequences.get((int) position & mask);
+                if (sequence < position) {
+                    return false;
+                }
+                if (sequence == position && tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            }
+            int slot = (int) position & mask;
+            events.lazySet(slot, event);
+            sequences.set(slot, position + 1);
+            return true;
+        }
+
+        /**
+         * @return the oldest event, or {@code null} if the ring is empty; only called by the consumer.
+         */
+        ILoggingEvent poll() {
+            int slot = (int) head & mask;
+            if (sequences.get(slot) != head + 1) {
+                return null;
+            }
+            ILoggingEvent event = events.get(slot);
+            events.lazySet(slot, null);
+            sequences.set(slot, head + mask + 1);
+            head++;
+            return event;
+        }
+
+        boolean isEmpty() {
+            return sequences.get((int) head & mask) != head + 1;
+        }
+    }
+}
@@ -1,14 +1,21 @@
 package com.isoft.rfid.config;
 
+import com.isoft.rfid.management.SecurityMetersService;
 import com.isoft.rfid.security.*;
+import com.isoft.rfid.security.apikey.*;
 import com.isoft.rfid.security.jwt.*;
+import java.util.regex.Pattern;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.header.writers.ReferrerPolicyHeaderWriter;
@@ -21,25 +28,63 @@ import tech.jhipster.config.JHipsterProperties;
 @Import(SecurityProblemSupport.class)
 public class SecurityConfiguration {
 
+    private static final Pattern PASSWORD_ALGORITHM_PATTERN = Pattern.compile("^\\{.+}.*$");
+
     private final JHipsterProperties jHipsterProperties;
 
     private final TokenProvider tokenProvider;
 
+    private final ApiKeyStore apiKeyStore;
+
     private final CorsFilter corsFilter;
     private final SecurityProblemSupport problemSupport;
 
     public SecurityConfiguration(
         TokenProvider tokenProvider,
+        ApiKeyStore apiKeyStore,
         CorsFilter corsFilter,
         JHipsterProperties jHipsterProperties,
         SecurityProblemSupport problemSupport
     ) {
         this.tokenProvider = tokenProvider;
+        this.apiKeyStore = apiKeyStore;
         this.corsFilter = corsFilter;
         this.problemSupport = problemSupport;
         this.jHipsterProperties = jHipsterProperties;
     }
 
+    /**
+     * The user of {@code spring.security.user}, as Spring Boot would configure it: passwords without an
+     * {@code {id}} prefix are plain text.
+     */
+    @Bean
+    public InMemoryUserDetailsManager userDetailsService(SecurityProperties securityProperties) {
+        SecurityProperties.User user = securityProperties.getUser();
+        String password = user.getPassword();
+        if (!PASSWORD_ALGORITHM_PATTERN.matcher(password).matches()) {
+            password = "{noop}" + password;
+        }
+        return new InMemoryUserDetailsManager(
+            User.withUsername(user.getName()).password(password).roles(user.getRoles().toArray(new String[0])).build()
+        );
+    }
+
+    /**
+     * The password checks of the logins and of the HTTP Basic requests, which are remembered for a short while. The
+     * passwords are upgraded to the default encoding, bcrypt, on their first check.
+     */
+    @Bean
+    public CachingAuthenticationProvider authenticationProvider(
+        InMemoryUserDetailsManager userDetailsService,
+        SecurityMetersService securityMetersService,
+        ApplicationProperties applicationProperties
+    ) {
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+        provider.setUserDetailsService(userDetailsService);
+        provider.setUserDetailsPasswordService(userDetailsService);
+        return new CachingAuthenticationProvider(provider, userDetailsService, securityMetersService, applicationProperties);
+    }
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         // @formatter:off
@@ -81,7 +126,9 @@ public class SecurityConfiguration {
         .and()
             .httpBasic()
         .and()
-            .apply(securityConfigurerAdapter());
+            .apply(securityConfigurerAdapter())
+        .and()
+            .apply(new ApiKeyConfigurer(apiKeyStore));
         return http.build();
         // @formatter:on
     }
@@ -0,0 +1,288 @@
+package com.isoft.rfid.domain;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * An Electronic Product Code of up to 256 bits, stored in four {@code long}s.
+ * <p>
+ * The bits are left-aligned: the most significant bit of the EPC is the most significant bit of the first word, so
+ * that bit {@code n} of the EPC, counting from the header, is always bit {@code 63 - n % 64} of word {@code n / 64}.
+ * The bit length is a multiple of 16, the size of a tag memory word. Hashing and equality only involve primitive fields,
+ * and parsing does not allocate anything but the resulting instance.
+ */
+public final class Epc implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int MAX_BITS = 256;
+
+    private static final int WORD_BITS = 16;
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(HEX_VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            HEX_VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            HEX_VALUES['a' + i] = (byte) (10 + i);
+            HEX_VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private final int bitLength;
+
+    private final long word0;
+
+    private final long word1;
+
+    private final long word2;
+
+    private final long word3;
+
+    private transient String hex;
+
+    private Epc(int bitLength, long word0, long word1, long word2, long word3) {
+        this.bitLength = bitLength;
+        this.word0 = word0;
+        this.word1 = word1;
+        this.word2 = word2;
+        this.word3 = word3;
+    }
+
+    /**
+     * Build an EPC from left-aligned words; the bits beyond {@code bitLength} are cleared.
+     *
+     * @param bitLength the number of bits of the EPC, a multiple of 16 between 16 and 256.
+     * @param words up to four left-aligned words.
+     * @return the EPC.
+     */
+    public static Epc of(int bitLength, long... words) {
+        if (bitLength < WORD_BITS || bitLength > MAX_BITS || bitLength % WORD_BITS != 0 || words.length > 4) {
+            throw new IllegalArgumentException("Invalid EPC bit length: " + bitLength);
+        }
+        long[] w = Arrays.copyOf(words, 4);
+        for (int i = 0; i < 4; i++) {
+            w[i] &= mask(bitLength, i);
+        }
+        return new Epc(bitLength, w[0], w[1], w[2], w[3]);
+    }
+
+    /**
+     * Parse a hexadecimal EPC.
+     *
+     * @param hex 4 to 64 hexadecimal digits, in multiples of 4, in either case.
+     * @return the EPC.
+     * @throws IllegalArgumentException if {@code hex} is not a valid EPC.
+     */
+    public static Epc parse(CharSequence hex) {
+        Epc epc = tryParse(hex);
+        if (epc == null) {
+            throw new IllegalArgumentException("Invalid EPC: " + hex);
+        }
+        return epc;
+    }
+
+    /**
+     * Parse a hexadecimal EPC.
+     *
+     * @param hex 4 to 64 hexadecimal digits, in multiples of 4, in either case.
+     * @return the EPC, or {@code null} if {@code hex} is not a valid EPC.
+     */
+    public static Epc tryParse(CharSequence hex) {
+        return hex == null ? null : parseHex(hex, 0, hex.length());
+    }
+
+    /**
+     * Parse a hexadecimal EPC from characters, for example those of a JSON parser buffer.
+     *
+     * @return the EPC, or {@code null} if the characters are not a valid EPC.
+     */
+    public static Epc tryParse(char[] chars, int offset, int length) {
+        return parseHex(chars, offset, length);
+    }
+
+    /**
+     * Parse a hexadecimal EPC from ASCII bytes.
+     *
+     * @return the EPC, or {@code null} if the bytes are not a valid EPC.
+     */
+    public static Epc tryParse(byte[] ascii, int offset, int length) {
+        return parseHex(ascii, offset, length);
+    }
+
+    /**
+     * @param digits a {@link CharSequence}, a {@code char[]} or a {@code byte[]} of ASCII characters.
+     */
+    private static Epc parseHex(Object digits, int offset, int length) {
+        if (!isValidDigitCount(length)) {
+            return null;
+        }
+        long w0 = 0, w1 = 0, w2 = 0, w3 = 0;
+        for (int i = 0; i < length; i++) {
+            long value = hexValue(digitAt(digits, offset + i));
+            if (value < 0) {
+                return null;
+            }
+            long shifted = value << (60 - ((i & 15) << 2));
+            switch (i >>> 4) {
+                case 0:
+                    w0 |= shifted;
+                    break;
+                case 1:
+                    w1 |= shifted;
+                    break;
+                case 2:
+                    w2 |= shifted;
+                    break;
+                default:
+                    w3 |= shifted;
+            }
+        }
+        return new Epc(length << 2, w0, w1, w2, w3);
+    }
+
+    private static int digitAt(Object digits, int index) {
+        if (digits instanceof byte[]) {
+            return ((byte[]) digits)[index];
+        }
+        if (digits instanceof char[]) {
+            return ((char[]) digits)[index];
+        }
+        return ((CharSequence) digits).charAt(index);
+    }
+
+    /**
+     * Read a binary EPC, as found in tag memory or in reader protocols, from the current position of {@code buffer}.
+     * <p>
+     * The bits are read in whole 16-bit words, so {@code bitLength} is rounded up to a multiple of 16 and the buffer
+     * position advances by that many bits.
+     *
+     * @param buffer the buffer to read from.
+     * @param bitLength the number of bits of the EPC, between 1 and 256.
+     * @return the EPC.
+     */
+    public static Epc read(ByteBuffer buffer, int bitLength) {
+        if (bitLength <= 0 || bitLength > MAX_BITS) {
+            throw new IllegalArgumentException("Invalid EPC bit length: " + bitLength);
+        }
+        int byteCount = ((bitLength + WORD_BITS - 1) / WORD_BITS) * 2;
+        long w0 = 0, w1 = 0, w2 = 0, w3 = 0;
+        for (int i = 0; i < byteCount; i++) {
+            long shifted = (buffer.get() & 0xFFL) << (56 - ((i & 7) << 3));
+            switch (i >>> 3) {
+                case 0:
+                    w0 |= shifted;
+                    break;
+                case 1:
+                    w1 |= shifted;
+                    break;
+                case 2:
+                    w2 |= shifted;
+                    break;
+                default:
+                    w3 |= shifted;
+            }
+        }
+        return new Epc(byteCount << 3, w0, w1, w2, w3);
+    }
+
+    public int getBitLength() {
+        return bitLength;
+    }
+
+    /**
+     * @param index the index of the word, from 0 to 3.
+     * @return the left-aligned word.
+     */
+    public long getWord(int index) {
+        switch (index) {
+            case 0:
+                return word0;
+            case 1:
+                return word1;
+            case 2:
+                return word2;
+            case 3:
+                return word3;
+            default:
+                throw new IndexOutOfBoundsException(index);
+        }
+    }
+
+    /**
+     * Extract up to 64 bits.
+     *
+     * @param offset the offset of the first bit, counting from the most significant bit of the EPC.
+     * @param length the number of bits to extract, between 1 and 64.
+     * @return the bits, right-aligned.
+     */
+    public long getBits(int offset, int length) {
+        int index = offset >>> 6;
+        int shift = offset & 63;
+        long value = getWord(index) << shift;
+        if (shift + length > 64 && index < 3) {
+            value |= getWord(index + 1) >>> (64 - shift);
+        }
+        return value >>> (64 - length);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Epc)) {
+            return false;
+        }
+        Epc other = (Epc) o;
+        return bitLength == other.bitLength && word0 == other.word0 && word1 == other.word1 && word2 == other.word2 && word3 == other.word3;
+    }
+
+    @Override
+    public int hashCode() {
+        long h = word0 * 0x9E3779B97F4A7C15L + word1;
+        h = h * 0x9E3779B97F4A7C15L + word2;
+        h = h * 0x9E3779B97F4A7C15L + word3;
+        h = h * 0x9E3779B97F4A7C15L + bitLength;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * @return the EPC as upper case hexadecimal digits.
+     */
+    @Override
+    public String toString() {
+        String result = hex;
+        if (result == null) {
+            char[] digits = new char[bitLength >>> 2];
+            for (int i = 0; i < digits.length; i++) {
+                digits[i] = HEX_DIGITS[(int) ((getWord(i >>> 4) >>> (60 - ((i & 15) << 2))) & 0xF)];
+            }
+            result = new String(digits);
+            hex = result;
+        }
+        return result;
+    }
+
+    private static boolean isValidDigitCount(int length) {
+        return length >= 4 && length <= MAX_BITS / 4 && (length & 3) == 0;
+    }
+
+    private static int hexValue(int c) {
+        return c < HEX_VALUES.length && c >= 0 ? HEX_VALUES[c] : -1;
+    }
+
+    private static long mask(int bitLength, int wordIndex) {
+        int bits = bitLength - (wordIndex << 6);
+        if (bits >= 64) {
+            return -1L;
+        }
+        return bits <= 0 ? 0 : -1L << (64 - bits);
+    }
+}
@@ -0,0 +1,217 @@
+package com.isoft.rfid.domain;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * The GS1 key encoded in an EPC, as decoded according to the GS1 EPC Tag Data Standard.
+ * <p>
+ * The components are kept as numbers, with the number of digits they were encoded with, so that decoding only allocates
+ * this instance: the textual forms (pure identity URI, GTIN, SSCC) are only built when asked for.
+ */
+public final class Gs1Identity implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The EPC schemes that can be decoded.
+     */
+    public enum Scheme {
+        SGTIN("sgtin"),
+        SSCC("sscc"),
+        GRAI("grai"),
+        GIAI("giai");
+
+        private final String uriName;
+
+        Scheme(String uriName) {
+            this.uriName = uriName;
+        }
+
+        public String getUriName() {
+            return uriName;
+        }
+    }
+
+    private static final String URI_PREFIX = "urn:epc:id:";
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final Scheme scheme;
+
+    private final int filter;
+
+    private final int companyPrefixDigits;
+
+    private final long companyPrefix;
+
+    private final int referenceDigits;
+
+    private final long reference;
+
+    private final long serial;
+
+    /**
+     * @param scheme the EPC scheme.
+     * @param filter the filter value, which tells the kind of object the tag is attached to.
+     * @param companyPrefixDigits the number of digits of the GS1 company prefix.
+     * @param companyPrefix the GS1 company prefix.
+     * @param referenceDigits the number of digits of {@code reference}, or its maximum number of digits for a GIAI.
+     * @param reference the item reference (SGTIN), serial reference (SSCC), asset type (GRAI) or individual asset
+     *     reference (GIAI).
+     * @param serial the serial number (SGTIN, GRAI), or {@code -1} for schemes without one.
+     */
+    public Gs1Identity(
+        Scheme scheme,
+        int filter,
+        int companyPrefixDigits,
+        long companyPrefix,
+        int referenceDigits,
+        long reference,
+        long serial
+    ) {
+        this.scheme = scheme;
+        this.filter = filter;
+        this.companyPrefixDigits = companyPrefixDigits;
+        this.companyPrefix = companyPrefix;
+        this.referenceDigits = referenceDigits;
+        this.reference = reference;
+        this.serial = serial;
+    }
+
+    public Scheme getScheme() {
+        return scheme;
+    }
+
+    public int getFilter() {
+        return filter;
+    }
+
+    public int getCompanyPrefixDigits() {
+        return companyPrefixDigits;
+    }
+
+    public long getCompanyPrefix() {
+        return companyPrefix;
+    }
+
+    public int getReferenceDigits() {
+        return referenceDigits;
+    }
+
+    public long getReference() {
+        return reference;
+    }
+
+    /**
+     * @return the serial number, or {@code -1} for schemes without one.
+     */
+    public long getSerial() {
+        return serial;
+    }
+
+    /**
+     * @return the 14-digit GTIN of an SGTIN, or {@code null} for other schemes.
+     */
+    public String getGtin() {
+        return scheme == Scheme.SGTIN ? gs1Key(13) : null;
+    }
+
+    /**
+     * @return the 18-digit SSCC, or {@code null} for other schemes.
+     */
+    public String getSscc() {
+        return scheme == Scheme.SSCC ? gs1Key(17) : null;
+    }
+
+    /**
+     * @return the pure identity URI, for example {@code urn:epc:id:sgtin:0614141.812345.6789}.
+     */
+    public String toUri() {
+        StringBuilder uri = new StringBuilder(URI_PREFIX.length() + 48).append(URI_PREFIX).append(scheme.getUriName()).append(':');
+        appendPadded(uri, companyPrefix, companyPrefixDigits).append('.');
+        if (scheme == Scheme.GIAI) {
+            // An individual asset reference is not zero-padded: its number of digits is only a maximum
+            uri.append(reference);
+        } else {
+            appendPadded(uri, reference, referenceDigits);
+        }
+        if (serial >= 0) {
+            uri.append('.').append(serial);
+        }
+        return uri.toString();
+    }
+
+    /**
+     * Build a GTIN or SSCC: the leading digit of the reference (indicator or extension digit) comes first, then the
+     * company prefix, the rest of the reference and the check digit.
+     */
+    private String gs1Key(int digitsWithoutCheck) {
+        long rest = POWERS_OF_TEN[referenceDigits - 1];
+        long leading = reference / rest;
+        long key = (leading * POWERS_OF_TEN[companyPrefixDigits] + companyPrefix) * rest + reference % rest;
+        StringBuilder result = new StringBuilder(digitsWithoutCheck + 1);
+        appendPadded(result, key * 10 + checkDigit(key), digitsWithoutCheck + 1);
+        return result.toString();
+    }
+
+    /**
+     * @return the GS1 check digit of {@code key}: digits are weighted 3 and 1 alternately, starting from the rightmost.
+     */
+    private static int checkDigit(long key) {
+        int sum = 0;
+        int weight = 3;
+        for (long remaining = key; remaining > 0; remaining /= 10) {
+            sum += (int) (remaining % 10) * weight;
+            weight = 4 - weight;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    private static StringBuilder appendPadded(StringBuilder builder, long value, int digits) {
+        for (int i = digits - 1; i > 0 && value < POWERS_OF_TEN[i]; i--) {
+            builder.append('0');
+        }
+        return digits == 0 ? builder : builder.append(value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Gs1Identity)) {
+            return false;
+        }
+        Gs1Identity other = (Gs1Identity) o;
+        return (
+            scheme == other.scheme &&
+            filter == other.filter &&
+            companyPrefixDigits == other.companyPrefixDigits &&
+            companyPrefix == other.companyPrefix &&
+            referenceDigits == other.referenceDigits &&
+            reference == other.reference &&
+            serial == other.serial
+        );
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(scheme, filter, companyPrefixDigits, companyPrefix, referenceDigits, reference, serial);
+    }
+
+    /**
+     * @return the pure identity URI.
+     */
+    @Override
+    public String toString() {
+        return toUri();
+    }
+}
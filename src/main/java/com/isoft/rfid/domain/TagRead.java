@@ -0,0 +1,119 @@
+package com.isoft.rfid.domain;
+
+import java.io.Serializable;
+
+/**
+ * A single tag observation reported by a reader antenna.
+ * <p>
+ * Instances are deliberately mutable so that the ingestion path can reuse them as buffers instead of allocating one
+ * object per read.
+ */
+public class TagRead implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Epc epc;
+
+    private String readerId;
+
+    private int antenna;
+
+    private double rssi;
+
+    private long timestamp;
+
+    private Gs1Identity identity;
+
+    public Epc getEpc() {
+        return epc;
+    }
+
+    public void setEpc(Epc epc) {
+        this.epc = epc;
+    }
+
+    public String getReaderId() {
+        return readerId;
+    }
+
+    public void setReaderId(String readerId) {
+        this.readerId = readerId;
+    }
+
+    public int getAntenna() {
+        return antenna;
+    }
+
+    public void setAntenna(int antenna) {
+        this.antenna = antenna;
+    }
+
+    public double getRssi() {
+        return rssi;
+    }
+
+    public void setRssi(double rssi) {
+        this.rssi = rssi;
+    }
+
+    /**
+     * @return the observation time in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @return the GS1 key decoded from the EPC, or {@code null} if it has not been decoded or is not a GS1 EPC.
+     */
+    public Gs1Identity getIdentity() {
+        return identity;
+    }
+
+    public void setIdentity(Gs1Identity identity) {
+        this.identity = identity;
+    }
+
+    /**
+     * Copy every field of {@code other} into this instance.
+     *
+     * @param other the read to copy.
+     */
+    public void copyFrom(TagRead other) {
+        this.epc = other.epc;
+        this.readerId = other.readerId;
+        this.antenna = other.antenna;
+        this.rssi = other.rssi;
+        this.timestamp = other.timestamp;
+        this.identity = other.identity;
+    }
+
+    /**
+     * Reset every field to its default value.
+     */
+    public void clear() {
+        this.epc = null;
+        this.readerId = null;
+        this.antenna = 0;
+        this.rssi = 0;
+        this.timestamp = 0;
+        this.identity = null;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "TagRead{" +
+            "epc=" + epc +
+            ", readerId='" + readerId + '\'' +
+            ", antenna=" + antenna +
+            ", rssi=" + rssi +
+            ", timestamp=" + timestamp +
+            ", identity=" + identity +
+            '}';
+    }
+}
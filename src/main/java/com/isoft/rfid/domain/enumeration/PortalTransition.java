@@ -0,0 +1,26 @@
+package com.isoft.rfid.domain.enumeration;
+
+/**
+ * What a tag did at a portal, such as a dock door watched by inner and outer antennas.
+ */
+public enum PortalTransition {
+    /**
+     * The tag was first seen at the portal.
+     */
+    ENTER,
+
+    /**
+     * The tag was seen by an outer antenna, then by an inner one.
+     */
+    IN,
+
+    /**
+     * The tag was seen by an inner antenna, then by an outer one.
+     */
+    OUT,
+
+    /**
+     * The tag has not been seen at the portal for a while.
+     */
+    EXIT,
+}
@@ -0,0 +1,4 @@
+/**
+ * Domain enumerations.
+ */
+package com.isoft.rfid.domain.enumeration;
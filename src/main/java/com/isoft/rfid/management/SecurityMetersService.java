@@ -13,16 +13,27 @@ public class SecurityMetersService {
     public static final String INVALID_TOKENS_METER_BASE_UNIT = "errors";
     public static final String INVALID_TOKENS_METER_CAUSE_DIMENSION = "cause";
 
+    public static final String CREDENTIAL_CACHE_METER_NAME = "security.authentication.credential-cache";
+    public static final String CREDENTIAL_CACHE_METER_DESCRIPTION =
+        "Indicates whether the credentials presented by the clients were already verified, or had to be checked again.";
+    public static final String CREDENTIAL_CACHE_METER_RESULT_DIMENSION = "result";
+
     private final Counter tokenInvalidSignatureCounter;
     private final Counter tokenExpiredCounter;
     private final Counter tokenUnsupportedCounter;
     private final Counter tokenMalformedCounter;
+    private final Counter tokenRevokedCounter;
+    private final Counter credentialCacheHitCounter;
+    private final Counter credentialCacheMissCounter;
 
     public SecurityMetersService(MeterRegistry registry) {
         this.tokenInvalidSignatureCounter = invalidTokensCounterForCauseBuilder("invalid-signature").register(registry);
         this.tokenExpiredCounter = invalidTokensCounterForCauseBuilder("expired").register(registry);
         this.tokenUnsupportedCounter = invalidTokensCounterForCauseBuilder("unsupported").register(registry);
         this.tokenMalformedCounter = invalidTokensCounterForCauseBuilder("malformed").register(registry);
+        this.tokenRevokedCounter = invalidTokensCounterForCauseBuilder("revoked").register(registry);
+        this.credentialCacheHitCounter = credentialCacheCounterForResultBuilder("hit").register(registry);
+        this.credentialCacheMissCounter = credentialCacheCounterForResultBuilder("miss").register(registry);
     }
 
     private Counter.Builder invalidTokensCounterForCauseBuilder(String cause) {
@@ -33,6 +44,13 @@ public class SecurityMetersService {
             .tag(INVALID_TOKENS_METER_CAUSE_DIMENSION, cause);
     }
 
+    private Counter.Builder credentialCacheCounterForResultBuilder(String result) {
+        return Counter
+            .builder(CREDENTIAL_CACHE_METER_NAME)
+            .description(CREDENTIAL_CACHE_METER_DESCRIPTION)
+            .tag(CREDENTIAL_CACHE_METER_RESULT_DIMENSION, result);
+    }
+
     public void trackTokenInvalidSignature() {
         this.tokenInvalidSignatureCounter.increment();
     }
@@ -48,4 +66,16 @@ public class SecurityMetersService {
     public void trackTokenMalformed() {
         this.tokenMalformedCounter.increment();
     }
+
+    public void trackTokenRevoked() {
+        this.tokenRevokedCounter.increment();
+    }
+
+    public void trackCredentialCacheHit() {
+        this.credentialCacheHitCounter.increment();
+    }
+
+    public void trackCredentialCacheMiss() {
+        this.credentialCacheMissCounter.increment();
+    }
 }
@@ -0,0 +1,231 @@
+package com.isoft.rfid.repository.search;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * The NDJSON body of a {@code _bulk} request being built or sent, with the end offset of every document in it, and
+ * the timestamp of the read it holds when known.
+ * <p>
+ * Batches are pooled by the {@link TagReadBulkIndexer}: the backing array only ever grows, so a batch reaches the size
+ * of the largest bulk request early and is then refilled without allocating.
+ */
+final class BulkBatch extends OutputStream {
+
+    /**
+     * The timestamp of the documents appended already serialized, whose read is not known.
+     */
+    static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private static final int INITIAL_DOCUMENTS = 1024;
+
+    private byte[] bytes;
+
+    private int length;
+
+    private int[] documentEnds = new int[INITIAL_DOCUMENTS];
+
+    private long[] documentTimestamps = new long[INITIAL_DOCUMENTS];
+
+    private int documentCount;
+
+    private int attempts;
+
+    private long sentAt;
+
+    private BulkReplay replay;
+
+    private BulkBatch rest;
+
+    BulkBatch(int initialCapacity) {
+        this.bytes = new byte[initialCapacity];
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(length + 1);
+        bytes[length++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] source, int offset, int count) {
+        ensureCapacity(length + count);
+        System.arraycopy(source, offset, bytes, length, count);
+        length += count;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, capacity));
+        }
+    }
+
+    /**
+     * Record that everything written so far belongs to complete documents.
+     *
+     * @param timestamp the timestamp of the read in the last document, or {@link #NO_TIMESTAMP}.
+     */
+    void endDocument(long timestamp) {
+        if (documentCount == documentEnds.length) {
+            documentEnds = Arrays.copyOf(documentEnds, documentCount * 2);
+            documentTimestamps = Arrays.copyOf(documentTimestamps, documentCount * 2);
+        }
+        documentTimestamps[documentCount] = timestamp;
+        documentEnds[documentCount++] = length;
+    }
+
+    /**
+     * Append documents already in {@code _bulk} format: an action line and a source line each.
+     */
+    void appendDocuments(byte[] ndjson, int length) {
+        int start = 0;
+        boolean sourceLine = false;
+        for (int i = 0; i < length; i++) {
+            if (ndjson[i] == '\n') {
+                if (sourceLine) {
+                    write(ndjson, start, i + 1 - start);
+                    endDocument(NO_TIMESTAMP);
+                    start = i + 1;
+                }
+                sourceLine = !sourceLine;
+            }
+        }
+        write(ndjson, start, length - start);
+    }
+
+    /**
+     * Drop the last document if it was not completed, after a serialization failure.
+     */
+    void discardIncompleteDocument() {
+        length = documentCount == 0 ? 0 : documentEnds[documentCount - 1];
+    }
+
+    /**
+     * @return the action and source lines of the given documents, in a new array.
+     */
+    byte[] copyDocuments(int[] indexes, int count) {
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            size += documentLength(indexes[i]);
+        }
+        byte[] copy = new byte[size];
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            int index = indexes[i];
+            System.arraycopy(bytes, documentStart(index), copy, position, documentLength(index));
+            position += documentLength(index);
+        }
+        return copy;
+    }
+
+    /**
+     * Keep only the given documents, in place, so that they can be sent again.
+     *
+     * @param indexes the indexes of the documents to keep, in increasing order.
+     */
+    void retainDocuments(int[] indexes, int count) {
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            int index = indexes[i];
+            int documentLength = documentLength(index);
+            System.arraycopy(bytes, documentStart(index), bytes, position, documentLength);
+            position += documentLength;
+            documentEnds[i] = position;
+            documentTimestamps[i] = documentTimestamps[index];
+        }
+        length = position;
+        documentCount = count;
+    }
+
+    /**
+     * @return the timestamp of the read in the given document, or {@link #NO_TIMESTAMP}.
+     */
+    long documentTimestamp(int index) {
+        return documentTimestamps[index];
+    }
+
+    /**
+     * Move the documents from {@code from} on to another batch, to be sent after this one; used when a bulk request is
+     * too large for the cluster. This batch starts its attempts over.
+     *
+     * @param from the index of the first document to move, above 0.
+     * @param target an empty batch, which takes over the replay and the rest of this one.
+     */
+    void splitOff(int from, BulkBatch target) {
+        for (int i = from; i < documentCount; i++) {
+            target.write(bytes, documentStart(i), documentLength(i));
+            target.endDocument(documentTimestamps[i]);
+        }
+        target.replay = replay;
+        target.rest = rest;
+        rest = target;
+        length = documentStart(from);
+        documentCount = from;
+        attempts = 0;
+    }
+
+    private int documentStart(int index) {
+        return index == 0 ? 0 : documentEnds[index - 1];
+    }
+
+    private int documentLength(int index) {
+        return documentEnds[index] - documentStart(index);
+    }
+
+    void reset() {
+        length = 0;
+        documentCount = 0;
+        attempts = 0;
+        replay = null;
+        rest = null;
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    int length() {
+        return length;
+    }
+
+    int documentCount() {
+        return documentCount;
+    }
+
+    int attempts() {
+        return attempts;
+    }
+
+    int incrementAttempts() {
+        return ++attempts;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which the batch was last sent.
+     */
+    long sentAt() {
+        return sentAt;
+    }
+
+    void setSentAt(long sentAt) {
+        this.sentAt = sentAt;
+    }
+
+    /**
+     * @return the replay the batch belongs to, or {@code null}.
+     */
+    BulkReplay replay() {
+        return replay;
+    }
+
+    void setReplay(BulkReplay replay) {
+        this.replay = replay;
+    }
+
+    /**
+     * @return the batch split off this one, to send once this one is done with, or {@code null}.
+     */
+    BulkBatch rest() {
+        return rest;
+    }
+}
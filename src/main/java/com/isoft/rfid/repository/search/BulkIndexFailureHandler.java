@@ -0,0 +1,21 @@
+package com.isoft.rfid.repository.search;
+
+/**
+ * Receives the documents the {@link TagReadBulkIndexer} gave up on.
+ * <p>
+ * It is called from the threads completing the bulk requests, so implementations must be thread-safe and must not
+ * block for long.
+ */
+public interface BulkIndexFailureHandler {
+    /**
+     * Handle documents that could not be indexed.
+     *
+     * @param ndjson the action and source lines of the documents, in {@code _bulk} format; the array belongs to the
+     *     handler.
+     * @param documentCount the number of documents in {@code ndjson}.
+     * @param reason a short description of the failure.
+     * @param retryable {@code true} if the cluster was unavailable or overloaded, so that sending the documents again
+     *     later can succeed; {@code false} if Elasticsearch refused the documents themselves.
+     */
+    void onFailure(byte[] ndjson, int documentCount, String reason, boolean retryable);
+}
@@ -0,0 +1,30 @@
+package com.isoft.rfid.repository.search;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A replay of documents through {@link TagReadBulkIndexer#replay(byte[], int)}: collects the documents of its batches
+ * that are still to replay, until the last batch is done with.
+ */
+final class BulkReplay {
+
+    private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+
+    private final ByteArrayOutputStream remaining = new ByteArrayOutputStream();
+
+    /**
+     * Keep every document of a batch, which could not be indexed for now.
+     */
+    void keep(BulkBatch batch) {
+        remaining.write(batch.bytes(), 0, batch.length());
+    }
+
+    void done() {
+        result.complete(remaining.toByteArray());
+    }
+
+    CompletableFuture<byte[]> result() {
+        return result;
+    }
+}
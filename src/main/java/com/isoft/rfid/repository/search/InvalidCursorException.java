@@ -0,0 +1,17 @@
+package com.isoft.rfid.repository.search;
+
+/**
+ * Thrown when a pagination cursor cannot be decoded, or when the point in time it refers to has expired.
+ */
+public class InvalidCursorException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+
+    public InvalidCursorException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
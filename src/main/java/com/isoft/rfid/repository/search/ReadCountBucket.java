@@ -0,0 +1,37 @@
+package com.isoft.rfid.repository.search;
+
+/**
+ * The reads of an interval of time, counted.
+ */
+public class ReadCountBucket {
+
+    private final long start;
+
+    private final long reads;
+
+    private final long tags;
+
+    public ReadCountBucket(long start, long reads, long tags) {
+        this.start = start;
+        this.reads = reads;
+        this.tags = tags;
+    }
+
+    /**
+     * @return the start of the interval, in milliseconds since the epoch.
+     */
+    public long getStart() {
+        return start;
+    }
+
+    public long getReads() {
+        return reads;
+    }
+
+    /**
+     * @return the approximate number of distinct EPCs read.
+     */
+    public long getTags() {
+        return tags;
+    }
+}
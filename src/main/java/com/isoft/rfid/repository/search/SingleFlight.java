@@ -0,0 +1,130 @@
+package com.isoft.rfid.repository.search;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesces concurrent identical searches: the first caller of a key runs the search, and the callers that arrive while
+ * it is in flight wait for its result rather than sending the same search again.
+ * <p>
+ * The result is only shared with the callers that arrived during the search; the next caller runs a new one, so nothing
+ * is ever served staler than a search that was already running when it asked. The result is shared as is, so it must
+ * not be modified by the callers. Failures are shared as well.
+ * <p>
+ * The meters count the searches run and the callers coalesced per kind of search, not per key: the keys hold time
+ * ranges, so tagging the meters with them would register new meters without bound. The callers coalesced into the
+ * search of a key are logged at debug level instead, with the key, once the search is done.
+ *
+ * @param <K> the type of the keys, identifying identical searches.
+ * @param <V> the type of the results.
+ */
+public class SingleFlight<K, V> {
+
+    public static final String METER_NAME = "rfid.search.single-flight";
+
+    /**
+     * A search.
+     *
+     * @param <V> the type of the result.
+     */
+    @FunctionalInterface
+    public interface Search<V> {
+        V run() throws IOException;
+    }
+
+    private final Logger log = LoggerFactory.getLogger(SingleFlight.class);
+
+    private final ConcurrentMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final String query;
+
+    private final Counter leaderCounter;
+
+    private final Counter coalescedCounter;
+
+    /**
+     * @param query the name of the searches, which tags the meters.
+     * @param registry where the meters are registered.
+     */
+    public SingleFlight(String query, MeterRegistry registry) {
+        this.query = query;
+        this.leaderCounter = Counter.builder(METER_NAME).tag("query", query).tag("result", "leader").register(registry);
+        this.coalescedCounter = Counter.builder(METER_NAME).tag("query", query).tag("result", "coalesced").register(registry);
+    }
+
+    /**
+     * Run a search, or wait for the identical one in flight.
+     *
+     * @param key the key of the search.
+     * @param search the search, only run if none with the same key is in flight.
+     * @return the result of the search.
+     * @throws IOException if the search failed, or if the wait was interrupted.
+     */
+    public V execute(K key, Search<V> search) throws IOException {
+        Flight<V> flight = new Flight<>();
+        Flight<V> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            leader.followers.incrementAndGet();
+            coalescedCounter.increment();
+            return await(leader);
+        }
+        leaderCounter.increment();
+        try {
+            V result = search.run();
+            land(key, flight);
+            flight.complete(result);
+            return result;
+        } catch (IOException | RuntimeException | Error e) {
+            land(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private void land(K key, Flight<V> flight) {
+        inFlight.remove(key, flight);
+        int followers = flight.followers.get();
+        if (followers > 0) {
+            log.debug("Coalesced {} callers into the {} search of {}", followers, query, key);
+        }
+    }
+
+    private V await(CompletableFuture<V> leader) throws IOException {
+        try {
+            return leader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an identical search");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    /**
+     * A search in flight, and the number of callers waiting for it.
+     */
+    private static final class Flight<V> extends CompletableFuture<V> {
+
+        final AtomicInteger followers = new AtomicInteger();
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,830 @@
+package com.isoft.rfid.repository.search;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.domain.Gs1Identity;
+import com.isoft.rfid.domain.TagRead;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Indexes tag reads into Elasticsearch through {@code _bulk} requests.
+ * <p>
+ * Reads are serialized straight into the NDJSON body of the current batch, which is sent once it reaches the current
+ * batch size or once its oldest read has waited for the flush interval. Each read goes to the time partition of its
+ * timestamp, see {@link TagReadIndexPartitions}, under an id derived from the read: sending a document again, after a
+ * timeout or from the spool, overwrites it rather than indexing the read twice. At most {@code max-in-flight} bulk
+ * requests are outstanding: beyond that, {@link #index(TagRead)} blocks, which backs up the ingestion pipeline rather
+ * than the heap.
+ * <p>
+ * The batch size follows an AIMD policy: it grows by a fixed increment after every bulk request completed within the
+ * target latency, and is cut by a factor after a slower request or a {@code 429} rejection. Rejected documents are
+ * retried with an exponential backoff, then handed to the {@link BulkIndexFailureHandler}, from which they can be
+ * {@link #replay(byte[], int) replayed} later. A request too large for the cluster ({@code 413}) is split in halves
+ * sent one after the other; a single document too large is refused for good.
+ */
+@Component
+public class TagReadBulkIndexer implements SmartLifecycle, DisposableBean {
+
+    public static final String BULK_LATENCY_METER_NAME = "rfid.es.bulk.latency";
+
+    public static final String BULK_BATCH_SIZE_METER_NAME = "rfid.es.bulk.batch.size";
+
+    public static final String BULK_IN_FLIGHT_METER_NAME = "rfid.es.bulk.in.flight";
+
+    public static final String BULK_DOCUMENTS_METER_NAME = "rfid.es.bulk.documents";
+
+    public static final String BULK_REJECTIONS_METER_NAME = "rfid.es.bulk.rejections";
+
+    private static final ContentType NDJSON = ContentType.create("application/x-ndjson", StandardCharsets.UTF_8);
+
+    private static final int STATUS_TOO_MANY_REQUESTS = 429;
+
+    private static final int STATUS_PAYLOAD_TOO_LARGE = 413;
+
+    private static final int STATUS_FORBIDDEN = 403;
+
+    private static final int STATUS_SERVER_ERROR = 500;
+
+    private static final String CLUSTER_BLOCK_ERROR = "cluster_block_exception";
+
+    private static final byte[] ACTION_END = "}}\n".getBytes(StandardCharsets.UTF_8);
+
+    private final Logger log = LoggerFactory.getLogger(TagReadBulkIndexer.class);
+
+    private final RestClient restClient;
+
+    private final JsonFactory jsonFactory;
+
+    private volatile BulkIndexFailureHandler failureHandler;
+
+    private volatile LongConsumer indexedListener = timestamp -> {};
+
+    private final TagReadIndexPartitions partitions;
+
+    private final long flushIntervalNanos;
+
+    private final int minBatchBytes;
+
+    private final int maxBatchBytes;
+
+    private final int batchBytesIncrement;
+
+    private final double batchBytesDecreaseFactor;
+
+    private final long targetLatencyNanos;
+
+    private final int maxInFlight;
+
+    private final int maxRetries;
+
+    private final long retryDelayMillis;
+
+    private final long shutdownTimeoutMillis;
+
+    private final Semaphore inFlight;
+
+    private final BlockingQueue<BulkBatch> pool;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Timer latencyTimer;
+
+    private final Counter indexedCounter;
+
+    private final Counter failedCounter;
+
+    private final Counter rejectionCounter;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Object batchSizeLock = new Object();
+
+    // Guarded by lock
+    private BulkBatch current;
+
+    private JsonGenerator generator;
+
+    private long currentOpenedAt;
+
+    private long actionPartitionStart = Long.MIN_VALUE;
+
+    private long actionPartitionEnd = Long.MIN_VALUE;
+
+    private byte[] action;
+
+    private final StringBuilder id = new StringBuilder();
+
+    private char[] idChars = new char[64];
+
+    // Guarded by batchSizeLock
+    private long lastDecreaseAt;
+
+    private volatile int batchBytes;
+
+    private ScheduledFuture<?> flushTask;
+
+    private volatile boolean running;
+
+    @Autowired
+    public TagReadBulkIndexer(
+        ApplicationProperties applicationProperties,
+        RestClient restClient,
+        TagReadIndexPartitions partitions,
+        ObjectMapper objectMapper,
+        MeterRegistry registry
+    ) {
+        this(
+            applicationProperties.getIndexing(),
+            restClient,
+            partitions,
+            objectMapper.getFactory(),
+            registry,
+            new LoggingFailureHandler()
+        );
+    }
+
+    TagReadBulkIndexer(
+        ApplicationProperties.Indexing properties,
+        RestClient restClient,
+        TagReadIndexPartitions partitions,
+        JsonFactory jsonFactory,
+        MeterRegistry registry,
+        BulkIndexFailureHandler failureHandler
+    ) {
+        if (properties.getMinBatchBytes() <= 0 || properties.getMaxBatchBytes() < properties.getMinBatchBytes()) {
+            throw new IllegalArgumentException("application.indexing batch sizes must satisfy 0 < min-batch-bytes <= max-batch-bytes");
+        }
+        if (properties.getMaxInFlight() < 1) {
+            throw new IllegalArgumentException("application.indexing.max-in-flight must be at least 1");
+        }
+        this.restClient = restClient;
+        this.jsonFactory = jsonFactory;
+        this.failureHandler = failureHandler;
+        this.partitions = partitions;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(properties.getFlushIntervalMillis());
+        this.minBatchBytes = properties.getMinBatchBytes();
+        this.maxBatchBytes = properties.getMaxBatchBytes();
+        this.batchBytesIncrement = properties.getBatchBytesIncrement();
+        this.batchBytesDecreaseFactor = properties.getBatchBytesDecreaseFactor();
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(properties.getTargetLatencyMillis());
+        this.maxInFlight = properties.getMaxInFlight();
+        this.maxRetries = properties.getMaxRetries();
+        this.retryDelayMillis = properties.getRetryDelayMillis();
+        this.shutdownTimeoutMillis = properties.getShutdownTimeoutMillis();
+        this.batchBytes = Math.max(minBatchBytes, Math.min(maxBatchBytes, properties.getInitialBatchBytes()));
+        this.lastDecreaseAt = System.nanoTime();
+        this.inFlight = new Semaphore(maxInFlight);
+        // One batch being filled, and at most one per request in flight
+        this.pool = new ArrayBlockingQueue<>(maxInFlight + 1);
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+            1,
+            runnable -> {
+                Thread thread = new Thread(runnable, "rfid-es-bulk");
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+        executor.setRemoveOnCancelPolicy(true);
+        this.scheduler = executor;
+
+        this.latencyTimer = Timer.builder(BULK_LATENCY_METER_NAME).register(registry);
+        this.indexedCounter = Counter.builder(BULK_DOCUMENTS_METER_NAME).tag("result", "indexed").register(registry);
+        this.failedCounter = Counter.builder(BULK_DOCUMENTS_METER_NAME).tag("result", "failed").register(registry);
+        this.rejectionCounter = Counter.builder(BULK_REJECTIONS_METER_NAME).register(registry);
+        Gauge.builder(BULK_BATCH_SIZE_METER_NAME, this, TagReadBulkIndexer::getBatchBytes).baseUnit("bytes").register(registry);
+        Gauge.builder(BULK_IN_FLIGHT_METER_NAME, this, TagReadBulkIndexer::getInFlightCount).register(registry);
+    }
+
+    /**
+     * Set where the documents the indexer gives up on go; by default they are only logged as lost.
+     */
+    public void setFailureHandler(BulkIndexFailureHandler failureHandler) {
+        this.failureHandler = failureHandler;
+    }
+
+    /**
+     * Set what is told the timestamp of every read once a bulk request indexed it, from the threads completing the
+     * requests; the reads replayed with {@link #replay(byte[], int)} are not told, as their timestamps are not at hand.
+     */
+    public void setIndexedListener(LongConsumer indexedListener) {
+        this.indexedListener = indexedListener;
+    }
+
+    /**
+     * Add a read to the current batch, sending the batch if it is full.
+     * <p>
+     * Blocks while the maximum number of bulk requests are in flight and the batch is full.
+     *
+     * @param read the read to index; it is serialized before this method returns and is not retained.
+     */
+    public void index(TagRead read) {
+        BulkBatch full = null;
+        lock.lock();
+        try {
+            if (current == null) {
+                openBatch();
+            }
+            if (current.documentCount() == 0) {
+                currentOpenedAt = System.nanoTime();
+            }
+            try {
+                current.write(actionFor(read.getTimestamp()));
+                writeId(read);
+                current.write(ACTION_END);
+                writeSource(read);
+                generator.flush();
+                current.write('\n');
+                current.endDocument(read.getTimestamp());
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not serialize tag read {}: {}", read, e.toString());
+                current.discardIncompleteDocument();
+                generator = newGenerator(current);
+                return;
+            }
+            if (current.length() >= batchBytes) {
+                full = detach();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+    }
+
+    /**
+     * @return the action line sending a read to the partition of its timestamp, up to its id, cached for the partition
+     * of the last read.
+     */
+    private byte[] actionFor(long timestamp) {
+        if (timestamp < actionPartitionStart || timestamp >= actionPartitionEnd) {
+            actionPartitionStart = partitions.partitionStart(timestamp);
+            actionPartitionEnd = partitions.partitionEnd(actionPartitionStart);
+            action = ("{\"index\":{\"_index\":\"" + partitions.partitionName(timestamp) + "\",\"_id\":").getBytes(StandardCharsets.UTF_8);
+        }
+        return action;
+    }
+
+    /**
+     * Write the id of a read: its EPC, timestamp, antenna and reader, which a reader never reports twice.
+     */
+    private void writeId(TagRead read) throws IOException {
+        id.setLength(0);
+        id.append(read.getEpc()).append('-').append(read.getTimestamp()).append('-').append(read.getAntenna()).append('-');
+        id.append(read.getReaderId());
+        int length = id.length();
+        if (length > idChars.length) {
+            idChars = new char[Math.max(idChars.length * 2, length)];
+        }
+        id.getChars(0, length, idChars, 0);
+        generator.writeString(idChars, 0, length);
+        generator.flush();
+    }
+
+    private void writeSource(TagRead read) throws IOException {
+        JsonGenerator json = generator;
+        json.writeStartObject();
+        json.writeStringField("epc", read.getEpc().toString());
+        json.writeStringField("readerId", read.getReaderId());
+        json.writeNumberField("antenna", read.getAntenna());
+        json.writeNumberField("rssi", read.getRssi());
+        json.writeNumberField("timestamp", read.getTimestamp());
+        Gs1Identity identity = read.getIdentity();
+        if (identity != null) {
+            json.writeStringField("epcUri", identity.toUri());
+            if (identity.getScheme() == Gs1Identity.Scheme.SGTIN) {
+                json.writeStringField("gtin", identity.getGtin());
+            } else if (identity.getScheme() == Gs1Identity.Scheme.SSCC) {
+                json.writeStringField("sscc", identity.getSscc());
+            }
+        }
+        json.writeEndObject();
+    }
+
+    /**
+     * Send the current batch now, if it holds any document.
+     * <p>
+     * Blocks while the maximum number of bulk requests are in flight.
+     */
+    public void flush() {
+        BulkBatch batch = null;
+        lock.lock();
+        try {
+            if (current != null && current.documentCount() > 0) {
+                batch = detach();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (batch != null) {
+            dispatch(batch);
+        }
+    }
+
+    /**
+     * Send the current batch if its oldest read has waited for the flush interval and a request slot is free.
+     * <p>
+     * Runs on the scheduler thread, which also sends the retries that free the request slots: it must never wait for
+     * a slot, and leaves the batch open when none is free.
+     */
+    private void flushIfDue() {
+        BulkBatch batch = null;
+        lock.lock();
+        try {
+            if (
+                current != null &&
+                current.documentCount() > 0 &&
+                System.nanoTime() - currentOpenedAt >= flushIntervalNanos &&
+                inFlight.tryAcquire()
+            ) {
+                batch = detach();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (batch != null) {
+            try {
+                send(batch);
+            } catch (RuntimeException e) {
+                log.error("Could not flush the bulk indexing batch", e);
+            }
+        }
+    }
+
+    private void openBatch() {
+        BulkBatch batch = pool.poll();
+        if (batch == null) {
+            batch = new BulkBatch(batchBytes + batchBytes / 4);
+        }
+        current = batch;
+        generator = newGenerator(batch);
+    }
+
+    private JsonGenerator newGenerator(BulkBatch batch) {
+        try {
+            JsonGenerator result = jsonFactory.createGenerator(batch, JsonEncoding.UTF8);
+            // Documents are separated by the newlines of the bulk format rather than by the default space
+            result.setRootValueSeparator(null);
+            return result;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create a JSON generator", e);
+        }
+    }
+
+    /**
+     * Take the current batch out, for it to be sent. Called with the lock held.
+     */
+    private BulkBatch detach() {
+        BulkBatch batch = current;
+        current = null;
+        generator = null;
+        return batch;
+    }
+
+    /**
+     * Hand a batch over to a bulk request, waiting for a request slot. Never called with the lock held, so that the
+     * scheduler thread can still flush and retry meanwhile.
+     */
+    private void dispatch(BulkBatch batch) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(batch, "interrupted while waiting for a bulk request slot", true);
+            recycle(batch);
+            return;
+        }
+        send(batch);
+    }
+
+    /**
+     * Send a batch, whose request slot has been acquired.
+     */
+    private void send(BulkBatch batch) {
+        batch.incrementAttempts();
+        batch.setSentAt(System.nanoTime());
+        Request request = new Request("POST", "/_bulk");
+        request.setEntity(new ByteArrayEntity(batch.bytes(), 0, batch.length(), NDJSON));
+        try {
+            restClient.performRequestAsync(request, new BulkResponseListener(batch));
+        } catch (RuntimeException e) {
+            retryOrFail(batch, e.toString());
+        }
+    }
+
+    /**
+     * Send documents previously handed to the {@link BulkIndexFailureHandler} again, in a bulk request of their own.
+     * <p>
+     * A replay is not retried: the documents the cluster could not take for now, whether the whole request failed or
+     * only some of its items, are returned rather than handed to the failure handler again. Documents refused by
+     * Elasticsearch are handed to it, as not retryable. Blocks while the maximum number of bulk requests are in flight.
+     *
+     * @param ndjson documents in {@code _bulk} format, as handed to the failure handler.
+     * @param length the number of bytes of {@code ndjson} to send.
+     * @return a future completed with the documents still to replay, in {@code _bulk} format, once the others have been
+     * indexed or refused for good; empty if there are none.
+     * @throws InterruptedException if interrupted while waiting for a request slot.
+     */
+    public CompletableFuture<byte[]> replay(byte[] ndjson, int length) throws InterruptedException {
+        BulkReplay replay = new BulkReplay();
+        inFlight.acquire();
+        BulkBatch batch = pool.poll();
+        if (batch == null) {
+            batch = new BulkBatch(length);
+        }
+        batch.appendDocuments(ndjson, length);
+        batch.setReplay(replay);
+        send(batch);
+        return replay.result();
+    }
+
+    private void onResponse(BulkBatch batch, Response response, long latencyNanos) {
+        int count = batch.documentCount();
+        int[] failed = null;
+        int failedCount = 0;
+        int[] retried = null;
+        int retriedCount = 0;
+        boolean rejected = false;
+        String reason = null;
+        try (InputStream content = response.getEntity().getContent(); JsonParser parser = jsonFactory.createParser(content)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("expected a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("errors".equals(field) && !parser.getBooleanValue()) {
+                    // The summary comes before the items, which need not be read when they all succeeded
+                    break;
+                }
+                if (!"items".equals(field)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                int item = 0;
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    parser.nextToken();
+                    parser.nextToken();
+                    int status = 0;
+                    String error = null;
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String itemField = parser.getCurrentName();
+                        JsonToken value = parser.nextToken();
+                        if ("status".equals(itemField)) {
+                            status = parser.getIntValue();
+                        } else if ("error".equals(itemField) && value == JsonToken.START_OBJECT) {
+                            error = readErrorType(parser);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    parser.nextToken();
+                    if (status >= 300 && item < count) {
+                        if (reason == null) {
+                            reason = status + (error == null ? "" : " " + error);
+                        }
+                        if (isRetryable(status, error)) {
+                            rejected |= status == STATUS_TOO_MANY_REQUESTS;
+                            if (retried == null) {
+                                retried = new int[count];
+                            }
+                            retried[retriedCount++] = item;
+                        } else {
+                            if (failed == null) {
+                                failed = new int[count];
+                            }
+                            failed[failedCount++] = item;
+                        }
+                    }
+                    item++;
+                }
+            }
+        } catch (IOException e) {
+            // The request went through: resending it could duplicate every document, so rather count them as indexed
+            log.warn("Could not read a bulk response: {}", e.toString());
+        }
+
+        indexedCounter.increment((double) count - failedCount - retriedCount);
+        notifyIndexed(batch, failed, failedCount, retried, retriedCount);
+        if (rejected) {
+            rejectionCounter.increment();
+        }
+        adaptBatchSize(batch, latencyNanos, rejected);
+        if (failedCount > 0) {
+            fail(batch, failed, failedCount, reason, false);
+        }
+        if (retriedCount > 0) {
+            batch.retainDocuments(retried, retriedCount);
+            retryOrFail(batch, reason);
+        } else {
+            complete(batch);
+        }
+    }
+
+    /**
+     * Tell the listener about the documents of a batch that are neither failed nor retried, given in increasing order.
+     */
+    private void notifyIndexed(BulkBatch batch, int[] failed, int failedCount, int[] retried, int retriedCount) {
+        int nextFailed = 0;
+        int nextRetried = 0;
+        for (int i = 0; i < batch.documentCount(); i++) {
+            if (nextFailed < failedCount && failed[nextFailed] == i) {
+                nextFailed++;
+            } else if (nextRetried < retriedCount && retried[nextRetried] == i) {
+                nextRetried++;
+            } else if (batch.documentTimestamp(i) != BulkBatch.NO_TIMESTAMP) {
+                try {
+                    indexedListener.accept(batch.documentTimestamp(i));
+                } catch (RuntimeException e) {
+                    log.error("Bulk indexing listener failed", e);
+                    return;
+                }
+            }
+        }
+    }
+
+    private static String readErrorType(JsonParser parser) throws IOException {
+        String type = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.VALUE_STRING && "type".equals(field)) {
+                type = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return type;
+    }
+
+    private void onRequestFailure(BulkBatch batch, Exception exception, long latencyNanos) {
+        int status = exception instanceof ResponseException
+            ? ((ResponseException) exception).getResponse().getStatusLine().getStatusCode()
+            : -1;
+        String reason = status < 0 ? exception.toString() : "HTTP " + status;
+        if (status == STATUS_TOO_MANY_REQUESTS || status == STATUS_PAYLOAD_TOO_LARGE) {
+            rejectionCounter.increment();
+            adaptBatchSize(batch, latencyNanos, true);
+        }
+        if (status == STATUS_PAYLOAD_TOO_LARGE) {
+            split(batch, reason);
+        } else if (status < 0 || isRetryable(status)) {
+            log.debug("Bulk request of {} documents failed: {}", batch.documentCount(), reason);
+            retryOrFail(batch, reason);
+        } else {
+            log.warn("Bulk request of {} documents refused: {}", batch.documentCount(), reason);
+            fail(batch, reason, false);
+            complete(batch);
+        }
+    }
+
+    /**
+     * Send the first half of a batch too large for the cluster under its request slot, the second half once it is done
+     * with. A single document too large is refused for good: sending it again, or spooling it, cannot succeed.
+     */
+    private void split(BulkBatch batch, String reason) {
+        int count = batch.documentCount();
+        if (count < 2) {
+            log.warn("Bulk request of a single document refused: {}", reason);
+            fail(batch, reason, false);
+            complete(batch);
+            return;
+        }
+        BulkBatch rest = pool.poll();
+        if (rest == null) {
+            rest = new BulkBatch(batch.length());
+        }
+        batch.splitOff(count / 2, rest);
+        log.debug("Bulk request of {} documents too large, split in two: {}", count, reason);
+        send(batch);
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == STATUS_TOO_MANY_REQUESTS || status >= STATUS_SERVER_ERROR;
+    }
+
+    /**
+     * A write block is retryable too: it is set on a partition being sealed, which is not sealed while reads are spooled,
+     * or by the cluster itself when a disk fills up, until it is released.
+     */
+    private static boolean isRetryable(int status, String error) {
+        return isRetryable(status) || (status == STATUS_FORBIDDEN && CLUSTER_BLOCK_ERROR.equals(error));
+    }
+
+    /**
+     * Schedule a batch to be sent again, keeping its request slot, or give up on it after too many attempts.
+     */
+    private void retryOrFail(BulkBatch batch, String reason) {
+        if (batch.replay() != null) {
+            log.debug("Replay of {} documents failed: {}", batch.documentCount(), reason);
+            batch.replay().keep(batch);
+            complete(batch);
+            return;
+        }
+        if (batch.attempts() <= maxRetries) {
+            long delay = retryDelayMillis << Math.min(batch.attempts() - 1, 16);
+            try {
+                scheduler.schedule(() -> send(batch), delay, TimeUnit.MILLISECONDS);
+                return;
+            } catch (RejectedExecutionException e) {
+                log.debug("Not retrying a bulk request after shutdown");
+            }
+        }
+        fail(batch, reason, true);
+        complete(batch);
+    }
+
+    private void fail(BulkBatch batch, String reason, boolean retryable) {
+        int count = batch.documentCount();
+        int[] all = new int[count];
+        for (int i = 0; i < count; i++) {
+            all[i] = i;
+        }
+        fail(batch, all, count, reason, retryable);
+    }
+
+    private void fail(BulkBatch batch, int[] indexes, int count, String reason, boolean retryable) {
+        failedCounter.increment(count);
+        try {
+            failureHandler.onFailure(batch.copyDocuments(indexes, count), count, reason, retryable);
+        } catch (RuntimeException e) {
+            log.error("Bulk indexing failure handler failed", e);
+        }
+    }
+
+    /**
+     * Return a batch that is done with to the pool, and send the batch split off it under its request slot, or release
+     * the slot and complete the replay the batch belongs to.
+     */
+    private void complete(BulkBatch batch) {
+        BulkReplay replay = batch.replay();
+        BulkBatch rest = batch.rest();
+        recycle(batch);
+        if (rest != null) {
+            send(rest);
+            return;
+        }
+        inFlight.release();
+        if (replay != null) {
+            replay.done();
+        }
+    }
+
+    private void recycle(BulkBatch batch) {
+        batch.reset();
+        pool.offer(batch);
+    }
+
+    /**
+     * Additive increase after a request completed in time, multiplicative decrease after a slow or rejected one.
+     */
+    private void adaptBatchSize(BulkBatch batch, long latencyNanos, boolean rejected) {
+        synchronized (batchSizeLock) {
+            if (rejected || latencyNanos > targetLatencyNanos) {
+                // Requests sent before the last decrease report the congestion that caused it: only decrease once for them
+                if (batch.sentAt() - lastDecreaseAt > 0) {
+                    batchBytes = Math.max(minBatchBytes, (int) (batchBytes * batchBytesDecreaseFactor));
+                    lastDecreaseAt = System.nanoTime();
+                    log.debug("Bulk batch size decreased to {} bytes", batchBytes);
+                }
+            } else if (batchBytes < maxBatchBytes) {
+                batchBytes = (int) Math.min(maxBatchBytes, (long) batchBytes + batchBytesIncrement);
+            }
+        }
+    }
+
+    /**
+     * @return the size, in bytes, at which the current batch is sent.
+     */
+    public int getBatchBytes() {
+        return batchBytes;
+    }
+
+    /**
+     * @return the number of bulk requests in flight, including those waiting for a retry.
+     */
+    public int getInFlightCount() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        long period = Math.max(1, TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) / 2);
+        flushTask = scheduler.scheduleWithFixedDelay(this::flushIfDue, period, period, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    /**
+     * Send the last batch, and wait for the bulk requests in flight.
+     */
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        flushTask.cancel(false);
+        flush();
+        try {
+            if (inFlight.tryAcquire(maxInFlight, shutdownTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                inFlight.release(maxInFlight);
+            } else {
+                log.warn("{} bulk requests still in flight after {} ms", getInFlightCount(), shutdownTimeoutMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.debug("Stopped bulk indexer");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Start before, and stop after, the ingestion pipeline that feeds it.
+     */
+    @Override
+    public int getPhase() {
+        return -1;
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    private final class BulkResponseListener implements ResponseListener {
+
+        private final BulkBatch batch;
+
+        BulkResponseListener(BulkBatch batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void onSuccess(Response response) {
+            long latency = System.nanoTime() - batch.sentAt();
+            latencyTimer.record(latency, TimeUnit.NANOSECONDS);
+            onResponse(batch, response, latency);
+        }
+
+        @Override
+        public void onFailure(Exception exception) {
+            long latency = System.nanoTime() - batch.sentAt();
+            latencyTimer.record(latency, TimeUnit.NANOSECONDS);
+            onRequestFailure(batch, exception, latency);
+        }
+    }
+
+    /**
+     * Used when no other {@link BulkIndexFailureHandler} is defined: the documents are only logged as lost.
+     */
+    private static final class LoggingFailureHandler implements BulkIndexFailureHandler {
+
+        private final Logger log = LoggerFactory.getLogger(TagReadBulkIndexer.class);
+
+        @Override
+        public void onFailure(byte[] ndjson, int documentCount, String reason, boolean retryable) {
+            log.error("Dropped {} tag reads that could not be indexed: {}", documentCount, reason);
+        }
+    }
+}
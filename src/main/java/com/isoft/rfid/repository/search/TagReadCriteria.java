@@ -0,0 +1,62 @@
+package com.isoft.rfid.repository.search;
+
+import java.io.Serializable;
+
+/**
+ * Filters of a tag read history search; unset filters match every read.
+ */
+public class TagReadCriteria implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String epc;
+
+    private String readerId;
+
+    private Long from;
+
+    private Long to;
+
+    public String getEpc() {
+        return epc;
+    }
+
+    public void setEpc(String epc) {
+        this.epc = epc;
+    }
+
+    public String getReaderId() {
+        return readerId;
+    }
+
+    public void setReaderId(String readerId) {
+        this.readerId = readerId;
+    }
+
+    /**
+     * @return the start of the time range, inclusive, in milliseconds since the epoch.
+     */
+    public Long getFrom() {
+        return from;
+    }
+
+    public void setFrom(Long from) {
+        this.from = from;
+    }
+
+    /**
+     * @return the end of the time range, inclusive, in milliseconds since the epoch.
+     */
+    public Long getTo() {
+        return to;
+    }
+
+    public void setTo(Long to) {
+        this.to = to;
+    }
+
+    @Override
+    public String toString() {
+        return "TagReadCriteria{epc='" + epc + "', readerId='" + readerId + "', from=" + from + ", to=" + to + "}";
+    }
+}
@@ -0,0 +1,212 @@
+package com.isoft.rfid.repository.search;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import org.apache.http.HttpStatus;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Manages the time partitions of the tag-read index.
+ * <p>
+ * On startup, and then periodically, it installs the index template of the partitions (mappings, and the read alias),
+ * and creates the current and the next partition ahead of the reads; the bulk indexer writes every read to the partition
+ * of its timestamp by name. Periodically only, so as not to hold the startup, once a partition has been over for the
+ * seal delay, it is no longer written to: its writes are blocked and it is force-merged into a single segment, which
+ * makes it cheaper to search and to keep. Sealing waits while reads refused earlier are still to be indexed again, as
+ * they may belong to the partitions to seal.
+ */
+public class TagReadIndexMaintenance implements SmartLifecycle {
+
+    private static final String INDEX_TEMPLATE = "config/elasticsearch/tag-read-index.json";
+
+    private static final String WRITE_BLOCK_SETTING = "index.blocks.write";
+
+    private final Logger log = LoggerFactory.getLogger(TagReadIndexMaintenance.class);
+
+    private final RestClient restClient;
+
+    private final ObjectMapper objectMapper;
+
+    private final TagReadIndexPartitions partitions;
+
+    private final long sealDelayMillis;
+
+    private volatile BooleanSupplier sealingDeferred = () -> false;
+
+    private boolean templateInstalled;
+
+    private volatile boolean running;
+
+    public TagReadIndexMaintenance(
+        RestClient restClient,
+        ObjectMapper objectMapper,
+        TagReadIndexPartitions partitions,
+        long sealDelayMillis
+    ) {
+        this.restClient = restClient;
+        this.objectMapper = objectMapper;
+        this.partitions = partitions;
+        this.sealDelayMillis = sealDelayMillis;
+    }
+
+    /**
+     * @param sealingDeferred tells whether reads are still to be indexed again, in which case no partition is sealed.
+     */
+    public void setSealingDeferred(BooleanSupplier sealingDeferred) {
+        this.sealingDeferred = sealingDeferred;
+    }
+
+    /**
+     * Bring the partitions up to date, logging rather than throwing if Elasticsearch is not available.
+     */
+    @Scheduled(
+        fixedDelayString = "${application.indexing.maintenance-interval-millis:600000}",
+        initialDelayString = "${application.indexing.maintenance-interval-millis:600000}"
+    )
+    public synchronized void maintain() {
+        try {
+            maintain(System.currentTimeMillis());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not maintain the tag read indices: {}", e.toString());
+        }
+    }
+
+    void maintain(long now) throws IOException {
+        prepare(now);
+        if (sealingDeferred.getAsBoolean()) {
+            log.debug("Not sealing the tag read indices while reads are still to be indexed again");
+            return;
+        }
+        sealPartitions(now);
+    }
+
+    /**
+     * Install the index template, and create the current and the next partition.
+     */
+    private synchronized void prepare(long now) throws IOException {
+        if (!templateInstalled) {
+            installTemplate();
+            templateInstalled = true;
+        }
+        long currentStart = partitions.partitionStart(now);
+        createIfMissing(partitions.partitionName(currentStart));
+        createIfMissing(partitions.partitionName(partitions.partitionEnd(currentStart)));
+    }
+
+    private void installTemplate() throws IOException {
+        ObjectNode template;
+        try (InputStream in = new ClassPathResource(INDEX_TEMPLATE).getInputStream()) {
+            template = (ObjectNode) objectMapper.readTree(in);
+        }
+        template.putObject("aliases").putObject(partitions.getReadAlias());
+        ObjectNode body = objectMapper.createObjectNode();
+        body.putArray("index_patterns").add(partitions.getPattern());
+        body.set("template", template);
+        Request request = new Request("PUT", "/_index_template/" + partitions.getReadAlias());
+        request.setJsonEntity(objectMapper.writeValueAsString(body));
+        restClient.performRequest(request);
+        log.debug("Installed the index template of {}", partitions.getPattern());
+    }
+
+    private void createIfMissing(String index) throws IOException {
+        Response exists = restClient.performRequest(new Request("HEAD", "/" + index));
+        if (exists.getStatusLine().getStatusCode() != HttpStatus.SC_NOT_FOUND) {
+            return;
+        }
+        try {
+            restClient.performRequest(new Request("PUT", "/" + index));
+            log.info("Created tag read index {}", index);
+        } catch (ResponseException e) {
+            // The bulk indexer may have created it meanwhile, from the template
+            if (e.getResponse().getStatusLine().getStatusCode() != HttpStatus.SC_BAD_REQUEST) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Block the writes of the partitions over for longer than the seal delay, and force-merge them.
+     */
+    private void sealPartitions(long now) throws IOException {
+        Request request = new Request("GET", "/" + partitions.getPattern() + "/_settings/" + WRITE_BLOCK_SETTING);
+        request.addParameter("flat_settings", "true");
+        JsonNode indices = read(restClient.performRequest(request));
+        Iterator<Map.Entry<String, JsonNode>> it = indices.fields();
+        while (it.hasNext()) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            String index = entry.getKey();
+            long start = partitions.partitionStartOf(index);
+            if (start < 0 || partitions.partitionEnd(start) + sealDelayMillis > now) {
+                continue;
+            }
+            if (entry.getValue().path("settings").path(WRITE_BLOCK_SETTING).asBoolean(false)) {
+                continue;
+            }
+            seal(index);
+        }
+    }
+
+    private void seal(String index) throws IOException {
+        Request block = new Request("PUT", "/" + index + "/_settings");
+        block.setJsonEntity("{\"" + WRITE_BLOCK_SETTING + "\":true}");
+        restClient.performRequest(block);
+        Request forceMerge = new Request("POST", "/" + index + "/_forcemerge");
+        forceMerge.addParameter("max_num_segments", "1");
+        try {
+            restClient.performRequest(forceMerge);
+            log.info("Sealed tag read index {}", index);
+        } catch (SocketTimeoutException e) {
+            // The merge goes on in the cluster, only the wait for it timed out
+            log.info("Sealed tag read index {}, still merging", index);
+        }
+    }
+
+    private JsonNode read(Response response) throws IOException {
+        try (InputStream in = response.getEntity().getContent()) {
+            return objectMapper.readTree(in);
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        try {
+            prepare(System.currentTimeMillis());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not prepare the tag read indices: {}", e.toString());
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Start before the bulk indexer, so that the partitions exist with their mappings when the first reads arrive.
+     */
+    @Override
+    public int getPhase() {
+        return -2;
+    }
+}
@@ -0,0 +1,184 @@
+package com.isoft.rfid.repository.search;
+
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Naming of the time partitions of the tag-read index.
+ * <p>
+ * Reads are stored in one index per UTC day ({@code tag-read-2022.11.14}) or per ISO week ({@code tag-read-2022.w46}),
+ * chosen from the timestamp of the read rather than from the time it is indexed, so that a search over a time range
+ * only needs the partitions overlapping that range. Every partition is reachable through the read alias, which is the
+ * base name of the partitions; reads are written to the partition of their timestamp by name, late ones included.
+ */
+public class TagReadIndexPartitions {
+
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private static final long WEEK_MILLIS = 7 * DAY_MILLIS;
+
+    /**
+     * The epoch is a Thursday: ISO weeks start 3 days before it.
+     */
+    private static final long WEEK_OFFSET_MILLIS = 3 * DAY_MILLIS;
+
+    private final String readAlias;
+
+    private final String prefix;
+
+    private final boolean weekly;
+
+    private final int maxSearchedPartitions;
+
+    /**
+     * @param baseName the name of the read alias, and the prefix of the partitions.
+     * @param unit {@link ChronoUnit#DAYS} or {@link ChronoUnit#WEEKS}.
+     * @param maxSearchedPartitions searches over more partitions than this go through the read alias instead.
+     */
+    public TagReadIndexPartitions(String baseName, ChronoUnit unit, int maxSearchedPartitions) {
+        if (unit != ChronoUnit.DAYS && unit != ChronoUnit.WEEKS) {
+            throw new IllegalArgumentException("Tag read indices are partitioned by days or weeks, not " + unit);
+        }
+        this.readAlias = baseName;
+        this.prefix = baseName + "-";
+        this.weekly = unit == ChronoUnit.WEEKS;
+        this.maxSearchedPartitions = maxSearchedPartitions;
+    }
+
+    public String getReadAlias() {
+        return readAlias;
+    }
+
+    /**
+     * @return the wildcard expression matching every partition.
+     */
+    public String getPattern() {
+        return prefix + "*";
+    }
+
+    /**
+     * @return the start, in epoch milliseconds, of the partition holding {@code timestamp}.
+     */
+    public long partitionStart(long timestamp) {
+        if (weekly) {
+            return Math.floorDiv(timestamp + WEEK_OFFSET_MILLIS, WEEK_MILLIS) * WEEK_MILLIS - WEEK_OFFSET_MILLIS;
+        }
+        return Math.floorDiv(timestamp, DAY_MILLIS) * DAY_MILLIS;
+    }
+
+    /**
+     * @return the end, exclusive, of the partition starting at {@code partitionStart}.
+     */
+    public long partitionEnd(long partitionStart) {
+        return partitionStart + (weekly ? WEEK_MILLIS : DAY_MILLIS);
+    }
+
+    /**
+     * @return whether the partition holding {@code timestamp} has been over for at least {@code delayMillis} at
+     *     {@code now}.
+     */
+    public boolean isOverFor(long timestamp, long delayMillis, long now) {
+        return partitionEnd(partitionStart(timestamp)) + delayMillis <= now;
+    }
+
+    /**
+     * @return the name of the partition holding {@code timestamp}.
+     */
+    public String partitionName(long timestamp) {
+        LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(partitionStart(timestamp), DAY_MILLIS));
+        StringBuilder name = new StringBuilder(prefix.length() + 10).append(prefix);
+        if (weekly) {
+            name.append(date.get(IsoFields.WEEK_BASED_YEAR)).append(".w");
+            appendTwoDigits(name, date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+        } else {
+            name.append(date.getYear()).append('.');
+            appendTwoDigits(name, date.getMonthValue()).append('.');
+            appendTwoDigits(name, date.getDayOfMonth());
+        }
+        return name.toString();
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder builder, int value) {
+        return builder.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    /**
+     * Parse the name of a partition back.
+     *
+     * @return the start of the partition, or {@code -1} if {@code index} is not the name of a partition.
+     */
+    public long partitionStartOf(String index) {
+        if (!index.startsWith(prefix)) {
+            return -1;
+        }
+        String suffix = index.substring(prefix.length());
+        try {
+            LocalDate date;
+            if (weekly) {
+                int separator = suffix.indexOf(".w");
+                if (separator < 0 || suffix.length() != separator + 4) {
+                    return -1;
+                }
+                int year = Integer.parseInt(suffix.substring(0, separator));
+                int week = Integer.parseInt(suffix.substring(separator + 2));
+                // The 4th of January is always in the first ISO week of its year
+                date =
+                    LocalDate
+                        .of(year, 1, 4)
+                        .with(IsoFields.WEEK_OF_WEEK_BASED_YEAR, week)
+                        .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            } else {
+                if (suffix.length() != 10 || suffix.charAt(4) != '.' || suffix.charAt(7) != '.') {
+                    return -1;
+                }
+                date =
+                    LocalDate.of(
+                        Integer.parseInt(suffix.substring(0, 4)),
+                        Integer.parseInt(suffix.substring(5, 7)),
+                        Integer.parseInt(suffix.substring(8, 10))
+                    );
+            }
+            long start = date.toEpochDay() * DAY_MILLIS;
+            return index.equals(partitionName(start)) ? start : -1;
+        } catch (NumberFormatException | DateTimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return the names of the partitions overlapping the range, in chronological order.
+     */
+    public List<String> partitionNames(long from, long to) {
+        List<String> names = new ArrayList<>();
+        for (long start = partitionStart(from); start <= to; start = partitionEnd(start)) {
+            names.add(partitionName(start));
+        }
+        return names;
+    }
+
+    /**
+     * The indices to search for reads in a time range: the partitions overlapping it, so that a search over the last hour
+     * only hits the shards of today's partition, or the read alias for wide or open ranges.
+     * <p>
+     * Partitions that do not exist must be tolerated by the search, with {@code ignore_unavailable}.
+     *
+     * @param from the start of the range, inclusive, or {@code null} if unbounded.
+     * @param to the end of the range, inclusive, or {@code null} if unbounded.
+     * @return a comma-separated list of indices.
+     */
+    public String searchTarget(Long from, Long to) {
+        if (from == null || to == null || from > to) {
+            return readAlias;
+        }
+        if ((partitionStart(to) - partitionStart(from)) / (weekly ? WEEK_MILLIS : DAY_MILLIS) >= maxSearchedPartitions) {
+            return readAlias;
+        }
+        return String.join(",", partitionNames(from, to));
+    }
+}
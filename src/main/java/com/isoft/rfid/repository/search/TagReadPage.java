@@ -0,0 +1,30 @@
+package com.isoft.rfid.repository.search;
+
+import com.isoft.rfid.domain.TagRead;
+import java.util.List;
+
+/**
+ * A page of tag read history, newest first, with the cursor of the next page.
+ */
+public class TagReadPage {
+
+    private final List<TagRead> reads;
+
+    private final String nextCursor;
+
+    public TagReadPage(List<TagRead> reads, String nextCursor) {
+        this.reads = reads;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<TagRead> getReads() {
+        return reads;
+    }
+
+    /**
+     * @return the opaque cursor of the next page, or {@code null} if this page is the last one.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
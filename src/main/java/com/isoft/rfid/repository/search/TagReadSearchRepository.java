@@ -0,0 +1,454 @@
+package com.isoft.rfid.repository.search;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.domain.Epc;
+import com.isoft.rfid.domain.TagRead;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import org.apache.http.HttpStatus;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Pages through the tag read history, newest first, with a point in time and {@code search_after}.
+ * <p>
+ * The first page opens a point in time over the partitions of the searched range, which freezes the view of the indices
+ * for the whole pagination. Each page then resumes after the sort values of the last read of the previous one, so that
+ * every page costs the same whatever its depth, and is not limited by {@code index.max_result_window} as {@code from}
+ * and {@code size} are. The point in time, the last sort values and the criteria are carried by an opaque cursor, and
+ * the point in time is closed once the last page has been returned; otherwise it expires after its keep-alive.
+ * <p>
+ * Exports go through the same point in time in parallel slices, see {@link #scanSlice}, in index order rather than
+ * newest first, which is the cheapest order to read. Dashboards get counts of reads by interval, see {@link #countReads}.
+ */
+@Repository
+public class TagReadSearchRepository {
+
+    private static final String[] SOURCE_FIELDS = { "epc", "readerId", "antenna", "rssi", "timestamp" };
+
+    private static final String FILTER_PATH = "pit_id,hits.hits._source,hits.hits.sort";
+
+    private static final String HISTOGRAM_FILTER_PATH =
+        "aggregations.reads.buckets.key,aggregations.reads.buckets.doc_count,aggregations.reads.buckets.tags";
+
+    private final Logger log = LoggerFactory.getLogger(TagReadSearchRepository.class);
+
+    private final RestClient restClient;
+
+    private final ObjectMapper objectMapper;
+
+    private final TagReadIndexPartitions partitions;
+
+    private final String keepAlive;
+
+    private final SingleFlight<HistogramKey, List<ReadCountBucket>> histograms;
+
+    /**
+     * Receives the pages of a slice scan.
+     */
+    @FunctionalInterface
+    public interface PageHandler {
+        /**
+         * @param reads the reads of the page, which the handler may keep.
+         * @return {@code false} to stop the scan.
+         */
+        boolean onPage(List<TagRead> reads) throws InterruptedException;
+    }
+
+    public TagReadSearchRepository(
+        RestClient restClient,
+        ObjectMapper objectMapper,
+        TagReadIndexPartitions partitions,
+        ApplicationProperties applicationProperties,
+        MeterRegistry registry
+    ) {
+        this.restClient = restClient;
+        this.objectMapper = objectMapper;
+        this.partitions = partitions;
+        this.keepAlive = applicationProperties.getHistory().getKeepAlive();
+        this.histograms = new SingleFlight<>("histogram", registry);
+    }
+
+    /**
+     * Search the reads matching the criteria, and return the first page.
+     *
+     * @param criteria the filters of the search.
+     * @param size the maximum number of reads of the page.
+     * @return the first page.
+     * @throws IOException if Elasticsearch cannot be reached, or fails the search.
+     */
+    public TagReadPage search(TagReadCriteria criteria, int size) throws IOException {
+        return page(new Cursor(openPointInTime(criteria, keepAlive), null, criteria), size);
+    }
+
+    /**
+     * Open a point in time over the partitions the criteria may match.
+     *
+     * @param criteria the filters of the search.
+     * @param keepAlive how long the point in time is kept between two requests, as an Elasticsearch time value.
+     * @return the identifier of the point in time.
+     * @throws IOException if Elasticsearch cannot be reached, or fails the request.
+     */
+    public String openPointInTime(TagReadCriteria criteria, String keepAlive) throws IOException {
+        Request open = new Request("POST", "/" + partitions.searchTarget(criteria.getFrom(), criteria.getTo()) + "/_pit");
+        open.addParameter("keep_alive", keepAlive);
+        open.addParameter("ignore_unavailable", "true");
+        String pitId = read(restClient.performRequest(open)).path("id").asText();
+        log.debug("Opened point in time for {}", criteria);
+        return pitId;
+    }
+
+    /**
+     * Read a slice of the reads matching the criteria, page by page, in index order.
+     * <p>
+     * The point in time is split into {@code sliceCount} disjoint slices, which can be scanned concurrently.
+     *
+     * @param pitId the point in time, see {@link #openPointInTime}.
+     * @param keepAlive how long the point in time is kept between two requests.
+     * @param criteria the filters of the search.
+     * @param slice the slice to scan, from {@code 0} to {@code sliceCount - 1}.
+     * @param sliceCount the number of slices.
+     * @param size the maximum number of reads of a page.
+     * @param handler receives the pages, on the calling thread.
+     * @return {@code false} if the handler stopped the scan.
+     * @throws IOException if Elasticsearch cannot be reached, or fails a search.
+     * @throws InterruptedException if the handler was interrupted.
+     */
+    public boolean scanSlice(
+        String pitId,
+        String keepAlive,
+        TagReadCriteria criteria,
+        int slice,
+        int sliceCount,
+        int size,
+        PageHandler handler
+    ) throws IOException, InterruptedException {
+        String currentPitId = pitId;
+        JsonNode after = null;
+        while (true) {
+            ObjectNode body = objectMapper.createObjectNode();
+            body.put("size", size);
+            body.put("track_total_hits", false);
+            addSourceAndQuery(body, criteria);
+            body.putObject("pit").put("id", currentPitId).put("keep_alive", keepAlive);
+            if (sliceCount > 1) {
+                body.putObject("slice").put("id", slice).put("max", sliceCount);
+            }
+            body.putArray("sort").add("_shard_doc");
+            if (after != null) {
+                body.set("search_after", after);
+            }
+            Request request = new Request("POST", "/_search");
+            request.addParameter("filter_path", FILTER_PATH);
+            request.setJsonEntity(objectMapper.writeValueAsString(body));
+            JsonNode response = read(restClient.performRequest(request));
+            currentPitId = response.path("pit_id").asText(currentPitId);
+            JsonNode hits = response.path("hits").path("hits");
+            if (hits.size() == 0) {
+                return true;
+            }
+            List<TagRead> reads = new ArrayList<>(hits.size());
+            for (JsonNode hit : hits) {
+                TagRead read = toTagRead(hit.path("_source"));
+                if (read.getEpc() != null) {
+                    reads.add(read);
+                }
+            }
+            if (!handler.onPage(reads)) {
+                return false;
+            }
+            if (hits.size() < size) {
+                return true;
+            }
+            after = hits.get(hits.size() - 1).path("sort");
+        }
+    }
+
+    /**
+     * Return the page following a cursor.
+     *
+     * @param cursor a cursor returned with a previous page.
+     * @param size the maximum number of reads of the page.
+     * @return the next page.
+     * @throws InvalidCursorException if the cursor is malformed, or if it has expired.
+     * @throws IOException if Elasticsearch cannot be reached, or fails the search.
+     */
+    public TagReadPage next(String cursor, int size) throws IOException {
+        try {
+            return page(decode(cursor), size);
+        } catch (ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                throw new InvalidCursorException("The cursor has expired", e);
+            }
+            throw e;
+        }
+    }
+
+    private TagReadPage page(Cursor cursor, int size) throws IOException {
+        Request request = new Request("POST", "/_search");
+        request.addParameter("filter_path", FILTER_PATH);
+        request.setJsonEntity(objectMapper.writeValueAsString(searchBody(cursor, size)));
+        JsonNode response = read(restClient.performRequest(request));
+        String pitId = response.path("pit_id").asText(cursor.pitId);
+        JsonNode hits = response.path("hits").path("hits");
+        if (hits.size() == 0) {
+            closePointInTime(pitId);
+            return new TagReadPage(Collections.emptyList(), null);
+        }
+        List<TagRead> reads = new ArrayList<>(hits.size());
+        for (JsonNode hit : hits) {
+            TagRead read = toTagRead(hit.path("_source"));
+            if (read.getEpc() != null) {
+                reads.add(read);
+            }
+        }
+        if (hits.size() < size) {
+            closePointInTime(pitId);
+            return new TagReadPage(reads, null);
+        }
+        JsonNode sort = hits.get(hits.size() - 1).path("sort");
+        long[] after = { sort.path(0).asLong(), sort.path(1).asLong() };
+        return new TagReadPage(reads, encode(new Cursor(pitId, after, cursor.criteria)));
+    }
+
+    private ObjectNode searchBody(Cursor cursor, int size) {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("size", size);
+        // Counting the hits would cost more as the pages go deeper
+        body.put("track_total_hits", false);
+        addSourceAndQuery(body, cursor.criteria);
+        body.putObject("pit").put("id", cursor.pitId).put("keep_alive", keepAlive);
+        ArrayNode sort = body.putArray("sort");
+        sort.addObject().put("timestamp", "desc");
+        // Unique tiebreaker of the point in time, so that reads with the same timestamp are neither skipped nor repeated
+        sort.addObject().put("_shard_doc", "desc");
+        if (cursor.after != null) {
+            body.putArray("search_after").add(cursor.after[0]).add(cursor.after[1]);
+        }
+        return body;
+    }
+
+    private static void addSourceAndQuery(ObjectNode body, TagReadCriteria criteria) {
+        ArrayNode source = body.putArray("_source");
+        for (String field : SOURCE_FIELDS) {
+            source.add(field);
+        }
+        addQuery(body, criteria);
+    }
+
+    private static void addQuery(ObjectNode body, TagReadCriteria criteria) {
+        ArrayNode filters = body.putObject("query").putObject("bool").putArray("filter");
+        if (criteria.getEpc() != null) {
+            filters.addObject().putObject("term").put("epc", criteria.getEpc());
+        }
+        if (criteria.getReaderId() != null) {
+            filters.addObject().putObject("term").put("readerId", criteria.getReaderId());
+        }
+        if (criteria.getFrom() != null || criteria.getTo() != null) {
+            ObjectNode range = filters.addObject().putObject("range").putObject("timestamp");
+            if (criteria.getFrom() != null) {
+                range.put("gte", criteria.getFrom());
+            }
+            if (criteria.getTo() != null) {
+                range.put("lte", criteria.getTo());
+            }
+        }
+    }
+
+    /**
+     * Count the reads matching the criteria by fixed intervals of time.
+     * <p>
+     * The buckets are aligned on multiples of the interval since the epoch, and the buckets without reads between the
+     * start and the end of the criteria are returned as well. The request may be answered from the shard request cache,
+     * and identical concurrent requests share a single search, see {@link SingleFlight}.
+     *
+     * @param criteria the filters of the reads, with the start and the end of the histogram.
+     * @param intervalMillis the width of the buckets.
+     * @return the buckets, in time order, which must not be modified.
+     * @throws IOException if Elasticsearch cannot be reached, or fails the search.
+     */
+    public List<ReadCountBucket> countReads(TagReadCriteria criteria, long intervalMillis) throws IOException {
+        return histograms.execute(new HistogramKey(criteria, intervalMillis), () -> searchHistogram(criteria, intervalMillis));
+    }
+
+    private List<ReadCountBucket> searchHistogram(TagReadCriteria criteria, long intervalMillis) throws IOException {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("size", 0);
+        body.put("track_total_hits", false);
+        addQuery(body, criteria);
+        ObjectNode histogram = body.putObject("aggs").putObject("reads");
+        ObjectNode dateHistogram = histogram.putObject("date_histogram");
+        dateHistogram.put("field", "timestamp").put("fixed_interval", intervalMillis + "ms").put("min_doc_count", 0);
+        if (criteria.getFrom() != null && criteria.getTo() != null) {
+            dateHistogram.putObject("extended_bounds").put("min", criteria.getFrom()).put("max", criteria.getTo());
+        }
+        histogram.putObject("aggs").putObject("tags").putObject("cardinality").put("field", "epc");
+        Request request = new Request("POST", "/" + partitions.searchTarget(criteria.getFrom(), criteria.getTo()) + "/_search");
+        request.addParameter("ignore_unavailable", "true");
+        request.addParameter("request_cache", "true");
+        request.addParameter("filter_path", HISTOGRAM_FILTER_PATH);
+        request.setJsonEntity(objectMapper.writeValueAsString(body));
+        JsonNode buckets = read(restClient.performRequest(request)).path("aggregations").path("reads").path("buckets");
+        List<ReadCountBucket> counts = new ArrayList<>(buckets.size());
+        for (JsonNode bucket : buckets) {
+            long tags = bucket.path("tags").path("value").asLong();
+            counts.add(new ReadCountBucket(bucket.path("key").asLong(), bucket.path("doc_count").asLong(), tags));
+        }
+        return Collections.unmodifiableList(counts);
+    }
+
+    /**
+     * Close a point in time, logging rather than throwing if it cannot be: it expires anyway.
+     *
+     * @param pitId the point in time.
+     */
+    public void closePointInTime(String pitId) {
+        Request request = new Request("DELETE", "/_pit");
+        request.setJsonEntity(objectMapper.createObjectNode().put("id", pitId).toString());
+        try {
+            restClient.performRequest(request);
+        } catch (IOException e) {
+            log.debug("Could not close point in time: {}", e.toString());
+        }
+    }
+
+    private static TagRead toTagRead(JsonNode source) {
+        TagRead read = new TagRead();
+        read.setEpc(Epc.tryParse(source.path("epc").asText()));
+        read.setReaderId(source.path("readerId").asText(null));
+        read.setAntenna(source.path("antenna").asInt());
+        read.setRssi(source.path("rssi").asDouble());
+        read.setTimestamp(source.path("timestamp").asLong());
+        return read;
+    }
+
+    private JsonNode read(Response response) throws IOException {
+        try (InputStream in = response.getEntity().getContent()) {
+            return objectMapper.readTree(in);
+        }
+    }
+
+    String encode(Cursor cursor) throws IOException {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("pit", cursor.pitId);
+        node.putArray("after").add(cursor.after[0]).add(cursor.after[1]);
+        node.set("criteria", objectMapper.valueToTree(cursor.criteria));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(node));
+    }
+
+    Cursor decode(String cursor) {
+        try {
+            JsonNode node = objectMapper.readTree(Base64.getUrlDecoder().decode(cursor));
+            JsonNode after = node.path("after");
+            if (!node.path("pit").isTextual() || after.size() != 2) {
+                throw new InvalidCursorException("Malformed cursor");
+            }
+            TagReadCriteria criteria = node.has("criteria")
+                ? objectMapper.treeToValue(node.get("criteria"), TagReadCriteria.class)
+                : new TagReadCriteria();
+            return new Cursor(node.path("pit").asText(), new long[] { after.path(0).asLong(), after.path(1).asLong() }, criteria);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new InvalidCursorException("Malformed cursor", e);
+        }
+    }
+
+    /**
+     * Identifies identical histogram searches.
+     */
+    private static final class HistogramKey {
+
+        private final String epc;
+
+        private final String readerId;
+
+        private final Long from;
+
+        private final Long to;
+
+        private final long intervalMillis;
+
+        HistogramKey(TagReadCriteria criteria, long intervalMillis) {
+            this.epc = criteria.getEpc();
+            this.readerId = criteria.getReaderId();
+            this.from = criteria.getFrom();
+            this.to = criteria.getTo();
+            this.intervalMillis = intervalMillis;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof HistogramKey)) {
+                return false;
+            }
+            HistogramKey other = (HistogramKey) o;
+            return (
+                intervalMillis == other.intervalMillis &&
+                Objects.equals(from, other.from) &&
+                Objects.equals(to, other.to) &&
+                Objects.equals(epc, other.epc) &&
+                Objects.equals(readerId, other.readerId)
+            );
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(epc, readerId, from, to, intervalMillis);
+        }
+
+        @Override
+        public String toString() {
+            return (
+                "HistogramKey{epc='" +
+                epc +
+                "', readerId='" +
+                readerId +
+                "', from=" +
+                from +
+                ", to=" +
+                to +
+                ", intervalMillis=" +
+                intervalMillis +
+                "}"
+            );
+        }
+    }
+
+    /**
+     * Where a pagination stands.
+     */
+    static final class Cursor {
+
+        final String pitId;
+
+        /**
+         * Sort values of the last read returned, {@code null} before the first page.
+         */
+        final long[] after;
+
+        final TagReadCriteria criteria;
+
+        Cursor(String pitId, long[] after, TagReadCriteria criteria) {
+            this.pitId = pitId;
+            this.after = after;
+            this.criteria = criteria;
+        }
+    }
+}
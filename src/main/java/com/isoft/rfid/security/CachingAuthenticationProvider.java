@@ -0,0 +1,181 @@
+package com.isoft.rfid.security;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.management.SecurityMetersService;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+/**
+ * Remembers the successful password checks of an {@link AuthenticationProvider} for a short while, so that the clients
+ * sending their credentials with every request, such as the readers using HTTP Basic, do not pay the password encoder
+ * on every request.
+ * <p>
+ * The credentials are keyed by their HMAC under a random key drawn at startup, so that the cache holds neither the
+ * passwords nor digests that could be checked against a guess offline. Only successes are remembered. A remembered
+ * check is only reused while the user still has the same encoded password and may still log in, which loading the user
+ * tells far more cheaply than the encoder does: a changed password or a disabled user is checked again.
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+
+    private final AuthenticationProvider delegate;
+
+    private final UserDetailsService userDetailsService;
+
+    private final SecurityMetersService securityMetersService;
+
+    private final int maxEntries;
+
+    private final long ttlMillis;
+
+    private final ThreadLocal<Mac> macs;
+
+    private final Map<ByteBuffer, Entry> entries = new ConcurrentHashMap<>();
+
+    private static final class Entry {
+
+        final UserDetails principal;
+
+        final String encodedPassword;
+
+        final Collection<? extends GrantedAuthority> authorities;
+
+        final long expiresAt;
+
+        Entry(UserDetails principal, String encodedPassword, Collection<? extends GrantedAuthority> authorities, long expiresAt) {
+            this.principal = principal;
+            this.encodedPassword = encodedPassword;
+            this.authorities = authorities;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * @param delegate the provider checking the passwords.
+     * @param userDetailsService where the delegate loads the users from.
+     */
+    public CachingAuthenticationProvider(
+        AuthenticationProvider delegate,
+        UserDetailsService userDetailsService,
+        SecurityMetersService securityMetersService,
+        ApplicationProperties applicationProperties
+    ) {
+        this.delegate = delegate;
+        this.userDetailsService = userDetailsService;
+        this.securityMetersService = securityMetersService;
+        this.maxEntries = applicationProperties.getSecurity().getCredentialCacheSize();
+        this.ttlMillis = applicationProperties.getSecurity().getCredentialCacheMillis();
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        SecretKeySpec salt = new SecretKeySpec(key, "HmacSHA256");
+        this.macs =
+            ThreadLocal.withInitial(() -> {
+                try {
+                    Mac mac = Mac.getInstance("HmacSHA256");
+                    mac.init(salt);
+                    return mac;
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException("HmacSHA256 is not available", e);
+                }
+            });
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        if (
+            maxEntries <= 0 || !(authentication instanceof UsernamePasswordAuthenticationToken) || authentication.getCredentials() == null
+        ) {
+            return delegate.authenticate(authentication);
+        }
+        ByteBuffer key = digest(authentication.getName(), authentication.getCredentials().toString());
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (now < entry.expiresAt && isCurrent(entry)) {
+                securityMetersService.trackCredentialCacheHit();
+                UsernamePasswordAuthenticationToken result = new UsernamePasswordAuthenticationToken(
+                    entry.principal,
+                    null,
+                    entry.authorities
+                );
+                result.setDetails(authentication.getDetails());
+                return result;
+            }
+            entries.remove(key, entry);
+        }
+
+        securityMetersService.trackCredentialCacheMiss();
+        Authentication result = delegate.authenticate(authentication);
+        if (result != null && result.getPrincipal() instanceof UserDetails) {
+            UserDetails principal = (UserDetails) result.getPrincipal();
+            // Read before the authentication is returned, as the password of the principal is then erased
+            String encodedPassword = principal.getPassword();
+            if (encodedPassword != null) {
+                put(key, new Entry(principal, encodedPassword, result.getAuthorities(), now + ttlMillis));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+
+    private ByteBuffer digest(String username, String password) {
+        Mac mac = macs.get();
+        mac.update(username.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        return ByteBuffer.wrap(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private boolean isCurrent(Entry entry) {
+        UserDetails user;
+        try {
+            user = userDetailsService.loadUserByUsername(entry.principal.getUsername());
+        } catch (UsernameNotFoundException e) {
+            return false;
+        }
+        return (
+            entry.encodedPassword.equals(user.getPassword()) &&
+            user.isEnabled() &&
+            user.isAccountNonLocked() &&
+            user.isAccountNonExpired() &&
+            user.isCredentialsNonExpired()
+        );
+    }
+
+    private void put(ByteBuffer key, Entry entry) {
+        if (entries.size() >= maxEntries) {
+            long now = System.currentTimeMillis();
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+                if (now >= it.next().expiresAt) {
+                    it.remove();
+                }
+            }
+            if (entries.size() >= maxEntries) {
+                entries.clear();
+            }
+        }
+        entries.put(key, entry);
+    }
+
+    int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,21 @@
+package com.isoft.rfid.security.apikey;
+
+import org.springframework.security.config.annotation.SecurityConfigurerAdapter;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.web.DefaultSecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+
+public class ApiKeyConfigurer extends SecurityConfigurerAdapter<DefaultSecurityFilterChain, HttpSecurity> {
+
+    private final ApiKeyStore apiKeyStore;
+
+    public ApiKeyConfigurer(ApiKeyStore apiKeyStore) {
+        this.apiKeyStore = apiKeyStore;
+    }
+
+    @Override
+    public void configure(HttpSecurity http) {
+        ApiKeyFilter customFilter = new ApiKeyFilter(apiKeyStore);
+        http.addFilterBefore(customFilter, UsernamePasswordAuthenticationFilter.class);
+    }
+}
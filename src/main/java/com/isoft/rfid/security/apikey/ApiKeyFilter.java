@@ -0,0 +1,46 @@
+package com.isoft.rfid.security.apikey;
+
+import java.io.IOException;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.GenericFilterBean;
+
+/**
+ * Filters incoming requests and installs the principal of a reader if a header with its API key is found, on the
+ * ingest endpoints only: anywhere else, the key is ignored.
+ */
+public class ApiKeyFilter extends GenericFilterBean {
+
+    public static final String API_KEY_HEADER = "X-API-Key";
+
+    static final RequestMatcher INGEST_ENDPOINTS = new AntPathRequestMatcher("/api/tag-reads/bulk", HttpMethod.POST.name());
+
+    private final ApiKeyStore apiKeyStore;
+
+    public ApiKeyFilter(ApiKeyStore apiKeyStore) {
+        this.apiKeyStore = apiKeyStore;
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain)
+        throws IOException, ServletException {
+        HttpServletRequest httpServletRequest = (HttpServletRequest) servletRequest;
+        String apiKey = httpServletRequest.getHeader(API_KEY_HEADER);
+        if (StringUtils.hasText(apiKey) && INGEST_ENDPOINTS.matches(httpServletRequest)) {
+            Authentication authentication = apiKeyStore.authenticate(apiKey);
+            if (authentication != null) {
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            }
+        }
+        filterChain.doFilter(servletRequest, servletResponse);
+    }
+}
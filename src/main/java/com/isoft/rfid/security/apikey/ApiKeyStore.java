@@ -0,0 +1,132 @@
+package com.isoft.rfid.security.apikey;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.security.AuthoritiesConstants;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * The API keys of the readers, read from a file and read again whenever it changes, so that keys are issued, rotated
+ * and revoked without a restart: to rotate a key, list the new one next to the old one, then remove the old one once
+ * the reader uses the new one.
+ * <p>
+ * The file is a properties file mapping the name of each reader to the hexadecimal SHA-256 digest of its key, such as
+ * {@code printf %s "$KEY" | sha256sum} prints, so that it never holds the keys themselves. A key is looked up by the
+ * digest of the key presented, so the time the lookup takes says nothing about the keys; each key has its own
+ * authentication, built once at load time and shared by all the requests with the key.
+ */
+@Component
+public class ApiKeyStore {
+
+    private static final List<GrantedAuthority> AUTHORITIES = List.of(new SimpleGrantedAuthority(AuthoritiesConstants.READER));
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private final Logger log = LoggerFactory.getLogger(ApiKeyStore.class);
+
+    private final Path file;
+
+    private FileTime lastModified;
+
+    private volatile Map<ByteBuffer, Authentication> authentications = Map.of();
+
+    public ApiKeyStore(ApplicationProperties applicationProperties) {
+        String apiKeysFile = applicationProperties.getSecurity().getApiKeysFile();
+        this.file = StringUtils.hasText(apiKeysFile) ? Paths.get(apiKeysFile) : null;
+        reload();
+    }
+
+    /**
+     * @param apiKey the key presented by a reader.
+     * @return the authentication of the reader, or {@code null} if the key is not known.
+     */
+    public Authentication authenticate(String apiKey) {
+        Map<ByteBuffer, Authentication> current = authentications;
+        if (current.isEmpty()) {
+            return null;
+        }
+        return current.get(ByteBuffer.wrap(SHA_256.get().digest(apiKey.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    /**
+     * Read the keys again if the file changed since they were read, keeping the keys already read if it cannot be read.
+     */
+    @Scheduled(
+        fixedDelayString = "${application.security.api-keys-reload-millis:10000}",
+        initialDelayString = "${application.security.api-keys-reload-millis:10000}"
+    )
+    public synchronized void reload() {
+        if (file == null) {
+            return;
+        }
+        try {
+            FileTime modified = Files.getLastModifiedTime(file);
+            if (modified.equals(lastModified)) {
+                return;
+            }
+            Properties keys = new Properties();
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                keys.load(reader);
+            }
+            Map<ByteBuffer, Authentication> loaded = new HashMap<>();
+            for (String reader : keys.stringPropertyNames()) {
+                byte[] digest = parseDigest(keys.getProperty(reader).trim());
+                if (digest == null) {
+                    log.warn("Ignoring the API key of {} in {}: not a hexadecimal SHA-256 digest", reader, file);
+                    continue;
+                }
+                User principal = new User(reader, "", AUTHORITIES);
+                loaded.put(ByteBuffer.wrap(digest), new UsernamePasswordAuthenticationToken(principal, null, AUTHORITIES));
+            }
+            authentications = loaded;
+            lastModified = modified;
+            log.info("Loaded {} API keys from {}", loaded.size(), file);
+        } catch (IOException e) {
+            log.warn("Cannot read the API keys from {}, keeping the {} already read: {}", file, authentications.size(), e.toString());
+        }
+    }
+
+    private static byte[] parseDigest(String hex) {
+        if (hex.length() != 64) {
+            return null;
+        }
+        byte[] digest = new byte[32];
+        for (int i = 0; i < digest.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            digest[i] = (byte) (high << 4 | low);
+        }
+        return digest;
+    }
+}
@@ -0,0 +1,279 @@
+package com.isoft.rfid.security.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Rejects the tokens that cannot be valid before they are parsed and verified, without throwing: the parser reports
+ * every invalid token with an exception, whose stack trace costs more than the rest of the check.
+ * <p>
+ * Only the structure of the token, the algorithm of its header, the length of its signature and its {@code exp} claim
+ * are checked. Whatever the precheck cannot decide cheaply, such as an escaped string or a header that is not valid
+ * JSON, is left to the parser, which remains the only judge of the valid tokens.
+ */
+final class TokenPrecheck {
+
+    /**
+     * The outcome of the precheck, each rejection being reported as the parser would.
+     */
+    enum Verdict {
+        /**
+         * The token may be valid: it must be parsed and verified.
+         */
+        UNDECIDED,
+        MALFORMED,
+        UNSUPPORTED,
+        INVALID_SIGNATURE,
+        EXPIRED,
+    }
+
+    private static final int NOT_FOUND = -1;
+
+    private static final int NOT_SCANNABLE = -2;
+
+    private TokenPrecheck() {}
+
+    /**
+     * @param token the compact token.
+     * @param now the current time, in milliseconds since the epoch.
+     * @return the verdict.
+     */
+    static Verdict check(String token, long now) {
+        if (token == null || token.isEmpty()) {
+            return Verdict.UNDECIDED;
+        }
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+        if (secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0) {
+            return Verdict.MALFORMED;
+        }
+        byte[] header = decode(token, 0, firstDot);
+        byte[] payload = decode(token, firstDot + 1, secondDot);
+        if (header == null || payload == null || payload.length == 0) {
+            return Verdict.UNDECIDED;
+        }
+
+        String algorithm = stringMember(header, "alg");
+        int signatureLength = token.length() - secondDot - 1;
+        if (algorithm == null) {
+            return Verdict.UNDECIDED;
+        }
+        if ("none".equals(algorithm)) {
+            return signatureLength == 0 ? Verdict.UNSUPPORTED : Verdict.MALFORMED;
+        }
+        int expectedSignatureLength = signatureLength(algorithm);
+        if (expectedSignatureLength < 0) {
+            // Not an HMAC algorithm, which the secret key cannot verify
+            return Verdict.UNSUPPORTED;
+        }
+        if (signatureLength == 0) {
+            return Verdict.MALFORMED;
+        }
+        if (signatureLength != expectedSignatureLength && isBase64Url(token, secondDot + 1, token.length())) {
+            return Verdict.INVALID_SIGNATURE;
+        }
+
+        if (payload[0] != '{' || payload[payload.length - 1] != '}') {
+            // A plaintext payload rather than claims
+            return Verdict.UNSUPPORTED;
+        }
+        int exp = find(payload, "exp");
+        if (exp < 0) {
+            return Verdict.UNDECIDED;
+        }
+        long expiration = 0;
+        int digits = 0;
+        for (int i = exp; i < payload.length && payload[i] >= '0' && payload[i] <= '9' && digits < 18; i++, digits++) {
+            expiration = expiration * 10 + (payload[i] - '0');
+        }
+        int end = exp + digits;
+        if (digits == 0 || digits == 18 || (payload[end] != ',' && payload[end] != '}' && !isWhitespace(payload[end]))) {
+            return Verdict.UNDECIDED;
+        }
+        return expiration * 1000 < now ? Verdict.EXPIRED : Verdict.UNDECIDED;
+    }
+
+    /**
+     * @return the length of the base64url signature of an HMAC algorithm, or {@code -1} if it is not one.
+     */
+    private static int signatureLength(String algorithm) {
+        switch (algorithm) {
+            case "HS256":
+                return 43;
+            case "HS384":
+                return 64;
+            case "HS512":
+                return 86;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * @return the bytes of a part of the token, or {@code null} if it is not unpadded base64url.
+     */
+    private static byte[] decode(String token, int from, int to) {
+        int length = to - from;
+        if (length == 0 || length % 4 == 1) {
+            return null;
+        }
+        if (!isBase64Url(token, from, to)) {
+            return null;
+        }
+        return Base64.getUrlDecoder().decode(token.substring(from, to).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static boolean isBase64Url(String token, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = token.charAt(i);
+            if (!((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the value of a string member of a JSON object, or {@code null} if it is missing, escaped or not a string,
+     * or if the object cannot be scanned.
+     */
+    private static String stringMember(byte[] json, String name) {
+        int value = find(json, name);
+        if (value < 0 || json[value] != '"') {
+            return null;
+        }
+        for (int i = value + 1; i < json.length; i++) {
+            if (json[i] == '\\') {
+                return null;
+            }
+            if (json[i] == '"') {
+                return new String(json, value + 1, i - value - 1, StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find the value of a member of a JSON object, the last one if it is repeated as the parser keeps the last one.
+     *
+     * @return the index of the value, {@link #NOT_FOUND} if the object has no such member, or {@link #NOT_SCANNABLE}
+     * if the bytes are not a JSON object whose member names are not escaped.
+     */
+    private static int find(byte[] json, String name) {
+        int i = skipWhitespace(json, 0);
+        if (i >= json.length || json[i] != '{') {
+            return NOT_SCANNABLE;
+        }
+        int found = NOT_FOUND;
+        i = skipWhitespace(json, i + 1);
+        if (i < json.length && json[i] == '}') {
+            return found;
+        }
+        while (i < json.length && json[i] == '"') {
+            int nameEnd = skipString(json, i);
+            if (nameEnd < 0 || indexOf(json, (byte) '\\', i, nameEnd) >= 0) {
+                return NOT_SCANNABLE;
+            }
+            boolean matches = nameEnd - i - 2 == name.length() && regionMatches(json, i + 1, name);
+            i = skipWhitespace(json, nameEnd);
+            if (i >= json.length || json[i] != ':') {
+                return NOT_SCANNABLE;
+            }
+            i = skipWhitespace(json, i + 1);
+            if (matches) {
+                found = i;
+            }
+            i = skipValue(json, i);
+            if (i < 0) {
+                return NOT_SCANNABLE;
+            }
+            i = skipWhitespace(json, i);
+            if (i < json.length && json[i] == '}') {
+                return skipWhitespace(json, i + 1) == json.length ? found : NOT_SCANNABLE;
+            }
+            if (i >= json.length || json[i] != ',') {
+                return NOT_SCANNABLE;
+            }
+            i = skipWhitespace(json, i + 1);
+        }
+        return NOT_SCANNABLE;
+    }
+
+    private static int indexOf(byte[] json, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (json[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(byte[] json, int from, String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (json[from + i] != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the index after the value, or {@code -1} if it cannot be scanned.
+     */
+    private static int skipValue(byte[] json, int i) {
+        if (i >= json.length) {
+            return -1;
+        }
+        if (json[i] == '"') {
+            return skipString(json, i);
+        }
+        if (json[i] == '{' || json[i] == '[') {
+            int depth = 0;
+            for (; i < json.length; i++) {
+                byte b = json[i];
+                if (b == '"') {
+                    i = skipString(json, i);
+                    if (i < 0) {
+                        return -1;
+                    }
+                    i--;
+                } else if (b == '{' || b == '[') {
+                    depth++;
+                } else if ((b == '}' || b == ']') && --depth == 0) {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+        int start = i;
+        while (i < json.length && json[i] != ',' && json[i] != '}' && !isWhitespace(json[i])) {
+            i++;
+        }
+        return i > start ? i : -1;
+    }
+
+    /**
+     * @return the index after the closing quote of the string starting at {@code i}, or {@code -1} if it is not closed.
+     */
+    private static int skipString(byte[] json, int i) {
+        for (i++; i < json.length; i++) {
+            if (json[i] == '\\') {
+                i++;
+            } else if (json[i] == '"') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(byte[] json, int i) {
+        while (i < json.length && isWhitespace(json[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+}
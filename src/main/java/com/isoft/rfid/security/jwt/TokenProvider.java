@@ -1,5 +1,6 @@
 package com.isoft.rfid.security.jwt;
 
+import com.isoft.rfid.config.ApplicationProperties;
 import com.isoft.rfid.management.SecurityMetersService;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
@@ -8,6 +9,7 @@ import io.jsonwebtoken.security.SignatureException;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,6 +31,8 @@ public class TokenProvider {
 
     private static final String INVALID_JWT_TOKEN = "Invalid JWT token.";
 
+    private static final int MAX_AUTHORITY_SETS = 256;
+
     private final Key key;
 
     private final JwtParser jwtParser;
@@ -39,7 +43,21 @@ public class TokenProvider {
 
     private final SecurityMetersService securityMetersService;
 
-    public TokenProvider(JHipsterProperties jHipsterProperties, SecurityMetersService securityMetersService) {
+    private final VerifiedTokenCache verifiedTokens;
+
+    private final TokenRevocationList revocationList;
+
+    /**
+     * Authorities by value of the authorities claim, of which there are only a few.
+     */
+    private final Map<String, List<GrantedAuthority>> authoritiesByClaim = new ConcurrentHashMap<>();
+
+    public TokenProvider(
+        JHipsterProperties jHipsterProperties,
+        SecurityMetersService securityMetersService,
+        ApplicationProperties applicationProperties,
+        TokenRevocationList revocationList
+    ) {
         byte[] keyBytes;
         String secret = jHipsterProperties.getSecurity().getAuthentication().getJwt().getBase64Secret();
         if (!ObjectUtils.isEmpty(secret)) {
@@ -60,6 +78,8 @@ public class TokenProvider {
             1000 * jHipsterProperties.getSecurity().getAuthentication().getJwt().getTokenValidityInSecondsForRememberMe();
 
         this.securityMetersService = securityMetersService;
+        this.verifiedTokens = new VerifiedTokenCache(applicationProperties.getSecurity().getTokenCacheSize());
+        this.revocationList = revocationList;
     }
 
     public String createToken(Authentication authentication, boolean rememberMe) {
@@ -73,9 +93,14 @@ public class TokenProvider {
             validity = new Date(now + this.tokenValidityInMilliseconds);
         }
 
+        // The ID is logged so that the token of a lost or stolen device can be revoked by it
+        String tokenId = UUID.randomUUID().toString();
+        log.info("Issued token {} to {} until {}", tokenId, authentication.getName(), validity.toInstant());
         return Jwts
             .builder()
+            .setId(tokenId)
             .setSubject(authentication.getName())
+            .setIssuedAt(new Date(now))
             .claim(AUTHORITIES_KEY, authorities)
             .signWith(key, SignatureAlgorithm.HS512)
             .setExpiration(validity)
@@ -83,24 +108,155 @@ public class TokenProvider {
     }
 
     public Authentication getAuthentication(String token) {
-        Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        return toAuthentication(jwtParser.parseClaimsJws(token).getBody(), token);
+    }
+
+    /**
+     * Validate a token and build its authentication, parsing and verifying it once, or not at all if it was already
+     * verified and has not expired since.
+     *
+     * @param token the token.
+     * @return the authentication of the token, shared by the requests with the same token, or {@code null} if the token
+     * is not valid.
+     */
+    public Authentication authenticate(String token) {
+        VerifiedTokenCache.Digest digest = verifiedTokens.digest(token);
+        VerifiedTokenCache.Entry verified = verifiedTokens.get(digest, System.currentTimeMillis());
+        if (verified != null) {
+            if (revocationList.isRevoked(verified.tokenId, verified.authentication.getName(), verified.issuedAt)) {
+                this.securityMetersService.trackTokenRevoked();
+                return null;
+            }
+            return verified.authentication;
+        }
+        Claims claims = parseClaims(token);
+        if (claims == null) {
+            return null;
+        }
+        Authentication authentication = toAuthentication(claims, token);
+        if (claims.getExpiration() != null) {
+            verifiedTokens.put(digest, authentication, claims.getId(), issuedAt(claims), claims.getExpiration().getTime());
+        }
+        return authentication;
+    }
 
-        Collection<? extends GrantedAuthority> authorities = Arrays
-            .stream(claims.get(AUTHORITIES_KEY).toString().split(","))
-            .filter(auth -> !auth.trim().isEmpty())
-            .map(SimpleGrantedAuthority::new)
-            .collect(Collectors.toList());
+    private Authentication toAuthentication(Claims claims, String token) {
+        List<GrantedAuthority> authorities = authorities(claims.get(AUTHORITIES_KEY).toString());
 
         User principal = new User(claims.getSubject(), "", authorities);
 
         return new UsernamePasswordAuthenticationToken(principal, token, authorities);
     }
 
+    private List<GrantedAuthority> authorities(String claim) {
+        List<GrantedAuthority> authorities = authoritiesByClaim.get(claim);
+        if (authorities == null) {
+            authorities =
+                Collections.unmodifiableList(
+                    Arrays
+                        .stream(claim.split(","))
+                        .filter(auth -> !auth.trim().isEmpty())
+                        .map(SimpleGrantedAuthority::new)
+                        .collect(Collectors.toList())
+                );
+            if (authoritiesByClaim.size() < MAX_AUTHORITY_SETS) {
+                authoritiesByClaim.putIfAbsent(claim, authorities);
+            }
+        }
+        return authorities;
+    }
+
     public boolean validateToken(String authToken) {
-        try {
-            jwtParser.parseClaimsJws(authToken);
+        return parseClaims(authToken) != null;
+    }
 
+    /**
+     * Revoke a token until it expires.
+     *
+     * @param token the token.
+     * @return {@code false} if the token was not issued here, or has no ID to be revoked by.
+     */
+    public boolean revoke(String token) {
+        Claims claims;
+        try {
+            claims = jwtParser.parseClaimsJws(token).getBody();
+        } catch (ExpiredJwtException e) {
+            // Already rejected
             return true;
+        } catch (JwtException | IllegalArgumentException e) {
+            return false;
+        }
+        if (claims.getId() == null || claims.getExpiration() == null) {
+            return false;
+        }
+        revocationList.revoke(claims.getId(), claims.getExpiration().getTime());
+        return true;
+    }
+
+    /**
+     * Revoke a token by its ID, logged when it was issued, until it expires at the latest.
+     *
+     * @param tokenId the ID of the token.
+     */
+    public void revokeById(String tokenId) {
+        revocationList.revoke(tokenId, System.currentTimeMillis() + maxTokenValidityInMilliseconds());
+    }
+
+    /**
+     * Revoke all the tokens of a subject issued before a given time, until they expire: issue times are known to the
+     * second, so the tokens issued later during the second of that time are revoked too.
+     *
+     * @param subject the subject, the login of a user or the name of a device.
+     * @param issuedBefore the time the tokens issued before are revoked, in milliseconds since the epoch.
+     */
+    public void revokeSubject(String subject, long issuedBefore) {
+        revocationList.revokeSubject(subject, issuedBefore, issuedBefore + maxTokenValidityInMilliseconds());
+    }
+
+    private long maxTokenValidityInMilliseconds() {
+        return Math.max(tokenValidityInMilliseconds, tokenValidityInMillisecondsForRememberMe);
+    }
+
+    /**
+     * @return when the token was issued, {@link Long#MIN_VALUE} for the tokens issued without that claim, which the
+     * revocation of their subject then applies to.
+     */
+    private static long issuedAt(Claims claims) {
+        return claims.getIssuedAt() == null ? Long.MIN_VALUE : claims.getIssuedAt().getTime();
+    }
+
+    /**
+     * @return the claims of the token, or {@code null} if it is not valid or has been revoked.
+     */
+    private Claims parseClaims(String authToken) {
+        // Rejecting the tokens that cannot be valid without the parser spares the stack trace of its exception
+        TokenPrecheck.Verdict verdict = TokenPrecheck.check(authToken, System.currentTimeMillis());
+        if (verdict != TokenPrecheck.Verdict.UNDECIDED) {
+            switch (verdict) {
+                case EXPIRED:
+                    this.securityMetersService.trackTokenExpired();
+                    break;
+                case UNSUPPORTED:
+                    this.securityMetersService.trackTokenUnsupported();
+                    break;
+                case MALFORMED:
+                    this.securityMetersService.trackTokenMalformed();
+                    break;
+                default:
+                    this.securityMetersService.trackTokenInvalidSignature();
+                    break;
+            }
+            log.trace("{} {}", INVALID_JWT_TOKEN, verdict);
+            return null;
+        }
+        try {
+            Claims claims = jwtParser.parseClaimsJws(authToken).getBody();
+            if (revocationList.isRevoked(claims.getId(), claims.getSubject(), issuedAt(claims))) {
+                this.securityMetersService.trackTokenRevoked();
+                log.trace("{} Revoked", INVALID_JWT_TOKEN);
+                return null;
+            }
+            return claims;
         } catch (ExpiredJwtException e) {
             this.securityMetersService.trackTokenExpired();
 
@@ -121,6 +277,6 @@ public class TokenProvider {
             log.error("Token validation error {}", e.getMessage());
         }
 
-        return false;
+        return null;
     }
 }
@@ -0,0 +1,283 @@
+package com.isoft.rfid.security.jwt;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * The IDs of the tokens revoked before they expire, and the subjects whose tokens issued before a given time are
+ * revoked, until those tokens expire.
+ * <p>
+ * A Bloom filter in front of the exact set of IDs answers for almost all the tokens, which are not revoked, with a few
+ * bit lookups; the set is only looked up for the tokens the filter cannot tell apart from revoked ones. The subjects,
+ * revoked when a user or device is compromised, are few and looked up directly. The revocations are dropped once the
+ * tokens they apply to have expired, and the list is written to a file on every change, and read at startup, so that
+ * it survives restarts: a line per token ID and its expiration, and a line per subject starting with {@code @}.
+ */
+@Component
+public class TokenRevocationList {
+
+    static final long PRUNE_INTERVAL_MILLIS = 60 * 1000;
+
+    private final Logger log = LoggerFactory.getLogger(TokenRevocationList.class);
+
+    private final Map<String, Long> expirations = new ConcurrentHashMap<>();
+
+    private final Map<String, SubjectRevocation> subjects = new ConcurrentHashMap<>();
+
+    private final int capacity;
+
+    private final Path file;
+
+    private volatile BloomFilter filter;
+
+    public TokenRevocationList(ApplicationProperties applicationProperties) {
+        this.capacity = Math.max(1, applicationProperties.getSecurity().getRevocationCapacity());
+        String revocationFile = applicationProperties.getSecurity().getRevocationFile();
+        this.file = StringUtils.hasText(revocationFile) ? Paths.get(revocationFile) : null;
+        this.filter = new BloomFilter(capacity);
+        load();
+    }
+
+    /**
+     * @param tokenId the ID of a token, {@code null} if it has none.
+     * @param subject the subject of the token.
+     * @param issuedAt when the token was issued, in milliseconds since the epoch, {@link Long#MIN_VALUE} if unknown.
+     * @return whether the token is revoked.
+     */
+    public boolean isRevoked(String tokenId, String subject, long issuedAt) {
+        if (tokenId != null && filter.mightContain(tokenId) && expirations.containsKey(tokenId)) {
+            return true;
+        }
+        if (subjects.isEmpty() || subject == null) {
+            return false;
+        }
+        SubjectRevocation revocation = subjects.get(subject);
+        return revocation != null && issuedAt < revocation.issuedBefore;
+    }
+
+    /**
+     * Revoke a token until it expires.
+     *
+     * @param tokenId the ID of the token.
+     * @param expiresAt when the token expires, in milliseconds since the epoch.
+     */
+    public synchronized void revoke(String tokenId, long expiresAt) {
+        if (expiresAt <= System.currentTimeMillis() || expirations.putIfAbsent(tokenId, expiresAt) != null) {
+            return;
+        }
+        if (expirations.size() > filter.capacity) {
+            rebuild();
+        } else {
+            filter.add(tokenId);
+        }
+        log.info("Revoked token {} until {}", tokenId, expiresAt);
+        store();
+    }
+
+    /**
+     * Revoke the tokens of a subject issued before a given time, until they expire.
+     *
+     * @param subject the subject of the tokens.
+     * @param issuedBefore the time the tokens issued before are revoked, in milliseconds since the epoch.
+     * @param expiresAt when the last of the tokens expires, in milliseconds since the epoch.
+     */
+    public synchronized void revokeSubject(String subject, long issuedBefore, long expiresAt) {
+        SubjectRevocation previous = subjects.get(subject);
+        if (expiresAt <= System.currentTimeMillis() || (previous != null && previous.issuedBefore >= issuedBefore)) {
+            return;
+        }
+        subjects.put(subject, new SubjectRevocation(issuedBefore, Math.max(expiresAt, previous == null ? 0 : previous.expiresAt)));
+        log.info("Revoked the tokens of {} issued before {}", subject, issuedBefore);
+        store();
+    }
+
+    /**
+     * Drop the revoked tokens that have expired since.
+     */
+    @Scheduled(fixedDelay = PRUNE_INTERVAL_MILLIS, initialDelay = PRUNE_INTERVAL_MILLIS)
+    public synchronized void prune() {
+        long now = System.currentTimeMillis();
+        boolean subjectsPruned = subjects.values().removeIf(revocation -> revocation.expiresAt <= now);
+        if (expirations.values().removeIf(expiresAt -> expiresAt <= now)) {
+            rebuild();
+            store();
+        } else if (subjectsPruned) {
+            store();
+        }
+    }
+
+    int size() {
+        return expirations.size() + subjects.size();
+    }
+
+    /**
+     * Build a filter of the revoked tokens, which a filter cannot drop, with room for twice as many.
+     */
+    private void rebuild() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(capacity, 2 * expirations.size()));
+        expirations.keySet().forEach(rebuilt::add);
+        filter = rebuilt;
+    }
+
+    private void load() {
+        if (file == null || !Files.exists(file)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int space = line.indexOf(' ');
+                if (line.startsWith("@")) {
+                    loadSubject(line, now);
+                } else if (space > 0) {
+                    long expiresAt = Long.parseLong(line.substring(space + 1).trim());
+                    if (expiresAt > now) {
+                        expirations.put(line.substring(0, space), expiresAt);
+                    }
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            log.error("Cannot read the revoked tokens from {}, {} read so far: {}", file, size(), e.toString());
+        }
+        rebuild();
+        log.info("Loaded {} revoked tokens and {} revoked subjects from {}", expirations.size(), subjects.size(), file);
+    }
+
+    /**
+     * Read a line {@code @issuedBefore expiresAt subject}, the subject last since it may contain spaces.
+     */
+    private void loadSubject(String line, long now) {
+        int first = line.indexOf(' ');
+        int second = first < 0 ? -1 : line.indexOf(' ', first + 1);
+        if (second < 0) {
+            return;
+        }
+        long issuedBefore = Long.parseLong(line.substring(1, first));
+        long expiresAt = Long.parseLong(line.substring(first + 1, second));
+        if (expiresAt > now) {
+            subjects.put(line.substring(second + 1), new SubjectRevocation(issuedBefore, expiresAt));
+        }
+    }
+
+    /**
+     * Write the list to a new file replacing the previous one, so that a crash never leaves a partial list.
+     */
+    private void store() {
+        if (file == null) {
+            return;
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Long> revoked : expirations.entrySet()) {
+                    writer.write(revoked.getKey() + ' ' + revoked.getValue());
+                    writer.newLine();
+                }
+                for (Map.Entry<String, SubjectRevocation> revoked : subjects.entrySet()) {
+                    SubjectRevocation revocation = revoked.getValue();
+                    writer.write("@" + revocation.issuedBefore + ' ' + revocation.expiresAt + ' ' + revoked.getKey());
+                    writer.newLine();
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Cannot write the revoked tokens to {}, they will not survive a restart: {}", file, e.toString());
+        }
+    }
+
+    private static final class SubjectRevocation {
+
+        final long issuedBefore;
+
+        final long expiresAt;
+
+        SubjectRevocation(long issuedBefore, long expiresAt) {
+            this.issuedBefore = issuedBefore;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * A Bloom filter sized for about 1% of false positives at capacity, with 7 hash functions derived from one 64-bit
+     * hash. Adding and looking up can happen concurrently.
+     */
+    static final class BloomFilter {
+
+        private static final int HASHES = 7;
+
+        private static final int BITS_PER_ENTRY = 10;
+
+        final int capacity;
+
+        private final AtomicLongArray words;
+
+        private final long bits;
+
+        BloomFilter(int capacity) {
+            this.capacity = capacity;
+            this.words = new AtomicLongArray((int) (((long) capacity * BITS_PER_ENTRY + 63) / 64));
+            this.bits = 64L * words.length();
+        }
+
+        void add(String value) {
+            long hash = hash(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < HASHES; i++) {
+                long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                while (((current = words.get(word)) & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                    // Another bit of the word was set meanwhile
+                }
+            }
+        }
+
+        boolean mightContain(String value) {
+            long hash = hash(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < HASHES; i++) {
+                long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * FNV-1a over the characters, then the finalizer of MurmurHash3 to spread the bits.
+         */
+        private static long hash(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb3f53fe1a14bL;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
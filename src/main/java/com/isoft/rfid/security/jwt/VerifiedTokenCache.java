@@ -0,0 +1,173 @@
+package com.isoft.rfid.security.jwt;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.security.core.Authentication;
+
+/**
+ * The authentications of the tokens already verified, until the tokens expire.
+ * <p>
+ * Tokens are keyed by their SHA-256 digest, which is much cheaper to compute than parsing and verifying the token, and
+ * does not keep the bearer secrets as keys. Lookups do not lock. When the cache is full, the expired tokens are dropped,
+ * and if that is not enough, all of them: the next requests verify their token again.
+ */
+final class VerifiedTokenCache {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private final Map<Digest, Entry> entries = new ConcurrentHashMap<>();
+
+    private final int maxEntries;
+
+    /**
+     * @param maxEntries the number of tokens the cache never holds more of, {@code 0} to disable it.
+     */
+    VerifiedTokenCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * The SHA-256 digest of a token.
+     */
+    static final class Digest {
+
+        private final long w0;
+
+        private final long w1;
+
+        private final long w2;
+
+        private final long w3;
+
+        private Digest(byte[] sha256) {
+            ByteBuffer buffer = ByteBuffer.wrap(sha256);
+            this.w0 = buffer.getLong();
+            this.w1 = buffer.getLong();
+            this.w2 = buffer.getLong();
+            this.w3 = buffer.getLong();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Digest)) {
+                return false;
+            }
+            Digest other = (Digest) o;
+            return w0 == other.w0 && w1 == other.w1 && w2 == other.w2 && w3 == other.w3;
+        }
+
+        @Override
+        public int hashCode() {
+            // The bits of a digest are already uniformly distributed
+            return (int) w0;
+        }
+    }
+
+    /**
+     * A verified token.
+     */
+    static final class Entry {
+
+        final Authentication authentication;
+
+        /**
+         * The ID of the token, checked against the revocation list on every use, {@code null} if it has none.
+         */
+        final String tokenId;
+
+        /**
+         * When the token was issued, checked against the revocations of its subject, {@link Long#MIN_VALUE} if unknown.
+         */
+        final long issuedAt;
+
+        final long expiresAt;
+
+        Entry(Authentication authentication, String tokenId, long issuedAt, long expiresAt) {
+            this.authentication = authentication;
+            this.tokenId = tokenId;
+            this.issuedAt = issuedAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * @return the digest of the token, or {@code null} if the cache is disabled.
+     */
+    Digest digest(String token) {
+        if (maxEntries <= 0) {
+            return null;
+        }
+        MessageDigest sha256 = SHA_256.get();
+        return new Digest(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @param digest the digest of the token, {@code null} if the cache is disabled.
+     * @param now the current time, in milliseconds since the epoch.
+     * @return the verified token, or {@code null} if it is not cached or has expired.
+     */
+    Entry get(Digest digest, long now) {
+        if (digest == null) {
+            return null;
+        }
+        Entry entry = entries.get(digest);
+        if (entry == null) {
+            return null;
+        }
+        if (now >= entry.expiresAt) {
+            entries.remove(digest, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * @param digest the digest of the token, {@code null} if the cache is disabled.
+     * @param authentication the authentication of the token, which must not be modified.
+     * @param tokenId the ID of the token, {@code null} if it has none.
+     * @param issuedAt when the token was issued, in milliseconds since the epoch, {@link Long#MIN_VALUE} if unknown.
+     * @param expiresAt when the token expires, in milliseconds since the epoch.
+     */
+    void put(Digest digest, Authentication authentication, String tokenId, long issuedAt, long expiresAt) {
+        if (digest == null) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            long now = System.currentTimeMillis();
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+                if (now >= it.next().expiresAt) {
+                    it.remove();
+                }
+            }
+            if (entries.size() >= maxEntries) {
+                entries.clear();
+            }
+        }
+        entries.put(digest, new Entry(authentication, tokenId, issuedAt, expiresAt));
+    }
+
+    /**
+     * Forget all the tokens.
+     */
+    void clear() {
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+}
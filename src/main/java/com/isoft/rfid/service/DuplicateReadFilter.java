@@ -0,0 +1,187 @@
+package com.isoft.rfid.service;
+
+/**
+ * Remembers when each EPC was last let through by each reader antenna, to suppress the same tag being reported again
+ * and again while it sits in the field.
+ * <p>
+ * EPCs are keyed as two {@code long}s in an open-addressing table made of parallel primitive arrays, so a lookup neither
+ * allocates nor boxes. Time is bucketed into generations of {@code tickMillis}: an entry whose generation is older than
+ * the longest window is stale, and its slot is simply reused by the next insertion that probes it, so entries never need
+ * a timer of their own. The table is rebuilt, keeping only live entries, when too few of its slots are free.
+ * <p>
+ * This class is not thread-safe: it is meant to be owned by a single thread.
+ */
+public class DuplicateReadFilter {
+
+    private static final int EMPTY = 0;
+
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    private final int maxCapacity;
+
+    private final long tickMillis;
+
+    private final long maxWindowTicks;
+
+    private long[] highs;
+
+    private long[] lows;
+
+    private int[] scopes;
+
+    private long[] generations;
+
+    private int mask;
+
+    private int used;
+
+    private int resizeThreshold;
+
+    private long currentGeneration = Long.MIN_VALUE;
+
+    /**
+     * @param initialCapacity the initial number of slots, rounded up to a power of two.
+     * @param maxCapacity the number of slots the table never grows beyond.
+     * @param tickMillis the duration of a generation, which is the resolution of the windows.
+     * @param maxWindowMillis the longest window that will be asked for, after which entries are stale.
+     */
+    public DuplicateReadFilter(int initialCapacity, int maxCapacity, long tickMillis, long maxWindowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        this.maxCapacity = roundToPowerOfTwo(Math.max(maxCapacity, initialCapacity));
+        this.tickMillis = tickMillis;
+        this.maxWindowTicks = maxWindowMillis / tickMillis;
+        allocate(roundToPowerOfTwo(initialCapacity));
+    }
+
+    /**
+     * Record a read, and tell whether it duplicates a read let through recently.
+     * <p>
+     * A read that is not a duplicate restarts the window of its key: while a tag stays in the field, one read per
+     * window goes through.
+     *
+     * @param high the most significant bits of the EPC.
+     * @param low the least significant bits of the EPC.
+     * @param scope a non-zero identifier of the reader antenna that saw the tag.
+     * @param timestamp the time of the read, in milliseconds since the epoch.
+     * @param windowMillis the suppression window of the reader antenna.
+     * @return {@code true} if the same EPC was let through by the same scope less than {@code windowMillis} ago.
+     */
+    public boolean isDuplicate(long high, long low, int scope, long timestamp, long windowMillis) {
+        if (scope == EMPTY) {
+            throw new IllegalArgumentException("scope must not be 0");
+        }
+        long generation = Math.floorDiv(timestamp, tickMillis);
+        if (generation > currentGeneration) {
+            currentGeneration = generation;
+        }
+        int index = hash(high, low, scope) & mask;
+        int reusable = -1;
+        while (true) {
+            int slotScope = scopes[index];
+            if (slotScope == EMPTY) {
+                break;
+            }
+            if (slotScope == scope && highs[index] == high && lows[index] == low) {
+                if (generation - generations[index] < windowMillis / tickMillis) {
+                    return true;
+                }
+                generations[index] = generation;
+                return false;
+            }
+            if (reusable < 0 && isStale(generations[index])) {
+                reusable = index;
+            }
+            index = (index + 1) & mask;
+        }
+        if (reusable >= 0) {
+            index = reusable;
+        } else {
+            used++;
+        }
+        highs[index] = high;
+        lows[index] = low;
+        scopes[index] = scope;
+        generations[index] = generation;
+        if (used > resizeThreshold) {
+            rebuild();
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of occupied slots, live or stale.
+     */
+    public int getOccupancy() {
+        return used;
+    }
+
+    public int getCapacity() {
+        return scopes.length;
+    }
+
+    private boolean isStale(long generation) {
+        return currentGeneration - generation > maxWindowTicks;
+    }
+
+    private void rebuild() {
+        long[] oldHighs = highs;
+        long[] oldLows = lows;
+        int[] oldScopes = scopes;
+        long[] oldGenerations = generations;
+
+        int live = 0;
+        for (int i = 0; i < oldScopes.length; i++) {
+            if (oldScopes[i] != EMPTY && !isStale(oldGenerations[i])) {
+                live++;
+            }
+        }
+        int capacity = oldScopes.length;
+        while (live > capacity / 2 && capacity < maxCapacity) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+        if (live > resizeThreshold) {
+            // Every entry is live and the table cannot grow any further: start over rather than refuse new keys.
+            return;
+        }
+        for (int i = 0; i < oldScopes.length; i++) {
+            if (oldScopes[i] != EMPTY && !isStale(oldGenerations[i])) {
+                int index = hash(oldHighs[i], oldLows[i], oldScopes[i]) & mask;
+                while (scopes[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                highs[index] = oldHighs[i];
+                lows[index] = oldLows[i];
+                scopes[index] = oldScopes[i];
+                generations[index] = oldGenerations[i];
+                used++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        highs = new long[capacity];
+        lows = new long[capacity];
+        scopes = new int[capacity];
+        generations = new long[capacity];
+        mask = capacity - 1;
+        used = 0;
+        resizeThreshold = (int) (capacity * MAX_LOAD_FACTOR);
+    }
+
+    private static int hash(long high, long low, int scope) {
+        long h = high * 0x9E3779B97F4A7C15L + low;
+        h = (h ^ scope) * 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 31;
+        h *= 0x94D049BB133111EBL;
+        h ^= h >>> 29;
+        return (int) h;
+    }
+
+    private static int roundToPowerOfTwo(int value) {
+        int capacity = Integer.highestOneBit(Math.max(value, 16) - 1) << 1;
+        return capacity < 0 ? 1 << 30 : capacity;
+    }
+}
@@ -0,0 +1,90 @@
+package com.isoft.rfid.service;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.domain.Epc;
+import com.isoft.rfid.domain.TagRead;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Arrays;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops the reads of a tag already let through by the same reader antenna within the window of that reader.
+ */
+@Component
+@Order(0)
+public class DuplicateReadStage implements IngestStage {
+
+    public static final String DEDUP_ENTRIES_METER_NAME = "rfid.ingest.dedup.entries";
+
+    private final Logger log = LoggerFactory.getLogger(DuplicateReadStage.class);
+
+    private final DuplicateReadFilter filter;
+
+    private final long defaultWindowMillis;
+
+    private final Map<String, Long> readerWindowMillis;
+
+    private final ReaderIndexes readerIndexes = new ReaderIndexes();
+
+    /**
+     * The windows of the readers by index, {@code -1} for the readers not looked up yet.
+     */
+    private long[] windowByReaderIndex = newWindows(16);
+
+    public DuplicateReadStage(ApplicationProperties applicationProperties, MeterRegistry registry) {
+        ApplicationProperties.Ingest.Dedup properties = applicationProperties.getIngest().getDedup();
+        this.defaultWindowMillis = properties.getWindowMillis();
+        this.readerWindowMillis = properties.getReaderWindowMillis();
+        long maxWindowMillis = readerWindowMillis.values().stream().mapToLong(Long::longValue).max().orElse(0);
+        this.filter =
+            new DuplicateReadFilter(
+                properties.getInitialCapacity(),
+                properties.getMaxCapacity(),
+                properties.getTickMillis(),
+                Math.max(defaultWindowMillis, maxWindowMillis)
+            );
+        Gauge.builder(DEDUP_ENTRIES_METER_NAME, filter, DuplicateReadFilter::getOccupancy).register(registry);
+    }
+
+    @Override
+    public Phase getPhase() {
+        return Phase.DEDUP;
+    }
+
+    @Override
+    public boolean process(TagRead read) {
+        int readerIndex = readerIndexes.indexOf(read.getReaderId());
+        if (readerIndex < 0) {
+            log.warn("Too many readers to deduplicate the reads of {}", read.getReaderId());
+            return true;
+        }
+        Epc epc = read.getEpc();
+        int scope = (readerIndex << 16) | read.getAntenna();
+        return !filter.isDuplicate(EpcKeys.high(epc), EpcKeys.low(epc), scope, read.getTimestamp(), windowOf(readerIndex));
+    }
+
+    private long windowOf(int readerIndex) {
+        if (readerIndex >= windowByReaderIndex.length) {
+            long[] windows = newWindows(Math.max(windowByReaderIndex.length * 2, readerIndex + 1));
+            System.arraycopy(windowByReaderIndex, 0, windows, 0, windowByReaderIndex.length);
+            windowByReaderIndex = windows;
+        }
+        long window = windowByReaderIndex[readerIndex];
+        if (window < 0) {
+            window = readerWindowMillis.getOrDefault(readerIndexes.readerId(readerIndex), defaultWindowMillis);
+            windowByReaderIndex[readerIndex] = window;
+        }
+        return window;
+    }
+
+    private static long[] newWindows(int length) {
+        long[] windows = new long[length];
+        Arrays.fill(windows, -1);
+        return windows;
+    }
+}
@@ -0,0 +1,28 @@
+package com.isoft.rfid.service;
+
+import com.isoft.rfid.domain.Epc;
+
+/**
+ * Reduces an EPC to the two {@code long}s keying the primitive tables of the ingestion stages.
+ */
+final class EpcKeys {
+
+    private EpcKeys() {}
+
+    static long high(Epc epc) {
+        return epc.getWord(0);
+    }
+
+    static long low(Epc epc) {
+        long low = epc.getWord(1);
+        if (epc.getBitLength() > 128) {
+            // EPCs longer than 128 bits are rare enough for their upper words to be folded into the key
+            low ^= (epc.getWord(2) * 0x9E3779B97F4A7C15L + epc.getWord(3)) * 0xBF58476D1CE4E5B9L;
+        }
+        if (epc.getBitLength() < 128) {
+            // Shorter EPCs leave trailing bits clear: mark their length there so that 0x0000 and 0x00000000 differ
+            low |= epc.getBitLength();
+        }
+        return low;
+    }
+}
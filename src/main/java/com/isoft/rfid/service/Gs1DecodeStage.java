@@ -0,0 +1,30 @@
+package com.isoft.rfid.service;
+
+import com.isoft.rfid.domain.TagRead;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Attaches the GS1 key of their EPC to reads, once duplicates have been dropped.
+ */
+@Component
+@Order(0)
+public class Gs1DecodeStage implements IngestStage {
+
+    private final Gs1EpcDecoder gs1EpcDecoder;
+
+    public Gs1DecodeStage(Gs1EpcDecoder gs1EpcDecoder) {
+        this.gs1EpcDecoder = gs1EpcDecoder;
+    }
+
+    @Override
+    public Phase getPhase() {
+        return Phase.ENRICH;
+    }
+
+    @Override
+    public boolean process(TagRead read) {
+        read.setIdentity(gs1EpcDecoder.decode(read.getEpc()));
+        return true;
+    }
+}
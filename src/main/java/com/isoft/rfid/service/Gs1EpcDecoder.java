@@ -0,0 +1,180 @@
+package com.isoft.rfid.service;
+
+import com.isoft.rfid.domain.Epc;
+import com.isoft.rfid.domain.Gs1Identity;
+import java.util.Arrays;
+import org.springframework.stereotype.Service;
+
+/**
+ * Decodes the 96-bit GS1 EPC binary encodings (SGTIN-96, SSCC-96, GRAI-96 and GIAI-96) of the GS1 EPC Tag Data Standard.
+ * <p>
+ * Every 96-bit scheme starts with an 8-bit header, a 3-bit filter and a 3-bit partition value; the partition tells how
+ * the following bits are split between the company prefix and the next field, and how many decimal digits each holds.
+ * The headers and the partition tables are resolved into flat arrays once, so decoding a read is a few table lookups and
+ * shifts on the words of the {@link Epc}: it allocates nothing but the resulting {@link Gs1Identity}.
+ */
+@Service
+public class Gs1EpcDecoder {
+
+    private static final int EPC_96_BITS = 96;
+
+    private static final int HEADER_BITS = 8;
+
+    private static final int FILTER_OFFSET = 8;
+
+    private static final int PARTITION_OFFSET = 11;
+
+    private static final int COMPANY_PREFIX_OFFSET = 14;
+
+    private static final int PARTITIONS = 8;
+
+    private static final int SERIAL_BITS = 38;
+
+    private static final Gs1Identity.Scheme[] SCHEMES = Gs1Identity.Scheme.values();
+
+    /**
+     * The scheme of each 8-bit header, as an index in {@link #SCHEMES}, or {@code -1} for headers that are not decoded.
+     */
+    private static final byte[] SCHEME_BY_HEADER = new byte[1 << HEADER_BITS];
+
+    // Partition tables, indexed by scheme ordinal * PARTITIONS + partition value; partition 7 is reserved and left at 0.
+
+    private static final byte[] COMPANY_PREFIX_BITS = new byte[SCHEMES.length * PARTITIONS];
+
+    private static final byte[] COMPANY_PREFIX_DIGITS = new byte[SCHEMES.length * PARTITIONS];
+
+    private static final byte[] REFERENCE_BITS = new byte[SCHEMES.length * PARTITIONS];
+
+    private static final byte[] REFERENCE_DIGITS = new byte[SCHEMES.length * PARTITIONS];
+
+    private static final long[] COMPANY_PREFIX_LIMIT = new long[SCHEMES.length * PARTITIONS];
+
+    private static final long[] REFERENCE_LIMIT = new long[SCHEMES.length * PARTITIONS];
+
+    static {
+        Arrays.fill(SCHEME_BY_HEADER, (byte) -1);
+        SCHEME_BY_HEADER[0x30] = (byte) Gs1Identity.Scheme.SGTIN.ordinal();
+        SCHEME_BY_HEADER[0x31] = (byte) Gs1Identity.Scheme.SSCC.ordinal();
+        SCHEME_BY_HEADER[0x33] = (byte) Gs1Identity.Scheme.GRAI.ordinal();
+        SCHEME_BY_HEADER[0x34] = (byte) Gs1Identity.Scheme.GIAI.ordinal();
+
+        // Company prefix bits and digits, then reference bits and digits, for partition values 0 to 6
+        partitions(
+            Gs1Identity.Scheme.SGTIN,
+            new int[][] {
+                { 40, 12, 4, 1 },
+                { 37, 11, 7, 2 },
+                { 34, 10, 10, 3 },
+                { 30, 9, 14, 4 },
+                { 27, 8, 17, 5 },
+                { 24, 7, 20, 6 },
+                { 20, 6, 24, 7 },
+            }
+        );
+        partitions(
+            Gs1Identity.Scheme.SSCC,
+            new int[][] {
+                { 40, 12, 18, 5 },
+                { 37, 11, 21, 6 },
+                { 34, 10, 24, 7 },
+                { 30, 9, 28, 8 },
+                { 27, 8, 31, 9 },
+                { 24, 7, 34, 10 },
+                { 20, 6, 38, 11 },
+            }
+        );
+        partitions(
+            Gs1Identity.Scheme.GRAI,
+            new int[][] {
+                { 40, 12, 4, 0 },
+                { 37, 11, 7, 1 },
+                { 34, 10, 10, 2 },
+                { 30, 9, 14, 3 },
+                { 27, 8, 17, 4 },
+                { 24, 7, 20, 5 },
+                { 20, 6, 24, 6 },
+            }
+        );
+        partitions(
+            Gs1Identity.Scheme.GIAI,
+            new int[][] {
+                { 40, 12, 42, 13 },
+                { 37, 11, 45, 14 },
+                { 34, 10, 48, 15 },
+                { 30, 9, 52, 16 },
+                { 27, 8, 55, 17 },
+                { 24, 7, 58, 18 },
+                { 20, 6, 62, 19 },
+            }
+        );
+    }
+
+    private static void partitions(Gs1Identity.Scheme scheme, int[][] rows) {
+        for (int partition = 0; partition < rows.length; partition++) {
+            int index = scheme.ordinal() * PARTITIONS + partition;
+            int[] row = rows[partition];
+            COMPANY_PREFIX_BITS[index] = (byte) row[0];
+            COMPANY_PREFIX_DIGITS[index] = (byte) row[1];
+            REFERENCE_BITS[index] = (byte) row[2];
+            REFERENCE_DIGITS[index] = (byte) row[3];
+            COMPANY_PREFIX_LIMIT[index] = limit(row[1]);
+            REFERENCE_LIMIT[index] = limit(row[3]);
+        }
+    }
+
+    /**
+     * @return the smallest number that does not fit in {@code digits} decimal digits, capped to {@link Long#MAX_VALUE}.
+     */
+    private static long limit(int digits) {
+        long limit = 1;
+        for (int i = 0; i < digits; i++) {
+            if (limit > Long.MAX_VALUE / 10) {
+                return Long.MAX_VALUE;
+            }
+            limit *= 10;
+        }
+        return limit;
+    }
+
+    /**
+     * Decode the GS1 key of an EPC.
+     *
+     * @param epc the EPC, whose first 96 bits are decoded.
+     * @return the identity, or {@code null} if the EPC is not one of the supported 96-bit GS1 encodings or does not
+     *     hold a valid value for its scheme.
+     */
+    public Gs1Identity decode(Epc epc) {
+        if (epc == null || epc.getBitLength() < EPC_96_BITS) {
+            return null;
+        }
+        int schemeIndex = SCHEME_BY_HEADER[(int) epc.getBits(0, HEADER_BITS)];
+        if (schemeIndex < 0) {
+            return null;
+        }
+        int index = schemeIndex * PARTITIONS + (int) epc.getBits(PARTITION_OFFSET, 3);
+        int companyPrefixBits = COMPANY_PREFIX_BITS[index];
+        if (companyPrefixBits == 0) {
+            return null;
+        }
+        int referenceBits = REFERENCE_BITS[index];
+        long companyPrefix = epc.getBits(COMPANY_PREFIX_OFFSET, companyPrefixBits);
+        long reference = epc.getBits(COMPANY_PREFIX_OFFSET + companyPrefixBits, referenceBits);
+        if (companyPrefix >= COMPANY_PREFIX_LIMIT[index] || reference >= REFERENCE_LIMIT[index]) {
+            return null;
+        }
+        Gs1Identity.Scheme scheme = SCHEMES[schemeIndex];
+        long serial = -1;
+        if (scheme == Gs1Identity.Scheme.SGTIN || scheme == Gs1Identity.Scheme.GRAI) {
+            serial = epc.getBits(EPC_96_BITS - SERIAL_BITS, SERIAL_BITS);
+        }
+        return new Gs1Identity(
+            scheme,
+            (int) epc.getBits(FILTER_OFFSET, 3),
+            COMPANY_PREFIX_DIGITS[index],
+            companyPrefix,
+            REFERENCE_DIGITS[index],
+            reference,
+            serial
+        );
+    }
+}
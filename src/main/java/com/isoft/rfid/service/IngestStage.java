@@ -0,0 +1,34 @@
+package com.isoft.rfid.service;
+
+import com.isoft.rfid.domain.TagRead;
+
+/**
+ * A step of the {@link TagReadPipeline}.
+ * <p>
+ * Stages are Spring beans: the pipeline runs every stage of a {@link Phase} on the single thread dedicated to that
+ * phase, in {@link org.springframework.core.annotation.Order} order, so a stage never needs to be thread-safe with
+ * respect to itself.
+ */
+public interface IngestStage {
+    /**
+     * Phases of the pipeline, in processing order.
+     */
+    enum Phase {
+        VALIDATE,
+        DEDUP,
+        ENRICH,
+        INDEX,
+    }
+
+    Phase getPhase();
+
+    /**
+     * Process a read in place.
+     * <p>
+     * The instance belongs to the pipeline and must not be retained once this method returns.
+     *
+     * @param read the read to process, which later phases will see with any modification made here.
+     * @return {@code false} to drop the read, in which case later stages skip it.
+     */
+    boolean process(TagRead read);
+}
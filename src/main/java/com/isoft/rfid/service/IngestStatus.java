@@ -0,0 +1,30 @@
+package com.isoft.rfid.service;
+
+/**
+ * Outcome of submitting a single tag read to the {@link TagReadIngestService}.
+ */
+public enum IngestStatus {
+    ACCEPTED(null),
+    INVALID_EPC("epc must be a hexadecimal string of 4 to 64 digits, in multiples of 4"),
+    INVALID_READER("readerId is required"),
+    INVALID_ANTENNA("antenna must be between 0 and 65535"),
+    INVALID_TIMESTAMP("timestamp must be a positive epoch-millisecond value or an ISO-8601 instant"),
+    OVERLOADED("ingestion is saturated or stopped, retry later");
+
+    private final String reason;
+
+    IngestStatus(String reason) {
+        this.reason = reason;
+    }
+
+    public boolean isAccepted() {
+        return this == ACCEPTED;
+    }
+
+    /**
+     * @return a human readable rejection reason, or {@code null} if the read was accepted.
+     */
+    public String getReason() {
+        return reason;
+    }
+}
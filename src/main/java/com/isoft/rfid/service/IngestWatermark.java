@@ -0,0 +1,185 @@
+package com.isoft.rfid.service;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tells when reads last landed in a time window, so that query results over the window can be kept until then.
+ * <p>
+ * Every read indexed advances the watermark of its minute, once its bulk request succeeded, by its timestamp rather
+ * than its arrival: a late read, buffered by a reader while it was disconnected, moves the watermark of the window it
+ * belongs to; the reads replayed from the spool, whose timestamps are not at hand, advance all the windows. Each
+ * advance takes the next number of a sequence, so that the {@link Mark} of a window, the latest change among its
+ * minutes, changes exactly when reads land in it. Minutes older than a day are merged into hours, which keeps the
+ * watermark small and only makes the marks of old windows a little coarser.
+ * <p>
+ * The watermark only sees the reads of this instance.
+ */
+@Component
+public class IngestWatermark {
+
+    static final long FINE_MILLIS = 60 * 1000;
+
+    static final long COARSE_MILLIS = 60 * FINE_MILLIS;
+
+    static final long FINE_RETENTION_MILLIS = 24 * COARSE_MILLIS;
+
+    /**
+     * The latest change of a window.
+     */
+    public static final class Mark {
+
+        private final long sequence;
+
+        private final long changedAt;
+
+        Mark(long sequence, long changedAt) {
+            this.sequence = sequence;
+            this.changedAt = changedAt;
+        }
+
+        /**
+         * @return a number that changes whenever reads land in the window, {@code 0} if none did.
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * @return when reads last landed in the window, in milliseconds since the epoch, {@code 0} if none did.
+         */
+        public long getChangedAt() {
+            return changedAt;
+        }
+    }
+
+    private static final class Change {
+
+        /**
+         * The width of the window of the change, a minute or an hour.
+         */
+        final long span;
+
+        volatile long sequence;
+
+        volatile long changedAt;
+
+        Change(long span) {
+            this.span = span;
+        }
+    }
+
+    /**
+     * Changes by start of their minute, or of their hour once compacted.
+     */
+    private final ConcurrentSkipListMap<Long, Change> changes = new ConcurrentSkipListMap<>();
+
+    /**
+     * Change of all the windows at once.
+     */
+    private final Change everything = new Change(Long.MAX_VALUE);
+
+    /**
+     * Odd while a compaction runs.
+     */
+    private volatile int compactions;
+
+    // Guarded by this
+    private long sequence;
+
+    private long lastKey = Long.MIN_VALUE;
+
+    private Change lastChange;
+
+    /**
+     * Record that a read was indexed; it becomes searchable after the next refresh of its partition.
+     *
+     * @param timestamp the time of the read, in milliseconds since the epoch.
+     */
+    public synchronized void advance(long timestamp) {
+        long key = timestamp - Math.floorMod(timestamp, FINE_MILLIS);
+        if (key != lastKey) {
+            lastChange = changes.computeIfAbsent(key, k -> new Change(FINE_MILLIS));
+            lastKey = key;
+        }
+        lastChange.changedAt = System.currentTimeMillis();
+        lastChange.sequence = ++sequence;
+    }
+
+    /**
+     * Record that reads of unknown timestamps were indexed, which changes the marks of all windows.
+     */
+    public synchronized void advanceAll() {
+        everything.changedAt = System.currentTimeMillis();
+        everything.sequence = ++sequence;
+    }
+
+    /**
+     * Get the latest change of a window.
+     *
+     * @param from the start of the window, inclusive, in milliseconds since the epoch.
+     * @param to the end of the window, exclusive.
+     * @return the mark of the window.
+     */
+    public Mark mark(long from, long to) {
+        int before = compactions;
+        Mark mark = scan(from, to);
+        if ((before & 1) == 0 && compactions == before) {
+            return mark;
+        }
+        // A compaction moved changes while they were scanned
+        synchronized (this) {
+            return scan(from, to);
+        }
+    }
+
+    private Mark scan(long from, long to) {
+        long sequence = everything.sequence;
+        long changedAt = everything.changedAt;
+        // An hour may start before the window yet overlap it
+        for (Map.Entry<Long, Change> entry : changes.subMap(from - COARSE_MILLIS + 1, true, to, false).entrySet()) {
+            Change change = entry.getValue();
+            long changeSequence = change.sequence;
+            if (changeSequence > sequence && entry.getKey() + change.span > from) {
+                sequence = changeSequence;
+                changedAt = change.changedAt;
+            }
+        }
+        return new Mark(sequence, changedAt);
+    }
+
+    /**
+     * Merge the minutes older than the fine retention into their hours.
+     */
+    @Scheduled(fixedDelay = COARSE_MILLIS)
+    public synchronized void compact() {
+        compactions++;
+        long horizon = System.currentTimeMillis() - FINE_RETENTION_MILLIS;
+        ConcurrentNavigableMap<Long, Change> old = changes.headMap(horizon - Math.floorMod(horizon, COARSE_MILLIS));
+        for (Iterator<Map.Entry<Long, Change>> it = old.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Long, Change> entry = it.next();
+            long key = entry.getKey();
+            long hour = key - Math.floorMod(key, COARSE_MILLIS);
+            Change change = entry.getValue();
+            if (change.span == FINE_MILLIS) {
+                it.remove();
+                Change merged = changes.computeIfAbsent(hour, k -> new Change(COARSE_MILLIS));
+                if (change.sequence > merged.sequence) {
+                    merged.changedAt = change.changedAt;
+                    merged.sequence = change.sequence;
+                }
+            }
+        }
+        lastKey = Long.MIN_VALUE;
+        lastChange = null;
+        compactions++;
+    }
+
+    int size() {
+        return changes.size();
+    }
+}
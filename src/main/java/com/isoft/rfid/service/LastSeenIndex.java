@@ -0,0 +1,347 @@
+package com.isoft.rfid.service;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Remembers where and when each EPC was last seen, for lookups concurrent with the updates.
+ * <p>
+ * The table is split into stripes, chosen by the hash of the EPC, each guarded by its own {@link StampedLock}: updates
+ * of different stripes never contend, and lookups are optimistic reads that only take the lock when an update of the
+ * same stripe raced with them. Each stripe is an open-addressing table of parallel primitive arrays, keyed by the EPC
+ * as two {@code long}s, holding the location of the read (its reader and antenna, as an {@code int} chosen by the
+ * caller), its timestamp and its RSSI. A bulk lookup sorts the EPCs by stripe and looks each stripe up once.
+ * <p>
+ * A stripe grows up to its share of the maximum capacity; beyond that, the older half of its entries is forgotten.
+ */
+public class LastSeenIndex {
+
+    private static final int EMPTY = 0;
+
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    private final Stripe[] stripes;
+
+    private final int stripeShift;
+
+    private final int maxStripeCapacity;
+
+    /**
+     * @param stripeCount the number of stripes, rounded up to a power of two.
+     * @param initialCapacity the initial number of slots of all the stripes together.
+     * @param maxCapacity the number of slots of all the stripes together that the index never grows beyond.
+     */
+    public LastSeenIndex(int stripeCount, int initialCapacity, int maxCapacity) {
+        int count = roundToPowerOfTwo(Math.max(stripeCount, 1), 1);
+        this.stripeShift = 32 - Integer.numberOfTrailingZeros(count);
+        this.maxStripeCapacity = roundToPowerOfTwo(Math.max(maxCapacity, initialCapacity) / count, 16);
+        this.stripes = new Stripe[count];
+        int stripeCapacity = roundToPowerOfTwo(initialCapacity / count, 16);
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(stripeCapacity);
+        }
+    }
+
+    /**
+     * Where and when an EPC was last seen.
+     */
+    public static final class Sighting {
+
+        private int location;
+
+        private long timestamp;
+
+        private float rssi;
+
+        public int getLocation() {
+            return location;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public float getRssi() {
+            return rssi;
+        }
+    }
+
+    /**
+     * Record a read, unless a later read of the same EPC has already been recorded.
+     *
+     * @param high the most significant bits of the EPC.
+     * @param low the least significant bits of the EPC.
+     * @param location a non-zero identifier of the reader antenna that saw the tag.
+     * @param timestamp the time of the read, in milliseconds since the epoch.
+     * @param rssi the signal strength of the read.
+     */
+    public void update(long high, long low, int location, long timestamp, float rssi) {
+        if (location == EMPTY) {
+            throw new IllegalArgumentException("location must not be 0");
+        }
+        int hash = hash(high, low);
+        stripes[stripe(hash)].update(high, low, hash, location, timestamp, rssi, maxStripeCapacity);
+    }
+
+    /**
+     * Look an EPC up.
+     *
+     * @param high the most significant bits of the EPC.
+     * @param low the least significant bits of the EPC.
+     * @param into where the sighting is copied to.
+     * @return {@code false} if the EPC has not been seen, in which case {@code into} is left unchanged.
+     */
+    public boolean find(long high, long low, Sighting into) {
+        int hash = hash(high, low);
+        return stripes[stripe(hash)].find(high, low, hash, into);
+    }
+
+    /**
+     * Look many EPCs up, visiting each stripe once.
+     *
+     * @param highs the most significant bits of the EPCs.
+     * @param lows the least significant bits of the EPCs.
+     * @param count the number of EPCs.
+     * @return the sightings, in the order of the EPCs, {@code null} for the EPCs that have not been seen.
+     */
+    public Sighting[] findAll(long[] highs, long[] lows, int count) {
+        int[] hashes = new int[count];
+        int[] stripeStarts = new int[stripes.length + 1];
+        for (int i = 0; i < count; i++) {
+            hashes[i] = hash(highs[i], lows[i]);
+            stripeStarts[stripe(hashes[i]) + 1]++;
+        }
+        for (int s = 0; s < stripes.length; s++) {
+            stripeStarts[s + 1] += stripeStarts[s];
+        }
+        // Counting sort of the EPCs by stripe
+        int[] order = new int[count];
+        int[] positions = Arrays.copyOf(stripeStarts, stripes.length);
+        for (int i = 0; i < count; i++) {
+            order[positions[stripe(hashes[i])]++] = i;
+        }
+        Sighting[] sightings = new Sighting[count];
+        for (int s = 0; s < stripes.length; s++) {
+            if (stripeStarts[s] < stripeStarts[s + 1]) {
+                stripes[s].findAll(highs, lows, hashes, order, stripeStarts[s], stripeStarts[s + 1], sightings);
+            }
+        }
+        return sightings;
+    }
+
+    /**
+     * @return the number of EPCs in the index.
+     */
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    public long getCapacity() {
+        long capacity = 0;
+        for (Stripe stripe : stripes) {
+            capacity += stripe.table.locations.length;
+        }
+        return capacity;
+    }
+
+    private int stripe(int hash) {
+        return stripeShift == 32 ? 0 : hash >>> stripeShift;
+    }
+
+    private static int hash(long high, long low) {
+        long h = high * 0x9E3779B97F4A7C15L + low;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 31;
+        h *= 0x94D049BB133111EBL;
+        h ^= h >>> 29;
+        return (int) h;
+    }
+
+    private static int roundToPowerOfTwo(int value, int min) {
+        int capacity = Integer.highestOneBit(Math.max(value, min) - 1) << 1;
+        return capacity <= 0 ? Math.max(min, 1) : Math.min(capacity, 1 << 30);
+    }
+
+    /**
+     * The arrays of a stripe, replaced as a whole when it is rebuilt so that an optimistic reader always sees arrays of
+     * the same length.
+     */
+    private static final class Table {
+
+        final long[] highs;
+
+        final long[] lows;
+
+        final int[] locations;
+
+        final long[] timestamps;
+
+        final float[] rssis;
+
+        final int mask;
+
+        final int resizeThreshold;
+
+        int used;
+
+        Table(int capacity) {
+            highs = new long[capacity];
+            lows = new long[capacity];
+            locations = new int[capacity];
+            timestamps = new long[capacity];
+            rssis = new float[capacity];
+            mask = capacity - 1;
+            resizeThreshold = (int) (capacity * MAX_LOAD_FACTOR);
+        }
+
+        /**
+         * @return the slot of the EPC, or the empty slot where it belongs if it is not there. The probing is bounded, so
+         * that a reader racing with an update cannot loop forever; it then returns {@code -1}.
+         */
+        int slot(long high, long low, int hash) {
+            int index = hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                if (locations[index] == EMPTY || (highs[index] == high && lows[index] == low)) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        void put(long high, long low, int hash, int location, long timestamp, float rssi) {
+            int index = slot(high, low, hash);
+            if (locations[index] == EMPTY) {
+                highs[index] = high;
+                lows[index] = low;
+                used++;
+            }
+            locations[index] = location;
+            timestamps[index] = timestamp;
+            rssis[index] = rssi;
+        }
+    }
+
+    private static final class Stripe {
+
+        private final StampedLock lock = new StampedLock();
+
+        private volatile Table table;
+
+        Stripe(int capacity) {
+            table = new Table(capacity);
+        }
+
+        void update(long high, long low, int hash, int location, long timestamp, float rssi, int maxCapacity) {
+            long stamp = lock.writeLock();
+            try {
+                Table t = table;
+                int index = t.slot(high, low, hash);
+                if (t.locations[index] != EMPTY && t.timestamps[index] > timestamp) {
+                    return;
+                }
+                t.put(high, low, hash, location, timestamp, rssi);
+                if (t.used > t.resizeThreshold) {
+                    rebuild(t, maxCapacity);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        boolean find(long high, long low, int hash, Sighting into) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                Table t = table;
+                int index = t.slot(high, low, hash);
+                boolean found = index >= 0 && t.locations[index] != EMPTY;
+                int location = found ? t.locations[index] : EMPTY;
+                long timestamp = found ? t.timestamps[index] : 0;
+                float rssi = found ? t.rssis[index] : 0;
+                if (lock.validate(stamp)) {
+                    if (found) {
+                        into.location = location;
+                        into.timestamp = timestamp;
+                        into.rssi = rssi;
+                    }
+                    return found;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return copy(table, table.slot(high, low, hash), into);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void findAll(long[] highs, long[] lows, int[] hashes, int[] order, int from, int to, Sighting[] into) {
+            long stamp = lock.readLock();
+            try {
+                Table t = table;
+                for (int i = from; i < to; i++) {
+                    int epc = order[i];
+                    Sighting sighting = new Sighting();
+                    if (copy(t, t.slot(highs[epc], lows[epc], hashes[epc]), sighting)) {
+                        into[epc] = sighting;
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        int size() {
+            long stamp = lock.readLock();
+            try {
+                return table.used;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private static boolean copy(Table t, int index, Sighting into) {
+            if (index < 0 || t.locations[index] == EMPTY) {
+                return false;
+            }
+            into.location = t.locations[index];
+            into.timestamp = t.timestamps[index];
+            into.rssi = t.rssis[index];
+            return true;
+        }
+
+        /**
+         * Grow the table, or forget the older half of its entries if it cannot grow any further.
+         */
+        private void rebuild(Table old, int maxCapacity) {
+            int capacity = old.locations.length;
+            long cutoff = Long.MIN_VALUE;
+            if (capacity < maxCapacity) {
+                capacity <<= 1;
+            } else {
+                long[] timestamps = new long[old.used];
+                int count = 0;
+                for (int i = 0; i < old.locations.length; i++) {
+                    if (old.locations[i] != EMPTY) {
+                        timestamps[count++] = old.timestamps[i];
+                    }
+                }
+                Arrays.sort(timestamps, 0, count);
+                cutoff = timestamps[count / 2];
+            }
+            Table rebuilt = new Table(capacity);
+            for (int i = 0; i < old.locations.length; i++) {
+                if (old.locations[i] != EMPTY && old.timestamps[i] >= cutoff && rebuilt.used < rebuilt.resizeThreshold) {
+                    long high = old.highs[i];
+                    long low = old.lows[i];
+                    rebuilt.put(high, low, hash(high, low), old.locations[i], old.timestamps[i], old.rssis[i]);
+                }
+            }
+            table = rebuilt;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.isoft.rfid.service;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.domain.Epc;
+import com.isoft.rfid.domain.TagRead;
+import com.isoft.rfid.service.dto.LastSeenDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service answering where the tags were last seen, from memory.
+ * <p>
+ * The location of a read is packed into an {@code int}: the index of its reader, shifted left by 16, or'ed with its
+ * antenna. The zone of a location is the portal of its antenna, if any.
+ */
+@Service
+public class LastSeenService {
+
+    public static final String ENTRIES_METER_NAME = "rfid.last-seen.entries";
+
+    private final Logger log = LoggerFactory.getLogger(LastSeenService.class);
+
+    private final LastSeenIndex index;
+
+    private final ReaderIndexes readerIndexes = new ReaderIndexes();
+
+    private final PortalZones zones;
+
+    public LastSeenService(ApplicationProperties applicationProperties, MeterRegistry registry) {
+        ApplicationProperties.LastSeen properties = applicationProperties.getLastSeen();
+        this.index = new LastSeenIndex(properties.getStripes(), properties.getInitialCapacity(), properties.getMaxCapacity());
+        this.zones = new PortalZones(applicationProperties.getPortals());
+        Gauge.builder(ENTRIES_METER_NAME, index, LastSeenIndex::size).register(registry);
+    }
+
+    /**
+     * Record a read.
+     *
+     * @param read the read, which is not retained.
+     */
+    public void record(TagRead read) {
+        int readerIndex = readerIndexes.indexOf(read.getReaderId());
+        if (readerIndex < 0) {
+            log.warn("Too many readers to track where the tags of {} were last seen", read.getReaderId());
+            return;
+        }
+        Epc epc = read.getEpc();
+        int location = (readerIndex << 16) | (read.getAntenna() & 0xFFFF);
+        index.update(EpcKeys.high(epc), EpcKeys.low(epc), location, read.getTimestamp(), (float) read.getRssi());
+    }
+
+    /**
+     * Find where a tag was last seen.
+     *
+     * @param epc the EPC of the tag.
+     * @return the last sighting, if the tag has been seen.
+     */
+    public Optional<LastSeenDTO> findLastSeen(Epc epc) {
+        LastSeenIndex.Sighting sighting = new LastSeenIndex.Sighting();
+        if (!index.find(EpcKeys.high(epc), EpcKeys.low(epc), sighting)) {
+            return Optional.empty();
+        }
+        return Optional.of(toDto(epc, sighting));
+    }
+
+    /**
+     * Find where many tags were last seen, in one pass over the index.
+     *
+     * @param epcs the EPCs of the tags.
+     * @return the last sightings of the tags that have been seen, in the order of {@code epcs}.
+     */
+    public List<LastSeenDTO> findLastSeen(List<Epc> epcs) {
+        int count = epcs.size();
+        long[] highs = new long[count];
+        long[] lows = new long[count];
+        for (int i = 0; i < count; i++) {
+            Epc epc = epcs.get(i);
+            highs[i] = EpcKeys.high(epc);
+            lows[i] = EpcKeys.low(epc);
+        }
+        LastSeenIndex.Sighting[] sightings = index.findAll(highs, lows, count);
+        List<LastSeenDTO> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (sightings[i] != null) {
+                result.add(toDto(epcs.get(i), sightings[i]));
+            }
+        }
+        return result;
+    }
+
+    private LastSeenDTO toDto(Epc epc, LastSeenIndex.Sighting sighting) {
+        String readerId = readerIndexes.readerId(sighting.getLocation() >>> 16);
+        int antenna = sighting.getLocation() & 0xFFFF;
+        String zone = zones.zoneOf(readerId, antenna);
+        return new LastSeenDTO(epc.toString(), readerId, antenna, zone, sighting.getTimestamp(), sighting.getRssi());
+    }
+}
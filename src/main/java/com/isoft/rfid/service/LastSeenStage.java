@@ -0,0 +1,30 @@
+package com.isoft.rfid.service;
+
+import com.isoft.rfid.domain.TagRead;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records where each tag was last seen, ahead of deduplication so that the timestamp is that of the latest sighting.
+ */
+@Component
+@Order(-50)
+public class LastSeenStage implements IngestStage {
+
+    private final LastSeenService lastSeenService;
+
+    public LastSeenStage(LastSeenService lastSeenService) {
+        this.lastSeenService = lastSeenService;
+    }
+
+    @Override
+    public Phase getPhase() {
+        return Phase.DEDUP;
+    }
+
+    @Override
+    public boolean process(TagRead read) {
+        lastSeenService.record(read);
+        return true;
+    }
+}
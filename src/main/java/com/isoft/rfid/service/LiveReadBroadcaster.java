@@ -0,0 +1,430 @@
+package com.isoft.rfid.service;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.domain.TagRead;
+import com.isoft.rfid.service.dto.LiveReadDTO;
+import com.isoft.rfid.service.dto.PortalEventDTO;
+import com.isoft.rfid.service.dto.ZoneSummaryDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+/**
+ * Fans the live reads out to the subscribed dashboards.
+ * <p>
+ * Publishing never blocks: each subscription has a bounded buffer that is sent, as a single batch, every flush interval
+ * by a small pool of sender threads. When a subscriber does not keep up and its buffer is full, its further reads are
+ * folded into one summary per zone until the buffer has been sent, so a slow consumer costs a bounded amount of memory
+ * and never holds back the producer or the other subscribers. The zone of a read is the portal of its antenna, or its
+ * reader if the antenna belongs to no portal. Portal events are buffered apart, as many as reads, and the oldest are
+ * dropped when they do not fit.
+ * <p>
+ * The sends block, so a subscriber that stops receiving would hold a sender thread: a send taking longer than the send
+ * timeout is interrupted, and its subscription closed. The stream of the subscriber is closed by the sender thread once
+ * the send gave up, as closing it may wait for the send in progress.
+ */
+@Service
+public class LiveReadBroadcaster implements SmartLifecycle {
+
+    public static final String SUBSCRIBERS_METER_NAME = "rfid.live.subscribers";
+
+    public static final String COALESCED_READS_METER_NAME = "rfid.live.coalesced";
+
+    public static final String DROPPED_EVENTS_METER_NAME = "rfid.live.events.dropped";
+
+    public static final String TIMED_OUT_METER_NAME = "rfid.live.timed-out";
+
+    /**
+     * Receives the batches of a subscription, on a sender thread.
+     */
+    public interface Sink {
+        /**
+         * Send a batch.
+         *
+         * @param reads the reads, in publication order.
+         * @param summaries the summaries of the reads that did not fit in the buffer, possibly empty.
+         * @throws IOException if the subscriber is gone, in which case the subscription is closed.
+         */
+        void send(List<LiveReadDTO> reads, List<ZoneSummaryDTO> summaries) throws IOException;
+
+        /**
+         * Send a batch of portal events, ahead of the reads buffered at the same time.
+         *
+         * @param events the events, in publication order.
+         * @throws IOException if the subscriber is gone, in which case the subscription is closed.
+         */
+        void sendPortalEvents(List<PortalEventDTO> events) throws IOException;
+
+        /**
+         * Keep an idle subscription alive.
+         *
+         * @throws IOException if the subscriber is gone, in which case the subscription is closed.
+         */
+        void heartbeat() throws IOException;
+
+        /**
+         * Close the stream of a subscriber that did not receive a batch within the send timeout, on the sender thread
+         * whose send was interrupted, once the send returned.
+         */
+        void close();
+    }
+
+    private final Logger log = LoggerFactory.getLogger(LiveReadBroadcaster.class);
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger subscriptionCount = new AtomicInteger();
+
+    private final int bufferSize;
+
+    private final long flushIntervalMillis;
+
+    private final long heartbeatMillis;
+
+    private final int maxSubscribers;
+
+    private final int senderThreads;
+
+    private final long sendTimeoutMillis;
+
+    private final PortalZones zones;
+
+    private final Counter coalescedCounter;
+
+    private final Counter droppedEventsCounter;
+
+    private final Counter timedOutCounter;
+
+    private ScheduledExecutorService scheduler;
+
+    private ExecutorService senders;
+
+    private volatile boolean running;
+
+    public LiveReadBroadcaster(ApplicationProperties applicationProperties, MeterRegistry registry) {
+        ApplicationProperties.Live properties = applicationProperties.getLive();
+        this.bufferSize = properties.getBufferSize();
+        this.flushIntervalMillis = properties.getFlushIntervalMillis();
+        this.heartbeatMillis = properties.getHeartbeatMillis();
+        this.maxSubscribers = properties.getMaxSubscribers();
+        this.senderThreads = properties.getSenderThreads();
+        this.sendTimeoutMillis = properties.getSendTimeoutMillis();
+        this.zones = new PortalZones(applicationProperties.getPortals());
+        this.coalescedCounter = Counter.builder(COALESCED_READS_METER_NAME).register(registry);
+        this.droppedEventsCounter = Counter.builder(DROPPED_EVENTS_METER_NAME).register(registry);
+        this.timedOutCounter = Counter.builder(TIMED_OUT_METER_NAME).register(registry);
+        Gauge.builder(SUBSCRIBERS_METER_NAME, subscriptions, List::size).register(registry);
+    }
+
+    private String zoneOf(LiveReadDTO read) {
+        String zone = zones.zoneOf(read.getReaderId(), read.getAntenna());
+        return zone != null ? zone : read.getReaderId();
+    }
+
+    /**
+     * Subscribe to the live reads.
+     *
+     * @param readerIds the readers whose reads are wanted, or {@code null} for all of them.
+     * @param sink where the batches go.
+     * @return the subscription, or {@code null} if there are already too many subscribers.
+     */
+    public Subscription subscribe(Set<String> readerIds, Sink sink) {
+        if (subscriptionCount.incrementAndGet() > maxSubscribers) {
+            subscriptionCount.decrementAndGet();
+            return null;
+        }
+        Subscription subscription = new Subscription(readerIds, sink, bufferSize);
+        subscriptions.add(subscription);
+        log.debug("Live subscription opened, {} open", subscriptions.size());
+        return subscription;
+    }
+
+    /**
+     * Publish a read to the subscribers; a no-op without subscribers.
+     *
+     * @param read the read, which is not retained.
+     */
+    public void publish(TagRead read) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        LiveReadDTO live = null;
+        for (Subscription subscription : subscriptions) {
+            if (subscription.accepts(read.getReaderId())) {
+                if (live == null) {
+                    live = LiveReadDTO.of(read);
+                }
+                if (!subscription.offer(live)) {
+                    coalescedCounter.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Publish a portal event to the subscribers of its reader.
+     *
+     * @param event the event.
+     */
+    public void publish(PortalEventDTO event) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.accepts(event.getReaderId()) && !subscription.offer(event)) {
+                droppedEventsCounter.increment();
+            }
+        }
+    }
+
+    /**
+     * Hand the subscriptions with something to send to the sender threads, and close those whose send timed out.
+     */
+    void flush() {
+        long now = System.currentTimeMillis();
+        for (Subscription subscription : subscriptions) {
+            if (subscription.sending.get()) {
+                subscription.interruptIfStalled(now);
+                continue;
+            }
+            boolean heartbeat = now - subscription.lastSentAt >= heartbeatMillis;
+            if ((heartbeat || subscription.hasPending()) && subscription.sending.compareAndSet(false, true)) {
+                try {
+                    senders.execute(() -> send(subscription, heartbeat));
+                } catch (RejectedExecutionException e) {
+                    subscription.sending.set(false);
+                }
+            }
+        }
+    }
+
+    private void send(Subscription subscription, boolean heartbeat) {
+        subscription.sendStarted();
+        try {
+            if (!subscription.drain() && heartbeat) {
+                subscription.sink.heartbeat();
+            }
+            subscription.lastSentAt = System.currentTimeMillis();
+        } catch (IOException | RuntimeException e) {
+            log.debug("Closing live subscription: {}", e.toString());
+            subscription.close();
+        } finally {
+            subscription.sendEnded();
+            subscription.sending.set(false);
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        scheduler =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "rfid-live-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+        AtomicInteger threadNumber = new AtomicInteger();
+        senders =
+            Executors.newFixedThreadPool(
+                senderThreads,
+                runnable -> {
+                    Thread thread = new Thread(runnable, "rfid-live-sender-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            );
+        scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        scheduler.shutdownNow();
+        senders.shutdownNow();
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * The reads of a subscriber waiting to be sent.
+     */
+    public final class Subscription implements AutoCloseable {
+
+        private final Set<String> readerIds;
+
+        private final Sink sink;
+
+        private final LiveReadDTO[] buffer;
+
+        private final Map<String, ZoneSummaryDTO> summaries = new LinkedHashMap<>();
+
+        private final Deque<PortalEventDTO> events = new ArrayDeque<>();
+
+        private final AtomicBoolean sending = new AtomicBoolean();
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private final Object sendingLock = new Object();
+
+        // Guarded by this
+        private int size;
+
+        // Guarded by sendingLock, so that a sender thread is only interrupted during the send that stalled
+        private Thread sender;
+
+        private long sendStartedAt;
+
+        private boolean timedOut;
+
+        private volatile long lastSentAt = System.currentTimeMillis();
+
+        private Subscription(Set<String> readerIds, Sink sink, int bufferSize) {
+            this.readerIds = readerIds;
+            this.sink = sink;
+            this.buffer = new LiveReadDTO[bufferSize];
+        }
+
+        boolean accepts(String readerId) {
+            return readerIds == null || readerIds.contains(readerId);
+        }
+
+        /**
+         * @return {@code false} if the buffer was full and the read was folded into the summary of its zone.
+         */
+        synchronized boolean offer(LiveReadDTO read) {
+            if (size < buffer.length) {
+                buffer[size++] = read;
+                return true;
+            }
+            summaries.computeIfAbsent(zoneOf(read), ZoneSummaryDTO::new).add(read);
+            return false;
+        }
+
+        /**
+         * @return {@code false} if the buffer was full and the oldest event was dropped to make room.
+         */
+        synchronized boolean offer(PortalEventDTO event) {
+            boolean dropped = events.size() == buffer.length;
+            if (dropped) {
+                events.pollFirst();
+            }
+            events.addLast(event);
+            return !dropped;
+        }
+
+        synchronized boolean hasPending() {
+            return size > 0 || !summaries.isEmpty() || !events.isEmpty();
+        }
+
+        /**
+         * Send what is pending.
+         *
+         * @return {@code false} if there was nothing to send.
+         */
+        boolean drain() throws IOException {
+            List<LiveReadDTO> reads;
+            List<ZoneSummaryDTO> zoneSummaries;
+            List<PortalEventDTO> portalEvents;
+            synchronized (this) {
+                if (size == 0 && summaries.isEmpty() && events.isEmpty()) {
+                    return false;
+                }
+                portalEvents = events.isEmpty() ? Collections.emptyList() : new ArrayList<>(events);
+                events.clear();
+                reads = Arrays.asList(Arrays.copyOf(buffer, size));
+                Arrays.fill(buffer, 0, size, null);
+                size = 0;
+                zoneSummaries = summaries.isEmpty() ? Collections.emptyList() : new ArrayList<>(summaries.values());
+                summaries.clear();
+            }
+            if (!portalEvents.isEmpty()) {
+                sink.sendPortalEvents(portalEvents);
+            }
+            if (!reads.isEmpty() || !zoneSummaries.isEmpty()) {
+                sink.send(reads, zoneSummaries);
+            }
+            return true;
+        }
+
+        private void sendStarted() {
+            synchronized (sendingLock) {
+                sender = Thread.currentThread();
+                sendStartedAt = System.currentTimeMillis();
+            }
+        }
+
+        private void sendEnded() {
+            boolean stalled;
+            synchronized (sendingLock) {
+                sender = null;
+                stalled = timedOut;
+            }
+            // An interrupt for this send must not reach the next one of the thread
+            Thread.interrupted();
+            if (stalled) {
+                sink.close();
+            }
+        }
+
+        /**
+         * Interrupt a send that took longer than the send timeout. Runs on the flush thread, which must not wait for the
+         * send: the sink is closed by the sender thread, see {@link #sendEnded()}.
+         */
+        private void interruptIfStalled(long now) {
+            synchronized (sendingLock) {
+                if (sender == null || now - sendStartedAt < sendTimeoutMillis) {
+                    return;
+                }
+                log.debug("Closing live subscription: no batch received for {} ms", now - sendStartedAt);
+                timedOutCounter.increment();
+                timedOut = true;
+                sender.interrupt();
+                sender = null;
+            }
+            close();
+        }
+
+        /**
+         * Stop receiving reads. Idempotent.
+         */
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                subscriptions.remove(this);
+                subscriptionCount.decrementAndGet();
+                log.debug("Live subscription closed, {} open", subscriptions.size());
+            }
+        }
+    }
+}
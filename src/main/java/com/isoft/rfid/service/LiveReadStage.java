@@ -0,0 +1,30 @@
+package com.isoft.rfid.service;
+
+import com.isoft.rfid.domain.TagRead;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the reads to the live subscribers once enriched, ahead of indexing so that a slow cluster does not delay them.
+ */
+@Component
+@Order(100)
+public class LiveReadStage implements IngestStage {
+
+    private final LiveReadBroadcaster liveReadBroadcaster;
+
+    public LiveReadStage(LiveReadBroadcaster liveReadBroadcaster) {
+        this.liveReadBroadcaster = liveReadBroadcaster;
+    }
+
+    @Override
+    public Phase getPhase() {
+        return Phase.ENRICH;
+    }
+
+    @Override
+    public boolean process(TagRead read) {
+        liveReadBroadcaster.publish(read);
+        return true;
+    }
+}
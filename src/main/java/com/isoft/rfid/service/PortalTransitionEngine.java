@@ -0,0 +1,349 @@
+package com.isoft.rfid.service;
+
+import com.isoft.rfid.domain.Epc;
+import com.isoft.rfid.domain.enumeration.PortalTransition;
+import java.util.Arrays;
+
+/**
+ * Tracks the tags passing through portals, such as dock doors watched by inner and outer antennas, and turns their reads
+ * into {@link PortalTransition}s.
+ * <p>
+ * A tag {@link PortalTransition#ENTER enters} a portal when first seen by one of its antennas. When it is then seen on
+ * the other side within the transition window of its last sighting on the first side, it went {@link PortalTransition#IN
+ * in} or {@link PortalTransition#OUT out}; a direction is only reported once until the tag crosses back. A tag not seen
+ * for the absence window {@link PortalTransition#EXIT exits} the portal.
+ * <p>
+ * The state of each tag at each portal is an entry of parallel primitive arrays, keyed by the EPC as two {@code long}s
+ * and the portal, and reached through a chained hash table of {@code int} indexes, so a read costs a bounded number of
+ * array accesses and does not allocate. The entries are also linked in the order they were last seen, so the absent
+ * ones are found at the head of that list without scanning the table. When the table cannot grow any further, the entry
+ * seen the longest ago exits early to make room.
+ * <p>
+ * Two clocks are involved. The timestamps of the reads, from the clock of the reader of the portal, time the transitions
+ * and the events. The arrival times of the reads, from the clock of this process, order the list and time the absences,
+ * since the clocks of the readers need not agree with one another, nor with the time the expiry is asked for; they are
+ * kept from going backwards, so that the list stays in order.
+ * <p>
+ * This class is not thread-safe: it is meant to be owned by a single thread, or guarded by its owner.
+ */
+public class PortalTransitionEngine {
+
+    /**
+     * Side of a portal antenna facing out, for example to the dock.
+     */
+    public static final int OUTER = 1;
+
+    /**
+     * Side of a portal antenna facing in, for example to the warehouse.
+     */
+    public static final int INNER = 2;
+
+    private static final int NONE = 0;
+
+    /**
+     * Receives the transitions, on the thread that reported the read or asked for the expiry.
+     */
+    public interface Listener {
+        void onTransition(int portal, Epc epc, PortalTransition transition, long timestamp);
+    }
+
+    private final int maxCapacity;
+
+    private final long transitionMillis;
+
+    private final long absentMillis;
+
+    private final Listener listener;
+
+    private long[] highs;
+
+    private long[] lows;
+
+    private int[] portals;
+
+    private Epc[] epcs;
+
+    private byte[] sides;
+
+    private byte[] directions;
+
+    /**
+     * Last time the tag was seen on its current side, by the clock of the reader.
+     */
+    private long[] seenAt;
+
+    /**
+     * Last time a read of the tag arrived, by the clock of this process.
+     */
+    private long[] arrivedAt;
+
+    private int[] chains;
+
+    private int[] previousSeen;
+
+    private int[] nextSeen;
+
+    private int[] buckets;
+
+    private int bucketMask;
+
+    /**
+     * Entries are numbered from 1, so that 0 can end the chains and the lists.
+     */
+    private int allocated;
+
+    private int freeHead;
+
+    private int size;
+
+    private int oldestSeen;
+
+    private int latestSeen;
+
+    private long lastArrivedAt = Long.MIN_VALUE;
+
+    /**
+     * @param initialCapacity the initial number of entries.
+     * @param maxCapacity the number of entries the table never grows beyond.
+     * @param transitionMillis the longest time between the sightings of a tag on both sides for a direction to be reported.
+     * @param absentMillis the time after which a tag no longer seen exits the portal.
+     * @param listener receives the transitions.
+     */
+    public PortalTransitionEngine(int initialCapacity, int maxCapacity, long transitionMillis, long absentMillis, Listener listener) {
+        if (transitionMillis <= 0 || absentMillis <= 0) {
+            throw new IllegalArgumentException("transitionMillis and absentMillis must be positive");
+        }
+        this.maxCapacity = Math.max(maxCapacity, initialCapacity);
+        this.transitionMillis = transitionMillis;
+        this.absentMillis = absentMillis;
+        this.listener = listener;
+        allocate(Math.max(initialCapacity, 16));
+    }
+
+    /**
+     * Record a read by a portal antenna, which arrived at the time it was made.
+     *
+     * @see #onRead(Epc, long, long, int, int, long, long)
+     */
+    public void onRead(Epc epc, long high, long low, int portal, int side, long timestamp) {
+        onRead(epc, high, low, portal, side, timestamp, timestamp);
+    }
+
+    /**
+     * Record a read by a portal antenna.
+     *
+     * @param epc the EPC of the tag, retained while the tag is at the portal to report its transitions.
+     * @param high the most significant bits of the EPC.
+     * @param low the least significant bits of the EPC.
+     * @param portal the index of the portal.
+     * @param side the side of the antenna, {@link #OUTER} or {@link #INNER}.
+     * @param timestamp the time of the read by the clock of the reader, in milliseconds since the epoch.
+     * @param arrival the time the read arrived by the clock of this process, in milliseconds since the epoch.
+     */
+    public void onRead(Epc epc, long high, long low, int portal, int side, long timestamp, long arrival) {
+        if (side != OUTER && side != INNER) {
+            throw new IllegalArgumentException("Invalid side: " + side);
+        }
+        int bucket = hash(high, low, portal) & bucketMask;
+        int entry = buckets[bucket];
+        while (entry != 0 && (highs[entry] != high || lows[entry] != low || portals[entry] != portal)) {
+            entry = chains[entry];
+        }
+        if (entry != 0 && arrival - arrivedAt[entry] > absentMillis) {
+            // Seen again before the expiry noticed it was gone
+            exit(entry, seenAt[entry] + absentMillis);
+            entry = 0;
+        }
+        if (entry == 0) {
+            entry = insert(high, low, portal, bucket);
+            epcs[entry] = epc;
+            sides[entry] = (byte) side;
+            directions[entry] = NONE;
+            seenAt[entry] = timestamp;
+            touch(entry, arrival);
+            listener.onTransition(portal, epc, PortalTransition.ENTER, timestamp);
+            return;
+        }
+        if (timestamp < seenAt[entry]) {
+            // A late read tells nothing about where the tag is now, only that it is still around
+            unlinkSeen(entry);
+            touch(entry, arrival);
+            return;
+        }
+        if (sides[entry] != side) {
+            PortalTransition direction = side == INNER ? PortalTransition.IN : PortalTransition.OUT;
+            if (directions[entry] != direction.ordinal() && timestamp - seenAt[entry] <= transitionMillis) {
+                directions[entry] = (byte) direction.ordinal();
+                listener.onTransition(portal, epcs[entry], direction, timestamp);
+            }
+            sides[entry] = (byte) side;
+        }
+        seenAt[entry] = timestamp;
+        unlinkSeen(entry);
+        touch(entry, arrival);
+    }
+
+    private void touch(int entry, long arrival) {
+        lastArrivedAt = Math.max(lastArrivedAt, arrival);
+        arrivedAt[entry] = lastArrivedAt;
+        linkLatest(entry);
+    }
+
+    /**
+     * Report the exit of the tags none of whose reads arrived since before {@code now - absentMillis}.
+     *
+     * @param now the current time by the clock of this process, in milliseconds since the epoch.
+     * @param max the largest number of exits to report, to bound the work done at once.
+     * @return the number of exits reported.
+     */
+    public int expire(long now, int max) {
+        int expired = 0;
+        while (expired < max && oldestSeen != 0 && now - arrivedAt[oldestSeen] > absentMillis) {
+            exit(oldestSeen, seenAt[oldestSeen] + absentMillis);
+            expired++;
+        }
+        return expired;
+    }
+
+    /**
+     * @return the number of tags at the portals.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return highs.length - 1;
+    }
+
+    private void exit(int entry, long timestamp) {
+        Epc epc = epcs[entry];
+        int portal = portals[entry];
+        remove(entry);
+        listener.onTransition(portal, epc, PortalTransition.EXIT, timestamp);
+    }
+
+    private int insert(long high, long low, int portal, int bucket) {
+        int entry;
+        if (freeHead != 0) {
+            entry = freeHead;
+            freeHead = chains[entry];
+        } else if (allocated < highs.length - 1) {
+            entry = ++allocated;
+        } else if (highs.length - 1 < maxCapacity) {
+            grow();
+            bucket = hash(high, low, portal) & bucketMask;
+            entry = ++allocated;
+        } else {
+            // Full: make room by letting the tag seen the longest ago go
+            exit(oldestSeen, seenAt[oldestSeen]);
+            entry = freeHead;
+            freeHead = chains[entry];
+        }
+        highs[entry] = high;
+        lows[entry] = low;
+        portals[entry] = portal;
+        chains[entry] = buckets[bucket];
+        buckets[bucket] = entry;
+        size++;
+        return entry;
+    }
+
+    private void remove(int entry) {
+        int bucket = hash(highs[entry], lows[entry], portals[entry]) & bucketMask;
+        if (buckets[bucket] == entry) {
+            buckets[bucket] = chains[entry];
+        } else {
+            int previous = buckets[bucket];
+            while (chains[previous] != entry) {
+                previous = chains[previous];
+            }
+            chains[previous] = chains[entry];
+        }
+        unlinkSeen(entry);
+        epcs[entry] = null;
+        chains[entry] = freeHead;
+        freeHead = entry;
+        size--;
+    }
+
+    private void linkLatest(int entry) {
+        previousSeen[entry] = latestSeen;
+        nextSeen[entry] = 0;
+        if (latestSeen != 0) {
+            nextSeen[latestSeen] = entry;
+        } else {
+            oldestSeen = entry;
+        }
+        latestSeen = entry;
+    }
+
+    private void unlinkSeen(int entry) {
+        int previous = previousSeen[entry];
+        int next = nextSeen[entry];
+        if (previous != 0) {
+            nextSeen[previous] = next;
+        } else {
+            oldestSeen = next;
+        }
+        if (next != 0) {
+            previousSeen[next] = previous;
+        } else {
+            latestSeen = previous;
+        }
+    }
+
+    private void grow() {
+        int capacity = (int) Math.min((long) (highs.length - 1) * 2, maxCapacity);
+        int length = capacity + 1;
+        highs = Arrays.copyOf(highs, length);
+        lows = Arrays.copyOf(lows, length);
+        portals = Arrays.copyOf(portals, length);
+        epcs = Arrays.copyOf(epcs, length);
+        sides = Arrays.copyOf(sides, length);
+        directions = Arrays.copyOf(directions, length);
+        seenAt = Arrays.copyOf(seenAt, length);
+        arrivedAt = Arrays.copyOf(arrivedAt, length);
+        chains = Arrays.copyOf(chains, length);
+        previousSeen = Arrays.copyOf(previousSeen, length);
+        nextSeen = Arrays.copyOf(nextSeen, length);
+        // The entries keep their indexes: only the chains are rebuilt
+        allocateBuckets(capacity);
+        for (int entry = oldestSeen; entry != 0; entry = nextSeen[entry]) {
+            int bucket = hash(highs[entry], lows[entry], portals[entry]) & bucketMask;
+            chains[entry] = buckets[bucket];
+            buckets[bucket] = entry;
+        }
+    }
+
+    private void allocate(int capacity) {
+        int length = capacity + 1;
+        highs = new long[length];
+        lows = new long[length];
+        portals = new int[length];
+        epcs = new Epc[length];
+        sides = new byte[length];
+        directions = new byte[length];
+        seenAt = new long[length];
+        arrivedAt = new long[length];
+        chains = new int[length];
+        previousSeen = new int[length];
+        nextSeen = new int[length];
+        allocateBuckets(capacity);
+    }
+
+    private void allocateBuckets(int capacity) {
+        int bucketCount = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+        buckets = new int[bucketCount < 0 ? 1 << 30 : bucketCount];
+        bucketMask = buckets.length - 1;
+    }
+
+    private static int hash(long high, long low, int portal) {
+        long h = high * 0x9E3779B97F4A7C15L + low;
+        h = (h ^ portal) * 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 31;
+        h *= 0x94D049BB133111EBL;
+        h ^= h >>> 29;
+        return (int) h;
+    }
+}
@@ -0,0 +1,159 @@
+package com.isoft.rfid.service;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.domain.Epc;
+import com.isoft.rfid.domain.TagRead;
+import com.isoft.rfid.domain.enumeration.PortalTransition;
+import com.isoft.rfid.service.dto.PortalEventDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Turns the reads of the portal antennas into enter, direction and exit events, which go to the live subscribers.
+ * <p>
+ * Runs ahead of deduplication, so that every sighting of a tag on either side of a portal counts. The reads are stamped
+ * with the time they are processed, which times the absences along with the periodic expiry.
+ */
+@Component
+@Order(-100)
+public class PortalTransitionStage implements IngestStage {
+
+    public static final String TRANSITIONS_METER_NAME = "rfid.portal.transitions";
+
+    public static final String TRACKED_TAGS_METER_NAME = "rfid.portal.tags";
+
+    /**
+     * Exits reported along with a read, so that the expiry keeps up without waiting for the sweep.
+     */
+    private static final int EXPIRIES_PER_READ = 2;
+
+    private final Logger log = LoggerFactory.getLogger(PortalTransitionStage.class);
+
+    private final LiveReadBroadcaster liveReadBroadcaster;
+
+    private final PortalTransitionEngine engine;
+
+    private final String[] portalIds;
+
+    private final String[] portalReaderIds;
+
+    /**
+     * For each reader, indexed by antenna: the index of its portal shifted left by 2, or'ed with the side of the antenna.
+     */
+    private final Map<String, int[]> antennaCodes = new HashMap<>();
+
+    private final Map<PortalTransition, Counter> transitionCounters = new EnumMap<>(PortalTransition.class);
+
+    public PortalTransitionStage(
+        ApplicationProperties applicationProperties,
+        LiveReadBroadcaster liveReadBroadcaster,
+        MeterRegistry registry
+    ) {
+        ApplicationProperties.Portals properties = applicationProperties.getPortals();
+        this.liveReadBroadcaster = liveReadBroadcaster;
+        List<ApplicationProperties.Portals.Portal> doors = properties.getDoors();
+        this.portalIds = new String[doors.size()];
+        this.portalReaderIds = new String[doors.size()];
+        for (int i = 0; i < doors.size(); i++) {
+            ApplicationProperties.Portals.Portal door = doors.get(i);
+            portalIds[i] = door.getId();
+            portalReaderIds[i] = door.getReaderId();
+            mapAntennas(door, i, door.getOuterAntennas(), PortalTransitionEngine.OUTER);
+            mapAntennas(door, i, door.getInnerAntennas(), PortalTransitionEngine.INNER);
+        }
+        this.engine =
+            new PortalTransitionEngine(
+                properties.getInitialCapacity(),
+                properties.getMaxCapacity(),
+                properties.getTransitionMillis(),
+                properties.getAbsentMillis(),
+                this::onTransition
+            );
+        for (PortalTransition transition : PortalTransition.values()) {
+            transitionCounters.put(
+                transition,
+                Counter.builder(TRANSITIONS_METER_NAME).tag("transition", transition.name().toLowerCase()).register(registry)
+            );
+        }
+        Gauge.builder(TRACKED_TAGS_METER_NAME, engine, PortalTransitionEngine::size).register(registry);
+    }
+
+    private void mapAntennas(ApplicationProperties.Portals.Portal door, int portal, List<Integer> antennas, int side) {
+        int[] codes = antennaCodes.getOrDefault(door.getReaderId(), new int[0]);
+        for (int antenna : antennas) {
+            if (antenna < 0 || antenna > 0xFFFF) {
+                throw new IllegalArgumentException("Invalid antenna " + antenna + " for portal " + door.getId());
+            }
+            if (antenna >= codes.length) {
+                int[] grown = new int[antenna + 1];
+                System.arraycopy(codes, 0, grown, 0, codes.length);
+                codes = grown;
+            }
+            if (codes[antenna] != 0) {
+                throw new IllegalArgumentException("Antenna " + antenna + " of " + door.getReaderId() + " is in two portals");
+            }
+            codes[antenna] = (portal << 2) | side;
+        }
+        antennaCodes.put(door.getReaderId(), codes);
+    }
+
+    @Override
+    public Phase getPhase() {
+        return Phase.DEDUP;
+    }
+
+    @Override
+    public boolean process(TagRead read) {
+        if (antennaCodes.isEmpty()) {
+            return true;
+        }
+        int[] codes = antennaCodes.get(read.getReaderId());
+        int antenna = read.getAntenna();
+        if (codes == null || antenna < 0 || antenna >= codes.length || codes[antenna] == 0) {
+            return true;
+        }
+        Epc epc = read.getEpc();
+        long high = EpcKeys.high(epc);
+        long low = EpcKeys.low(epc);
+        long now = System.currentTimeMillis();
+        synchronized (engine) {
+            engine.onRead(epc, high, low, codes[antenna] >>> 2, codes[antenna] & 3, read.getTimestamp(), now);
+            engine.expire(now, EXPIRIES_PER_READ);
+        }
+        return true;
+    }
+
+    /**
+     * Report the exits of the tags no longer seen, even when the portals are quiet.
+     */
+    @Scheduled(
+        fixedDelayString = "${application.portals.expiry-interval-millis:1000}",
+        initialDelayString = "${application.portals.expiry-interval-millis:1000}"
+    )
+    public void expire() {
+        if (antennaCodes.isEmpty()) {
+            return;
+        }
+        synchronized (engine) {
+            engine.expire(System.currentTimeMillis(), Integer.MAX_VALUE);
+        }
+    }
+
+    private void onTransition(int portal, Epc epc, PortalTransition transition, long timestamp) {
+        transitionCounters.get(transition).increment();
+        if (log.isTraceEnabled()) {
+            log.trace("{} {} at portal {}", epc, transition, portalIds[portal]);
+        }
+        liveReadBroadcaster.publish(new PortalEventDTO(portalIds[portal], portalReaderIds[portal], epc.toString(), transition, timestamp));
+    }
+}
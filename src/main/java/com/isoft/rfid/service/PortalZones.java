@@ -0,0 +1,41 @@
+package com.isoft.rfid.service;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The zone of a reader antenna: the portal it watches, from the configured doors.
+ */
+final class PortalZones {
+
+    private final Map<String, String[]> zonesByAntenna = new HashMap<>();
+
+    PortalZones(ApplicationProperties.Portals portals) {
+        for (ApplicationProperties.Portals.Portal door : portals.getDoors()) {
+            map(door, door.getInnerAntennas());
+            map(door, door.getOuterAntennas());
+        }
+    }
+
+    private void map(ApplicationProperties.Portals.Portal door, List<Integer> antennas) {
+        String[] zones = zonesByAntenna.getOrDefault(door.getReaderId(), new String[0]);
+        for (int antenna : antennas) {
+            if (antenna >= zones.length) {
+                zones = Arrays.copyOf(zones, antenna + 1);
+            }
+            zones[antenna] = door.getId();
+        }
+        zonesByAntenna.put(door.getReaderId(), zones);
+    }
+
+    /**
+     * @return the portal of the antenna, or {@code null} if it belongs to none.
+     */
+    String zoneOf(String readerId, int antenna) {
+        String[] zones = zonesByAntenna.get(readerId);
+        return zones != null && antenna >= 0 && antenna < zones.length ? zones[antenna] : null;
+    }
+}
@@ -0,0 +1,125 @@
+package com.isoft.rfid.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounded cache of query results, each stamped with the {@link IngestWatermark.Mark} sequence of the window it covers.
+ * <p>
+ * A result is only returned while the sequence of its window is unchanged, that is until reads land in the window; it
+ * then gets replaced. The cache is bounded both by its number of entries and by the total weight of its results, and
+ * evicts the least recently used ones first.
+ *
+ * @param <K> the type of the normalized queries.
+ * @param <V> the type of the results, which must not be modified once cached.
+ */
+public class QueryResultCache<K, V> {
+
+    private final int maxEntries;
+
+    private final long maxWeight;
+
+    private final ToIntFunction<V> weigher;
+
+    // Guarded by this
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long weight;
+
+    private long evictions;
+
+    /**
+     * @param maxEntries the number of results the cache never holds more of.
+     * @param maxWeight the total weight of results the cache never holds more of.
+     * @param weigher the weight of a result.
+     */
+    public QueryResultCache(int maxEntries, long maxWeight, ToIntFunction<V> weigher) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    private static final class Entry<V> {
+
+        final V value;
+
+        final long sequence;
+
+        final int weight;
+
+        Entry(V value, long sequence, int weight) {
+            this.value = value;
+            this.sequence = sequence;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Get the result of a query, if it is still valid.
+     *
+     * @param key the normalized query.
+     * @param sequence the current sequence of the window of the query.
+     * @return the result, or {@code null} if it is not cached or reads landed in its window since it was.
+     */
+    public synchronized V get(K key, long sequence) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.sequence != sequence) {
+            remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Cache the result of a query, unless it weighs more than the cache can hold.
+     *
+     * @param key the normalized query.
+     * @param value the result.
+     * @param sequence the sequence of the window of the query before the result was computed.
+     */
+    public synchronized void put(K key, V value, long sequence) {
+        int valueWeight = weigher.applyAsInt(value);
+        if (valueWeight > maxWeight) {
+            return;
+        }
+        Entry<V> previous = entries.put(key, new Entry<>(value, sequence, valueWeight));
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+        weight += valueWeight;
+        Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries || weight > maxWeight) {
+            Entry<V> evicted = eldest.next().getValue();
+            eldest.remove();
+            weight -= evicted.weight;
+            evictions++;
+        }
+    }
+
+    private void remove(K key, Entry<V> entry) {
+        entries.remove(key);
+        weight -= entry.weight;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+}
@@ -0,0 +1,59 @@
+package com.isoft.rfid.service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Numbers the readers in the order they are first seen, so that a reader and an antenna pack into an {@code int}: the
+ * index of the reader, shifted left by 16, or'ed with the antenna.
+ * <p>
+ * Looking up a known reader does not lock; indexes are positive and only ever added.
+ */
+final class ReaderIndexes {
+
+    static final int MAX_READERS = Short.MAX_VALUE;
+
+    private final Map<String, Integer> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Reader identifiers by index, republished whenever a reader is added.
+     */
+    private volatile String[] readerIds = new String[16];
+
+    /**
+     * @return a positive index for the reader, or {@code -1} if too many readers have been seen to index a new one.
+     */
+    int indexOf(String readerId) {
+        Integer index = indexes.get(readerId);
+        if (index != null) {
+            return index;
+        }
+        synchronized (indexes) {
+            index = indexes.get(readerId);
+            if (index != null) {
+                return index;
+            }
+            int newIndex = indexes.size() + 1;
+            if (newIndex > MAX_READERS) {
+                return -1;
+            }
+            String[] ids = readerIds;
+            if (newIndex >= ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            ids[newIndex] = readerId;
+            // Publish the identifier before any packed location can refer to it
+            readerIds = ids;
+            indexes.put(readerId, newIndex);
+            return newIndex;
+        }
+    }
+
+    /**
+     * @param index an index returned by {@link #indexOf(String)}.
+     */
+    String readerId(int index) {
+        return readerIds[index];
+    }
+}
@@ -0,0 +1,310 @@
+package com.isoft.rfid.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.domain.Gs1Identity;
+import com.isoft.rfid.domain.TagRead;
+import com.isoft.rfid.repository.search.TagReadCriteria;
+import com.isoft.rfid.repository.search.TagReadSearchRepository;
+import com.isoft.rfid.service.dto.TagReadDTO;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service exporting the tag read history, as CSV or NDJSON, over a consistent snapshot.
+ * <p>
+ * An export opens a point in time and reads it in parallel slices, each on its own thread. The pages of the slices go
+ * through a queue of a few pages to the thread writing the response, so the memory used by an export does not depend on
+ * the number of reads, and a slow client slows the slices down rather than filling the heap. When the client goes away,
+ * the write fails, the slices are cancelled and the point in time is closed.
+ */
+@Service
+public class TagReadExportService implements DisposableBean {
+
+    /**
+     * Formats of an export.
+     */
+    public enum Format {
+        CSV,
+        NDJSON,
+    }
+
+    private static final List<TagRead> END_OF_SLICE = Collections.emptyList();
+
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final Logger log = LoggerFactory.getLogger(TagReadExportService.class);
+
+    private final TagReadSearchRepository tagReadSearchRepository;
+
+    private final Gs1EpcDecoder gs1EpcDecoder;
+
+    private final ObjectWriter jsonWriter;
+
+    private final int slices;
+
+    private final int pageSize;
+
+    private final String keepAlive;
+
+    private final Semaphore exportPermits;
+
+    private final ExecutorService sliceExecutor;
+
+    public TagReadExportService(
+        TagReadSearchRepository tagReadSearchRepository,
+        Gs1EpcDecoder gs1EpcDecoder,
+        ObjectMapper objectMapper,
+        ApplicationProperties applicationProperties
+    ) {
+        ApplicationProperties.Export properties = applicationProperties.getExport();
+        this.tagReadSearchRepository = tagReadSearchRepository;
+        this.gs1EpcDecoder = gs1EpcDecoder;
+        this.jsonWriter = objectMapper.writerFor(TagReadDTO.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.slices = Math.max(1, properties.getSlices());
+        this.pageSize = properties.getPageSize();
+        this.keepAlive = properties.getKeepAlive();
+        this.exportPermits = new Semaphore(properties.getMaxConcurrentExports());
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.sliceExecutor =
+            Executors.newFixedThreadPool(
+                properties.getMaxConcurrentExports() * slices,
+                runnable -> {
+                    Thread thread = new Thread(runnable, "rfid-export-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            );
+    }
+
+    /**
+     * An export, holding one of the export permits until it has been written, or closed.
+     */
+    public final class Export implements AutoCloseable {
+
+        private final TagReadCriteria criteria;
+
+        private final Format format;
+
+        private final AtomicBoolean written = new AtomicBoolean();
+
+        private Export(TagReadCriteria criteria, Format format) {
+            this.criteria = criteria;
+            this.format = format;
+        }
+
+        /**
+         * Write the reads to a stream, and release the permit of the export.
+         *
+         * @param out the stream, which is flushed but not closed.
+         * @return the number of reads written.
+         * @throws IOException if the stream cannot be written, or if Elasticsearch fails the export.
+         */
+        public long writeTo(OutputStream out) throws IOException {
+            if (!written.compareAndSet(false, true)) {
+                throw new IllegalStateException("An export is only written once");
+            }
+            try {
+                return export(criteria, format, out);
+            } finally {
+                exportPermits.release();
+            }
+        }
+
+        /**
+         * Release the permit of the export if it was not written, for example because the request ended before.
+         */
+        @Override
+        public void close() {
+            if (written.compareAndSet(false, true)) {
+                exportPermits.release();
+            }
+        }
+    }
+
+    /**
+     * Prepare an export, if not too many are already running.
+     *
+     * @param criteria the filters of the export.
+     * @param format the format of the export.
+     * @return the export, which must be written or closed, or {@code null} if too many exports are running.
+     */
+    public Export prepare(TagReadCriteria criteria, Format format) {
+        if (!exportPermits.tryAcquire()) {
+            return null;
+        }
+        return new Export(criteria, format);
+    }
+
+    private long export(TagReadCriteria criteria, Format format, OutputStream out) throws IOException {
+        long startedAt = System.currentTimeMillis();
+        String pitId = tagReadSearchRepository.openPointInTime(criteria, keepAlive);
+        BlockingQueue<List<TagRead>> pages = new ArrayBlockingQueue<>(slices);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        List<Future<?>> tasks = new ArrayList<>(slices);
+        long count = 0;
+        try {
+            for (int slice = 0; slice < slices; slice++) {
+                int id = slice;
+                tasks.add(sliceExecutor.submit(() -> scanSlice(pitId, criteria, id, pages, cancelled, failure)));
+            }
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+            JsonGenerator json = format == Format.NDJSON ? jsonWriter.getFactory().createGenerator(writer) : null;
+            if (format == Format.CSV) {
+                writer.write("epc,readerId,antenna,rssi,timestamp,epcUri\n");
+            }
+            int ended = 0;
+            while (ended < slices) {
+                List<TagRead> page = pages.take();
+                if (page == END_OF_SLICE) {
+                    ended++;
+                    continue;
+                }
+                for (TagRead read : page) {
+                    if (json != null) {
+                        writeJson(json, read);
+                    } else {
+                        writeCsv(writer, read);
+                    }
+                }
+                count += page.size();
+            }
+            if (failure.get() != null) {
+                throw new IOException("Export failed after " + count + " reads", failure.get());
+            }
+            if (json != null) {
+                json.flush();
+            }
+            writer.flush();
+            log.info("Exported {} tag reads in {} ms", count, System.currentTimeMillis() - startedAt);
+            return count;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Export interrupted", e);
+        } catch (IOException e) {
+            log.info("Export stopped after {} tag reads: {}", count, e.toString());
+            throw e;
+        } finally {
+            cancelled.set(true);
+            for (Future<?> task : tasks) {
+                task.cancel(true);
+            }
+            tagReadSearchRepository.closePointInTime(pitId);
+        }
+    }
+
+    private void scanSlice(
+        String pitId,
+        TagReadCriteria criteria,
+        int slice,
+        BlockingQueue<List<TagRead>> pages,
+        AtomicBoolean cancelled,
+        AtomicReference<Exception> failure
+    ) {
+        try {
+            tagReadSearchRepository.scanSlice(
+                pitId,
+                keepAlive,
+                criteria,
+                slice,
+                slices,
+                pageSize,
+                reads -> offer(pages, reads, cancelled)
+            );
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            failure.compareAndSet(null, e);
+            log.warn("Could not export slice {} of tag reads: {}", slice, e.toString());
+        } finally {
+            try {
+                offer(pages, END_OF_SLICE, cancelled);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Wait for room in the queue, unless the export has been cancelled.
+     */
+    private static boolean offer(BlockingQueue<List<TagRead>> pages, List<TagRead> page, AtomicBoolean cancelled)
+        throws InterruptedException {
+        while (!cancelled.get()) {
+            if (pages.offer(page, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeJson(JsonGenerator json, TagRead read) throws IOException {
+        read.setIdentity(gs1EpcDecoder.decode(read.getEpc()));
+        jsonWriter.writeValue(json, TagReadDTO.of(read));
+        json.writeRaw('\n');
+    }
+
+    private void writeCsv(Writer writer, TagRead read) throws IOException {
+        writer.write(read.getEpc().toString());
+        writer.write(',');
+        writeCsvField(writer, read.getReaderId());
+        writer.write(',');
+        writer.write(Integer.toString(read.getAntenna()));
+        writer.write(',');
+        writer.write(Double.toString(read.getRssi()));
+        writer.write(',');
+        writer.write(Instant.ofEpochMilli(read.getTimestamp()).toString());
+        writer.write(',');
+        Gs1Identity identity = gs1EpcDecoder.decode(read.getEpc());
+        if (identity != null) {
+            writer.write(identity.toUri());
+        }
+        writer.write('\n');
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    @Override
+    public void destroy() {
+        sliceExecutor.shutdownNow();
+    }
+}
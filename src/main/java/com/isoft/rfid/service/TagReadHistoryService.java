@@ -0,0 +1,62 @@
+package com.isoft.rfid.service;
+
+import com.isoft.rfid.domain.TagRead;
+import com.isoft.rfid.repository.search.TagReadCriteria;
+import com.isoft.rfid.repository.search.TagReadPage;
+import com.isoft.rfid.repository.search.TagReadSearchRepository;
+import java.io.IOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service paginating through the tag read history with cursors.
+ */
+@Service
+public class TagReadHistoryService {
+
+    private final Logger log = LoggerFactory.getLogger(TagReadHistoryService.class);
+
+    private final TagReadSearchRepository tagReadSearchRepository;
+
+    private final Gs1EpcDecoder gs1EpcDecoder;
+
+    public TagReadHistoryService(TagReadSearchRepository tagReadSearchRepository, Gs1EpcDecoder gs1EpcDecoder) {
+        this.tagReadSearchRepository = tagReadSearchRepository;
+        this.gs1EpcDecoder = gs1EpcDecoder;
+    }
+
+    /**
+     * Get the first page of the reads matching the criteria, newest first.
+     *
+     * @param criteria the filters of the search.
+     * @param size the maximum number of reads of the page.
+     * @return the page, with the cursor of the next one.
+     * @throws IOException if Elasticsearch cannot be reached, or fails the search.
+     */
+    public TagReadPage findReads(TagReadCriteria criteria, int size) throws IOException {
+        log.debug("Request to get the tag reads matching {}", criteria);
+        return decode(tagReadSearchRepository.search(criteria, size));
+    }
+
+    /**
+     * Get the page following a cursor.
+     *
+     * @param cursor the cursor returned with the previous page.
+     * @param size the maximum number of reads of the page.
+     * @return the page, with the cursor of the next one.
+     * @throws com.isoft.rfid.repository.search.InvalidCursorException if the cursor is malformed or has expired.
+     * @throws IOException if Elasticsearch cannot be reached, or fails the search.
+     */
+    public TagReadPage findReads(String cursor, int size) throws IOException {
+        log.debug("Request to get the next page of tag reads");
+        return decode(tagReadSearchRepository.next(cursor, size));
+    }
+
+    private TagReadPage decode(TagReadPage page) {
+        for (TagRead read : page.getReads()) {
+            read.setIdentity(gs1EpcDecoder.decode(read.getEpc()));
+        }
+        return page;
+    }
+}
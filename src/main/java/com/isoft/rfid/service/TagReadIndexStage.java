@@ -0,0 +1,36 @@
+package com.isoft.rfid.service;
+
+import com.isoft.rfid.domain.TagRead;
+import com.isoft.rfid.repository.search.TagReadBulkIndexer;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands the reads that made it through the pipeline over to the {@link TagReadBulkIndexer}.
+ * <p>
+ * The indexer blocks while its bulk requests are all in flight, so a slow cluster holds this phase back and lets the
+ * ring buffer fill up, until publications are reported as overloaded. The {@link IngestWatermark} of a read is only
+ * advanced once a bulk request indexed it, however long it waited for a request slot or was retried.
+ */
+@Component
+@Order(Integer.MAX_VALUE)
+public class TagReadIndexStage implements IngestStage {
+
+    private final TagReadBulkIndexer tagReadBulkIndexer;
+
+    public TagReadIndexStage(TagReadBulkIndexer tagReadBulkIndexer, IngestWatermark ingestWatermark) {
+        this.tagReadBulkIndexer = tagReadBulkIndexer;
+        tagReadBulkIndexer.setIndexedListener(ingestWatermark::advance);
+    }
+
+    @Override
+    public Phase getPhase() {
+        return Phase.INDEX;
+    }
+
+    @Override
+    public boolean process(TagRead read) {
+        tagReadBulkIndexer.index(read);
+        return true;
+    }
+}
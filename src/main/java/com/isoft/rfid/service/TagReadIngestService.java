@@ -0,0 +1,95 @@
+package com.isoft.rfid.service;
+
+import com.isoft.rfid.domain.TagRead;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Entry point for tag reads coming from readers, whatever the transport.
+ * <p>
+ * Submission never blocks on storage: a read is checked synchronously so that the caller can report a per-read status,
+ * then copied into the {@link TagReadPipeline}. The caller keeps ownership of the {@link TagRead} instance, which may be
+ * reused as soon as {@link #submit(TagRead)} returns.
+ */
+@Service
+public class TagReadIngestService {
+
+    public static final String INGESTED_READS_METER_NAME = "rfid.ingest.reads";
+
+    private static final int MAX_ANTENNA = 0xFFFF;
+
+    private final Logger log = LoggerFactory.getLogger(TagReadIngestService.class);
+
+    private final Counter acceptedCounter;
+
+    private final Counter rejectedCounter;
+
+    private final Counter overloadedCounter;
+
+    private final TagReadPipeline tagReadPipeline;
+
+    public TagReadIngestService(MeterRegistry registry, TagReadPipeline tagReadPipeline) {
+        this.tagReadPipeline = tagReadPipeline;
+        this.acceptedCounter = Counter.builder(INGESTED_READS_METER_NAME).tag("result", "accepted").register(registry);
+        this.rejectedCounter = Counter.builder(INGESTED_READS_METER_NAME).tag("result", "rejected").register(registry);
+        this.overloadedCounter = Counter.builder(INGESTED_READS_METER_NAME).tag("result", "overloaded").register(registry);
+    }
+
+    /**
+     * Submit a tag read for ingestion.
+     *
+     * @param read the read to ingest; its content is copied and the instance can be reused by the caller.
+     * @return the ingestion status of the read.
+     */
+    public IngestStatus submit(TagRead read) {
+        return submit(read, false);
+    }
+
+    /**
+     * Submit a tag read without waiting for room in the pipeline, for the threads that must never block, like the
+     * event loops of the reader connections; they are expected to stop reading from the reader while overloaded.
+     *
+     * @param read the read to ingest; its content is copied and the instance can be reused by the caller.
+     * @return the ingestion status of the read, {@link IngestStatus#OVERLOADED} as soon as the pipeline is full.
+     */
+    public IngestStatus trySubmit(TagRead read) {
+        return submit(read, true);
+    }
+
+    private IngestStatus submit(TagRead read, boolean immediately) {
+        IngestStatus status = check(read);
+        if (!status.isAccepted()) {
+            rejectedCounter.increment();
+            return status;
+        }
+        if (!(immediately ? tagReadPipeline.tryPublish(read) : tagReadPipeline.publish(read))) {
+            overloadedCounter.increment();
+            return IngestStatus.OVERLOADED;
+        }
+        acceptedCounter.increment();
+        if (log.isTraceEnabled()) {
+            log.trace("Accepted tag read: {}", read);
+        }
+        return status;
+    }
+
+    static IngestStatus check(TagRead read) {
+        if (read.getEpc() == null) {
+            return IngestStatus.INVALID_EPC;
+        }
+        String readerId = read.getReaderId();
+        if (readerId == null || readerId.isBlank()) {
+            return IngestStatus.INVALID_READER;
+        }
+        if (read.getAntenna() < 0 || read.getAntenna() > MAX_ANTENNA) {
+            return IngestStatus.INVALID_ANTENNA;
+        }
+        if (read.getTimestamp() <= 0) {
+            return IngestStatus.INVALID_TIMESTAMP;
+        }
+        return IngestStatus.ACCEPTED;
+    }
+}
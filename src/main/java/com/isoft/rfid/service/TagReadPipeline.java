@@ -0,0 +1,358 @@
+package com.isoft.rfid.service;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.domain.TagRead;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+/**
+ * Bounded, staged pipeline that carries tag reads from the ingestion endpoints to storage.
+ * <p>
+ * Reads are copied into the preallocated slots of a ring buffer. Each {@link IngestStage.Phase} is consumed by its own
+ * thread, which only processes a slot once the previous phase is done with it, and a slot is only reused once the last
+ * phase has released it. When the ring is full, {@link #publish(TagRead)} waits for at most the configured publish
+ * timeout and then reports the overload to the caller instead of buffering more reads on the heap.
+ * <p>
+ * Each phase exposes its queue depth ({@value #STAGE_DEPTH_METER_NAME}), the time elapsed between the publication of a
+ * read and the end of its processing by the phase ({@value #STAGE_LATENCY_METER_NAME}, sampled once per batch), and
+ * the number of reads it dropped ({@value #STAGE_DROPPED_METER_NAME}).
+ */
+@Service
+public class TagReadPipeline implements SmartLifecycle {
+
+    public static final String STAGE_DEPTH_METER_NAME = "rfid.ingest.stage.depth";
+
+    public static final String STAGE_LATENCY_METER_NAME = "rfid.ingest.stage.latency";
+
+    public static final String STAGE_DROPPED_METER_NAME = "rfid.ingest.stage.dropped";
+
+    private static final String PHASE_TAG = "phase";
+
+    private static final int MAX_BATCH_SIZE = 256;
+
+    private static final int SPIN_TRIES = 100;
+
+    private static final int YIELD_TRIES = 200;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+    private final Logger log = LoggerFactory.getLogger(TagReadPipeline.class);
+
+    private final TagRead[] slots;
+
+    private final boolean[] dropped;
+
+    private final long[] publishedAt;
+
+    private final int mask;
+
+    private final long publishTimeoutNanos;
+
+    private final ReentrantLock publishLock = new ReentrantLock();
+
+    private final Sequence cursor = new Sequence();
+
+    private final PhaseWorker[] workers;
+
+    private long cachedReleased = Sequence.INITIAL;
+
+    private volatile boolean running;
+
+    private volatile boolean closed;
+
+    public TagReadPipeline(ApplicationProperties applicationProperties, MeterRegistry registry, List<IngestStage> stages) {
+        ApplicationProperties.Ingest properties = applicationProperties.getIngest();
+        int bufferSize = properties.getBufferSize();
+        if (bufferSize < 2 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("application.ingest.buffer-size must be a power of two, got " + bufferSize);
+        }
+        this.slots = new TagRead[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            slots[i] = new TagRead();
+        }
+        this.dropped = new boolean[bufferSize];
+        this.publishedAt = new long[bufferSize];
+        this.mask = bufferSize - 1;
+        this.publishTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(properties.getPublishTimeoutMillis());
+
+        IngestStage.Phase[] phases = IngestStage.Phase.values();
+        this.workers = new PhaseWorker[phases.length];
+        for (int i = 0; i < phases.length; i++) {
+            List<IngestStage> phaseStages = new ArrayList<>();
+            for (IngestStage stage : stages) {
+                if (stage.getPhase() == phases[i]) {
+                    phaseStages.add(stage);
+                }
+            }
+            workers[i] = new PhaseWorker(phases[i], phaseStages, i == 0 ? null : workers[i - 1], registry);
+        }
+    }
+
+    /**
+     * Copy a read into the pipeline.
+     *
+     * @param read the read to publish; the caller keeps ownership of the instance.
+     * @return {@code false} if the pipeline is stopped or stayed full for longer than the publish timeout.
+     */
+    public boolean publish(TagRead read) {
+        return publish(read, publishTimeoutNanos);
+    }
+
+    /**
+     * Copy a read into the pipeline if there is room for it right away, for the threads that must never wait.
+     *
+     * @param read the read to publish; the caller keeps ownership of the instance.
+     * @return {@code false} if the pipeline is stopped or full.
+     */
+    public boolean tryPublish(TagRead read) {
+        return publish(read, 0);
+    }
+
+    private boolean publish(TagRead read, long timeoutNanos) {
+        if (!running) {
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            if (!publishLock.tryLock(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        try {
+            if (!running) {
+                return false;
+            }
+            long next = cursor.get() + 1;
+            long wrapPoint = next - slots.length;
+            while (wrapPoint > cachedReleased) {
+                cachedReleased = workers[workers.length - 1].sequence.get();
+                if (wrapPoint <= cachedReleased) {
+                    break;
+                }
+                if (!running || System.nanoTime() - start >= timeoutNanos) {
+                    return false;
+                }
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+            }
+            int index = (int) next & mask;
+            slots[index].copyFrom(read);
+            dropped[index] = false;
+            publishedAt[index] = System.nanoTime();
+            cursor.set(next);
+            return true;
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of reads published but not yet released by the last phase.
+     */
+    public long getPendingCount() {
+        return cursor.get() - workers[workers.length - 1].sequence.get();
+    }
+
+    @Override
+    public void start() {
+        if (running) {
+            return;
+        }
+        closed = false;
+        running = true;
+        for (PhaseWorker worker : workers) {
+            worker.start();
+        }
+        log.debug("Started tag read pipeline with {} slots", slots.length);
+    }
+
+    /**
+     * Stop accepting reads, and wait for the reads already published to go through every phase.
+     */
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        // Wait for a publication that started before the flag flipped, so that the first phase sees it before exiting.
+        publishLock.lock();
+        publishLock.unlock();
+        closed = true;
+        for (PhaseWorker worker : workers) {
+            worker.join();
+        }
+        log.debug("Stopped tag read pipeline");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Start before, and stop after, the web server and the other ingestion sources.
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private final class PhaseWorker implements Runnable {
+
+        private final IngestStage.Phase phase;
+
+        private final IngestStage[] stages;
+
+        private final PhaseWorker upstream;
+
+        private final Sequence sequence = new Sequence();
+
+        private final Timer latency;
+
+        private final Counter droppedCounter;
+
+        private Thread thread;
+
+        private volatile boolean finished;
+
+        PhaseWorker(IngestStage.Phase phase, List<IngestStage> stages, PhaseWorker upstream, MeterRegistry registry) {
+            String phaseName = phase.name().toLowerCase();
+            this.phase = phase;
+            this.stages = stages.toArray(new IngestStage[0]);
+            this.upstream = upstream;
+            this.latency = Timer.builder(STAGE_LATENCY_METER_NAME).tag(PHASE_TAG, phaseName).register(registry);
+            this.droppedCounter = Counter.builder(STAGE_DROPPED_METER_NAME).tag(PHASE_TAG, phaseName).register(registry);
+            Gauge.builder(STAGE_DEPTH_METER_NAME, this, PhaseWorker::depth).tag(PHASE_TAG, phaseName).register(registry);
+        }
+
+        void start() {
+            finished = false;
+            thread = new Thread(this, "rfid-ingest-" + phase.name().toLowerCase());
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void join() {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        double depth() {
+            return (upstream == null ? cursor : upstream.sequence).get() - sequence.get();
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            int idle = 0;
+            while (true) {
+                boolean upstreamDone = upstream == null ? closed : upstream.finished;
+                long available = (upstream == null ? cursor : upstream.sequence).get();
+                if (available < next) {
+                    if (upstreamDone) {
+                        break;
+                    }
+                    idle = idle(idle);
+                    continue;
+                }
+                idle = 0;
+                long last = Math.min(available, next + MAX_BATCH_SIZE - 1);
+                for (long s = next; s <= last; s++) {
+                    process((int) s & mask);
+                }
+                latency.record(System.nanoTime() - publishedAt[(int) last & mask], TimeUnit.NANOSECONDS);
+                sequence.set(last);
+                next = last + 1;
+            }
+            finished = true;
+        }
+
+        private void process(int index) {
+            if (dropped[index]) {
+                return;
+            }
+            TagRead read = slots[index];
+            for (IngestStage stage : stages) {
+                boolean keep;
+                try {
+                    keep = stage.process(read);
+                } catch (RuntimeException e) {
+                    log.error("Ingest stage {} failed on {}", stage.getClass().getSimpleName(), read, e);
+                    keep = false;
+                }
+                if (!keep) {
+                    dropped[index] = true;
+                    droppedCounter.increment();
+                    return;
+                }
+            }
+        }
+
+        private int idle(int idle) {
+            if (idle < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (idle < SPIN_TRIES + YIELD_TRIES) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                return idle;
+            }
+            return idle + 1;
+        }
+    }
+
+    /**
+     * A sequence number padded to its own cache lines, so that the producer and the phase threads do not invalidate
+     * each other's caches when they advance.
+     */
+    @SuppressWarnings("unused")
+    private static final class Sequence {
+
+        static final long INITIAL = -1L;
+
+        private static final VarHandle VALUE;
+
+        static {
+            try {
+                VALUE = MethodHandles.lookup().findVarHandle(Sequence.class, "value", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private long p1, p2, p3, p4, p5, p6, p7;
+
+        private volatile long value = INITIAL;
+
+        private long p9, p10, p11, p12, p13, p14, p15;
+
+        long get() {
+            return value;
+        }
+
+        void set(long newValue) {
+            VALUE.setRelease(this, newValue);
+        }
+    }
+}
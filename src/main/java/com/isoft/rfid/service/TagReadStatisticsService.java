@@ -0,0 +1,197 @@
+package com.isoft.rfid.service;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.repository.search.ReadCountBucket;
+import com.isoft.rfid.repository.search.TagReadCriteria;
+import com.isoft.rfid.repository.search.TagReadSearchRepository;
+import com.isoft.rfid.service.dto.ReadCountDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service computing the read histograms of the dashboards, through a cache kept by the {@link IngestWatermark}.
+ * <p>
+ * A histogram is split into blocks of buckets aligned on multiples of their width, and each block is cached on its own,
+ * stamped with the watermark of its window: it stays valid until reads land in the window. The blocks of the past are
+ * thus computed once, however often the dashboards refresh and however their ranges slide, and only the blocks at the
+ * live edge, or those a late read landed in, are computed again, together in a single search. A block is not cached
+ * while the reads last indexed in its window may not be searchable yet.
+ */
+@Service
+public class TagReadStatisticsService {
+
+    public static final String CACHE_METER_NAME = "rfid.dashboard.cache";
+
+    public static final String CACHE_WEIGHT_METER_NAME = "rfid.dashboard.cache.weight";
+
+    private final Logger log = LoggerFactory.getLogger(TagReadStatisticsService.class);
+
+    private final TagReadSearchRepository tagReadSearchRepository;
+
+    private final IngestWatermark ingestWatermark;
+
+    private final QueryResultCache<BlockKey, List<ReadCountDTO>> cache;
+
+    private final int bucketsPerBlock;
+
+    private final long settleMillis;
+
+    private final Counter hitCounter;
+
+    private final Counter missCounter;
+
+    public TagReadStatisticsService(
+        TagReadSearchRepository tagReadSearchRepository,
+        IngestWatermark ingestWatermark,
+        ApplicationProperties applicationProperties,
+        MeterRegistry registry
+    ) {
+        ApplicationProperties.Dashboard properties = applicationProperties.getDashboard();
+        this.tagReadSearchRepository = tagReadSearchRepository;
+        this.ingestWatermark = ingestWatermark;
+        this.cache = new QueryResultCache<>(properties.getCacheMaxEntries(), properties.getCacheMaxWeight(), List::size);
+        this.bucketsPerBlock = Math.max(1, properties.getBucketsPerBlock());
+        this.settleMillis = properties.getSettleMillis();
+        this.hitCounter = Counter.builder(CACHE_METER_NAME).tag("result", "hit").register(registry);
+        this.missCounter = Counter.builder(CACHE_METER_NAME).tag("result", "miss").register(registry);
+        FunctionCounter.builder(CACHE_METER_NAME, cache, QueryResultCache::getEvictions).tag("result", "eviction").register(registry);
+        Gauge.builder(CACHE_WEIGHT_METER_NAME, cache, QueryResultCache::getWeight).register(registry);
+    }
+
+    /**
+     * Count the reads matching the criteria by intervals of time.
+     * <p>
+     * The range is widened to whole intervals, aligned on multiples of the interval since the epoch, so that neither the
+     * first nor the last bucket is partial.
+     *
+     * @param criteria the filters of the reads, with the start, inclusive, and the end, exclusive, of the histogram.
+     * @param intervalMillis the width of the buckets.
+     * @return the buckets, in time order, including those without reads.
+     * @throws IOException if Elasticsearch cannot be reached, or fails the search.
+     */
+    public List<ReadCountDTO> countReads(TagReadCriteria criteria, long intervalMillis) throws IOException {
+        long from = floor(criteria.getFrom(), intervalMillis);
+        long to = -floor(-criteria.getTo(), intervalMillis);
+        long blockMillis = intervalMillis * bucketsPerBlock;
+        long firstBlock = floor(from, blockMillis);
+        int blockCount = (int) ((-floor(-to, blockMillis) - firstBlock) / blockMillis);
+        log.debug("Request to count the tag reads matching {} by {} ms, over {} blocks", criteria, intervalMillis, blockCount);
+
+        List<List<ReadCountDTO>> blocks = new ArrayList<>(Collections.nCopies(blockCount, null));
+        IngestWatermark.Mark[] marks = new IngestWatermark.Mark[blockCount];
+        int firstMissing = -1;
+        int lastMissing = -1;
+        for (int i = 0; i < blockCount; i++) {
+            long blockStart = firstBlock + i * blockMillis;
+            marks[i] = ingestWatermark.mark(blockStart, blockStart + blockMillis);
+            List<ReadCountDTO> block = cache.get(key(criteria, intervalMillis, blockStart), marks[i].getSequence());
+            if (block == null) {
+                if (firstMissing < 0) {
+                    firstMissing = i;
+                }
+                lastMissing = i;
+                missCounter.increment();
+            } else {
+                blocks.set(i, block);
+                hitCounter.increment();
+            }
+        }
+
+        if (firstMissing >= 0) {
+            TagReadCriteria missing = new TagReadCriteria();
+            missing.setEpc(criteria.getEpc());
+            missing.setReaderId(criteria.getReaderId());
+            missing.setFrom(firstBlock + firstMissing * blockMillis);
+            missing.setTo(firstBlock + (lastMissing + 1) * blockMillis - 1);
+            List<List<ReadCountDTO>> computed = new ArrayList<>(Collections.nCopies(lastMissing - firstMissing + 1, null));
+            for (int i = 0; i < computed.size(); i++) {
+                computed.set(i, new ArrayList<>(bucketsPerBlock));
+            }
+            for (ReadCountBucket bucket : tagReadSearchRepository.countReads(missing, intervalMillis)) {
+                int block = (int) ((bucket.getStart() - missing.getFrom()) / blockMillis);
+                if (bucket.getStart() >= missing.getFrom() && block < computed.size()) {
+                    computed.get(block).add(ReadCountDTO.of(bucket));
+                }
+            }
+            long settledBefore = System.currentTimeMillis() - settleMillis;
+            for (int i = firstMissing; i <= lastMissing; i++) {
+                List<ReadCountDTO> block = Collections.unmodifiableList(computed.get(i - firstMissing));
+                blocks.set(i, block);
+                if (marks[i].getChangedAt() <= settledBefore) {
+                    cache.put(key(criteria, intervalMillis, firstBlock + i * blockMillis), block, marks[i].getSequence());
+                }
+            }
+        }
+
+        List<ReadCountDTO> counts = new ArrayList<>((int) ((to - from) / intervalMillis));
+        for (List<ReadCountDTO> block : blocks) {
+            for (ReadCountDTO count : block) {
+                if (count.getTimestamp() >= from && count.getTimestamp() < to) {
+                    counts.add(count);
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static long floor(long timestamp, long unit) {
+        return timestamp - Math.floorMod(timestamp, unit);
+    }
+
+    private static BlockKey key(TagReadCriteria criteria, long intervalMillis, long blockStart) {
+        return new BlockKey(criteria.getEpc(), criteria.getReaderId(), intervalMillis, blockStart);
+    }
+
+    /**
+     * A block of a histogram: the filters, the width of the buckets and the start of the block.
+     */
+    private static final class BlockKey {
+
+        private final String epc;
+
+        private final String readerId;
+
+        private final long intervalMillis;
+
+        private final long blockStart;
+
+        BlockKey(String epc, String readerId, long intervalMillis, long blockStart) {
+            this.epc = epc;
+            this.readerId = readerId;
+            this.intervalMillis = intervalMillis;
+            this.blockStart = blockStart;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof BlockKey)) {
+                return false;
+            }
+            BlockKey other = (BlockKey) o;
+            return (
+                intervalMillis == other.intervalMillis &&
+                blockStart == other.blockStart &&
+                Objects.equals(epc, other.epc) &&
+                Objects.equals(readerId, other.readerId)
+            );
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(epc, readerId, intervalMillis, blockStart);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.isoft.rfid.service;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.domain.TagRead;
+import com.isoft.rfid.repository.search.TagReadIndexPartitions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops reads whose timestamp is too far in the future to come from a reader with a sane clock, and reads too late for
+ * their time partition.
+ * <p>
+ * A partition is sealed, its writes blocked, once it has been over for the seal delay. Reads are only accepted while
+ * their partition has been over for less than half of it, which leaves the other half for the accepted reads to be
+ * indexed, retries included, before it is sealed.
+ */
+@Component
+@Order(0)
+public class TagReadValidationStage implements IngestStage {
+
+    public static final String REJECTED_METER_NAME = "rfid.ingest.validation.rejected";
+
+    private final long maxClockSkewMillis;
+
+    private final long maxLatenessMillis;
+
+    private final TagReadIndexPartitions partitions;
+
+    private final Counter futureCounter;
+
+    private final Counter lateCounter;
+
+    public TagReadValidationStage(
+        ApplicationProperties applicationProperties,
+        TagReadIndexPartitions partitions,
+        MeterRegistry registry
+    ) {
+        this.maxClockSkewMillis = applicationProperties.getIngest().getMaxClockSkewSeconds() * 1000;
+        this.maxLatenessMillis = applicationProperties.getIndexing().getSealDelayMillis() / 2;
+        this.partitions = partitions;
+        this.futureCounter = Counter.builder(REJECTED_METER_NAME).tag("reason", "future").register(registry);
+        this.lateCounter = Counter.builder(REJECTED_METER_NAME).tag("reason", "late").register(registry);
+    }
+
+    @Override
+    public Phase getPhase() {
+        return Phase.VALIDATE;
+    }
+
+    @Override
+    public boolean process(TagRead read) {
+        long now = System.currentTimeMillis();
+        if (read.getTimestamp() - now > maxClockSkewMillis) {
+            futureCounter.increment();
+            return false;
+        }
+        if (partitions.isOverFor(read.getTimestamp(), maxLatenessMillis, now)) {
+            lateCounter.increment();
+            return false;
+        }
+        return true;
+    }
+}
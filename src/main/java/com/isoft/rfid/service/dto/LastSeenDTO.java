@@ -0,0 +1,79 @@
+package com.isoft.rfid.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.io.Serializable;
+
+/**
+ * Where and when a tag was last seen.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LastSeenDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String epc;
+
+    private final String readerId;
+
+    private final int antenna;
+
+    private final String zone;
+
+    private final long timestamp;
+
+    private final double rssi;
+
+    public LastSeenDTO(String epc, String readerId, int antenna, String zone, long timestamp, double rssi) {
+        this.epc = epc;
+        this.readerId = readerId;
+        this.antenna = antenna;
+        this.zone = zone;
+        this.timestamp = timestamp;
+        this.rssi = rssi;
+    }
+
+    public String getEpc() {
+        return epc;
+    }
+
+    public String getReaderId() {
+        return readerId;
+    }
+
+    public int getAntenna() {
+        return antenna;
+    }
+
+    /**
+     * @return the portal of the antenna, if it belongs to one.
+     */
+    public String getZone() {
+        return zone;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public double getRssi() {
+        return rssi;
+    }
+
+    @Override
+    public String toString() {
+        return (
+            "LastSeenDTO{" +
+            "epc='" +
+            epc +
+            "', readerId='" +
+            readerId +
+            "', antenna=" +
+            antenna +
+            ", zone='" +
+            zone +
+            "', timestamp=" +
+            timestamp +
+            "}"
+        );
+    }
+}
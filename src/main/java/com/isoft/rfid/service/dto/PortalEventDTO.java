@@ -0,0 +1,66 @@
+package com.isoft.rfid.service.dto;
+
+import com.isoft.rfid.domain.enumeration.PortalTransition;
+import java.io.Serializable;
+
+/**
+ * A transition of a tag at a portal, as streamed to live subscribers.
+ */
+public class PortalEventDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String portal;
+
+    private final String readerId;
+
+    private final String epc;
+
+    private final PortalTransition transition;
+
+    private final long timestamp;
+
+    public PortalEventDTO(String portal, String readerId, String epc, PortalTransition transition, long timestamp) {
+        this.portal = portal;
+        this.readerId = readerId;
+        this.epc = epc;
+        this.transition = transition;
+        this.timestamp = timestamp;
+    }
+
+    public String getPortal() {
+        return portal;
+    }
+
+    public String getReaderId() {
+        return readerId;
+    }
+
+    public String getEpc() {
+        return epc;
+    }
+
+    public PortalTransition getTransition() {
+        return transition;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return (
+            "PortalEventDTO{" +
+            "portal='" +
+            portal +
+            "', epc='" +
+            epc +
+            "', transition=" +
+            transition +
+            ", timestamp=" +
+            timestamp +
+            "}"
+        );
+    }
+}
@@ -0,0 +1,51 @@
+package com.isoft.rfid.service.dto;
+
+import com.isoft.rfid.repository.search.ReadCountBucket;
+import java.io.Serializable;
+
+/**
+ * The reads of an interval of a dashboard histogram, counted.
+ */
+public class ReadCountDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long timestamp;
+
+    private final long reads;
+
+    private final long tags;
+
+    public ReadCountDTO(long timestamp, long reads, long tags) {
+        this.timestamp = timestamp;
+        this.reads = reads;
+        this.tags = tags;
+    }
+
+    public static ReadCountDTO of(ReadCountBucket bucket) {
+        return new ReadCountDTO(bucket.getStart(), bucket.getReads(), bucket.getTags());
+    }
+
+    /**
+     * @return the start of the interval, in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getReads() {
+        return reads;
+    }
+
+    /**
+     * @return the approximate number of distinct EPCs read.
+     */
+    public long getTags() {
+        return tags;
+    }
+
+    @Override
+    public String toString() {
+        return "ReadCountDTO{timestamp=" + timestamp + ", reads=" + reads + ", tags=" + tags + "}";
+    }
+}
@@ -0,0 +1,90 @@
+package com.isoft.rfid.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.isoft.rfid.domain.Gs1Identity;
+import com.isoft.rfid.domain.TagRead;
+import java.io.Serializable;
+
+/**
+ * A tag read, as returned by the read history.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TagReadDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String epc;
+
+    private final String readerId;
+
+    private final int antenna;
+
+    private final double rssi;
+
+    private final long timestamp;
+
+    private final String epcUri;
+
+    public TagReadDTO(String epc, String readerId, int antenna, double rssi, long timestamp, String epcUri) {
+        this.epc = epc;
+        this.readerId = readerId;
+        this.antenna = antenna;
+        this.rssi = rssi;
+        this.timestamp = timestamp;
+        this.epcUri = epcUri;
+    }
+
+    public static TagReadDTO of(TagRead read) {
+        Gs1Identity identity = read.getIdentity();
+        return new TagReadDTO(
+            read.getEpc().toString(),
+            read.getReaderId(),
+            read.getAntenna(),
+            read.getRssi(),
+            read.getTimestamp(),
+            identity == null ? null : identity.toUri()
+        );
+    }
+
+    public String getEpc() {
+        return epc;
+    }
+
+    public String getReaderId() {
+        return readerId;
+    }
+
+    public int getAntenna() {
+        return antenna;
+    }
+
+    public double getRssi() {
+        return rssi;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getEpcUri() {
+        return epcUri;
+    }
+
+    @Override
+    public String toString() {
+        return (
+            "TagReadDTO{" +
+            "epc='" +
+            epc +
+            "', readerId='" +
+            readerId +
+            "', antenna=" +
+            antenna +
+            ", rssi=" +
+            rssi +
+            ", timestamp=" +
+            timestamp +
+            "}"
+        );
+    }
+}
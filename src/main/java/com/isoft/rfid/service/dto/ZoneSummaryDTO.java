@@ -0,0 +1,69 @@
+package com.isoft.rfid.service.dto;
+
+import java.io.Serializable;
+
+/**
+ * The reads of a zone folded together, sent to live subscribers that could not keep up with the individual reads.
+ */
+public class ZoneSummaryDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String zone;
+
+    private long count;
+
+    private long firstTimestamp = Long.MAX_VALUE;
+
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    private String lastEpc;
+
+    private double maxRssi = Double.NEGATIVE_INFINITY;
+
+    public ZoneSummaryDTO(String zone) {
+        this.zone = zone;
+    }
+
+    /**
+     * Fold a read into the summary.
+     */
+    public void add(LiveReadDTO read) {
+        count++;
+        firstTimestamp = Math.min(firstTimestamp, read.getTimestamp());
+        if (read.getTimestamp() >= lastTimestamp) {
+            lastTimestamp = read.getTimestamp();
+            lastEpc = read.getEpc();
+        }
+        maxRssi = Math.max(maxRssi, read.getRssi());
+    }
+
+    public String getZone() {
+        return zone;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public String getLastEpc() {
+        return lastEpc;
+    }
+
+    public double getMaxRssi() {
+        return maxRssi;
+    }
+
+    @Override
+    public String toString() {
+        return "ZoneSummaryDTO{zone='" + zone + "', count=" + count + ", lastEpc='" + lastEpc + "'}";
+    }
+}
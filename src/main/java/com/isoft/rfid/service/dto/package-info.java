@@ -0,0 +1,4 @@
+/**
+ * Data transfer objects.
+ */
+package com.isoft.rfid.service.dto;
@@ -0,0 +1,43 @@
+package com.isoft.rfid.service.llrp;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Receive buffers shared by the connections of an event loop.
+ * <p>
+ * A connection only holds a buffer while it has bytes of an incomplete message, so that idle readers cost no memory.
+ * This class is not thread-safe: each event loop owns its pool.
+ */
+final class LlrpBufferPool {
+
+    private final int bufferSize;
+
+    private final int maxPooled;
+
+    private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+
+    LlrpBufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    ByteBuffer acquire() {
+        ByteBuffer buffer = free.pollFirst();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Give a buffer back; buffers that were not acquired from the pool are left to the garbage collector.
+     */
+    void release(ByteBuffer buffer) {
+        if (buffer.isDirect() && buffer.capacity() == bufferSize && free.size() < maxPooled) {
+            buffer.clear();
+            free.addFirst(buffer);
+        }
+    }
+
+    int getBufferSize() {
+        return bufferSize;
+    }
+}
@@ -0,0 +1,137 @@
+package com.isoft.rfid.service.llrp;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.domain.TagRead;
+import com.isoft.rfid.service.IngestStatus;
+import com.isoft.rfid.service.TagReadIngestService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+/**
+ * Keeps LLRP connections to the configured readers, and feeds the tags they report to the {@link TagReadIngestService}.
+ * <p>
+ * The readers are spread over a few {@link LlrpEventLoop} threads, each multiplexing its connections on a selector, so
+ * hundreds of readers only cost a handful of threads. The readers are expected to have been provisioned with the
+ * ROSpecs that produce their reports; this client does not configure them.
+ */
+@Service
+public class LlrpClientService implements SmartLifecycle {
+
+    public static final String CONNECTIONS_METER_NAME = "rfid.llrp.connections";
+
+    public static final String CONNECTION_FAILURES_METER_NAME = "rfid.llrp.connection.failures";
+
+    private final Logger log = LoggerFactory.getLogger(LlrpClientService.class);
+
+    private final ApplicationProperties.Llrp properties;
+
+    private final TagReadIngestService tagReadIngestService;
+
+    private final Counter connectionFailures;
+
+    private final List<LlrpEventLoop> loops = new ArrayList<>();
+
+    private volatile boolean running;
+
+    public LlrpClientService(
+        ApplicationProperties applicationProperties,
+        TagReadIngestService tagReadIngestService,
+        MeterRegistry registry
+    ) {
+        this.properties = applicationProperties.getLlrp();
+        this.tagReadIngestService = tagReadIngestService;
+        Set<String> readerIds = new HashSet<>();
+        for (ApplicationProperties.Llrp.Reader reader : properties.getReaders()) {
+            if (!StringUtils.hasText(reader.getId()) || !StringUtils.hasText(reader.getHost())) {
+                throw new IllegalArgumentException("application.llrp.readers entries need an id and a host");
+            }
+            if (!readerIds.add(reader.getId())) {
+                throw new IllegalArgumentException("Duplicate LLRP reader id " + reader.getId());
+            }
+        }
+        this.connectionFailures = Counter.builder(CONNECTION_FAILURES_METER_NAME).register(registry);
+        Gauge.builder(CONNECTIONS_METER_NAME, this, LlrpClientService::getConnectedCount).register(registry);
+    }
+
+    /**
+     * Hand a read over to ingestion from an event loop, which must not block.
+     *
+     * @return {@code false} if ingestion is overloaded, so that the loop stops reading from the reader.
+     */
+    private boolean submit(TagRead read) {
+        return tagReadIngestService.trySubmit(read) != IngestStatus.OVERLOADED;
+    }
+
+    /**
+     * @return the number of readers currently connected.
+     */
+    public int getConnectedCount() {
+        int count = 0;
+        for (LlrpEventLoop loop : loops) {
+            count += loop.getConnectedCount();
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized void start() {
+        List<ApplicationProperties.Llrp.Reader> readers = properties.getReaders();
+        if (running || readers.isEmpty()) {
+            return;
+        }
+        int threads = Math.max(1, Math.min(properties.getIoThreads(), readers.size()));
+        try {
+            for (int i = 0; i < threads; i++) {
+                loops.add(new LlrpEventLoop("rfid-llrp-" + i, properties, this::submit, connectionFailures));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open a selector", e);
+        }
+        for (int i = 0; i < readers.size(); i++) {
+            loops.get(i % threads).add(readers.get(i));
+        }
+        for (LlrpEventLoop loop : loops) {
+            loop.start();
+        }
+        running = true;
+        log.info("Started LLRP client for {} readers on {} threads", readers.size(), threads);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        for (LlrpEventLoop loop : loops) {
+            loop.stop();
+        }
+        loops.clear();
+        log.debug("Stopped LLRP client");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Start after, and stop before, the ingestion pipeline the reads are published to.
+     */
+    @Override
+    public int getPhase() {
+        return 1;
+    }
+}
@@ -0,0 +1,71 @@
+package com.isoft.rfid.service.llrp;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * State of the connection to one reader, owned by the thread of its {@link LlrpEventLoop}.
+ */
+final class LlrpConnection {
+
+    enum State {
+        DISCONNECTED,
+        CONNECTING,
+        CONNECTED,
+    }
+
+    static final long NO_DEADLINE = Long.MIN_VALUE;
+
+    private static final int OUTBOUND_CAPACITY = 1024;
+
+    final ApplicationProperties.Llrp.Reader reader;
+
+    final ByteBuffer outbound = ByteBuffer.allocate(OUTBOUND_CAPACITY);
+
+    State state = State.DISCONNECTED;
+
+    SocketChannel channel;
+
+    SelectionKey key;
+
+    /**
+     * Holds the bytes of an incomplete message, in write mode, or {@code null} if there are none.
+     */
+    ByteBuffer inbound;
+
+    /**
+     * When to attempt the next connection, give up connecting, or consider the connection dead, in
+     * {@link System#nanoTime()} time; {@link #NO_DEADLINE} if there is nothing to wait for.
+     */
+    long deadline;
+
+    /**
+     * Whether reading from the reader is suspended, while ingestion is overloaded.
+     */
+    boolean paused;
+
+    /**
+     * Where to resume decoding the report at the head of {@link #inbound}, from the start of its body; {@code 0} if
+     * no report was interrupted.
+     */
+    int reportResumeOffset;
+
+    /**
+     * When the report being decoded was received, in milliseconds since the epoch.
+     */
+    long reportReceivedAt;
+
+    int failures;
+
+    int nextMessageId = 1;
+
+    LlrpConnection(ApplicationProperties.Llrp.Reader reader) {
+        this.reader = reader;
+    }
+
+    String getReaderId() {
+        return reader.getId();
+    }
+}
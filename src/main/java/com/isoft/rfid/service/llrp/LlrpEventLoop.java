@@ -0,0 +1,443 @@
+package com.isoft.rfid.service.llrp;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.domain.TagRead;
+import io.micrometer.core.instrument.Counter;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A thread multiplexing the connections to a share of the readers on a single selector.
+ * <p>
+ * The loop connects to the readers, answers their keepalives, and decodes the reports it receives directly from the
+ * pooled receive buffers into the ingestion sink. Failed or silent connections are closed and reestablished after an
+ * exponential, jittered backoff, so that restarting a site full of readers does not make them all reconnect at once.
+ * <p>
+ * The loop never waits for ingestion: when the sink refuses a read, the decoding of the report stops at its tag and the
+ * loop stops reading from that reader, so that TCP flow control holds the reader back, then resumes the report a moment
+ * later.
+ */
+final class LlrpEventLoop implements Runnable {
+
+    private static final long MAX_SELECT_MILLIS = 1000;
+
+    private static final long PAUSE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final Logger log = LoggerFactory.getLogger(LlrpEventLoop.class);
+
+    private final String name;
+
+    private final List<LlrpConnection> connections = new ArrayList<>();
+
+    private final Predicate<TagRead> sink;
+
+    private final Counter connectionFailures;
+
+    private final LlrpBufferPool bufferPool;
+
+    private final TagRead read = new TagRead();
+
+    private final int maxMessageLength;
+
+    private final long connectTimeoutNanos;
+
+    private final long idleTimeoutNanos;
+
+    private final long reconnectMinDelayNanos;
+
+    private final long reconnectMaxDelayNanos;
+
+    private final Selector selector;
+
+    private Thread thread;
+
+    private long nextTimerCheck;
+
+    private volatile boolean running;
+
+    private volatile int connectedCount;
+
+    /**
+     * @param sink takes the reads, and returns {@code false} while ingestion is overloaded; it must not block.
+     */
+    LlrpEventLoop(String name, ApplicationProperties.Llrp properties, Predicate<TagRead> sink, Counter connectionFailures)
+        throws IOException {
+        this.name = name;
+        this.sink = sink;
+        this.connectionFailures = connectionFailures;
+        this.bufferPool = new LlrpBufferPool(properties.getBufferSize(), properties.getMaxPooledBuffers());
+        this.maxMessageLength = properties.getMaxMessageLength();
+        this.connectTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(properties.getConnectTimeoutMillis());
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(properties.getIdleTimeoutMillis());
+        this.reconnectMinDelayNanos = TimeUnit.MILLISECONDS.toNanos(properties.getReconnectMinDelayMillis());
+        this.reconnectMaxDelayNanos = TimeUnit.MILLISECONDS.toNanos(properties.getReconnectMaxDelayMillis());
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Add a reader; only called before {@link #start()}.
+     */
+    void add(ApplicationProperties.Llrp.Reader reader) {
+        connections.add(new LlrpConnection(reader));
+    }
+
+    void start() {
+        running = true;
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Close every connection and wait for the thread to exit.
+     */
+    void stop() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    int getConnectedCount() {
+        return connectedCount;
+    }
+
+    @Override
+    public void run() {
+        long now = System.nanoTime();
+        for (LlrpConnection connection : connections) {
+            connection.deadline = now;
+        }
+        nextTimerCheck = now;
+        try {
+            while (running) {
+                now = System.nanoTime();
+                if (now - nextTimerCheck >= 0) {
+                    checkTimers(now);
+                }
+                long timeoutMillis = TimeUnit.NANOSECONDS.toMillis(nextTimerCheck - System.nanoTime());
+                selector.select(Math.max(1, Math.min(timeoutMillis, MAX_SELECT_MILLIS)));
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+            }
+        } catch (IOException e) {
+            log.error("LLRP event loop {} failed", name, e);
+        } finally {
+            for (LlrpConnection connection : connections) {
+                close(connection);
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                log.debug("Could not close the selector of {}", name, e);
+            }
+        }
+    }
+
+    /**
+     * Act on the connections whose deadline has passed, and compute when to check again.
+     */
+    private void checkTimers(long now) {
+        nextTimerCheck = now + TimeUnit.MILLISECONDS.toNanos(MAX_SELECT_MILLIS);
+        for (LlrpConnection connection : connections) {
+            if (connection.deadline != LlrpConnection.NO_DEADLINE && now - connection.deadline >= 0) {
+                switch (connection.state) {
+                    case DISCONNECTED:
+                        connect(connection, now);
+                        break;
+                    case CONNECTING:
+                        fail(connection, "connection timed out");
+                        break;
+                    default:
+                        if (connection.paused) {
+                            resume(connection, now);
+                            break;
+                        }
+                        fail(connection, "no message received for " + TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos) + " ms");
+                }
+            }
+            schedule(connection.deadline);
+        }
+    }
+
+    private void schedule(long deadline) {
+        if (deadline != LlrpConnection.NO_DEADLINE && deadline - nextTimerCheck < 0) {
+            nextTimerCheck = deadline;
+        }
+    }
+
+    private void connect(LlrpConnection connection, long now) {
+        ApplicationProperties.Llrp.Reader reader = connection.reader;
+        try {
+            SocketChannel channel = SocketChannel.open();
+            connection.channel = channel;
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+            connection.key = channel.register(selector, 0, connection);
+            connection.state = LlrpConnection.State.CONNECTING;
+            if (channel.connect(new InetSocketAddress(reader.getHost(), reader.getPort()))) {
+                connected(connection, now);
+            } else {
+                connection.key.interestOps(SelectionKey.OP_CONNECT);
+                connection.deadline = now + connectTimeoutNanos;
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(connection, e.toString());
+        }
+    }
+
+    private void connected(LlrpConnection connection, long now) throws IOException {
+        connection.state = LlrpConnection.State.CONNECTED;
+        connection.key.interestOps(SelectionKey.OP_READ);
+        connection.deadline = idleTimeoutNanos > 0 ? now + idleTimeoutNanos : LlrpConnection.NO_DEADLINE;
+        connectedCount++;
+        ApplicationProperties.Llrp.Reader reader = connection.reader;
+        log.info("Connected to LLRP reader {} at {}:{}", reader.getId(), reader.getHost(), reader.getPort());
+        // Readers configured to hold events until a client reconnects only start reporting once asked to
+        send(connection, LlrpMessage.ENABLE_EVENTS_AND_REPORTS, connection.nextMessageId++);
+    }
+
+    private void handle(SelectionKey key) {
+        LlrpConnection connection = (LlrpConnection) key.attachment();
+        try {
+            if (!key.isValid()) {
+                return;
+            }
+            if (key.isConnectable()) {
+                connection.channel.finishConnect();
+                connected(connection, System.nanoTime());
+                return;
+            }
+            if (key.isWritable()) {
+                flush(connection);
+            }
+            if (key.isValid() && key.isReadable()) {
+                receive(connection);
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(connection, e.toString());
+        }
+    }
+
+    private void receive(LlrpConnection connection) throws IOException {
+        if (connection.inbound == null) {
+            connection.inbound = bufferPool.acquire();
+        }
+        int count = connection.channel.read(connection.inbound);
+        if (count < 0) {
+            fail(connection, "connection closed by the reader");
+            return;
+        }
+        if (count > 0) {
+            if (idleTimeoutNanos > 0) {
+                connection.deadline = System.nanoTime() + idleTimeoutNanos;
+            }
+            decodeMessages(connection);
+        }
+        if (connection.inbound != null && connection.inbound.position() == 0) {
+            bufferPool.release(connection.inbound);
+            connection.inbound = null;
+        }
+    }
+
+    /**
+     * Handle every complete message of the receive buffer, and keep the bytes of the last one if it is incomplete.
+     */
+    private void decodeMessages(LlrpConnection connection) throws IOException {
+        ByteBuffer inbound = connection.inbound;
+        inbound.flip();
+        while (inbound.remaining() >= LlrpMessage.HEADER_LENGTH) {
+            int start = inbound.position();
+            int length = LlrpMessage.length(inbound, start);
+            if (length < LlrpMessage.HEADER_LENGTH || length > maxMessageLength) {
+                throw new IOException("Invalid LLRP message length " + length);
+            }
+            if (inbound.remaining() < length) {
+                if (length > inbound.capacity()) {
+                    // Too large for a pooled buffer: give this message a buffer of its own
+                    ByteBuffer larger = ByteBuffer.allocate(length);
+                    larger.put(inbound);
+                    bufferPool.release(inbound);
+                    connection.inbound = larger;
+                    return;
+                }
+                break;
+            }
+            int end = start + length;
+            int limit = inbound.limit();
+            int bodyStart = start + LlrpMessage.HEADER_LENGTH;
+            inbound.limit(end).position(bodyStart + connection.reportResumeOffset);
+            if (!handleMessage(connection, LlrpMessage.type(inbound, start), LlrpMessage.id(inbound, start), inbound)) {
+                // Kept at the head of the buffer, with the messages after it, until ingestion catches up
+                connection.reportResumeOffset = inbound.position() - bodyStart;
+                inbound.limit(limit).position(start);
+                pause(connection);
+                break;
+            }
+            connection.reportResumeOffset = 0;
+            inbound.limit(limit).position(end);
+        }
+        inbound.compact();
+    }
+
+    /**
+     * @return {@code false} if ingestion refused a read of the report, whose decoding is to be resumed.
+     */
+    private boolean handleMessage(LlrpConnection connection, int type, int id, ByteBuffer body) throws IOException {
+        connection.failures = 0;
+        switch (type) {
+            case LlrpMessage.RO_ACCESS_REPORT:
+                if (connection.reportResumeOffset == 0) {
+                    connection.reportReceivedAt = System.currentTimeMillis();
+                }
+                RoAccessReportDecoder.decode(body, connection.getReaderId(), connection.reportReceivedAt, read, sink);
+                return !body.hasRemaining();
+            case LlrpMessage.KEEPALIVE:
+                send(connection, LlrpMessage.KEEPALIVE_ACK, id);
+                break;
+            case LlrpMessage.READER_EVENT_NOTIFICATION:
+                int status = LlrpMessage.connectionAttemptStatus(body);
+                if (status > LlrpMessage.CONNECTION_ATTEMPT_SUCCESS) {
+                    throw new IOException("Reader refused the connection with status " + status);
+                }
+                break;
+            case LlrpMessage.ERROR_MESSAGE:
+                log.warn("LLRP reader {} reported an error for message {}", connection.getReaderId(), id);
+                break;
+            default:
+                log.trace("Ignoring LLRP message of type {} from {}", type, connection.getReaderId());
+        }
+        return true;
+    }
+
+    /**
+     * Stop reading from a reader while ingestion is overloaded; its idle timeout does not run meanwhile.
+     */
+    private void pause(LlrpConnection connection) {
+        if (!connection.paused) {
+            log.debug("Ingestion is overloaded, pausing LLRP reader {}", connection.getReaderId());
+            connection.paused = true;
+            connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_READ);
+        }
+        connection.deadline = System.nanoTime() + PAUSE_NANOS;
+        schedule(connection.deadline);
+    }
+
+    /**
+     * Decode what was left of the buffered messages, and read from the reader again if ingestion took it all.
+     */
+    private void resume(LlrpConnection connection, long now) {
+        connection.paused = false;
+        try {
+            decodeMessages(connection);
+        } catch (IOException | RuntimeException e) {
+            fail(connection, e.toString());
+            return;
+        }
+        if (connection.paused) {
+            return;
+        }
+        log.debug("Resuming LLRP reader {}", connection.getReaderId());
+        connection.key.interestOps(connection.key.interestOps() | SelectionKey.OP_READ);
+        connection.deadline = idleTimeoutNanos > 0 ? now + idleTimeoutNanos : LlrpConnection.NO_DEADLINE;
+        if (connection.inbound.position() == 0) {
+            bufferPool.release(connection.inbound);
+            connection.inbound = null;
+        }
+    }
+
+    private void send(LlrpConnection connection, int type, int id) throws IOException {
+        if (connection.outbound.remaining() < LlrpMessage.HEADER_LENGTH) {
+            throw new IOException("Reader is not reading its messages");
+        }
+        LlrpMessage.putEmpty(connection.outbound, type, id);
+        flush(connection);
+    }
+
+    private void flush(LlrpConnection connection) throws IOException {
+        ByteBuffer outbound = connection.outbound;
+        outbound.flip();
+        connection.channel.write(outbound);
+        outbound.compact();
+        int ops = connection.key.interestOps();
+        connection.key.interestOps(outbound.position() > 0 ? ops | SelectionKey.OP_WRITE : ops & ~SelectionKey.OP_WRITE);
+    }
+
+    /**
+     * Close a connection after an error, and schedule the next attempt.
+     */
+    private void fail(LlrpConnection connection, String reason) {
+        connection.failures++;
+        connectionFailures.increment();
+        if (connection.failures == 1) {
+            log.warn("Lost LLRP reader {}: {}", connection.getReaderId(), reason);
+        } else {
+            log.debug("Could not reconnect to LLRP reader {} (attempt {}): {}", connection.getReaderId(), connection.failures, reason);
+        }
+        close(connection);
+        connection.deadline = System.nanoTime() + backoff(connection.failures);
+        schedule(connection.deadline);
+    }
+
+    /**
+     * @return the delay before the next attempt: doubled on each failure, capped, then randomized by up to 25% either way.
+     */
+    private long backoff(int failures) {
+        long delay = reconnectMinDelayNanos << Math.min(failures - 1, 30);
+        if (delay <= 0 || delay > reconnectMaxDelayNanos) {
+            delay = reconnectMaxDelayNanos;
+        }
+        return delay - delay / 4 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private void close(LlrpConnection connection) {
+        if (connection.state == LlrpConnection.State.CONNECTED) {
+            connectedCount--;
+            if (!running) {
+                try {
+                    send(connection, LlrpMessage.CLOSE_CONNECTION, connection.nextMessageId++);
+                } catch (IOException e) {
+                    log.debug("Could not say goodbye to LLRP reader {}", connection.getReaderId(), e);
+                }
+            }
+        }
+        connection.state = LlrpConnection.State.DISCONNECTED;
+        connection.paused = false;
+        connection.reportResumeOffset = 0;
+        if (connection.channel != null) {
+            try {
+                connection.channel.close();
+            } catch (IOException e) {
+                log.debug("Could not close the connection to LLRP reader {}", connection.getReaderId(), e);
+            }
+            connection.channel = null;
+            connection.key = null;
+        }
+        if (connection.inbound != null) {
+            bufferPool.release(connection.inbound);
+            connection.inbound = null;
+        }
+        connection.outbound.clear();
+    }
+}
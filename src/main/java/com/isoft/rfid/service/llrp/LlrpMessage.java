@@ -0,0 +1,100 @@
+package com.isoft.rfid.service.llrp;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Constants and helpers for the framing of LLRP 1.x messages.
+ * <p>
+ * Every message starts with a 10-byte header: 3 reserved bits, a 3-bit version and a 10-bit message type, then the
+ * length of the whole message and its identifier as 32-bit integers. Parameters are either TLV (a 10-bit type and a
+ * 16-bit length) or, when the first bit is set, TV (a 7-bit type whose value has a length implied by the type).
+ */
+final class LlrpMessage {
+
+    static final int HEADER_LENGTH = 10;
+
+    static final int VERSION = 1;
+
+    static final int CLOSE_CONNECTION = 14;
+
+    static final int RO_ACCESS_REPORT = 61;
+
+    static final int KEEPALIVE = 62;
+
+    static final int READER_EVENT_NOTIFICATION = 63;
+
+    static final int ENABLE_EVENTS_AND_REPORTS = 64;
+
+    static final int KEEPALIVE_ACK = 72;
+
+    static final int ERROR_MESSAGE = 100;
+
+    static final int TLV_HEADER_LENGTH = 4;
+
+    static final int READER_EVENT_NOTIFICATION_DATA = 246;
+
+    static final int CONNECTION_ATTEMPT_EVENT = 256;
+
+    static final int CONNECTION_ATTEMPT_SUCCESS = 0;
+
+    private LlrpMessage() {}
+
+    static int type(ByteBuffer buffer, int offset) {
+        return buffer.getShort(offset) & 0x3FF;
+    }
+
+    static int length(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset + 2);
+    }
+
+    static int id(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset + 6);
+    }
+
+    /**
+     * Write a message without parameters.
+     */
+    static void putEmpty(ByteBuffer buffer, int type, int id) {
+        buffer.putShort((short) ((VERSION << 10) | type)).putInt(HEADER_LENGTH).putInt(id);
+    }
+
+    static int parameterType(ByteBuffer buffer, int offset) {
+        return buffer.getShort(offset) & 0x3FF;
+    }
+
+    static int parameterLength(ByteBuffer buffer, int offset) {
+        return buffer.getShort(offset + 2) & 0xFFFF;
+    }
+
+    /**
+     * Find the status of the connection attempt event in the body of a {@code READER_EVENT_NOTIFICATION}.
+     *
+     * @param body the body of the message, between its position and its limit; the position is left unchanged.
+     * @return the status, or {@code -1} if the notification is about another event.
+     */
+    static int connectionAttemptStatus(ByteBuffer body) {
+        int offset = body.position();
+        while (offset + TLV_HEADER_LENGTH <= body.limit()) {
+            int length = parameterLength(body, offset);
+            if (length < TLV_HEADER_LENGTH || offset + length > body.limit()) {
+                return -1;
+            }
+            if (parameterType(body, offset) == READER_EVENT_NOTIFICATION_DATA) {
+                int end = offset + length;
+                int child = offset + TLV_HEADER_LENGTH;
+                while (child + TLV_HEADER_LENGTH <= end) {
+                    int childLength = parameterLength(body, child);
+                    if (childLength < TLV_HEADER_LENGTH || child + childLength > end) {
+                        return -1;
+                    }
+                    if (parameterType(body, child) == CONNECTION_ATTEMPT_EVENT && childLength >= TLV_HEADER_LENGTH + 2) {
+                        return body.getShort(child + TLV_HEADER_LENGTH) & 0xFFFF;
+                    }
+                    child += childLength;
+                }
+            }
+            offset += length;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,171 @@
+package com.isoft.rfid.service.llrp;
+
+import com.isoft.rfid.domain.Epc;
+import com.isoft.rfid.domain.TagRead;
+import java.nio.ByteBuffer;
+import java.util.function.Predicate;
+
+/**
+ * Decodes the {@code TagReportData} parameters of an {@code RO_ACCESS_REPORT} straight from the receive buffer.
+ * <p>
+ * The same {@link TagRead} is filled for every tag of the report and handed to the sink, so decoding a report only
+ * allocates the {@link Epc}s. Parameters that are not needed are skipped using their length; an unknown TV parameter,
+ * whose length cannot be known, ends the decoding of its {@code TagReportData}. The sink can refuse a read when
+ * ingestion is overloaded, which stops the decoding at its tag so that it can be resumed later.
+ */
+final class RoAccessReportDecoder {
+
+    static final int TAG_REPORT_DATA = 240;
+
+    static final int EPC_DATA = 241;
+
+    static final int TV_ANTENNA_ID = 1;
+
+    static final int TV_FIRST_SEEN_TIMESTAMP_UTC = 2;
+
+    static final int TV_LAST_SEEN_TIMESTAMP_UTC = 4;
+
+    static final int TV_PEAK_RSSI = 6;
+
+    static final int TV_EPC_96 = 13;
+
+    /**
+     * Length of each TV parameter, type byte included, or 0 for unknown types.
+     */
+    private static final byte[] TV_LENGTHS = new byte[128];
+
+    static {
+        TV_LENGTHS[TV_ANTENNA_ID] = 3;
+        TV_LENGTHS[TV_FIRST_SEEN_TIMESTAMP_UTC] = 9;
+        TV_LENGTHS[3] = 9; // FirstSeenTimestampUptime
+        TV_LENGTHS[TV_LAST_SEEN_TIMESTAMP_UTC] = 9;
+        TV_LENGTHS[5] = 9; // LastSeenTimestampUptime
+        TV_LENGTHS[TV_PEAK_RSSI] = 2;
+        TV_LENGTHS[7] = 3; // ChannelIndex
+        TV_LENGTHS[8] = 3; // TagSeenCount
+        TV_LENGTHS[9] = 5; // ROSpecID
+        TV_LENGTHS[10] = 3; // InventoryParameterSpecID
+        TV_LENGTHS[11] = 3; // C1G2-CRC
+        TV_LENGTHS[12] = 3; // C1G2-PC
+        TV_LENGTHS[TV_EPC_96] = 13;
+        TV_LENGTHS[14] = 3; // SpecIndex
+        TV_LENGTHS[15] = 3; // ClientRequestOpSpecResult
+        TV_LENGTHS[16] = 5; // AccessSpecID
+        TV_LENGTHS[17] = 3; // OpSpecID
+        TV_LENGTHS[18] = 5; // C1G2SingulationDetails
+        TV_LENGTHS[19] = 3; // C1G2-XPCW1
+        TV_LENGTHS[20] = 3; // C1G2-XPCW2
+    }
+
+    private RoAccessReportDecoder() {}
+
+    /**
+     * Decode every tag of a report.
+     *
+     * @param report the body of the message, between its position and its limit; the position is moved to the limit,
+     *     or to the {@code TagReportData} of the read the sink refused.
+     * @param readerId the identifier to give to the reads.
+     * @param receivedAt the timestamp to give to reads that do not carry one, in milliseconds since the epoch.
+     * @param read the instance to fill for each tag.
+     * @param sink receives the read of each tag, and returns {@code false} to stop the decoding before it; it must copy
+     *     what it keeps.
+     * @return the number of reads the sink took.
+     */
+    static int decode(ByteBuffer report, String readerId, long receivedAt, TagRead read, Predicate<TagRead> sink) {
+        int count = 0;
+        int end = report.limit();
+        int offset = report.position();
+        while (offset + LlrpMessage.TLV_HEADER_LENGTH <= end && (report.get(offset) & 0x80) == 0) {
+            int length = LlrpMessage.parameterLength(report, offset);
+            if (length < LlrpMessage.TLV_HEADER_LENGTH || offset + length > end) {
+                break;
+            }
+            if (LlrpMessage.parameterType(report, offset) == TAG_REPORT_DATA) {
+                report.limit(offset + length).position(offset + LlrpMessage.TLV_HEADER_LENGTH);
+                boolean decoded = decodeTag(report, readerId, receivedAt, read);
+                report.limit(end);
+                if (decoded) {
+                    if (!sink.test(read)) {
+                        report.position(offset);
+                        return count;
+                    }
+                    count++;
+                }
+            }
+            offset += length;
+        }
+        report.position(end);
+        return count;
+    }
+
+    private static boolean decodeTag(ByteBuffer parameters, String readerId, long receivedAt, TagRead read) {
+        read.clear();
+        read.setReaderId(readerId);
+        long firstSeenMicros = 0;
+        long lastSeenMicros = 0;
+        int end = parameters.limit();
+        int offset = parameters.position();
+        while (offset < end) {
+            int first = parameters.get(offset) & 0xFF;
+            int length;
+            if ((first & 0x80) != 0) {
+                int type = first & 0x7F;
+                length = TV_LENGTHS[type];
+                if (length == 0 || offset + length > end) {
+                    break;
+                }
+                switch (type) {
+                    case TV_ANTENNA_ID:
+                        read.setAntenna(parameters.getShort(offset + 1) & 0xFFFF);
+                        break;
+                    case TV_PEAK_RSSI:
+                        read.setRssi(parameters.get(offset + 1));
+                        break;
+                    case TV_FIRST_SEEN_TIMESTAMP_UTC:
+                        firstSeenMicros = parameters.getLong(offset + 1);
+                        break;
+                    case TV_LAST_SEEN_TIMESTAMP_UTC:
+                        lastSeenMicros = parameters.getLong(offset + 1);
+                        break;
+                    case TV_EPC_96:
+                        parameters.position(offset + 1);
+                        read.setEpc(Epc.read(parameters, 96));
+                        break;
+                    default:
+                }
+            } else {
+                if (offset + LlrpMessage.TLV_HEADER_LENGTH > end) {
+                    break;
+                }
+                length = LlrpMessage.parameterLength(parameters, offset);
+                if (length < LlrpMessage.TLV_HEADER_LENGTH || offset + length > end) {
+                    break;
+                }
+                if (LlrpMessage.parameterType(parameters, offset) == EPC_DATA) {
+                    readEpcData(parameters, offset, length, read);
+                }
+            }
+            offset += length;
+        }
+        long seenMicros = firstSeenMicros != 0 ? firstSeenMicros : lastSeenMicros;
+        read.setTimestamp(seenMicros != 0 ? seenMicros / 1000 : receivedAt);
+        return read.getEpc() != null;
+    }
+
+    /**
+     * Read an {@code EPCData} parameter: a 16-bit length in bits, followed by the bits padded to a whole byte.
+     */
+    private static void readEpcData(ByteBuffer parameters, int offset, int length, TagRead read) {
+        int header = LlrpMessage.TLV_HEADER_LENGTH + 2;
+        if (length < header) {
+            return;
+        }
+        int bits = parameters.getShort(offset + LlrpMessage.TLV_HEADER_LENGTH) & 0xFFFF;
+        // Epc.read consumes whole 16-bit words
+        int bytes = (bits + 15) / 16 * 2;
+        if (bits > 0 && bits <= Epc.MAX_BITS && header + bytes <= length) {
+            parameters.position(offset + header);
+            read.setEpc(Epc.read(parameters, bits));
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package com.isoft.rfid.service.spool;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.repository.search.BulkIndexFailureHandler;
+import com.isoft.rfid.repository.search.TagReadBulkIndexer;
+import com.isoft.rfid.service.IngestWatermark;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+/**
+ * Disk spool for the reads that Elasticsearch could not take, while it restarts or rejects bulk requests.
+ * <p>
+ * The {@link TagReadBulkIndexer} hands the documents it gives up on to this spool, which appends them to memory-mapped
+ * {@link SpoolSegment} files rather than keeping them on the heap. A background thread replays them, oldest first and at
+ * a bounded rate, as soon as Elasticsearch accepts them again; a record is only acknowledged once its documents are
+ * indexed, or the ones left are spooled again as a record of their own, and a segment deleted once all its records are.
+ * Segments are recovered when the application starts, so reads spooled before a crash or a restart are delivered at
+ * least once; as documents are indexed under an id derived from their read, delivering them twice does not duplicate
+ * them.
+ */
+@Service
+public class ReadSpool implements BulkIndexFailureHandler, SmartLifecycle {
+
+    public static final String SPOOL_BYTES_METER_NAME = "rfid.spool.bytes";
+
+    public static final String SPOOL_DOCUMENTS_METER_NAME = "rfid.spool.documents";
+
+    private static final String SEGMENT_SUFFIX = ".spool";
+
+    private final Logger log = LoggerFactory.getLogger(ReadSpool.class);
+
+    private final TagReadBulkIndexer tagReadBulkIndexer;
+
+    private final IngestWatermark ingestWatermark;
+
+    private final Path directory;
+
+    private final int segmentBytes;
+
+    private final long maxBytes;
+
+    private final int replayRate;
+
+    private final long replayIntervalMillis;
+
+    private final long replayMaxBackoffMillis;
+
+    private final long replayTimeoutMillis;
+
+    private final Counter spooledCounter;
+
+    private final Counter replayedCounter;
+
+    private final Counter droppedCounter;
+
+    // Guarded by this
+    private final Deque<SpoolSegment> segments = new ArrayDeque<>();
+
+    private SpoolSegment writeSegment;
+
+    private long nextSequence;
+
+    private volatile long pendingBytes;
+
+    // Only accessed by the replay thread
+    private double replayTokens;
+
+    private long lastRefillAt;
+
+    private long replayBackoffMillis;
+
+    private long nextReplayAt;
+
+    private ScheduledExecutorService replayExecutor;
+
+    private volatile boolean running;
+
+    public ReadSpool(
+        ApplicationProperties applicationProperties,
+        TagReadBulkIndexer tagReadBulkIndexer,
+        IngestWatermark ingestWatermark,
+        MeterRegistry registry
+    ) {
+        ApplicationProperties.Spool properties = applicationProperties.getSpool();
+        this.tagReadBulkIndexer = tagReadBulkIndexer;
+        this.ingestWatermark = ingestWatermark;
+        this.directory = Paths.get(properties.getDirectory());
+        this.segmentBytes = properties.getSegmentBytes();
+        this.maxBytes = properties.getMaxBytes();
+        this.replayRate = properties.getReplayRate();
+        this.replayIntervalMillis = properties.getReplayIntervalMillis();
+        this.replayMaxBackoffMillis = properties.getReplayMaxBackoffMillis();
+        this.replayTimeoutMillis = properties.getReplayTimeoutMillis();
+        this.replayBackoffMillis = replayIntervalMillis;
+        this.spooledCounter = Counter.builder(SPOOL_DOCUMENTS_METER_NAME).tag("result", "spooled").register(registry);
+        this.replayedCounter = Counter.builder(SPOOL_DOCUMENTS_METER_NAME).tag("result", "replayed").register(registry);
+        this.droppedCounter = Counter.builder(SPOOL_DOCUMENTS_METER_NAME).tag("result", "dropped").register(registry);
+        Gauge.builder(SPOOL_BYTES_METER_NAME, this, ReadSpool::getPendingBytes).baseUnit("bytes").register(registry);
+        tagReadBulkIndexer.setFailureHandler(this);
+    }
+
+    /**
+     * @return the number of spooled bytes not yet replayed.
+     */
+    public long getPendingBytes() {
+        return pendingBytes;
+    }
+
+    @Override
+    public void onFailure(byte[] ndjson, int documentCount, String reason, boolean retryable) {
+        if (!retryable) {
+            droppedCounter.increment(documentCount);
+            log.warn("Dropped {} tag reads refused by Elasticsearch: {}", documentCount, reason);
+            return;
+        }
+        if (append(ndjson)) {
+            spooledCounter.increment(documentCount);
+            log.debug("Spooled {} tag reads: {}", documentCount, reason);
+        } else {
+            droppedCounter.increment(documentCount);
+        }
+    }
+
+    private synchronized boolean append(byte[] ndjson) {
+        if (!running) {
+            log.error("Dropped {} bytes of tag reads: the spool is closed", ndjson.length);
+            return false;
+        }
+        if (pendingBytes + ndjson.length > maxBytes) {
+            log.error("Dropped {} bytes of tag reads: the spool is full", ndjson.length);
+            return false;
+        }
+        try {
+            write(ndjson);
+        } catch (IOException | RuntimeException e) {
+            log.error("Dropped {} bytes of tag reads: could not write to the spool: {}", ndjson.length, e.toString());
+            return false;
+        }
+        return true;
+    }
+
+    private void write(byte[] ndjson) throws IOException {
+        if (writeSegment == null || !writeSegment.append(ndjson, ndjson.length)) {
+            Path path = directory.resolve(String.format("%020d%s", nextSequence, SEGMENT_SUFFIX));
+            writeSegment = SpoolSegment.create(path, nextSequence++, Math.max(segmentBytes, ndjson.length + SpoolSegment.HEADER_BYTES));
+            segments.addLast(writeSegment);
+            writeSegment.append(ndjson, ndjson.length);
+        }
+        pendingBytes += ndjson.length + SpoolSegment.HEADER_BYTES;
+    }
+
+    /**
+     * Replay spooled records while the rate allows it. Runs on the replay thread.
+     */
+    void replay() {
+        long now = System.currentTimeMillis();
+        if (now < nextReplayAt) {
+            return;
+        }
+        replayTokens = Math.min(replayRate, replayTokens + (now - lastRefillAt) * replayRate / 1000.0);
+        lastRefillAt = now;
+        while (replayTokens > 0 && running) {
+            SpoolSegment segment;
+            byte[] payload;
+            synchronized (this) {
+                segment = segments.peekFirst();
+                if (segment == null) {
+                    return;
+                }
+                payload = segment.payload(segment.firstPending());
+            }
+            byte[] remaining = replay(payload);
+            int documentCount = documentCount(payload);
+            int replayedCount = remaining == null ? 0 : documentCount - documentCount(remaining);
+            if (replayedCount == 0 || !acknowledge(segment, payload.length, remaining)) {
+                nextReplayAt = System.currentTimeMillis() + replayBackoffMillis;
+                replayBackoffMillis = Math.min(replayMaxBackoffMillis, replayBackoffMillis * 2);
+                return;
+            }
+            replayBackoffMillis = replayIntervalMillis;
+            // The replayed reads may belong to any window
+            ingestWatermark.advanceAll();
+            replayTokens -= documentCount;
+            replayedCounter.increment(replayedCount);
+        }
+    }
+
+    /**
+     * @return the documents of the payload still to replay, or {@code null} if it is not known which were indexed.
+     */
+    private byte[] replay(byte[] payload) {
+        CompletableFuture<byte[]> replayed;
+        try {
+            replayed = tagReadBulkIndexer.replay(payload, payload.length);
+        } catch (InterruptedException e) {
+            // Stopping while waiting for a request slot: nothing was sent
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        try {
+            return replayed.get(replayTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            log.warn("Stopped before a replay of spooled tag reads completed, they will be replayed again");
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            log.debug("Replay of spooled tag reads failed: {}", e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Acknowledge the first pending record of a segment, spooling the documents of it still to replay as a new record.
+     *
+     * @return {@code false} if the documents left could not be spooled, and the record is kept whole.
+     */
+    private synchronized boolean acknowledge(SpoolSegment segment, int length, byte[] remaining) {
+        // The documents left take the place of the record: they never grow the spool beyond its limit
+        if (remaining.length > 0) {
+            if (!running) {
+                return false;
+            }
+            try {
+                write(remaining);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not spool the {} bytes of tag reads left by a replay: {}", remaining.length, e.toString());
+                return false;
+            }
+        }
+        acknowledge(segment, length);
+        return true;
+    }
+
+    private void acknowledge(SpoolSegment segment, int length) {
+        segment.acknowledgeFirstPending();
+        pendingBytes -= length + SpoolSegment.HEADER_BYTES;
+        if (!segment.hasPending()) {
+            segments.remove(segment);
+            if (segment == writeSegment) {
+                writeSegment = null;
+            }
+            try {
+                segment.delete();
+            } catch (IOException e) {
+                log.warn("Could not delete spool segment {}: {}", segment.path(), e.toString());
+            }
+        }
+    }
+
+    private static int documentCount(byte[] ndjson) {
+        int lines = 0;
+        for (byte b : ndjson) {
+            if (b == '\n') {
+                lines++;
+            }
+        }
+        return lines / 2;
+    }
+
+    /**
+     * Recover the segments left by a previous run.
+     */
+    private synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long sequence;
+            try {
+                sequence = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring unexpected file {} in the spool", file);
+                continue;
+            }
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            SpoolSegment segment = SpoolSegment.recover(file, sequence);
+            if (segment.isTruncated()) {
+                log.warn("Spool segment {} ends with a damaged record, which was dropped", file);
+            }
+            if (segment.hasPending()) {
+                segments.addLast(segment);
+                pendingBytes += segment.pendingBytes();
+            } else {
+                segment.delete();
+            }
+        }
+        if (!segments.isEmpty()) {
+            log.info("Recovered {} bytes of spooled tag reads from {} segments", pendingBytes, segments.size());
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        try {
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the spool in " + directory.toAbsolutePath(), e);
+        }
+        lastRefillAt = System.currentTimeMillis();
+        replayExecutor =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "rfid-spool-replay");
+                thread.setDaemon(true);
+                return thread;
+            });
+        replayExecutor.scheduleWithFixedDelay(this::replaySafely, replayIntervalMillis, replayIntervalMillis, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    private void replaySafely() {
+        try {
+            replay();
+        } catch (RuntimeException e) {
+            log.error("Could not replay spooled tag reads", e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            executor = replayExecutor;
+        }
+        // Let the replay in flight complete and be acknowledged, rather than have it sent again after a restart
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(2 * replayTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+                executor.awaitTermination(replayTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            for (SpoolSegment segment : segments) {
+                segment.flush();
+            }
+            segments.clear();
+            writeSegment = null;
+            pendingBytes = 0;
+        }
+        log.debug("Closed the spool");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Open before, and close after, the bulk indexer that hands it reads.
+     */
+    @Override
+    public int getPhase() {
+        return -3;
+    }
+}
@@ -0,0 +1,213 @@
+package com.isoft.rfid.service.spool;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only, memory-mapped file of spooled records.
+ * <p>
+ * Each record is framed by a 12-byte header: the length of the payload, the CRC-32C of the payload, and flags telling
+ * whether the record has been acknowledged. The length is written last, so a record is only visible once complete; a
+ * record whose CRC does not match, left by a crash in the middle of an append, ends the segment on recovery. The file is
+ * preallocated to its full size, and the zeros after the last record read as a zero length.
+ * <p>
+ * Not thread-safe: the {@link ReadSpool} serializes the access to its segments.
+ */
+final class SpoolSegment {
+
+    static final int HEADER_BYTES = 12;
+
+    private static final int CRC_OFFSET = 4;
+
+    private static final int FLAGS_OFFSET = 8;
+
+    private static final int ACKNOWLEDGED = 1;
+
+    private final long sequence;
+
+    private final Path path;
+
+    private final MappedByteBuffer buffer;
+
+    private final CRC32C crc = new CRC32C();
+
+    /**
+     * End of the last complete record.
+     */
+    private int writePosition;
+
+    /**
+     * Start of the first record that may not have been acknowledged.
+     */
+    private int readPosition;
+
+    private int pendingRecords;
+
+    private boolean truncated;
+
+    private SpoolSegment(long sequence, Path path, MappedByteBuffer buffer) {
+        this.sequence = sequence;
+        this.path = path;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Create a new, empty segment.
+     */
+    static SpoolSegment create(Path path, long sequence, int capacity) throws IOException {
+        try (
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)
+        ) {
+            return new SpoolSegment(sequence, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+        }
+    }
+
+    /**
+     * Open an existing segment, and find its valid records.
+     *
+     * @return the segment; check {@link #isTruncated()} to know whether its last record was damaged.
+     */
+    static SpoolSegment recover(Path path, long sequence) throws IOException {
+        SpoolSegment segment;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = new SpoolSegment(sequence, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+        }
+        segment.scan();
+        return segment;
+    }
+
+    private void scan() {
+        int position = 0;
+        int capacity = buffer.capacity();
+        while (position + HEADER_BYTES <= capacity) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            boolean complete = length > 0 && length <= capacity - position - HEADER_BYTES;
+            if (!complete || crc(position + HEADER_BYTES, length) != buffer.getInt(position + CRC_OFFSET)) {
+                truncated = true;
+                break;
+            }
+            if ((buffer.getInt(position + FLAGS_OFFSET) & ACKNOWLEDGED) == 0) {
+                if (pendingRecords == 0) {
+                    readPosition = position;
+                }
+                pendingRecords++;
+            }
+            position += HEADER_BYTES + length;
+        }
+        writePosition = position;
+        if (pendingRecords == 0) {
+            readPosition = position;
+        }
+    }
+
+    private int crc(int offset, int length) {
+        crc.reset();
+        crc.update(buffer.duplicate().position(offset).limit(offset + length));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Append a record, and flush it to the storage device.
+     *
+     * @return {@code false} if there is not enough room left in the segment.
+     */
+    boolean append(byte[] payload, int length) {
+        int position = writePosition;
+        if (length > buffer.capacity() - position - HEADER_BYTES) {
+            return false;
+        }
+        buffer.duplicate().position(position + HEADER_BYTES).put(payload, 0, length);
+        buffer.putInt(position + CRC_OFFSET, crc(position + HEADER_BYTES, length));
+        buffer.putInt(position + FLAGS_OFFSET, 0);
+        buffer.putInt(position, length);
+        buffer.force();
+        if (pendingRecords == 0) {
+            readPosition = position;
+        }
+        pendingRecords++;
+        writePosition = position + HEADER_BYTES + length;
+        return true;
+    }
+
+    /**
+     * @return the position of the first record not acknowledged yet, or {@code -1} if there is none.
+     */
+    int firstPending() {
+        return pendingRecords == 0 ? -1 : readPosition;
+    }
+
+    /**
+     * @return a copy of the payload of the record at {@code position}.
+     */
+    byte[] payload(int position) {
+        byte[] payload = new byte[buffer.getInt(position)];
+        buffer.duplicate().position(position + HEADER_BYTES).get(payload);
+        return payload;
+    }
+
+    /**
+     * Mark the first pending record as acknowledged, so that it is not replayed again.
+     */
+    void acknowledgeFirstPending() {
+        int position = readPosition;
+        buffer.putInt(position + FLAGS_OFFSET, ACKNOWLEDGED);
+        pendingRecords--;
+        position += HEADER_BYTES + buffer.getInt(position);
+        while (pendingRecords > 0 && (buffer.getInt(position + FLAGS_OFFSET) & ACKNOWLEDGED) != 0) {
+            position += HEADER_BYTES + buffer.getInt(position);
+        }
+        readPosition = position;
+    }
+
+    boolean hasPending() {
+        return pendingRecords > 0;
+    }
+
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * @return the number of bytes used by records, acknowledged or not.
+     */
+    int size() {
+        return writePosition;
+    }
+
+    /**
+     * @return the number of bytes not yet acknowledged.
+     */
+    int pendingBytes() {
+        return writePosition - readPosition;
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    /**
+     * Flush the acknowledgements, before the segment is released.
+     */
+    void flush() {
+        buffer.force();
+    }
+
+    /**
+     * Delete the file. The mapping itself is released once the segment is garbage collected.
+     */
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+}
@@ -0,0 +1,139 @@
+package com.isoft.rfid.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Pushes NDJSON batches to {@code POST /api/tag-reads/bulk} from a fixed number of concurrent senders.
+ * <p>
+ * Batches are scheduled at a fixed interval, open loop: a sender that falls behind sends its next batch immediately, and
+ * the delay shows in the latency instead of silently lowering the rate.
+ */
+public class HttpLoadDriver implements LoadDriver {
+
+    private static final Pattern SUMMARY = Pattern.compile("\"accepted\":(\\d+),\"rejected\":(\\d+)}\\s*$");
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final SimulatorOptions options;
+
+    private final List<SimulatedReader> readers;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public HttpLoadDriver(SimulatorOptions options, List<SimulatedReader> readers) {
+        this.options = options;
+        this.readers = readers;
+    }
+
+    @Override
+    public void run(LoadStatistics statistics, long startNanos, long endNanos) throws Exception {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        String token = options.getToken() != null ? options.getToken() : authenticate(client);
+        URI uri = URI.create(options.getUrl() + "/api/tag-reads/bulk");
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) * options.getBatchSize() / options.getRate();
+        int concurrency = options.getConcurrency();
+
+        List<Thread> senders = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            int lane = i;
+            Thread sender = new Thread(
+                () -> {
+                    StringBuilder body = new StringBuilder(options.getBatchSize() * 128);
+                    for (long batch = lane;; batch += concurrency) {
+                        long scheduled = startNanos + (long) (batch * intervalNanos);
+                        if (scheduled >= endNanos) {
+                            return;
+                        }
+                        LoadDriver.parkUntil(scheduled);
+                        send(client, uri, token, batch, body, statistics, scheduled);
+                    }
+                },
+                "simulator-http-" + i
+            );
+            sender.start();
+            senders.add(sender);
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+    }
+
+    private void send(
+        HttpClient client,
+        URI uri,
+        String token,
+        long batch,
+        StringBuilder body,
+        LoadStatistics statistics,
+        long scheduled
+    ) {
+        SimulatedReader reader = readers.get((int) (batch % readers.size()));
+        body.setLength(0);
+        long timestamp = System.currentTimeMillis();
+        synchronized (reader) {
+            for (int i = 0; i < options.getBatchSize(); i++) {
+                reader.next();
+                reader.appendJson(body, timestamp);
+            }
+        }
+        HttpRequest request = HttpRequest
+            .newBuilder(uri)
+            .timeout(REQUEST_TIMEOUT)
+            .header("Content-Type", "application/x-ndjson")
+            .header("Authorization", "Bearer " + token)
+            .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+            .build();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduled);
+            String responseBody = response.body();
+            // The summary closes the response, after the result of every line
+            Matcher summary = SUMMARY.matcher(responseBody.substring(Math.max(0, responseBody.length() - 64)));
+            if (response.statusCode() != 200 || !summary.find()) {
+                statistics.recordError();
+                return;
+            }
+            int accepted = Integer.parseInt(summary.group(1));
+            int rejected = Integer.parseInt(summary.group(2));
+            statistics.recordSuccess(options.getBatchSize(), accepted, rejected, latencyMicros);
+        } catch (IOException e) {
+            statistics.recordError();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String authenticate(HttpClient client) throws IOException, InterruptedException {
+        String credentials = objectMapper.writeValueAsString(
+            Map.of("username", options.getUsername(), "password", options.getPassword(), "rememberMe", false)
+        );
+        HttpRequest request = HttpRequest
+            .newBuilder(URI.create(options.getUrl() + "/api/authenticate"))
+            .timeout(REQUEST_TIMEOUT)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(credentials))
+            .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("Authentication as " + options.getUsername() + " failed with status " + response.statusCode());
+        }
+        JsonNode token = objectMapper.readTree(response.body()).get("id_token");
+        if (token == null) {
+            throw new IOException("No token in the authentication response");
+        }
+        return token.asText();
+    }
+}
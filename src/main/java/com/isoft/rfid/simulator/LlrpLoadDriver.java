@@ -0,0 +1,173 @@
+package com.isoft.rfid.simulator;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Acts as LLRP readers, each listening on its own port for the application to connect, then streaming
+ * {@code RO_ACCESS_REPORT}s at its share of the target rate.
+ * <p>
+ * LLRP has no acknowledgement of reports, so the latency measured is the time until the report has been written to the
+ * socket: it grows when the application stops reading and TCP pushes back.
+ */
+public class LlrpLoadDriver implements LoadDriver {
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_LENGTH = 10;
+
+    private static final int RO_ACCESS_REPORT = 61;
+
+    private static final int READER_EVENT_NOTIFICATION = 63;
+
+    private static final int TAG_REPORT_DATA = 240;
+
+    private static final int TAG_REPORT_DATA_LENGTH = 4 + 13 + 3 + 2 + 9;
+
+    private static final int ACCEPT_TIMEOUT_MILLIS = 500;
+
+    private final SimulatorOptions options;
+
+    private final List<SimulatedReader> readers;
+
+    public LlrpLoadDriver(SimulatorOptions options, List<SimulatedReader> readers) {
+        this.options = options;
+        this.readers = readers;
+    }
+
+    @Override
+    public void run(LoadStatistics statistics, long startNanos, long endNanos) throws Exception {
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) * options.getBatchSize() * readers.size() / options.getRate();
+        List<ServerSocket> serverSockets = new ArrayList<>();
+        try {
+            for (int i = 0; i < readers.size(); i++) {
+                ServerSocket serverSocket = new ServerSocket(options.getLlrpPort() + i);
+                serverSocket.setSoTimeout(ACCEPT_TIMEOUT_MILLIS);
+                serverSockets.add(serverSocket);
+            }
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < readers.size(); i++) {
+                SimulatedReader reader = readers.get(i);
+                ServerSocket serverSocket = serverSockets.get(i);
+                Thread thread = new Thread(
+                    () -> serve(reader, serverSocket, statistics, startNanos, endNanos, intervalNanos),
+                    "simulator-" + reader.getId()
+                );
+                thread.start();
+                threads.add(thread);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } finally {
+            for (ServerSocket serverSocket : serverSockets) {
+                serverSocket.close();
+            }
+        }
+    }
+
+    /**
+     * Accept the application's connections until the end of the run, and stream reports on each of them.
+     */
+    private void serve(
+        SimulatedReader reader,
+        ServerSocket serverSocket,
+        LoadStatistics statistics,
+        long startNanos,
+        long endNanos,
+        double intervalNanos
+    ) {
+        ByteBuffer report = ByteBuffer.allocate(HEADER_LENGTH + TAG_REPORT_DATA_LENGTH * options.getBatchSize());
+        int messageId = 1;
+        while (System.nanoTime() - endNanos < 0) {
+            try (Socket socket = serverSocket.accept()) {
+                socket.setTcpNoDelay(true);
+                startDiscarding(socket.getInputStream(), reader);
+                OutputStream out = new BufferedOutputStream(socket.getOutputStream(), report.capacity());
+                out.write(connectionAttemptSuccess(messageId++));
+                out.flush();
+                // Resume at the current schedule rather than catching up on the reports missed while disconnected
+                long next = Math.max(0, (long) ((System.nanoTime() - startNanos) / intervalNanos));
+                while (true) {
+                    long scheduled = startNanos + (long) (next++ * intervalNanos);
+                    if (scheduled - endNanos >= 0) {
+                        return;
+                    }
+                    LoadDriver.parkUntil(scheduled);
+                    encodeReport(reader, report, messageId++);
+                    out.write(report.array(), 0, report.position());
+                    out.flush();
+                    long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduled);
+                    statistics.recordSuccess(options.getBatchSize(), 0, 0, latencyMicros);
+                }
+            } catch (SocketTimeoutException e) {
+                // Not connected yet: check the end of the run, and wait again
+            } catch (IOException e) {
+                statistics.recordError();
+            }
+        }
+    }
+
+    private void encodeReport(SimulatedReader reader, ByteBuffer report, int messageId) {
+        long firstSeenMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        report.clear();
+        report.putShort((short) ((VERSION << 10) | RO_ACCESS_REPORT)).putInt(report.capacity()).putInt(messageId);
+        for (int i = 0; i < options.getBatchSize(); i++) {
+            reader.next();
+            report.putShort((short) TAG_REPORT_DATA).putShort((short) TAG_REPORT_DATA_LENGTH);
+            report.put((byte) (0x80 | 13)).put(reader.getEpc());
+            report.put((byte) (0x80 | 1)).putShort((short) reader.getAntenna());
+            report.put((byte) (0x80 | 6)).put((byte) Math.round(reader.getRssi()));
+            report.put((byte) (0x80 | 2)).putLong(firstSeenMicros);
+        }
+    }
+
+    private static byte[] connectionAttemptSuccess(int messageId) {
+        int length = HEADER_LENGTH + 4 + 12 + 6;
+        return ByteBuffer
+            .allocate(length)
+            .putShort((short) ((VERSION << 10) | READER_EVENT_NOTIFICATION))
+            .putInt(length)
+            .putInt(messageId)
+            // ReaderEventNotificationData, holding a UTCTimestamp and a successful ConnectionAttemptEvent
+            .putShort((short) 246)
+            .putShort((short) (4 + 12 + 6))
+            .putShort((short) 128)
+            .putShort((short) 12)
+            .putLong(TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()))
+            .putShort((short) 256)
+            .putShort((short) 6)
+            .putShort((short) 0)
+            .array();
+    }
+
+    /**
+     * Read and ignore what the application sends, so that its messages never fill the socket buffers.
+     */
+    private static void startDiscarding(InputStream in, SimulatedReader reader) {
+        Thread thread = new Thread(
+            () -> {
+                byte[] buffer = new byte[1024];
+                try {
+                    while (in.read(buffer) >= 0) {
+                        // Keepalive acknowledgements and the like are not needed by the simulation
+                    }
+                } catch (IOException e) {
+                    // The connection is gone, which the sending thread finds out by itself
+                }
+            },
+            "simulator-" + reader.getId() + "-discard"
+        );
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -0,0 +1,28 @@
+package com.isoft.rfid.simulator;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends the simulated reads to the application.
+ */
+public interface LoadDriver {
+    /**
+     * Send reads at the target rate from {@code startNanos} until {@code endNanos}, and return once every thread of the
+     * driver is done.
+     *
+     * @param statistics the counters to update.
+     * @param startNanos the start of the run, in {@link System#nanoTime()} time.
+     * @param endNanos the end of the run, in {@link System#nanoTime()} time.
+     */
+    void run(LoadStatistics statistics, long startNanos, long endNanos) throws Exception;
+
+    /**
+     * Wait until {@code deadlineNanos}, in {@link System#nanoTime()} time.
+     */
+    static void parkUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
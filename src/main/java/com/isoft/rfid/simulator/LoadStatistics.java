@@ -0,0 +1,59 @@
+package com.isoft.rfid.simulator;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters shared by the threads of a load driver.
+ * <p>
+ * Latencies are measured from the time a request or report was scheduled to be sent, not from the time it actually
+ * was: when the application falls behind, the wait for the previous one to complete counts, as it would for a reader.
+ */
+public class LoadStatistics {
+
+    private final LongAdder sent = new LongAdder();
+
+    private final LongAdder accepted = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * @param reads the number of reads sent.
+     * @param acceptedReads the number of reads the application accepted, when it tells.
+     * @param rejectedReads the number of reads the application rejected, when it tells.
+     * @param latencyMicros the time between the scheduled send and the completion.
+     */
+    public void recordSuccess(int reads, int acceptedReads, int rejectedReads, long latencyMicros) {
+        sent.add(reads);
+        accepted.add(acceptedReads);
+        rejected.add(rejectedReads);
+        latency.record(latencyMicros);
+    }
+
+    public void recordError() {
+        errors.increment();
+    }
+
+    public long getSent() {
+        return sent.sum();
+    }
+
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+}
@@ -0,0 +1,138 @@
+package com.isoft.rfid.simulator;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load generator emulating readers, to reproduce production load on a local instance and size hardware.
+ * <p>
+ * It runs on its own, against a running application:
+ * <pre>
+ * ./mvnw -Psimulator,-webapp compile exec:java@simulate -Dsimulator.args="--mode=http --readers=50 --rate=20000"
+ * </pre>
+ * Progress is reported periodically, followed by a summary with the achieved throughput and the latency percentiles.
+ * See {@link SimulatorOptions} for the options.
+ */
+public final class ReaderSimulator {
+
+    private static final PrintStream OUT = System.out;
+
+    private ReaderSimulator() {}
+
+    public static void main(String[] args) throws Exception {
+        if (Arrays.asList(args).contains("--help")) {
+            OUT.println(SimulatorOptions.USAGE);
+            return;
+        }
+        SimulatorOptions options;
+        try {
+            options = SimulatorOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(SimulatorOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        List<SimulatedReader> readers = new ArrayList<>();
+        for (int i = 0; i < options.getReaders(); i++) {
+            readers.add(new SimulatedReader(i, options, i));
+        }
+        LoadDriver driver;
+        if (options.getMode() == SimulatorOptions.Mode.HTTP) {
+            driver = new HttpLoadDriver(options, readers);
+        } else {
+            driver = new LlrpLoadDriver(options, readers);
+            printLlrpConfiguration(options, readers);
+        }
+
+        OUT.printf(
+            Locale.ROOT,
+            "Simulating %d readers x %d antennas, %d tags each, at %.0f reads/s for %ds over %s%n",
+            options.getReaders(),
+            options.getAntennas(),
+            options.getTags(),
+            options.getRate(),
+            options.getDuration().toSeconds(),
+            options.getMode()
+        );
+        LoadStatistics statistics = new LoadStatistics();
+        long startNanos = System.nanoTime();
+        long endNanos = startNanos + options.getDuration().toNanos();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        long intervalMillis = options.getReportInterval().toMillis();
+        long[] lastSent = new long[1];
+        reporter.scheduleAtFixedRate(
+            () -> {
+                long sent = statistics.getSent();
+                printProgress(statistics, startNanos, (sent - lastSent[0]) * 1000.0 / intervalMillis);
+                lastSent[0] = sent;
+            },
+            intervalMillis,
+            intervalMillis,
+            TimeUnit.MILLISECONDS
+        );
+        try {
+            driver.run(statistics, startNanos, endNanos);
+        } finally {
+            reporter.shutdownNow();
+        }
+        printSummary(statistics, System.nanoTime() - startNanos, options);
+    }
+
+    private static void printProgress(LoadStatistics statistics, long startNanos, double rate) {
+        LatencyHistogram latency = statistics.getLatency();
+        OUT.printf(
+            Locale.ROOT,
+            "%6.1fs  sent=%d  rate=%.0f/s  accepted=%d  rejected=%d  errors=%d  p50=%s  p99=%s%n",
+            (System.nanoTime() - startNanos) / 1e9,
+            statistics.getSent(),
+            rate,
+            statistics.getAccepted(),
+            statistics.getRejected(),
+            statistics.getErrors(),
+            millis(latency.getValueAtPercentile(50)),
+            millis(latency.getValueAtPercentile(99))
+        );
+    }
+
+    private static void printSummary(LoadStatistics statistics, long elapsedNanos, SimulatorOptions options) {
+        LatencyHistogram latency = statistics.getLatency();
+        String unit = options.getMode() == SimulatorOptions.Mode.HTTP ? "request" : "report write";
+        OUT.println();
+        OUT.printf(Locale.ROOT, "Reads sent:       %d in %.1fs%n", statistics.getSent(), elapsedNanos / 1e9);
+        double throughput = statistics.getSent() * 1e9 / elapsedNanos;
+        OUT.printf(Locale.ROOT, "Throughput:       %.0f reads/s (target %.0f)%n", throughput, options.getRate());
+        if (options.getMode() == SimulatorOptions.Mode.HTTP) {
+            OUT.printf(Locale.ROOT, "Accepted:         %d, rejected: %d%n", statistics.getAccepted(), statistics.getRejected());
+        }
+        OUT.printf(Locale.ROOT, "Errors:           %d%n", statistics.getErrors());
+        OUT.printf(Locale.ROOT, "Latency per %s (%d samples):%n", unit, latency.getCount());
+        for (String percentile : new String[] { "50", "90", "99", "99.9" }) {
+            OUT.printf(Locale.ROOT, "  p%-6s %s%n", percentile, millis(latency.getValueAtPercentile(Double.parseDouble(percentile))));
+        }
+        OUT.printf(Locale.ROOT, "  max     %s%n", millis(latency.getMax()));
+    }
+
+    private static void printLlrpConfiguration(SimulatorOptions options, List<SimulatedReader> readers) {
+        OUT.println("Configure the application to connect to the simulated readers:");
+        OUT.println("application:");
+        OUT.println("  llrp:");
+        OUT.println("    readers:");
+        for (int i = 0; i < readers.size(); i++) {
+            OUT.println("      - id: " + readers.get(i).getId());
+            OUT.println("        host: <this host>");
+            OUT.println("        port: " + (options.getLlrpPort() + i));
+        }
+    }
+
+    private static String millis(long micros) {
+        return String.format(Locale.ROOT, "%.2fms", micros / 1000.0);
+    }
+}
@@ -0,0 +1,137 @@
+package com.isoft.rfid.simulator;
+
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+
+/**
+ * A reader with its antennas and the population of tags in its field, producing a stream of plausible reads.
+ * <p>
+ * Each tag gets an SGTIN-96 EPC, unique across readers. A read repeats a tag recently read by the same antenna with the
+ * configured duplicate ratio, which is what the deduplication stage of the application is meant to absorb, and
+ * otherwise picks a tag at random in the population. Instances are not thread-safe.
+ */
+public class SimulatedReader {
+
+    private static final long COMPANY_PREFIX = 614141;
+
+    private static final int RECENT_TAGS = 64;
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private final String id;
+
+    private final SplittableRandom random;
+
+    private final byte[][] epcs;
+
+    private final String[] epcHex;
+
+    private final int[][] recentTags;
+
+    private final int[] recentCounts;
+
+    private final double duplicateRatio;
+
+    private final double rssiMean;
+
+    private final double rssiStddev;
+
+    private int antenna;
+
+    private int tag;
+
+    private double rssi;
+
+    public SimulatedReader(int index, SimulatorOptions options, long seed) {
+        this.id = "sim-reader-" + index;
+        this.random = new SplittableRandom(seed);
+        this.duplicateRatio = options.getDuplicateRatio();
+        this.rssiMean = options.getRssiMean();
+        this.rssiStddev = options.getRssiStddev();
+        this.epcs = new byte[options.getTags()][];
+        this.epcHex = new String[options.getTags()];
+        for (int i = 0; i < epcs.length; i++) {
+            epcs[i] = sgtin96(index, i);
+            epcHex[i] = hex(epcs[i]);
+        }
+        this.recentTags = new int[options.getAntennas()][RECENT_TAGS];
+        this.recentCounts = new int[options.getAntennas()];
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Draw the next read, whose fields are then available from the getters.
+     */
+    public void next() {
+        antenna = random.nextInt(recentTags.length);
+        int[] recent = recentTags[antenna];
+        int recentCount = recentCounts[antenna];
+        if (recentCount > 0 && random.nextDouble() < duplicateRatio) {
+            tag = recent[random.nextInt(Math.min(recentCount, RECENT_TAGS))];
+        } else {
+            tag = random.nextInt(epcs.length);
+            recent[recentCount % RECENT_TAGS] = tag;
+            recentCounts[antenna] = recentCount + 1 < 2 * RECENT_TAGS ? recentCount + 1 : RECENT_TAGS;
+        }
+        rssi = Math.max(-100, Math.min(-10, rssiMean + random.nextGaussian() * rssiStddev));
+    }
+
+    /**
+     * @return the antenna of the current read, starting from 1 as LLRP antenna ids do.
+     */
+    public int getAntenna() {
+        return antenna + 1;
+    }
+
+    public String getEpcHex() {
+        return epcHex[tag];
+    }
+
+    public byte[] getEpc() {
+        return epcs[tag];
+    }
+
+    public double getRssi() {
+        return rssi;
+    }
+
+    /**
+     * Append the current read as a line of the NDJSON bulk ingestion format.
+     */
+    public void appendJson(StringBuilder out, long timestamp) {
+        out
+            .append("{\"epc\":\"")
+            .append(getEpcHex())
+            .append("\",\"readerId\":\"")
+            .append(id)
+            .append("\",\"antenna\":")
+            .append(getAntenna())
+            .append(",\"rssi\":")
+            .append(Math.round(rssi * 10) / 10.0)
+            .append(",\"timestamp\":")
+            .append(timestamp)
+            .append("}\n");
+    }
+
+    /**
+     * Encode an SGTIN-96: header, filter 1 (point of sale item), partition 5 (7-digit company prefix), company prefix,
+     * a 20-bit item reference derived from the reader, and a 38-bit serial derived from the tag.
+     */
+    static byte[] sgtin96(int readerIndex, long serial) {
+        long itemReference = readerIndex % 1_000_000;
+        long high = (0x30L << 56) | (1L << 53) | (5L << 50) | (COMPANY_PREFIX << 26) | (itemReference << 6) | (serial >>> 32);
+        return ByteBuffer.allocate(12).putLong(high).putInt((int) serial).array();
+    }
+
+    private static String hex(byte[] bytes) {
+        char[] digits = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            digits[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            digits[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(digits);
+    }
+}
@@ -0,0 +1,242 @@
+package com.isoft.rfid.simulator;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Command line options of the {@link ReaderSimulator}, given as {@code --name=value}.
+ */
+public class SimulatorOptions {
+
+    public enum Mode {
+        /**
+         * Push NDJSON batches to the bulk ingestion endpoint.
+         */
+        HTTP,
+        /**
+         * Act as LLRP readers the application connects to.
+         */
+        LLRP,
+    }
+
+    static final String USAGE = String.join(
+        System.lineSeparator(),
+        "Usage: ReaderSimulator [--name=value]...",
+        "  --mode=http|llrp          drive the bulk ingestion endpoint, or act as LLRP readers (default http)",
+        "  --readers=N               number of simulated readers (default 10)",
+        "  --antennas=M              antennas per reader (default 4)",
+        "  --tags=T                  tags in the field of each reader (default 1000)",
+        "  --rate=R                  target reads per second, all readers together (default 10000)",
+        "  --duration=S              length of the run in seconds (default 60)",
+        "  --duplicate-ratio=D       share of reads repeating a tag recently read by the same antenna (default 0.5)",
+        "  --rssi-mean=DBM           mean of the normally distributed RSSI (default -60)",
+        "  --rssi-stddev=DB          standard deviation of the RSSI (default 6)",
+        "  --batch-size=B            reads per HTTP request or per LLRP report (default 500)",
+        "  --concurrency=C           concurrent HTTP requests (default 4)",
+        "  --url=URL                 base URL of the application (default http://localhost:8080)",
+        "  --username=U --password=P account used to get a token (default admin/admin)",
+        "  --token=JWT               token to use instead of authenticating",
+        "  --llrp-port=P             port of the first simulated LLRP reader, the others follow (default 15084)",
+        "  --report-interval=S       seconds between progress reports (default 5)"
+    );
+
+    private Mode mode = Mode.HTTP;
+
+    private int readers = 10;
+
+    private int antennas = 4;
+
+    private int tags = 1000;
+
+    private double rate = 10_000;
+
+    private Duration duration = Duration.ofSeconds(60);
+
+    private double duplicateRatio = 0.5;
+
+    private double rssiMean = -60;
+
+    private double rssiStddev = 6;
+
+    private int batchSize = 500;
+
+    private int concurrency = 4;
+
+    private String url = "http://localhost:8080";
+
+    private String username = "admin";
+
+    private String password = "admin";
+
+    private String token;
+
+    private int llrpPort = 15084;
+
+    private Duration reportInterval = Duration.ofSeconds(5);
+
+    /**
+     * @param args the command line arguments.
+     * @return the options.
+     * @throws IllegalArgumentException if an argument is unknown or invalid.
+     */
+    public static SimulatorOptions parse(String... args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            values.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        SimulatorOptions options = new SimulatorOptions();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            String value = entry.getValue();
+            try {
+                options.set(entry.getKey(), value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value for --" + entry.getKey() + ": " + value, e);
+            }
+        }
+        options.validate();
+        return options;
+    }
+
+    private void set(String name, String value) {
+        switch (name) {
+            case "mode":
+                mode = Mode.valueOf(value.toUpperCase());
+                break;
+            case "readers":
+                readers = Integer.parseInt(value);
+                break;
+            case "antennas":
+                antennas = Integer.parseInt(value);
+                break;
+            case "tags":
+                tags = Integer.parseInt(value);
+                break;
+            case "rate":
+                rate = Double.parseDouble(value);
+                break;
+            case "duration":
+                duration = Duration.ofSeconds(Long.parseLong(value));
+                break;
+            case "duplicate-ratio":
+                duplicateRatio = Double.parseDouble(value);
+                break;
+            case "rssi-mean":
+                rssiMean = Double.parseDouble(value);
+                break;
+            case "rssi-stddev":
+                rssiStddev = Double.parseDouble(value);
+                break;
+            case "batch-size":
+                batchSize = Integer.parseInt(value);
+                break;
+            case "concurrency":
+                concurrency = Integer.parseInt(value);
+                break;
+            case "url":
+                url = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                break;
+            case "username":
+                username = value;
+                break;
+            case "password":
+                password = value;
+                break;
+            case "token":
+                token = value;
+                break;
+            case "llrp-port":
+                llrpPort = Integer.parseInt(value);
+                break;
+            case "report-interval":
+                reportInterval = Duration.ofSeconds(Long.parseLong(value));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option --" + name);
+        }
+    }
+
+    private void validate() {
+        if (readers < 1 || antennas < 1 || antennas > 0xFFFF || tags < 1 || batchSize < 1 || concurrency < 1) {
+            throw new IllegalArgumentException("readers, antennas, tags, batch-size and concurrency must be positive");
+        }
+        if (rate <= 0 || duration.isNegative() || duration.isZero() || reportInterval.isNegative() || reportInterval.isZero()) {
+            throw new IllegalArgumentException("rate, duration and report-interval must be positive");
+        }
+        if (duplicateRatio < 0 || duplicateRatio >= 1) {
+            throw new IllegalArgumentException("duplicate-ratio must be between 0 (included) and 1 (excluded)");
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getReaders() {
+        return readers;
+    }
+
+    public int getAntennas() {
+        return antennas;
+    }
+
+    public int getTags() {
+        return tags;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public double getDuplicateRatio() {
+        return duplicateRatio;
+    }
+
+    public double getRssiMean() {
+        return rssiMean;
+    }
+
+    public double getRssiStddev() {
+        return rssiStddev;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public int getLlrpPort() {
+        return llrpPort;
+    }
+
+    public Duration getReportInterval() {
+        return reportInterval;
+    }
+}
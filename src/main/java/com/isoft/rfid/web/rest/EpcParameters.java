@@ -0,0 +1,36 @@
+package com.isoft.rfid.web.rest;
+
+import com.isoft.rfid.domain.Epc;
+import com.isoft.rfid.web.rest.errors.BadRequestAlertException;
+
+/**
+ * Parses the EPCs given to the REST controllers as parameters, in either case, refusing the invalid ones.
+ */
+final class EpcParameters {
+
+    private EpcParameters() {}
+
+    /**
+     * @param epc the hexadecimal EPC.
+     * @param entityName the entity of the controller, to report an invalid EPC.
+     * @return the EPC.
+     * @throws BadRequestAlertException {@code 400 (Bad Request)} if the EPC is invalid.
+     */
+    static Epc parse(String epc, String entityName) {
+        Epc parsed = Epc.tryParse(epc);
+        if (parsed == null) {
+            throw new BadRequestAlertException("Invalid EPC: " + epc, entityName, "invalidepc");
+        }
+        return parsed;
+    }
+
+    /**
+     * @param epc the hexadecimal EPC, or {@code null}.
+     * @param entityName the entity of the controller, to report an invalid EPC.
+     * @return the EPC in its canonical form, as indexed, or {@code null} if not specified.
+     * @throws BadRequestAlertException {@code 400 (Bad Request)} if the EPC is invalid.
+     */
+    static String canonical(String epc, String entityName) {
+        return epc == null ? null : parse(epc, entityName).toString();
+    }
+}
@@ -0,0 +1,74 @@
+package com.isoft.rfid.web.rest;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.domain.Epc;
+import com.isoft.rfid.service.LastSeenService;
+import com.isoft.rfid.service.dto.LastSeenDTO;
+import com.isoft.rfid.web.rest.errors.BadRequestAlertException;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import tech.jhipster.web.util.ResponseUtil;
+
+/**
+ * REST controller answering where tags were last seen, from memory rather than from Elasticsearch.
+ */
+@RestController
+@RequestMapping("/api")
+public class LastSeenResource {
+
+    private static final String ENTITY_NAME = "lastSeen";
+
+    private final Logger log = LoggerFactory.getLogger(LastSeenResource.class);
+
+    private final LastSeenService lastSeenService;
+
+    private final int maxBulkLookup;
+
+    public LastSeenResource(LastSeenService lastSeenService, ApplicationProperties applicationProperties) {
+        this.lastSeenService = lastSeenService;
+        this.maxBulkLookup = applicationProperties.getLastSeen().getMaxBulkLookup();
+    }
+
+    /**
+     * {@code GET  /tag-reads/last-seen/:epc} : get where a tag was last seen.
+     *
+     * @param epc the hexadecimal EPC of the tag.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the last sighting in body, or with status
+     * {@code 404 (Not Found)} if the tag has not been seen.
+     */
+    @GetMapping("/tag-reads/last-seen/{epc}")
+    public ResponseEntity<LastSeenDTO> getLastSeen(@PathVariable String epc) {
+        log.debug("REST request to get where {} was last seen", epc);
+        return ResponseUtil.wrapOrNotFound(lastSeenService.findLastSeen(EpcParameters.parse(epc, ENTITY_NAME)));
+    }
+
+    /**
+     * {@code POST  /tag-reads/last-seen} : get where many tags were last seen.
+     *
+     * @param epcs the hexadecimal EPCs of the tags.
+     * @return the last sightings of the tags that have been seen, in the order of the request; the tags not seen are
+     * left out.
+     * @throws BadRequestAlertException {@code 400 (Bad Request)} if an EPC is invalid, or if there are too many of them.
+     */
+    @PostMapping("/tag-reads/last-seen")
+    public List<LastSeenDTO> getLastSeen(@RequestBody List<String> epcs) {
+        log.debug("REST request to get where {} tags were last seen", epcs.size());
+        if (epcs.size() > maxBulkLookup) {
+            throw new BadRequestAlertException("At most " + maxBulkLookup + " EPCs can be looked up at once", ENTITY_NAME, "toomany");
+        }
+        List<Epc> parsed = new ArrayList<>(epcs.size());
+        for (String epc : epcs) {
+            parsed.add(EpcParameters.parse(epc, ENTITY_NAME));
+        }
+        return lastSeenService.findLastSeen(parsed);
+    }
+}
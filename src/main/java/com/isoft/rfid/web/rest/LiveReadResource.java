@@ -0,0 +1,107 @@
+package com.isoft.rfid.web.rest;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.service.LiveReadBroadcaster;
+import com.isoft.rfid.service.dto.LiveReadDTO;
+import com.isoft.rfid.service.dto.PortalEventDTO;
+import com.isoft.rfid.service.dto.ZoneSummaryDTO;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * REST controller streaming the live tag reads as Server-Sent Events.
+ */
+@RestController
+@RequestMapping("/api")
+public class LiveReadResource {
+
+    static final String READS_EVENT = "reads";
+
+    static final String SUMMARY_EVENT = "summary";
+
+    static final String PORTAL_EVENT = "portal";
+
+    private final Logger log = LoggerFactory.getLogger(LiveReadResource.class);
+
+    private final LiveReadBroadcaster liveReadBroadcaster;
+
+    private final long timeoutMillis;
+
+    public LiveReadResource(LiveReadBroadcaster liveReadBroadcaster, ApplicationProperties applicationProperties) {
+        this.liveReadBroadcaster = liveReadBroadcaster;
+        this.timeoutMillis = applicationProperties.getLive().getTimeoutMillis();
+    }
+
+    /**
+     * {@code GET  /tag-reads/live} : stream the live tag reads.
+     * <p>
+     * Reads are sent in batches, as {@value #READS_EVENT} events holding a JSON array of reads. A subscriber that does
+     * not keep up also gets {@value #SUMMARY_EVENT} events, holding per-zone counts of the reads that did not fit in its
+     * buffer, instead of each of them. The enter, direction and exit events of the portals come as {@value #PORTAL_EVENT}
+     * events holding a JSON array of events.
+     *
+     * @param readerIds the readers to stream the reads of, all of them if not specified.
+     * @return the event stream.
+     * @throws ResponseStatusException {@code 503 (Service Unavailable)} if too many streams are open.
+     */
+    @GetMapping(value = "/tag-reads/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLiveReads(@RequestParam(name = "readerId", required = false) List<String> readerIds) {
+        log.debug("REST request to stream live tag reads of {}", readerIds == null ? "all readers" : readerIds);
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Set<String> filter = readerIds == null || readerIds.isEmpty() ? null : new HashSet<>(readerIds);
+        LiveReadBroadcaster.Subscription subscription = liveReadBroadcaster.subscribe(filter, new EmitterSink(emitter));
+        if (subscription == null) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many live streams");
+        }
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+        return emitter;
+    }
+
+    private static final class EmitterSink implements LiveReadBroadcaster.Sink {
+
+        private final SseEmitter emitter;
+
+        EmitterSink(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void send(List<LiveReadDTO> reads, List<ZoneSummaryDTO> summaries) throws IOException {
+            if (!reads.isEmpty()) {
+                emitter.send(SseEmitter.event().name(READS_EVENT).data(reads, MediaType.APPLICATION_JSON));
+            }
+            if (!summaries.isEmpty()) {
+                emitter.send(SseEmitter.event().name(SUMMARY_EVENT).data(summaries, MediaType.APPLICATION_JSON));
+            }
+        }
+
+        @Override
+        public void sendPortalEvents(List<PortalEventDTO> events) throws IOException {
+            emitter.send(SseEmitter.event().name(PORTAL_EVENT).data(events, MediaType.APPLICATION_JSON));
+        }
+
+        @Override
+        public void heartbeat() throws IOException {
+            emitter.send(SseEmitter.event().comment(""));
+        }
+
+        @Override
+        public void close() {
+            emitter.complete();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.isoft.rfid.web.rest;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.repository.search.TagReadCriteria;
+import com.isoft.rfid.service.TagReadExportService;
+import com.isoft.rfid.web.rest.errors.BadRequestAlertException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * REST controller exporting the tag read history.
+ */
+@RestController
+@RequestMapping("/api")
+public class TagReadExportResource {
+
+    private static final String ENTITY_NAME = "tagRead";
+
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    private static final MediaType APPLICATION_NDJSON = new MediaType("application", "x-ndjson");
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private final Logger log = LoggerFactory.getLogger(TagReadExportResource.class);
+
+    private final TagReadExportService tagReadExportService;
+
+    private final long timeoutMillis;
+
+    public TagReadExportResource(TagReadExportService tagReadExportService, ApplicationProperties applicationProperties) {
+        this.tagReadExportService = tagReadExportService;
+        this.timeoutMillis = applicationProperties.getExport().getTimeoutMillis();
+    }
+
+    /**
+     * {@code GET  /tag-reads/export} : export the tag reads matching the filters, in no particular order.
+     * <p>
+     * The reads are streamed as they are read from a consistent snapshot of the history, so that the export of a large
+     * range holds a bounded amount of memory; the response is compressed on the fly when the client accepts gzip. The
+     * export is written asynchronously, with its own timeout rather than the shorter one of the other requests.
+     *
+     * @param format {@code csv} or {@code ndjson}.
+     * @param epc the EPC of the reads, all EPCs if not specified.
+     * @param readerId the reader of the reads, all readers if not specified.
+     * @param from the start of the time range, inclusive.
+     * @param to the end of the time range, inclusive.
+     * @param acceptEncoding the encodings accepted by the client.
+     * @param response the response, which gets status {@code 200 (OK)} and the reads in body.
+     * @return the task writing the reads.
+     * @throws BadRequestAlertException {@code 400 (Bad Request)} if the format is unknown, or the EPC invalid.
+     * @throws ResponseStatusException {@code 503 (Service Unavailable)} if too many exports are running.
+     */
+    @GetMapping("/tag-reads/export")
+    public WebAsyncTask<Void> exportTagReads(
+        @RequestParam(defaultValue = "csv") String format,
+        @RequestParam(required = false) String epc,
+        @RequestParam(required = false) String readerId,
+        @RequestParam(required = false) Instant from,
+        @RequestParam(required = false) Instant to,
+        @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+        HttpServletResponse response
+    ) {
+        TagReadExportService.Format exportFormat;
+        try {
+            exportFormat = TagReadExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException("Unknown export format " + format, ENTITY_NAME, "invalidformat");
+        }
+        TagReadCriteria criteria = new TagReadCriteria();
+        criteria.setEpc(EpcParameters.canonical(epc, ENTITY_NAME));
+        criteria.setReaderId(readerId);
+        criteria.setFrom(from == null ? null : from.toEpochMilli());
+        criteria.setTo(to == null ? null : to.toEpochMilli());
+        log.debug("REST request to export the tag reads matching {} as {}", criteria, exportFormat);
+        TagReadExportService.Export export = tagReadExportService.prepare(criteria, exportFormat);
+        if (export == null) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many exports are running");
+        }
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+        String extension = exportFormat == TagReadExportService.Format.CSV ? "csv" : "ndjson";
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType((exportFormat == TagReadExportService.Format.CSV ? TEXT_CSV : APPLICATION_NDJSON).toString());
+        response.setHeader(
+            HttpHeaders.CONTENT_DISPOSITION,
+            ContentDisposition.attachment().filename("tag-reads." + extension).build().toString()
+        );
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        WebAsyncTask<Void> task = new WebAsyncTask<>(
+            timeoutMillis,
+            () -> {
+                OutputStream out = response.getOutputStream();
+                if (gzip) {
+                    GZIPOutputStream compressed = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+                    export.writeTo(compressed);
+                    compressed.finish();
+                } else {
+                    export.writeTo(out);
+                }
+                out.flush();
+                return null;
+            }
+        );
+        // Releases the permit when the request ends before the export is written
+        task.onCompletion(export::close);
+        return task;
+    }
+}
@@ -0,0 +1,107 @@
+package com.isoft.rfid.web.rest;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.repository.search.InvalidCursorException;
+import com.isoft.rfid.repository.search.TagReadCriteria;
+import com.isoft.rfid.repository.search.TagReadPage;
+import com.isoft.rfid.service.TagReadHistoryService;
+import com.isoft.rfid.service.dto.TagReadDTO;
+import com.isoft.rfid.web.rest.errors.BadRequestAlertException;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * REST controller paginating through the tag read history with cursors.
+ */
+@RestController
+@RequestMapping("/api")
+public class TagReadHistoryResource {
+
+    private static final String ENTITY_NAME = "tagRead";
+
+    private final Logger log = LoggerFactory.getLogger(TagReadHistoryResource.class);
+
+    private final TagReadHistoryService tagReadHistoryService;
+
+    private final int defaultPageSize;
+
+    private final int maxPageSize;
+
+    public TagReadHistoryResource(TagReadHistoryService tagReadHistoryService, ApplicationProperties applicationProperties) {
+        this.tagReadHistoryService = tagReadHistoryService;
+        this.defaultPageSize = applicationProperties.getHistory().getDefaultPageSize();
+        this.maxPageSize = applicationProperties.getHistory().getMaxPageSize();
+    }
+
+    /**
+     * {@code GET  /tag-reads} : get the tag reads, newest first.
+     * <p>
+     * Pages are linked by opaque cursors rather than numbered: the {@code Link} header of a page holds the URL of the
+     * next one, with rel {@code next}, and is absent on the last page. The filters are carried by the cursor, so they
+     * are ignored along with it.
+     *
+     * @param epc the EPC of the reads, all EPCs if not specified.
+     * @param readerId the reader of the reads, all readers if not specified.
+     * @param from the start of the time range, inclusive.
+     * @param to the end of the time range, inclusive.
+     * @param cursor the cursor of the page, the first page if not specified.
+     * @param size the maximum number of reads of the page.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the reads in body.
+     * @throws BadRequestAlertException {@code 400 (Bad Request)} if the EPC is invalid, or if the cursor is malformed or
+     * has expired.
+     * @throws IOException if Elasticsearch cannot be reached, or fails the search.
+     */
+    @GetMapping("/tag-reads")
+    public ResponseEntity<List<TagReadDTO>> getTagReads(
+        @RequestParam(required = false) String epc,
+        @RequestParam(required = false) String readerId,
+        @RequestParam(required = false) Instant from,
+        @RequestParam(required = false) Instant to,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) Integer size
+    ) throws IOException {
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+        TagReadPage page;
+        try {
+            if (cursor == null) {
+                TagReadCriteria criteria = new TagReadCriteria();
+                criteria.setEpc(EpcParameters.canonical(epc, ENTITY_NAME));
+                criteria.setReaderId(readerId);
+                criteria.setFrom(from == null ? null : from.toEpochMilli());
+                criteria.setTo(to == null ? null : to.toEpochMilli());
+                log.debug("REST request to get the tag reads matching {}", criteria);
+                page = tagReadHistoryService.findReads(criteria, pageSize);
+            } else {
+                log.debug("REST request to get the next page of tag reads");
+                page = tagReadHistoryService.findReads(cursor, pageSize);
+            }
+        } catch (InvalidCursorException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "invalidcursor");
+        }
+        HttpHeaders headers = new HttpHeaders();
+        if (page.getNextCursor() != null) {
+            String next = ServletUriComponentsBuilder
+                .fromCurrentRequest()
+                .replaceQueryParam("epc")
+                .replaceQueryParam("readerId")
+                .replaceQueryParam("from")
+                .replaceQueryParam("to")
+                .replaceQueryParam("cursor", page.getNextCursor())
+                .replaceQueryParam("size", pageSize)
+                .toUriString();
+            headers.add(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return ResponseEntity.ok().headers(headers).body(page.getReads().stream().map(TagReadDTO::of).collect(Collectors.toList()));
+    }
+}
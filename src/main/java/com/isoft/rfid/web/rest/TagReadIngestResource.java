@@ -0,0 +1,321 @@
+package com.isoft.rfid.web.rest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.domain.Epc;
+import com.isoft.rfid.domain.TagRead;
+import com.isoft.rfid.service.IngestStatus;
+import com.isoft.rfid.service.TagReadIngestService;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller for ingesting tag reads pushed by readers.
+ */
+@RestController
+@RequestMapping("/api")
+public class TagReadIngestResource {
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private static final String STATUS_ACCEPTED = "accepted";
+
+    private static final String STATUS_REJECTED = "rejected";
+
+    private final Logger log = LoggerFactory.getLogger(TagReadIngestResource.class);
+
+    private final TagReadIngestService tagReadIngestService;
+
+    private final JsonFactory jsonFactory;
+
+    private final int maxLineLength;
+
+    public TagReadIngestResource(
+        TagReadIngestService tagReadIngestService,
+        ObjectMapper objectMapper,
+        ApplicationProperties applicationProperties
+    ) {
+        this.tagReadIngestService = tagReadIngestService;
+        this.jsonFactory = objectMapper.getFactory();
+        this.maxLineLength = applicationProperties.getIngest().getMaxLineLength();
+    }
+
+    /**
+     * {@code POST  /tag-reads/bulk} : ingest a batch of tag reads encoded as newline-delimited JSON.
+     * <p>
+     * Each line holds one read, for example {@code {"epc":"3034257BF7194E4000001A85","readerId":"dock-1","antenna":2,
+     * "rssi":-52.5,"timestamp":"2022-11-14T08:00:00Z"}}. The body is consumed line by line and every line is accepted or
+     * rejected on its own, so a malformed read never fails the rest of the batch. The per-line results are streamed back
+     * as they are produced, which keeps the memory used by a request independent of the batch size.
+     *
+     * @param request the HTTP request holding the NDJSON body.
+     * @param response the HTTP response the per-line results are written to.
+     * @throws IOException if the request body cannot be read or the response cannot be written.
+     */
+    @PostMapping(value = "/tag-reads/bulk", consumes = { APPLICATION_NDJSON_VALUE, MediaType.TEXT_PLAIN_VALUE })
+    public void bulkIngest(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("REST request to bulk ingest tag reads");
+        long receivedAt = System.currentTimeMillis();
+        LineReader lines = new LineReader(request.getInputStream(), maxLineLength);
+        TagRead read = new TagRead();
+        long accepted = 0;
+        long rejected = 0;
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (JsonGenerator generator = jsonFactory.createGenerator(response.getOutputStream())) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("items");
+            long lineNumber = 0;
+            while (lines.next()) {
+                lineNumber++;
+                if (lines.isBlank()) {
+                    continue;
+                }
+                String error;
+                if (lines.isTruncated()) {
+                    error = "line exceeds " + maxLineLength + " bytes";
+                } else {
+                    error = parse(lines.buffer(), lines.length(), read);
+                }
+                if (error == null) {
+                    if (read.getTimestamp() == 0) {
+                        read.setTimestamp(receivedAt);
+                    }
+                    IngestStatus status = tagReadIngestService.submit(read);
+                    error = status.getReason();
+                }
+                generator.writeStartObject();
+                generator.writeNumberField("line", lineNumber);
+                if (error == null) {
+                    accepted++;
+                    generator.writeStringField("status", STATUS_ACCEPTED);
+                } else {
+                    rejected++;
+                    generator.writeStringField("status", STATUS_REJECTED);
+                    generator.writeStringField("error", error);
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeNumberField(STATUS_ACCEPTED, accepted);
+            generator.writeNumberField(STATUS_REJECTED, rejected);
+            generator.writeEndObject();
+        }
+        log.debug("Bulk ingestion done: {} accepted, {} rejected", accepted, rejected);
+    }
+
+    /**
+     * Parse one NDJSON line into {@code read}.
+     *
+     * @return {@code null} if the line was parsed, the reason of the rejection otherwise.
+     */
+    private String parse(byte[] line, int length, TagRead read) {
+        read.clear();
+        String error = null;
+        try (JsonParser parser = jsonFactory.createParser(line, 0, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return "expected a JSON object";
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (value.isStructStart()) {
+                    // Skipped whole, so that its own fields are not taken for those of the read
+                    parser.skipChildren();
+                    if (error == null && isReadField(field)) {
+                        error = field + " must be a scalar";
+                    }
+                    continue;
+                }
+                switch (field) {
+                    case "epc":
+                        read.setEpc(value == JsonToken.VALUE_STRING ? parseEpc(parser) : null);
+                        break;
+                    case "readerId":
+                        read.setReaderId(value == JsonToken.VALUE_STRING ? parser.getText() : null);
+                        break;
+                    case "antenna":
+                        read.setAntenna(value == JsonToken.VALUE_NUMBER_INT ? parser.getIntValue() : -1);
+                        break;
+                    case "rssi":
+                        read.setRssi(parser.getValueAsDouble());
+                        break;
+                    case "timestamp":
+                        read.setTimestamp(parseTimestamp(parser, value));
+                        break;
+                    default:
+                        // A scalar of a field the read does not have
+                        break;
+                }
+            }
+            if (parser.nextToken() != null) {
+                return "unexpected content after the JSON object";
+            }
+        } catch (JsonProcessingException e) {
+            return "malformed JSON";
+        } catch (IOException e) {
+            return "unreadable line";
+        }
+        return error;
+    }
+
+    private static boolean isReadField(String field) {
+        switch (field) {
+            case "epc":
+            case "readerId":
+            case "antenna":
+            case "rssi":
+            case "timestamp":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static Epc parseEpc(JsonParser parser) throws IOException {
+        return Epc.tryParse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+    }
+
+    private static long parseTimestamp(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        if (value == JsonToken.VALUE_STRING) {
+            try {
+                return Instant.parse(parser.getText()).toEpochMilli();
+            } catch (DateTimeParseException e) {
+                return -1;
+            }
+        }
+        return value == JsonToken.VALUE_NULL ? 0 : -1;
+    }
+
+    /**
+     * Splits a byte stream into lines, reusing the same buffer for every line.
+     */
+    private static final class LineReader {
+
+        private static final int CHUNK_SIZE = 8 * 1024;
+
+        private static final int INITIAL_LINE_SIZE = 512;
+
+        private final InputStream in;
+
+        private final int maxLineLength;
+
+        private final byte[] chunk = new byte[CHUNK_SIZE];
+
+        private int chunkPosition;
+
+        private int chunkLimit;
+
+        private byte[] line = new byte[INITIAL_LINE_SIZE];
+
+        private int length;
+
+        private boolean truncated;
+
+        private boolean endOfStream;
+
+        LineReader(InputStream in, int maxLineLength) {
+            this.in = in;
+            this.maxLineLength = maxLineLength;
+        }
+
+        /**
+         * Advance to the next line.
+         *
+         * @return {@code false} once the end of the stream has been reached.
+         */
+        boolean next() throws IOException {
+            length = 0;
+            truncated = false;
+            if (endOfStream) {
+                return false;
+            }
+            boolean consumed = false;
+            while (true) {
+                if (chunkPosition == chunkLimit) {
+                    int read = in.read(chunk);
+                    if (read < 0) {
+                        endOfStream = true;
+                        return consumed;
+                    }
+                    chunkPosition = 0;
+                    chunkLimit = read;
+                    continue;
+                }
+                consumed = true;
+                int start = chunkPosition;
+                while (chunkPosition < chunkLimit && chunk[chunkPosition] != '\n') {
+                    chunkPosition++;
+                }
+                append(start, chunkPosition - start);
+                if (chunkPosition < chunkLimit) {
+                    chunkPosition++;
+                    if (length > 0 && line[length - 1] == '\r') {
+                        length--;
+                    }
+                    return true;
+                }
+            }
+        }
+
+        private void append(int start, int count) {
+            if (truncated || count == 0) {
+                return;
+            }
+            if (length + count > maxLineLength) {
+                truncated = true;
+                return;
+            }
+            if (length + count > line.length) {
+                line = Arrays.copyOf(line, Math.min(maxLineLength, Math.max(line.length * 2, length + count)));
+            }
+            System.arraycopy(chunk, start, line, length, count);
+            length += count;
+        }
+
+        byte[] buffer() {
+            return line;
+        }
+
+        int length() {
+            return length;
+        }
+
+        boolean isTruncated() {
+            return truncated;
+        }
+
+        boolean isBlank() {
+            if (truncated) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                byte b = line[i];
+                if (b != ' ' && b != '\t' && b != '\r') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.isoft.rfid.web.rest;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.repository.search.TagReadCriteria;
+import com.isoft.rfid.service.TagReadStatisticsService;
+import com.isoft.rfid.service.dto.ReadCountDTO;
+import com.isoft.rfid.web.rest.errors.BadRequestAlertException;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller for the read statistics of the dashboards.
+ */
+@RestController
+@RequestMapping("/api")
+public class TagReadStatisticsResource {
+
+    private static final String ENTITY_NAME = "tagRead";
+
+    private static final Duration MIN_INTERVAL = Duration.ofSeconds(1);
+
+    private static final Duration DEFAULT_RANGE = Duration.ofDays(1);
+
+    private final Logger log = LoggerFactory.getLogger(TagReadStatisticsResource.class);
+
+    private final TagReadStatisticsService tagReadStatisticsService;
+
+    private final int maxBuckets;
+
+    public TagReadStatisticsResource(TagReadStatisticsService tagReadStatisticsService, ApplicationProperties applicationProperties) {
+        this.tagReadStatisticsService = tagReadStatisticsService;
+        this.maxBuckets = applicationProperties.getDashboard().getMaxBuckets();
+    }
+
+    /**
+     * {@code GET  /tag-reads/histogram} : count the tag reads by intervals of time.
+     * <p>
+     * The range is widened to whole intervals, aligned on multiples of the interval since the epoch.
+     *
+     * @param interval the width of the buckets, as an ISO-8601 duration, one hour if not specified.
+     * @param epc the EPC of the reads, all EPCs if not specified.
+     * @param readerId the reader of the reads, all readers if not specified.
+     * @param from the start of the time range, inclusive, a day before its end if not specified.
+     * @param to the end of the time range, exclusive, now if not specified.
+     * @return the read counts, in time order, including the intervals without reads.
+     * @throws BadRequestAlertException {@code 400 (Bad Request)} if the EPC is invalid, if the interval is too short, or
+     * if the range is empty or spans too many intervals.
+     * @throws IOException if Elasticsearch cannot be reached, or fails the search.
+     */
+    @GetMapping("/tag-reads/histogram")
+    public List<ReadCountDTO> getTagReadHistogram(
+        @RequestParam(defaultValue = "PT1H") Duration interval,
+        @RequestParam(required = false) String epc,
+        @RequestParam(required = false) String readerId,
+        @RequestParam(required = false) Instant from,
+        @RequestParam(required = false) Instant to
+    ) throws IOException {
+        if (interval.compareTo(MIN_INTERVAL) < 0) {
+            throw new BadRequestAlertException("The interval must be at least " + MIN_INTERVAL, ENTITY_NAME, "invalidinterval");
+        }
+        Instant end = to == null ? Instant.now() : to;
+        Instant start = from == null ? end.minus(DEFAULT_RANGE) : from;
+        if (!start.isBefore(end)) {
+            throw new BadRequestAlertException("The range is empty", ENTITY_NAME, "invalidrange");
+        }
+        if (Duration.between(start, end).dividedBy(interval) >= maxBuckets) {
+            throw new BadRequestAlertException("The range spans more than " + maxBuckets + " intervals", ENTITY_NAME, "toomany");
+        }
+        TagReadCriteria criteria = new TagReadCriteria();
+        criteria.setEpc(EpcParameters.canonical(epc, ENTITY_NAME));
+        criteria.setReaderId(readerId);
+        criteria.setFrom(start.toEpochMilli());
+        criteria.setTo(end.toEpochMilli());
+        log.debug("REST request to count the tag reads matching {} by {}", criteria, interval);
+        return tagReadStatisticsService.countReads(criteria, interval.toMillis());
+    }
+}
@@ -0,0 +1,66 @@
+package com.isoft.rfid.web.rest;
+
+import com.isoft.rfid.security.jwt.TokenProvider;
+import com.isoft.rfid.web.rest.errors.BadRequestAlertException;
+import com.isoft.rfid.web.rest.vm.TokenRevocationVM;
+import java.time.Instant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller for revoking the JWTs of lost or stolen devices before they expire.
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class TokenRevocationResource {
+
+    private static final String ENTITY_NAME = "token";
+
+    private final Logger log = LoggerFactory.getLogger(TokenRevocationResource.class);
+
+    private final TokenProvider tokenProvider;
+
+    public TokenRevocationResource(TokenProvider tokenProvider) {
+        this.tokenProvider = tokenProvider;
+    }
+
+    /**
+     * {@code POST  /admin/token-revocations} : revoke a token, a token by its ID, or the tokens of a subject issued before
+     * a given time, until they expire.
+     *
+     * @param revocation the token, the {@code tokenId} logged when the token was issued, or the {@code subject} and
+     * optionally {@code issuedBefore}, now by default.
+     * @return the {@link ResponseEntity} with status {@code 204 (No Content)}.
+     * @throws BadRequestAlertException {@code 400 (Bad Request)} if not exactly one of the token, its ID or the subject
+     * is given, or if the token was not issued here, or has no ID to be revoked by.
+     */
+    @PostMapping("/token-revocations")
+    public ResponseEntity<Void> revokeToken(@RequestBody TokenRevocationVM revocation) {
+        boolean byToken = StringUtils.hasText(revocation.getToken());
+        boolean byId = StringUtils.hasText(revocation.getTokenId());
+        boolean bySubject = StringUtils.hasText(revocation.getSubject());
+        if ((byToken ? 1 : 0) + (byId ? 1 : 0) + (bySubject ? 1 : 0) != 1) {
+            throw new BadRequestAlertException("Exactly one of token, tokenId and subject is expected", ENTITY_NAME, "invalidrevocation");
+        }
+        if (byId) {
+            log.debug("REST request to revoke token {}", revocation.getTokenId());
+            tokenProvider.revokeById(revocation.getTokenId());
+        } else if (bySubject) {
+            Instant issuedBefore = revocation.getIssuedBefore() != null ? revocation.getIssuedBefore() : Instant.now();
+            log.debug("REST request to revoke the tokens of {} issued before {}", revocation.getSubject(), issuedBefore);
+            tokenProvider.revokeSubject(revocation.getSubject(), issuedBefore.toEpochMilli());
+        } else {
+            log.debug("REST request to revoke a token");
+            if (!tokenProvider.revoke(revocation.getToken())) {
+                throw new BadRequestAlertException("The token was not issued here, or cannot be revoked", ENTITY_NAME, "invalidtoken");
+            }
+        }
+        return ResponseEntity.noContent().build();
+    }
+}
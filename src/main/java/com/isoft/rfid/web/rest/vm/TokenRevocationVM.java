@@ -0,0 +1,50 @@
+package com.isoft.rfid.web.rest.vm;
+
+import java.time.Instant;
+
+/**
+ * View Model object for revoking JWTs: a token, a token by its ID, or the tokens of a subject issued before a given
+ * time, now by default.
+ */
+public class TokenRevocationVM {
+
+    private String token;
+
+    private String tokenId;
+
+    private String subject;
+
+    private Instant issuedBefore;
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public void setTokenId(String tokenId) {
+        this.tokenId = tokenId;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public Instant getIssuedBefore() {
+        return issuedBefore;
+    }
+
+    public void setIssuedBefore(Instant issuedBefore) {
+        this.issuedBefore = issuedBefore;
+    }
+}
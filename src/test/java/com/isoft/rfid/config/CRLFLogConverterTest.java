@@ -0,0 +1,53 @@
+package com.isoft.rfid.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link CRLFLogConverter}.
+ */
+class CRLFLogConverterTest {
+
+    private final CRLFLogConverter converter = new CRLFLogConverter();
+
+    @BeforeEach
+    public void setup() {
+        converter.start();
+    }
+
+    private static ILoggingEvent event(String loggerName) {
+        LoggingEvent event = new LoggingEvent();
+        event.setLoggerName(loggerName);
+        event.setLevel(Level.INFO);
+        return event;
+    }
+
+    @Test
+    void testLineBreaksAreReplaced() {
+        ILoggingEvent event = event("com.isoft.rfid.web.rest.TagReadResource");
+
+        assertThat(converter.transform(event, "a\r\nb\tc\n")).isEqualTo("a__b_c_");
+        assertThat(converter.transform(event, "\n")).isEqualTo("_");
+    }
+
+    @Test
+    void testCleanMessagesAreReturnedAsIs() {
+        String message = "REST request to get the tag reads of dock-1";
+
+        assertThat(converter.transform(event("com.isoft.rfid.web.rest.TagReadResource"), message)).isSameAs(message);
+    }
+
+    @Test
+    void testSafeLoggersAreLeftAsIs() {
+        String message = "select\n  *";
+
+        assertThat(converter.transform(event("org.hibernate.SQL"), message)).isSameAs(message);
+        assertThat(converter.transform(event("org.hibernate.SQL"), message)).isSameAs(message);
+        assertThat(converter.transform(event("org.other"), message)).isEqualTo("select_  *");
+    }
+}
@@ -0,0 +1,223 @@
+package com.isoft.rfid.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test class for the {@link LogShipperAppender}, shipping to a local TCP sink.
+ */
+class LogShipperAppenderTest {
+
+    private final LoggerContext context = new LoggerContext();
+
+    private final List<String> received = new CopyOnWriteArrayList<>();
+
+    @TempDir
+    Path directory;
+
+    private int port;
+
+    private volatile int closeAfterLines = -1;
+
+    private ServerSocket sink;
+
+    private LogShipperAppender appender;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        try (ServerSocket free = new ServerSocket(0)) {
+            port = free.getLocalPort();
+        }
+    }
+
+    @AfterEach
+    public void teardown() throws IOException {
+        if (appender != null) {
+            appender.stop();
+        }
+        if (sink != null) {
+            sink.close();
+        }
+    }
+
+    private void startSink() throws IOException {
+        sink = new ServerSocket();
+        sink.setReuseAddress(true);
+        sink.bind(new InetSocketAddress("localhost", port));
+        Thread accepting = new Thread(() -> {
+            while (!sink.isClosed()) {
+                try (
+                    Socket socket = sink.accept();
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))
+                ) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        received.add(line);
+                        if (received.size() == closeAfterLines) {
+                            break;
+                        }
+                    }
+                } catch (IOException e) {
+                    // Closed
+                }
+            }
+        });
+        accepting.setDaemon(true);
+        accepting.start();
+    }
+
+    private LogShipperAppender appender(int batchMaxBytes) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("{\"message\":\"%m\"}%n");
+        encoder.start();
+        LogShipperAppender logShipperAppender = new LogShipperAppender();
+        logShipperAppender.setContext(context);
+        logShipperAppender.setEncoder(encoder);
+        logShipperAppender.setHost("localhost");
+        logShipperAppender.setPort(port);
+        logShipperAppender.setSpoolDirectory(directory);
+        logShipperAppender.setBatchMaxBytes(batchMaxBytes);
+        logShipperAppender.setBatchMaxMillis(50);
+        logShipperAppender.setQueueSize(1);
+        logShipperAppender.setReconnectDelayMillis(50);
+        logShipperAppender.start();
+        return logShipperAppender;
+    }
+
+    private void log(int from, int to) {
+        for (int i = from; i < to; i++) {
+            appender.doAppend(
+                new LoggingEvent(LogShipperAppenderTest.class.getName(), context.getLogger("ingest"), Level.INFO, "read " + i, null, null)
+            );
+        }
+    }
+
+    private static List<String> lines(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> "{\"message\":\"read " + i + "\"}").collect(Collectors.toList());
+    }
+
+    private long spooled() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".json.gz")).count();
+        }
+    }
+
+    @Test
+    void testBatchesAreShipped() throws IOException {
+        startSink();
+        appender = appender(100);
+
+        log(0, 20);
+        await().atMost(Duration.ofSeconds(10)).until(() -> received.size() == 20);
+
+        assertThat(received).isEqualTo(lines(0, 20));
+        assertThat(spooled()).isZero();
+    }
+
+    @Test
+    void testLogsAreSpooledUntilTheCollectorIsBack() throws IOException {
+        appender = appender(100);
+
+        log(0, 20);
+        await().atMost(Duration.ofSeconds(10)).until(() -> spooled() >= 2);
+        startSink();
+        log(20, 30);
+        await().atMost(Duration.ofSeconds(10)).until(() -> received.size() == 30);
+
+        assertThat(received).isEqualTo(lines(0, 30));
+        await().atMost(Duration.ofSeconds(10)).until(() -> spooled() == 0);
+    }
+
+    @Test
+    void testBatchesWrittenBeforeTheCollectorClosedTheConnectionAreShippedAgain() throws IOException {
+        closeAfterLines = 3;
+        startSink();
+        appender = appender(100);
+
+        log(0, 5);
+        await().atMost(Duration.ofSeconds(10)).until(() -> received.size() >= 3);
+        log(5, 20);
+
+        // At least once: the lines read by the collector before it closed the connection may be received twice
+        await().atMost(Duration.ofSeconds(10)).until(() -> received.containsAll(lines(0, 20)));
+        assertThat(received).containsSubsequence(lines(0, 20));
+        await().atMost(Duration.ofSeconds(10)).until(() -> spooled() == 0);
+    }
+
+    @Test
+    void testSpooledLogsAreShippedAfterARestart() throws IOException {
+        appender = appender(100);
+        log(0, 20);
+        appender.stop();
+        assertThat(spooled()).isPositive();
+
+        startSink();
+        appender = appender(100);
+        await().atMost(Duration.ofSeconds(10)).until(() -> received.size() == 20);
+
+        assertThat(received).isEqualTo(lines(0, 20));
+    }
+
+    @Test
+    void testTheOldestSpooledBatchesAreDropped() throws IOException {
+        LogShipperAppender.Spool spool = new LogShipperAppender.Spool(directory, 100);
+
+        for (int i = 0; i < 10; i++) {
+            spool.add(String.join("\n", lines(10 * i, 10 * i + 10)).getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertThat(spool.size()).isBetween(1, 3);
+        assertThat(new String(spool.read(spool.head()), StandardCharsets.UTF_8)).doesNotContain("read 0\"");
+        LogShipperAppender.Spool reopened = new LogShipperAppender.Spool(directory, 100);
+        assertThat(reopened.size()).isEqualTo(spool.size());
+        assertThat(reopened.read(reopened.head())).isEqualTo(spool.read(spool.head()));
+    }
+
+    @Test
+    void testRemovingAShippedBatchKeepsTheBatchesSpooledMeanwhile() throws IOException {
+        LogShipperAppender.Spool spool = new LogShipperAppender.Spool(directory, 1000);
+        spool.add(String.join("\n", lines(0, 10)).getBytes(StandardCharsets.UTF_8));
+        Path shipped = spool.head();
+        spool.addFirst(String.join("\n", lines(10, 20)).getBytes(StandardCharsets.UTF_8));
+
+        spool.remove(shipped);
+
+        assertThat(spool.size()).isEqualTo(1);
+        assertThat(new String(spool.read(spool.head()), StandardCharsets.UTF_8)).contains("read 10\"");
+
+        LogShipperAppender.Spool full = new LogShipperAppender.Spool(directory.resolve("full"), 100);
+        full.add(String.join("\n", lines(0, 10)).getBytes(StandardCharsets.UTF_8));
+        shipped = full.head();
+        assertThat(full.add(String.join("\n", lines(10, 20)).getBytes(StandardCharsets.UTF_8))).isEqualTo(1);
+
+        full.remove(shipped);
+
+        assertThat(full.size()).isEqualTo(1);
+        assertThat(new String(full.read(full.head()), StandardCharsets.UTF_8)).contains("read 10\"");
+    }
+}
@@ -0,0 +1,160 @@
+package com.isoft.rfid.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.read.ListAppender;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link RingBufferAppender}.
+ */
+class RingBufferAppenderTest {
+
+    private final LoggerContext context = new LoggerContext();
+
+    private final ListAppender<ILoggingEvent> written = new ListAppender<>();
+
+    private RingBufferAppender appender;
+
+    @BeforeEach
+    public void setup() {
+        written.setContext(context);
+        written.start();
+        appender = new RingBufferAppender();
+        appender.setContext(context);
+        appender.setBufferSize(16);
+    }
+
+    private LoggingEvent event(String message, Object... arguments) {
+        return new LoggingEvent(RingBufferAppenderTest.class.getName(), context.getLogger("test"), Level.INFO, message, null, arguments);
+    }
+
+    @Test
+    void testEventsAreWrittenInOrderOfEachThread() throws Exception {
+        appender.addAppender(written);
+        appender.setBufferSize(1 << 16);
+        appender.start();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            String name = "thread-" + t;
+            threads.add(
+                new Thread(
+                    () -> {
+                        for (int i = 0; i < 1000; i++) {
+                            appender.doAppend(event("{}", i));
+                        }
+                    },
+                    name
+                )
+            );
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        appender.stop();
+
+        assertThat(written.list).hasSize(4000);
+        assertThat(appender.getDropped()).isZero();
+        Map<String, Integer> last = new HashMap<>();
+        for (ILoggingEvent event : written.list) {
+            int i = Integer.parseInt(event.getFormattedMessage());
+            assertThat(last.put(event.getThreadName(), i)).isEqualTo(i == 0 ? null : i - 1);
+        }
+    }
+
+    @Test
+    void testEventsAreDroppedAndCountedWhenTheBufferIsFull() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AppenderBase<ILoggingEvent> slow = new AppenderBase<>() {
+            @Override
+            protected void append(ILoggingEvent event) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        slow.setContext(context);
+        slow.start();
+        appender.addAppender(slow);
+        appender.addAppender(written);
+        appender.start();
+
+        appender.doAppend(event("first"));
+        assertThat(blocked.await(10, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 20; i++) {
+            appender.doAppend(event("{}", i));
+        }
+        assertThat(appender.getDropped()).isEqualTo(4);
+        release.countDown();
+        appender.stop();
+
+        assertThat(written.list).hasSize(18);
+        assertThat(written.list.get(16).getFormattedMessage()).isEqualTo("15");
+        assertThat(written.list.get(17).getLevel()).isEqualTo(Level.WARN);
+        assertThat(written.list.get(17).getFormattedMessage()).startsWith("4 log events were dropped");
+    }
+
+    @Test
+    void testTheBufferIsDrainedOnStop() {
+        appender.addAppender(written);
+        appender.start();
+
+        for (int i = 0; i < 16; i++) {
+            appender.doAppend(event("{}", i));
+        }
+        appender.stop();
+
+        assertThat(written.list).hasSize(16);
+        assertThat(written.isStarted()).isFalse();
+        appender.doAppend(event("after"));
+        assertThat(written.list).hasSize(16);
+    }
+
+    @Test
+    void testNoEventIsLostNorWrittenTwiceWhileAppendersAreTakenOver() {
+        ListAppender<ILoggingEvent> other = new ListAppender<>();
+        other.setContext(context);
+        other.start();
+        Logger logger = context.getLogger("taken-over");
+        logger.addAppender(written);
+        logger.addAppender(other);
+        appender.start();
+
+        appender.takeOver(logger, List.of(written, other));
+        // As threads logging while the appenders were being swapped: given to both, to one of them, or to neither
+        LoggingEvent both = event("both");
+        written.doAppend(both);
+        other.doAppend(both);
+        appender.doAppend(both);
+        LoggingEvent one = event("one");
+        other.doAppend(one);
+        appender.doAppend(one);
+        appender.doAppend(event("none"));
+        appender.stop();
+
+        assertThat(logger.isAttached(written)).isFalse();
+        assertThat(logger.isAttached(other)).isFalse();
+        assertThat(logger.isAttached(appender)).isTrue();
+        assertThat(written.list).extracting(ILoggingEvent::getFormattedMessage).containsExactly("both", "one", "none");
+        assertThat(other.list).extracting(ILoggingEvent::getFormattedMessage).containsExactly("both", "one", "none");
+    }
+}
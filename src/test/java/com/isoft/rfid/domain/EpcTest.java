@@ -0,0 +1,75 @@
+package com.isoft.rfid.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.isoft.rfid.config.JacksonConfiguration;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class EpcTest {
+
+    private static final String SGTIN_96 = "3034257BF7194E4000001A85";
+
+    @Test
+    void testParseStoresLeftAlignedWords() {
+        Epc epc = Epc.parse(SGTIN_96);
+
+        assertThat(epc.getBitLength()).isEqualTo(96);
+        assertThat(epc.getWord(0)).isEqualTo(0x3034257BF7194E40L);
+        assertThat(epc.getWord(1)).isEqualTo(0x00001A8500000000L);
+        assertThat(epc.getBits(0, 8)).isEqualTo(0x30);
+        assertThat(epc.getBits(58, 38)).isEqualTo(0x1A85);
+        assertThat(epc).hasToString(SGTIN_96);
+    }
+
+    @Test
+    void testEveryParserAgrees() {
+        String hex = "E2801160600002054CC2096F00112233445566778899AABBCCDDEEFF00112233";
+        Epc fromString = Epc.parse(hex.toLowerCase());
+        Epc fromChars = Epc.tryParse(("xx" + hex).toCharArray(), 2, hex.length());
+        Epc fromAscii = Epc.tryParse(hex.getBytes(StandardCharsets.US_ASCII), 0, hex.length());
+        ByteBuffer binary = ByteBuffer.allocate(32);
+        for (int i = 0; i < hex.length(); i += 2) {
+            binary.put((byte) Integer.parseInt(hex.substring(i, i + 2), 16));
+        }
+        binary.flip();
+        Epc fromBinary = Epc.read(binary, 256);
+
+        assertThat(fromString.getBitLength()).isEqualTo(256);
+        assertThat(fromChars).isEqualTo(fromString);
+        assertThat(fromAscii).isEqualTo(fromString);
+        assertThat(fromBinary).isEqualTo(fromString).hasSameHashCodeAs(fromString);
+        assertThat(fromString).hasToString(hex);
+    }
+
+    @Test
+    void testLengthIsPartOfTheIdentity() {
+        assertThat(Epc.parse("0000")).isNotEqualTo(Epc.parse("00000000"));
+        assertThat(Epc.of(96, 0x3034257BF7194E40L, 0x00001A85FFFFFFFFL)).isEqualTo(Epc.parse(SGTIN_96));
+    }
+
+    @Test
+    void testInvalidInputIsRejected() {
+        assertThat(Epc.tryParse("303")).isNull();
+        assertThat(Epc.tryParse("3034257BF7194E4000001A8G")).isNull();
+        assertThat(Epc.tryParse("0".repeat(68))).isNull();
+        assertThat(Epc.tryParse("٣٣٣٣")).isNull();
+        assertThatThrownBy(() -> Epc.parse("nope")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testJsonRoundTrip() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JacksonConfiguration().epcModule());
+        Epc epc = Epc.parse(SGTIN_96);
+
+        assertThat(mapper.writeValueAsString(epc)).isEqualTo("\"" + SGTIN_96 + "\"");
+        assertThat(mapper.readValue("\"" + SGTIN_96.toLowerCase() + "\"", Epc.class)).isEqualTo(epc);
+        assertThat(mapper.writeValueAsString(Map.of(epc, 1))).isEqualTo("{\"" + SGTIN_96 + "\":1}");
+        assertThatThrownBy(() -> mapper.readValue("\"XYZ\"", Epc.class)).isInstanceOf(InvalidFormatException.class);
+    }
+}
@@ -0,0 +1,94 @@
+package com.isoft.rfid.repository.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>("test", registry);
+
+    private final ExecutorService callers = Executors.newFixedThreadPool(4);
+
+    private final AtomicInteger searches = new AtomicInteger();
+
+    @AfterEach
+    public void teardown() {
+        callers.shutdownNow();
+    }
+
+    private double count(String result) {
+        return registry.get(SingleFlight.METER_NAME).tag("query", "test").tag("result", result).counter().count();
+    }
+
+    @Test
+    void testConcurrentIdenticalSearchesShareOneSearch() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SingleFlight.Search<String> search = () -> {
+            searches.incrementAndGet();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "result";
+        };
+
+        Future<String> first = callers.submit(() -> singleFlight.execute("histogram", search));
+        await().until(() -> singleFlight.inFlight() == 1);
+        Future<String> second = callers.submit(() -> singleFlight.execute("histogram", search));
+        Future<String> third = callers.submit(() -> singleFlight.execute("histogram", search));
+        await().until(() -> count("coalesced") == 2);
+        release.countDown();
+
+        assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo("result");
+        assertThat(second.get(10, TimeUnit.SECONDS)).isEqualTo("result");
+        assertThat(third.get(10, TimeUnit.SECONDS)).isEqualTo("result");
+        assertThat(searches).hasValue(1);
+        assertThat(count("leader")).isEqualTo(1);
+        assertThat(singleFlight.inFlight()).isZero();
+
+        assertThat(singleFlight.execute("histogram", search)).isEqualTo("result");
+        assertThat(searches).hasValue(2);
+    }
+
+    @Test
+    void testFailuresAreSharedAndNotRemembered() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> first = callers.submit(() ->
+            singleFlight.execute(
+                "histogram",
+                () -> {
+                    searches.incrementAndGet();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new IOException("Connection refused");
+                }
+            )
+        );
+        await().until(() -> singleFlight.inFlight() == 1);
+        Future<String> second = callers.submit(() -> singleFlight.execute("histogram", () -> "not run"));
+        await().until(() -> count("coalesced") == 1);
+        release.countDown();
+
+        assertThatThrownBy(() -> first.get(10, TimeUnit.SECONDS)).hasCauseInstanceOf(IOException.class);
+        assertThatThrownBy(() -> second.get(10, TimeUnit.SECONDS)).hasCauseInstanceOf(IOException.class);
+        assertThat(singleFlight.execute("histogram", () -> "retried")).isEqualTo("retried");
+    }
+}
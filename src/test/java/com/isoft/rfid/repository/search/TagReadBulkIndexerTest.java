@@ -0,0 +1,335 @@
+package com.isoft.rfid.repository.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.domain.Epc;
+import com.isoft.rfid.domain.TagRead;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link TagReadBulkIndexer} against an in-process fake {@code _bulk} endpoint.
+ */
+class TagReadBulkIndexerTest {
+
+    private static final String ALL_INDEXED = "{\"took\":1,\"errors\":false,\"items\":[]}";
+
+    private final BlockingQueue<String> requests = new LinkedBlockingQueue<>();
+
+    private final BlockingQueue<String> responses = new LinkedBlockingQueue<>();
+
+    private final BlockingQueue<String> failures = new LinkedBlockingQueue<>();
+
+    private final ApplicationProperties.Indexing properties = new ApplicationProperties.Indexing();
+
+    private volatile boolean unavailable;
+
+    private HttpServer fakeElasticsearch;
+
+    private RestClient restClient;
+
+    private TagReadBulkIndexer indexer;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        fakeElasticsearch = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        fakeElasticsearch.createContext(
+            "/_bulk",
+            exchange -> {
+                requests.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+                String response = unavailable ? "HTTP 503 {}" : responses.poll();
+                int status = 200;
+                if (response == null) {
+                    response = ALL_INDEXED;
+                } else if (response.startsWith("HTTP ")) {
+                    status = Integer.parseInt(response.substring(5, 8));
+                    response = response.substring(9);
+                }
+                byte[] body = response.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        );
+        fakeElasticsearch.start();
+        restClient = RestClient.builder(new HttpHost("localhost", fakeElasticsearch.getAddress().getPort())).build();
+        properties.setMinBatchBytes(512);
+        properties.setInitialBatchBytes(1024);
+        properties.setMaxBatchBytes(4096);
+        properties.setBatchBytesIncrement(512);
+        properties.setRetryDelayMillis(10);
+        properties.setFlushIntervalMillis(50);
+    }
+
+    @AfterEach
+    public void teardown() throws IOException {
+        if (indexer != null) {
+            indexer.stop();
+            indexer.destroy();
+        }
+        restClient.close();
+        fakeElasticsearch.stop(0);
+    }
+
+    private void createIndexer() {
+        indexer =
+            new TagReadBulkIndexer(
+                properties,
+                restClient,
+                new TagReadIndexPartitions("tag-read", ChronoUnit.DAYS, 64),
+                new ObjectMapper().getFactory(),
+                new SimpleMeterRegistry(),
+                (ndjson, documentCount, reason, retryable) ->
+                    failures.add(documentCount + " " + retryable + " " + new String(ndjson, StandardCharsets.UTF_8))
+            );
+        indexer.start();
+    }
+
+    private static TagRead read(int serial) {
+        TagRead read = new TagRead();
+        read.setEpc(Epc.of(96, 0x3034257BF7194E40L, (long) serial << 32));
+        read.setReaderId("dock-1");
+        read.setAntenna(1);
+        read.setRssi(-52.5);
+        read.setTimestamp(1668412800000L + serial);
+        return read;
+    }
+
+    private static String action(int serial) {
+        return (
+            "{\"index\":{\"_index\":\"tag-read-2022.11.14\",\"_id\":\"" +
+            read(serial).getEpc() +
+            "-" +
+            read(serial).getTimestamp() +
+            "-1-dock-1\"}}\n"
+        );
+    }
+
+    private static String itemsResponse(int... statuses) {
+        StringBuilder response = new StringBuilder("{\"took\":1,\"errors\":true,\"items\":[");
+        for (int i = 0; i < statuses.length; i++) {
+            if (i > 0) {
+                response.append(',');
+            }
+            response.append("{\"index\":{\"_index\":\"tag-read\",\"status\":").append(statuses[i]);
+            if (statuses[i] >= 300) {
+                String type = statuses[i] == 429
+                    ? "es_rejected_execution_exception"
+                    : statuses[i] == 403 ? "cluster_block_exception" : "mapper_parsing_exception";
+                response.append(",\"error\":{\"type\":\"").append(type).append("\",\"reason\":\"test\"}");
+            }
+            response.append("}}");
+        }
+        return response.append("]}").toString();
+    }
+
+    private static int documentCount(String body) {
+        return (int) body.chars().filter(c -> c == '\n').count() / 2;
+    }
+
+    @Test
+    void sendsBatchOnceItReachesTheBatchSize() throws InterruptedException {
+        properties.setFlushIntervalMillis(60000);
+        createIndexer();
+
+        // Each document takes about 210 bytes: the 5th one fills the 1024-byte batch
+        for (int i = 0; i < 5; i++) {
+            indexer.index(read(i));
+        }
+
+        String body = requests.poll(5, TimeUnit.SECONDS);
+        assertThat(body).isNotNull().startsWith(action(0) + "{\"epc\":\"3034257BF7194E4000000000\",\"readerId\":\"dock-1\"");
+        assertThat(body.length()).isGreaterThanOrEqualTo(1024);
+        assertThat(documentCount(body)).isEqualTo(5);
+        assertThat(body).endsWith("}\n").contains("\"timestamp\":1668412800000");
+    }
+
+    @Test
+    void sendsPartialBatchAfterTheFlushInterval() throws InterruptedException {
+        createIndexer();
+
+        indexer.index(read(1));
+
+        String body = requests.poll(5, TimeUnit.SECONDS);
+        assertThat(body).isNotNull();
+        assertThat(documentCount(body)).isEqualTo(1);
+    }
+
+    @Test
+    void retriesRejectedDocumentsAndShrinksTheBatch() throws InterruptedException {
+        properties.setFlushIntervalMillis(60000);
+        createIndexer();
+        responses.add(itemsResponse(201, 429, 201));
+
+        indexer.index(read(1));
+        indexer.index(read(2));
+        indexer.index(read(3));
+        indexer.flush();
+
+        assertThat(documentCount(requests.poll(5, TimeUnit.SECONDS))).isEqualTo(3);
+        String retry = requests.poll(5, TimeUnit.SECONDS);
+        assertThat(retry).isNotNull();
+        assertThat(documentCount(retry)).isEqualTo(1);
+        assertThat(retry).contains("3034257BF7194E4000000002");
+        assertThat(indexer.getBatchBytes()).isEqualTo(512);
+        assertThat(failures).isEmpty();
+    }
+
+    @Test
+    void handsRefusedDocumentsToTheFailureHandler() throws InterruptedException {
+        properties.setFlushIntervalMillis(60000);
+        createIndexer();
+        responses.add(itemsResponse(201, 400));
+
+        indexer.index(read(1));
+        indexer.index(read(2));
+        indexer.flush();
+
+        String failure = failures.poll(5, TimeUnit.SECONDS);
+        assertThat(failure).isNotNull().startsWith("1 false " + action(2)).contains("3034257BF7194E4000000002");
+        assertThat(requests).hasSize(1);
+    }
+
+    @Test
+    void handsWriteBlockedDocumentsToTheFailureHandlerAsRetryable() throws InterruptedException {
+        properties.setFlushIntervalMillis(60000);
+        properties.setMaxRetries(0);
+        createIndexer();
+        responses.add(itemsResponse(201, 403));
+
+        indexer.index(read(1));
+        indexer.index(read(2));
+        indexer.flush();
+
+        String failure = failures.poll(5, TimeUnit.SECONDS);
+        assertThat(failure).isNotNull().startsWith("1 true " + action(2)).contains("3034257BF7194E4000000002");
+    }
+
+    @Test
+    void tellsTheTimestampsOfTheReadsOnlyOnceTheyAreIndexed() throws InterruptedException {
+        properties.setFlushIntervalMillis(60000);
+        createIndexer();
+        BlockingQueue<Long> indexed = new LinkedBlockingQueue<>();
+        indexer.setIndexedListener(indexed::add);
+        responses.add(itemsResponse(201, 429, 400));
+
+        indexer.index(read(1));
+        indexer.index(read(2));
+        indexer.index(read(3));
+        indexer.flush();
+
+        assertThat(indexed.poll(5, TimeUnit.SECONDS)).isEqualTo(read(1).getTimestamp());
+        assertThat(indexed.poll(5, TimeUnit.SECONDS)).isEqualTo(read(2).getTimestamp());
+        assertThat(requests).hasSize(2);
+        assertThat(indexed).isEmpty();
+    }
+
+    @Test
+    void splitsRequestsTooLargeForTheCluster() throws InterruptedException {
+        properties.setFlushIntervalMillis(60000);
+        createIndexer();
+        responses.add("HTTP 413 {}");
+
+        for (int i = 1; i <= 4; i++) {
+            indexer.index(read(i));
+        }
+        indexer.flush();
+
+        assertThat(documentCount(requests.poll(5, TimeUnit.SECONDS))).isEqualTo(4);
+        assertThat(requests.poll(5, TimeUnit.SECONDS)).isNotNull().startsWith(action(1)).contains(action(2)).doesNotContain(action(3));
+        assertThat(requests.poll(5, TimeUnit.SECONDS)).isNotNull().startsWith(action(3)).contains(action(4));
+        for (int i = 0; i < 100 && indexer.getInFlightCount() > 0; i++) {
+            Thread.sleep(50);
+        }
+        assertThat(indexer.getInFlightCount()).isZero();
+        assertThat(failures).isEmpty();
+    }
+
+    @Test
+    void refusesADocumentTooLargeForTheCluster() throws InterruptedException {
+        properties.setFlushIntervalMillis(60000);
+        createIndexer();
+        responses.add("HTTP 413 {}");
+
+        indexer.index(read(1));
+        indexer.flush();
+
+        assertThat(failures.poll(5, TimeUnit.SECONDS)).isNotNull().startsWith("1 false " + action(1));
+        assertThat(requests).hasSize(1);
+    }
+
+    @Test
+    void givesUpAfterTheMaximumRetries() throws InterruptedException {
+        properties.setFlushIntervalMillis(60000);
+        properties.setMaxRetries(2);
+        createIndexer();
+        for (int i = 0; i < 3; i++) {
+            responses.add("HTTP 503 {}");
+        }
+
+        indexer.index(read(1));
+        indexer.flush();
+
+        String failure = failures.poll(5, TimeUnit.SECONDS);
+        assertThat(failure).isNotNull().startsWith("1 true ");
+        assertThat(requests).hasSize(3);
+    }
+
+    @Test
+    void growsTheBatchAfterFastRequests() throws InterruptedException {
+        properties.setFlushIntervalMillis(60000);
+        createIndexer();
+
+        indexer.index(read(1));
+        indexer.flush();
+        assertThat(requests.poll(5, TimeUnit.SECONDS)).isNotNull();
+        indexer.stop();
+
+        assertThat(indexer.getInFlightCount()).isZero();
+        assertThat(indexer.getBatchBytes()).isEqualTo(1536);
+    }
+
+    @Test
+    void recoversOnceElasticsearchIsBackAfterEveryRequestFailed() throws InterruptedException {
+        properties.setMaxInFlight(2);
+        properties.setMaxRetries(3);
+        createIndexer();
+        unavailable = true;
+
+        // Every request slot is taken by a batch waiting for a retry while more batches fall due
+        for (int i = 0; i < 10; i++) {
+            indexer.index(read(i));
+            Thread.sleep(20);
+        }
+        unavailable = false;
+        indexer.index(read(99));
+
+        String body;
+        do {
+            body = requests.poll(5, TimeUnit.SECONDS);
+            assertThat(body).isNotNull();
+        } while (!body.contains("3034257BF7194E4000000063"));
+        for (int i = 0; i < 100 && indexer.getInFlightCount() > 0; i++) {
+            Thread.sleep(50);
+        }
+        assertThat(indexer.getInFlightCount()).isZero();
+    }
+}
@@ -0,0 +1,68 @@
+package com.isoft.rfid.repository.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import org.junit.jupiter.api.Test;
+
+class TagReadIndexPartitionsTest {
+
+    private static final long NOV_14_2022_8AM = Instant.parse("2022-11-14T08:00:00Z").toEpochMilli();
+
+    private final TagReadIndexPartitions daily = new TagReadIndexPartitions("tag-read", ChronoUnit.DAYS, 64);
+
+    private final TagReadIndexPartitions weekly = new TagReadIndexPartitions("tag-read", ChronoUnit.WEEKS, 8);
+
+    @Test
+    void namesDailyPartitionsAfterTheUtcDay() {
+        assertThat(daily.partitionName(NOV_14_2022_8AM)).isEqualTo("tag-read-2022.11.14");
+        assertThat(daily.partitionStart(NOV_14_2022_8AM)).isEqualTo(Instant.parse("2022-11-14T00:00:00Z").toEpochMilli());
+        assertThat(daily.partitionName(Instant.parse("2022-11-14T23:59:59.999Z").toEpochMilli())).isEqualTo("tag-read-2022.11.14");
+        assertThat(daily.getPattern()).isEqualTo("tag-read-*");
+    }
+
+    @Test
+    void namesWeeklyPartitionsAfterTheIsoWeek() {
+        assertThat(weekly.partitionName(NOV_14_2022_8AM)).isEqualTo("tag-read-2022.w46");
+        assertThat(weekly.partitionStart(NOV_14_2022_8AM)).isEqualTo(Instant.parse("2022-11-14T00:00:00Z").toEpochMilli());
+        // The 1st of January 2021 is a Friday, in the last week of 2020
+        long newYear = Instant.parse("2021-01-01T00:00:00Z").toEpochMilli();
+        assertThat(weekly.partitionName(newYear)).isEqualTo("tag-read-2020.w53");
+        assertThat(weekly.partitionStart(newYear)).isEqualTo(Instant.parse("2020-12-28T00:00:00Z").toEpochMilli());
+    }
+
+    @Test
+    void parsesPartitionNamesBack() {
+        long start = daily.partitionStart(NOV_14_2022_8AM);
+        assertThat(daily.partitionStartOf("tag-read-2022.11.14")).isEqualTo(start);
+        assertThat(weekly.partitionStartOf("tag-read-2022.w46")).isEqualTo(start);
+        assertThat(weekly.partitionStartOf("tag-read-2020.w53")).isEqualTo(Instant.parse("2020-12-28T00:00:00Z").toEpochMilli());
+        assertThat(daily.partitionStartOf("tag-read-2022.13.01")).isEqualTo(-1);
+        assertThat(daily.partitionStartOf("tag-read-2022.1.14")).isEqualTo(-1);
+        assertThat(daily.partitionStartOf("tag-read-write")).isEqualTo(-1);
+        assertThat(daily.partitionStartOf("other-2022.11.14")).isEqualTo(-1);
+        assertThat(weekly.partitionStartOf("tag-read-2022.w54")).isEqualTo(-1);
+    }
+
+    @Test
+    void searchesOnlyThePartitionsOverlappingTheRange() {
+        assertThat(daily.searchTarget(NOV_14_2022_8AM - 3600_000, NOV_14_2022_8AM)).isEqualTo("tag-read-2022.11.14");
+        assertThat(daily.searchTarget(NOV_14_2022_8AM - 9 * 3600_000, NOV_14_2022_8AM))
+            .isEqualTo("tag-read-2022.11.13,tag-read-2022.11.14");
+        assertThat(weekly.searchTarget(NOV_14_2022_8AM - 3600_000, NOV_14_2022_8AM)).isEqualTo("tag-read-2022.w46");
+    }
+
+    @Test
+    void searchesTheReadAliasForWideOrOpenRanges() {
+        assertThat(daily.searchTarget(NOV_14_2022_8AM - 365 * 86400_000L, NOV_14_2022_8AM)).isEqualTo("tag-read");
+        assertThat(daily.searchTarget(null, NOV_14_2022_8AM)).isEqualTo("tag-read");
+        assertThat(daily.searchTarget(NOV_14_2022_8AM, null)).isEqualTo("tag-read");
+    }
+
+    @Test
+    void rejectsOtherUnits() {
+        assertThatThrownBy(() -> new TagReadIndexPartitions("tag-read", ChronoUnit.HOURS, 64)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,197 @@
+package com.isoft.rfid.repository.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.domain.TagRead;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link TagReadSearchRepository} against an in-process fake Elasticsearch.
+ */
+class TagReadSearchRepositoryTest {
+
+    private static final long DAY = 1668384000000L;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final BlockingQueue<String> requests = new LinkedBlockingQueue<>();
+
+    private final BlockingQueue<String> responses = new LinkedBlockingQueue<>();
+
+    private HttpServer fakeElasticsearch;
+
+    private RestClient restClient;
+
+    private TagReadSearchRepository repository;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        fakeElasticsearch = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        fakeElasticsearch.createContext(
+            "/",
+            exchange -> {
+                String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                requests.add(exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath() + " " + body);
+                String response = responses.poll();
+                int status = 200;
+                if (response == null) {
+                    response = "{}";
+                } else if (response.startsWith("HTTP ")) {
+                    status = Integer.parseInt(response.substring(5, 8));
+                    response = response.substring(9);
+                }
+                byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            }
+        );
+        fakeElasticsearch.start();
+        restClient = RestClient.builder(new HttpHost("localhost", fakeElasticsearch.getAddress().getPort())).build();
+        repository =
+            new TagReadSearchRepository(
+                restClient,
+                objectMapper,
+                new TagReadIndexPartitions("tag-read", ChronoUnit.DAYS, 64),
+                new ApplicationProperties(),
+                new SimpleMeterRegistry()
+            );
+    }
+
+    @AfterEach
+    public void teardown() throws IOException {
+        restClient.close();
+        fakeElasticsearch.stop(0);
+    }
+
+    private static String hits(String pitId, int... serials) {
+        StringBuilder hits = new StringBuilder();
+        for (int serial : serials) {
+            if (hits.length() > 0) {
+                hits.append(',');
+            }
+            hits
+                .append("{\"_source\":{\"epc\":\"3034257BF7194E40000000")
+                .append(String.format("%02X", serial))
+                .append("\",\"readerId\":\"dock-1\",\"antenna\":1,\"rssi\":-60.5,\"timestamp\":")
+                .append(DAY + serial)
+                .append("},\"sort\":[")
+                .append(DAY + serial)
+                .append(',')
+                .append(serial * 10)
+                .append("]}");
+        }
+        return "{\"pit_id\":\"" + pitId + "\",\"hits\":{\"hits\":[" + hits + "]}}";
+    }
+
+    private JsonNode searchBody(String request) throws IOException {
+        assertThat(request).startsWith("POST /_search ");
+        return objectMapper.readTree(request.substring("POST /_search ".length()));
+    }
+
+    @Test
+    void testPagesResumeAfterTheLastReadOfThePreviousPage() throws IOException {
+        TagReadCriteria criteria = new TagReadCriteria();
+        criteria.setReaderId("dock-1");
+        criteria.setFrom(DAY);
+        criteria.setTo(DAY + 1000);
+        responses.add("{\"id\":\"pit-1\"}");
+        responses.add(hits("pit-2", 9, 8));
+        responses.add(hits("pit-3", 7));
+
+        TagReadPage first = repository.search(criteria, 2);
+
+        assertThat(requests.poll()).startsWith("POST /tag-read-2022.11.14/_pit ");
+        JsonNode firstBody = searchBody(requests.poll());
+        assertThat(firstBody.path("pit").path("id").asText()).isEqualTo("pit-1");
+        assertThat(firstBody.path("track_total_hits").asBoolean()).isFalse();
+        assertThat(firstBody.has("search_after")).isFalse();
+        assertThat(firstBody.path("query").toString()).contains("\"readerId\":\"dock-1\"").contains("\"gte\":" + DAY);
+        assertThat(first.getReads()).extracting(TagRead::getTimestamp).containsExactly(DAY + 9, DAY + 8);
+        assertThat(first.getReads().get(0).getEpc().toString()).isEqualTo("3034257BF7194E4000000009");
+        assertThat(first.getNextCursor()).isNotNull();
+
+        TagReadPage second = repository.next(first.getNextCursor(), 2);
+
+        JsonNode secondBody = searchBody(requests.poll());
+        assertThat(secondBody.path("pit").path("id").asText()).isEqualTo("pit-2");
+        assertThat(secondBody.path("search_after").toString()).isEqualTo("[" + (DAY + 8) + ",80]");
+        assertThat(secondBody.path("query")).isEqualTo(firstBody.path("query"));
+        assertThat(second.getReads()).extracting(TagRead::getTimestamp).containsExactly(DAY + 7);
+        assertThat(second.getNextCursor()).isNull();
+        assertThat(requests.poll()).isEqualTo("DELETE /_pit {\"id\":\"pit-3\"}");
+    }
+
+    @Test
+    void testSliceScanResumesAfterTheLastHitUntilAShortPage() throws Exception {
+        responses.add(hits("pit-1", 1, 2));
+        responses.add(hits("pit-2", 3));
+        List<List<TagRead>> pages = new ArrayList<>();
+
+        boolean completed = repository.scanSlice("pit-1", "5m", new TagReadCriteria(), 1, 4, 2, pages::add);
+
+        assertThat(completed).isTrue();
+        assertThat(pages).hasSize(2);
+        assertThat(pages.get(0)).extracting(TagRead::getTimestamp).containsExactly(DAY + 1, DAY + 2);
+        assertThat(pages.get(1)).extracting(TagRead::getTimestamp).containsExactly(DAY + 3);
+        JsonNode firstBody = searchBody(requests.poll());
+        assertThat(firstBody.path("slice").toString()).isEqualTo("{\"id\":1,\"max\":4}");
+        assertThat(firstBody.path("sort").toString()).isEqualTo("[\"_shard_doc\"]");
+        assertThat(firstBody.path("pit").path("keep_alive").asText()).isEqualTo("5m");
+        assertThat(firstBody.has("search_after")).isFalse();
+        JsonNode secondBody = searchBody(requests.poll());
+        assertThat(secondBody.path("pit").path("id").asText()).isEqualTo("pit-1");
+        assertThat(secondBody.path("search_after").toString()).isEqualTo("[" + (DAY + 2) + ",20]");
+        assertThat(requests).isEmpty();
+    }
+
+    @Test
+    void testSliceScanStopsWhenTheHandlerDoes() throws Exception {
+        responses.add(hits("pit-1", 1, 2));
+
+        boolean completed = repository.scanSlice("pit-1", "5m", new TagReadCriteria(), 0, 1, 2, reads -> false);
+
+        assertThat(completed).isFalse();
+        assertThat(searchBody(requests.poll()).has("slice")).isFalse();
+        assertThat(requests).isEmpty();
+    }
+
+    @Test
+    void testExpiredCursor() throws IOException {
+        responses.add("{\"id\":\"pit-1\"}");
+        responses.add(hits("pit-1", 2));
+        String cursor = repository.search(new TagReadCriteria(), 1).getNextCursor();
+        responses.add("HTTP 404 {\"error\":{\"type\":\"search_phase_execution_exception\"},\"status\":404}");
+
+        assertThatThrownBy(() -> repository.next(cursor, 1)).isInstanceOf(InvalidCursorException.class).hasMessageContaining("expired");
+    }
+
+    @Test
+    void testMalformedCursor() {
+        assertThatThrownBy(() -> repository.next("not a cursor", 10)).isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> repository.next("e30", 10)).isInstanceOf(InvalidCursorException.class);
+        assertThat(requests).isEmpty();
+    }
+}
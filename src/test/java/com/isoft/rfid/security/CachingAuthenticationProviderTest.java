@@ -0,0 +1,105 @@
+package com.isoft.rfid.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.management.SecurityMetersService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+/**
+ * Test class for the {@link CachingAuthenticationProvider}.
+ */
+class CachingAuthenticationProviderTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final AtomicInteger checks = new AtomicInteger();
+
+    private final PasswordEncoder encoder = new BCryptPasswordEncoder(4) {
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            checks.incrementAndGet();
+            return super.matches(rawPassword, encodedPassword);
+        }
+    };
+
+    private InMemoryUserDetailsManager users;
+
+    private CachingAuthenticationProvider provider;
+
+    @BeforeEach
+    public void setup() {
+        users = new InMemoryUserDetailsManager(User.withUsername("reader").password(encoder.encode("secret")).roles("USER").build());
+        DaoAuthenticationProvider delegate = new DaoAuthenticationProvider();
+        delegate.setPasswordEncoder(encoder);
+        delegate.setUserDetailsService(users);
+        provider = new CachingAuthenticationProvider(delegate, users, new SecurityMetersService(registry), new ApplicationProperties());
+    }
+
+    private Authentication authenticate(String password) {
+        return provider.authenticate(new UsernamePasswordAuthenticationToken("reader", password));
+    }
+
+    private double count(String result) {
+        return registry.get(SecurityMetersService.CREDENTIAL_CACHE_METER_NAME).tag("result", result).counter().count();
+    }
+
+    @Test
+    void testRepeatedCredentialsAreCheckedOnce() {
+        Authentication first = authenticate("secret");
+        Authentication second = authenticate("secret");
+
+        assertThat(checks).hasValue(1);
+        assertThat(second.getName()).isEqualTo("reader");
+        assertThat(second.isAuthenticated()).isTrue();
+        assertThat(second.getCredentials()).isNull();
+        assertThat(second.getAuthorities()).isEqualTo(first.getAuthorities());
+        assertThat(count("hit")).isEqualTo(1);
+        assertThat(count("miss")).isEqualTo(1);
+    }
+
+    @Test
+    void testFailuresAreNotRemembered() {
+        assertThatThrownBy(() -> authenticate("guess")).isInstanceOf(BadCredentialsException.class);
+        assertThatThrownBy(() -> authenticate("guess")).isInstanceOf(BadCredentialsException.class);
+
+        assertThat(checks).hasValue(2);
+        assertThat(provider.size()).isZero();
+    }
+
+    @Test
+    void testAChangedPasswordIsCheckedAgain() {
+        authenticate("secret");
+
+        users.updateUser(User.withUsername("reader").password(encoder.encode("changed")).roles("USER").build());
+
+        assertThatThrownBy(() -> authenticate("secret")).isInstanceOf(BadCredentialsException.class);
+        assertThat(authenticate("changed").getName()).isEqualTo("reader");
+        assertThat(checks).hasValue(3);
+        assertThat(count("hit")).isZero();
+    }
+
+    @Test
+    void testADisabledUserIsCheckedAgain() {
+        String password = users.loadUserByUsername("reader").getPassword();
+        authenticate("secret");
+
+        users.updateUser(User.withUsername("reader").password(password).roles("USER").disabled(true).build());
+
+        assertThatThrownBy(() -> authenticate("secret")).isInstanceOf(DisabledException.class);
+        assertThat(count("hit")).isZero();
+    }
+}
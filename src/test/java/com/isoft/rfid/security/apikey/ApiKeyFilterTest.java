@@ -0,0 +1,107 @@
+package com.isoft.rfid.security.apikey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.security.AuthoritiesConstants;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+class ApiKeyFilterTest {
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+
+    private ApiKeyStore apiKeyStore;
+
+    private ApiKeyFilter apiKeyFilter;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        file = directory.resolve("api-keys.properties");
+        write("# Dock doors\ndock-1=" + sha256("first-key") + "\ndock-2=not-a-digest\n", 1000);
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getSecurity().setApiKeysFile(file.toString());
+        apiKeyStore = new ApiKeyStore(applicationProperties);
+        apiKeyFilter = new ApiKeyFilter(apiKeyStore);
+        SecurityContextHolder.getContext().setAuthentication(null);
+    }
+
+    private void write(String content, long modified) throws Exception {
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modified));
+    }
+
+    private static String sha256(String key) throws Exception {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8))) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private Authentication filter(String method, String uri, String apiKey) throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(null);
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setServletPath(uri);
+        if (apiKey != null) {
+            request.addHeader(ApiKeyFilter.API_KEY_HEADER, apiKey);
+        }
+        apiKeyFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Test
+    void testApiKeyFilter() throws Exception {
+        Authentication authentication = filter("POST", "/api/tag-reads/bulk", "first-key");
+
+        assertThat(authentication.getName()).isEqualTo("dock-1");
+        assertThat(authentication.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly(AuthoritiesConstants.READER);
+        assertThat(filter("POST", "/api/tag-reads/bulk", "first-key")).isSameAs(authentication);
+    }
+
+    @Test
+    void testApiKeyFilterUnknownOrMissingKey() throws Exception {
+        assertThat(filter("POST", "/api/tag-reads/bulk", "other-key")).isNull();
+        assertThat(filter("POST", "/api/tag-reads/bulk", "not-a-digest")).isNull();
+        assertThat(filter("POST", "/api/tag-reads/bulk", null)).isNull();
+    }
+
+    @Test
+    void testApiKeysOnlyAuthenticateTheIngestEndpoints() throws Exception {
+        assertThat(filter("GET", "/api/tag-reads", "first-key")).isNull();
+        assertThat(filter("POST", "/api/tag-reads/last-seen", "first-key")).isNull();
+        assertThat(filter("GET", "/api/tag-reads/bulk", "first-key")).isNull();
+    }
+
+    @Test
+    void testApiKeysAreRotatedWhenTheFileChanges() throws Exception {
+        write("dock-1=" + sha256("first-key") + "\ndock-1.next=" + sha256("second-key") + "\n", 2000);
+        apiKeyStore.reload();
+        assertThat(filter("POST", "/api/tag-reads/bulk", "first-key")).isNotNull();
+        assertThat(filter("POST", "/api/tag-reads/bulk", "second-key").getName()).isEqualTo("dock-1.next");
+
+        write("dock-1=" + sha256("second-key") + "\n", 3000);
+        apiKeyStore.reload();
+        assertThat(filter("POST", "/api/tag-reads/bulk", "first-key")).isNull();
+        assertThat(filter("POST", "/api/tag-reads/bulk", "second-key").getName()).isEqualTo("dock-1");
+
+        Files.delete(file);
+        apiKeyStore.reload();
+        assertThat(filter("POST", "/api/tag-reads/bulk", "second-key")).isNotNull();
+    }
+}
@@ -0,0 +1,89 @@
+package com.isoft.rfid.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.Base64;
+import java.util.Date;
+import org.junit.jupiter.api.Test;
+
+class TokenPrecheckTest {
+
+    private static final long NOW = 1668384000000L;
+
+    private static final Key KEY = Keys.hmacShaKeyFor(
+        Decoders.BASE64.decode("fd54a45s65fds737b9aafcb3412e07ed99b267f33413274720ddbb7f6c5e64e9f14075f2d7ed041592f0b7657baf8")
+    );
+
+    private static String token(long expiration) {
+        return Jwts
+            .builder()
+            .setSubject("anonymous")
+            .claim("auth", "ROLE_USER")
+            .signWith(KEY, SignatureAlgorithm.HS512)
+            .setExpiration(new Date(expiration))
+            .compact();
+    }
+
+    private static String encode(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String signature(String token) {
+        return token.substring(token.lastIndexOf('.') + 1);
+    }
+
+    @Test
+    void testTokensThatMayBeValidAreLeftToTheParser() {
+        String token = token(NOW + 60000);
+
+        assertThat(TokenPrecheck.check(token, NOW)).isEqualTo(TokenPrecheck.Verdict.UNDECIDED);
+        assertThat(TokenPrecheck.check("", NOW)).isEqualTo(TokenPrecheck.Verdict.UNDECIDED);
+        assertThat(TokenPrecheck.check("X" + token, NOW)).isEqualTo(TokenPrecheck.Verdict.UNDECIDED);
+    }
+
+    @Test
+    void testExpiredTokensAreRejected() {
+        assertThat(TokenPrecheck.check(token(NOW - 60000), NOW)).isEqualTo(TokenPrecheck.Verdict.EXPIRED);
+
+        String spaced = encode("{\"alg\" : \"HS512\"}") + "." + encode("{ \"sub\" : \"a\\\"}\", \"exp\" : 1 }") + ".";
+        assertThat(TokenPrecheck.check(spaced + signature(token(NOW)), NOW)).isEqualTo(TokenPrecheck.Verdict.EXPIRED);
+    }
+
+    @Test
+    void testTokensThatCannotBeVerifiedAreRejected() {
+        String token = token(NOW + 60000);
+        String payload = token.substring(token.indexOf('.') + 1, token.lastIndexOf('.'));
+
+        assertThat(TokenPrecheck.check("a.b", NOW)).isEqualTo(TokenPrecheck.Verdict.MALFORMED);
+        assertThat(TokenPrecheck.check(token + ".", NOW)).isEqualTo(TokenPrecheck.Verdict.MALFORMED);
+        assertThat(TokenPrecheck.check(token.substring(0, token.lastIndexOf('.') + 1), NOW))
+            .isEqualTo(TokenPrecheck.Verdict.MALFORMED);
+        assertThat(TokenPrecheck.check(token.substring(0, token.length() - 1), NOW)).isEqualTo(TokenPrecheck.Verdict.INVALID_SIGNATURE);
+        assertThat(TokenPrecheck.check(encode("{\"alg\":\"none\"}") + "." + payload + ".", NOW))
+            .isEqualTo(TokenPrecheck.Verdict.UNSUPPORTED);
+        assertThat(TokenPrecheck.check(encode("{\"alg\":\"RS256\"}") + "." + payload + "." + signature(token), NOW))
+            .isEqualTo(TokenPrecheck.Verdict.UNSUPPORTED);
+        assertThat(TokenPrecheck.check(encode("{\"alg\":\"HS512\"}") + "." + encode("payload") + "." + signature(token), NOW))
+            .isEqualTo(TokenPrecheck.Verdict.UNSUPPORTED);
+    }
+
+    @Test
+    void testWhatCannotBeScannedIsLeftToTheParser() {
+        String signature = signature(token(NOW));
+
+        assertThat(TokenPrecheck.check(encode("{\"\\u0061lg\":\"RS256\"}") + "." + encode("{\"exp\":1}") + "." + signature, NOW))
+            .isEqualTo(TokenPrecheck.Verdict.UNDECIDED);
+        assertThat(TokenPrecheck.check(encode("{\"alg\":\"HS512\"}") + "." + encode("{\"exp\":1.5}") + "." + signature, NOW))
+            .isEqualTo(TokenPrecheck.Verdict.UNDECIDED);
+        assertThat(TokenPrecheck.check(encode("{\"alg\":\"HS512\"") + "." + encode("{\"exp\":1}") + "." + signature, NOW))
+            .isEqualTo(TokenPrecheck.Verdict.UNDECIDED);
+        assertThat(TokenPrecheck.check(encode("{\"alg\":\"HS512\"}") + "." + encode("{\"exp\":1}") + "." + signature + "=", NOW))
+            .isEqualTo(TokenPrecheck.Verdict.EXPIRED);
+    }
+}
@@ -2,6 +2,7 @@ package com.isoft.rfid.security.jwt;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.isoft.rfid.config.ApplicationProperties;
 import com.isoft.rfid.management.SecurityMetersService;
 import com.isoft.rfid.security.AuthoritiesConstants;
 import io.jsonwebtoken.Jwts;
@@ -10,10 +11,12 @@ import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.security.Key;
 import java.util.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
@@ -25,6 +28,9 @@ class TokenProviderTest {
 
     private static final long ONE_MINUTE = 60000;
 
+    @TempDir
+    Path directory;
+
     private Key key;
     private TokenProvider tokenProvider;
 
@@ -36,7 +42,16 @@ class TokenProviderTest {
 
         SecurityMetersService securityMetersService = new SecurityMetersService(new SimpleMeterRegistry());
 
-        tokenProvider = new TokenProvider(jHipsterProperties, securityMetersService);
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getSecurity().setRevocationFile(directory.resolve("revoked-tokens").toString());
+
+        tokenProvider =
+            new TokenProvider(
+                jHipsterProperties,
+                securityMetersService,
+                applicationProperties,
+                new TokenRevocationList(applicationProperties)
+            );
         key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(base64Secret));
 
         ReflectionTestUtils.setField(tokenProvider, "key", key);
@@ -96,7 +111,12 @@ class TokenProviderTest {
 
         SecurityMetersService securityMetersService = new SecurityMetersService(new SimpleMeterRegistry());
 
-        TokenProvider tokenProvider = new TokenProvider(jHipsterProperties, securityMetersService);
+        TokenProvider tokenProvider = new TokenProvider(
+            jHipsterProperties,
+            securityMetersService,
+            new ApplicationProperties(),
+            new TokenRevocationList(new ApplicationProperties())
+        );
 
         Key key = (Key) ReflectionTestUtils.getField(tokenProvider, "key");
         assertThat(key).isNotNull().isEqualTo(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)));
@@ -110,12 +130,110 @@ class TokenProviderTest {
 
         SecurityMetersService securityMetersService = new SecurityMetersService(new SimpleMeterRegistry());
 
-        TokenProvider tokenProvider = new TokenProvider(jHipsterProperties, securityMetersService);
+        TokenProvider tokenProvider = new TokenProvider(
+            jHipsterProperties,
+            securityMetersService,
+            new ApplicationProperties(),
+            new TokenRevocationList(new ApplicationProperties())
+        );
 
         Key key = (Key) ReflectionTestUtils.getField(tokenProvider, "key");
         assertThat(key).isNotNull().isEqualTo(Keys.hmacShaKeyFor(Decoders.BASE64.decode(base64Secret)));
     }
 
+    @Test
+    void testAuthenticateVerifiesATokenOnce() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+
+        Authentication authentication = tokenProvider.authenticate(token);
+
+        assertThat(authentication).isNotNull();
+        assertThat(authentication.getName()).isEqualTo("anonymous");
+        assertThat(authentication.getAuthorities())
+            .extracting(GrantedAuthority::getAuthority)
+            .containsExactly(AuthoritiesConstants.ANONYMOUS);
+        assertThat(tokenProvider.authenticate(token)).isSameAs(authentication);
+    }
+
+    @Test
+    void testAuthenticateReturnsNullWhenJWTisNotValid() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+
+        assertThat(tokenProvider.authenticate(createTokenWithDifferentSignature())).isNull();
+        assertThat(tokenProvider.authenticate(token.substring(1))).isNull();
+        assertThat(tokenProvider.authenticate(createUnsupportedToken())).isNull();
+    }
+
+    @Test
+    void testVerifiedTokensAreForgottenWhenTheyExpire() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(2);
+        Authentication authentication = createAuthentication();
+
+        cache.put(cache.digest("a"), authentication, "id", 0, 1000);
+        assertThat(cache.get(cache.digest("a"), 999).authentication).isSameAs(authentication);
+        assertThat(cache.get(cache.digest("b"), 999)).isNull();
+        assertThat(cache.get(cache.digest("a"), 1000)).isNull();
+        assertThat(cache.size()).isZero();
+
+        cache.put(cache.digest("a"), authentication, "a", 0, Long.MAX_VALUE);
+        cache.put(cache.digest("b"), authentication, "b", 0, Long.MAX_VALUE);
+        cache.put(cache.digest("c"), authentication, "c", 0, Long.MAX_VALUE);
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.get(cache.digest("c"), 0).tokenId).isEqualTo("c");
+
+        assertThat(new VerifiedTokenCache(0).digest("a")).isNull();
+    }
+
+    @Test
+    void testRevokedTokensAreRejected() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+        String other = tokenProvider.createToken(createAuthentication(), false);
+        assertThat(tokenProvider.authenticate(token)).isNotNull();
+
+        assertThat(tokenProvider.revoke(token)).isTrue();
+
+        assertThat(tokenProvider.authenticate(token)).isNull();
+        assertThat(tokenProvider.validateToken(token)).isFalse();
+        assertThat(tokenProvider.authenticate(other)).isNotNull();
+        assertThat(tokenProvider.revoke(createTokenWithDifferentSignature())).isFalse();
+    }
+
+    @Test
+    void testTokensRevokedByIdAreRejected() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+        String other = tokenProvider.createToken(createAuthentication(), false);
+        assertThat(tokenProvider.authenticate(token)).isNotNull();
+
+        tokenProvider.revokeById(tokenId(token));
+
+        assertThat(tokenProvider.authenticate(token)).isNull();
+        assertThat(tokenProvider.validateToken(token)).isFalse();
+        assertThat(tokenProvider.authenticate(other)).isNotNull();
+    }
+
+    @Test
+    void testTokensOfARevokedSubjectIssuedBeforeAreRejected() throws InterruptedException {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+        String otherSubject = tokenProvider.createToken(
+            new UsernamePasswordAuthenticationToken("reader", "reader", createAuthentication().getAuthorities()),
+            false
+        );
+        assertThat(tokenProvider.authenticate(token)).isNotNull();
+
+        tokenProvider.revokeSubject("anonymous", System.currentTimeMillis());
+
+        assertThat(tokenProvider.authenticate(token)).isNull();
+        assertThat(tokenProvider.validateToken(token)).isFalse();
+        assertThat(tokenProvider.authenticate(otherSubject)).isNotNull();
+        // Issue times are known to the second
+        Thread.sleep(1000);
+        assertThat(tokenProvider.authenticate(tokenProvider.createToken(createAuthentication(), false))).isNotNull();
+    }
+
+    private String tokenId(String token) {
+        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody().getId();
+    }
+
     private Authentication createAuthentication() {
         Collection<GrantedAuthority> authorities = new ArrayList<>();
         authorities.add(new SimpleGrantedAuthority(AuthoritiesConstants.ANONYMOUS));
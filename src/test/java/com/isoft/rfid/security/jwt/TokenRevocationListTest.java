@@ -0,0 +1,114 @@
+package com.isoft.rfid.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TokenRevocationListTest {
+
+    @TempDir
+    Path directory;
+
+    private final ApplicationProperties applicationProperties = new ApplicationProperties();
+
+    @BeforeEach
+    public void setup() {
+        applicationProperties.getSecurity().setRevocationFile(directory.resolve("revoked-tokens").toString());
+        applicationProperties.getSecurity().setRevocationCapacity(4);
+    }
+
+    @Test
+    void testRevokedTokensSurviveRestarts() throws Exception {
+        long later = System.currentTimeMillis() + 60000;
+        TokenRevocationList revocationList = new TokenRevocationList(applicationProperties);
+        revocationList.revoke("stolen", later);
+        revocationList.revoke("lost", later);
+
+        TokenRevocationList restarted = new TokenRevocationList(applicationProperties);
+
+        assertThat(restarted.isRevoked("stolen", "device", 0)).isTrue();
+        assertThat(restarted.isRevoked("lost", "device", 0)).isTrue();
+        assertThat(restarted.isRevoked("valid", "device", 0)).isFalse();
+        assertThat(restarted.isRevoked(null, "device", 0)).isFalse();
+    }
+
+    @Test
+    void testRevokedSubjectsSurviveRestarts() throws Exception {
+        long revokedAt = System.currentTimeMillis();
+        TokenRevocationList revocationList = new TokenRevocationList(applicationProperties);
+        revocationList.revokeSubject("dock reader 1", revokedAt, revokedAt + 60000);
+        revocationList.revokeSubject("dock reader 1", revokedAt - 1000, revokedAt + 60000);
+
+        TokenRevocationList restarted = new TokenRevocationList(applicationProperties);
+
+        assertThat(restarted.isRevoked("any", "dock reader 1", revokedAt - 1)).isTrue();
+        assertThat(restarted.isRevoked("any", "dock reader 1", revokedAt)).isFalse();
+        assertThat(restarted.isRevoked("any", "dock reader 2", revokedAt - 1)).isFalse();
+        assertThat(restarted.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testExpiredTokensArePruned() throws Exception {
+        TokenRevocationList revocationList = new TokenRevocationList(applicationProperties);
+        revocationList.revoke("expiring", System.currentTimeMillis() + 50);
+        revocationList.revoke("expired", System.currentTimeMillis() - 1);
+        revocationList.revoke("stolen", System.currentTimeMillis() + 60000);
+        assertThat(revocationList.size()).isEqualTo(2);
+
+        Thread.sleep(100);
+        revocationList.prune();
+
+        assertThat(revocationList.size()).isEqualTo(1);
+        assertThat(revocationList.isRevoked("expiring", "device", 0)).isFalse();
+        assertThat(revocationList.isRevoked("stolen", "device", 0)).isTrue();
+        assertThat(Files.readAllLines(directory.resolve("revoked-tokens"))).hasSize(1);
+    }
+
+    @Test
+    void testExpiredSubjectsArePruned() throws Exception {
+        TokenRevocationList revocationList = new TokenRevocationList(applicationProperties);
+        revocationList.revokeSubject("device", System.currentTimeMillis(), System.currentTimeMillis() + 50);
+
+        Thread.sleep(100);
+        revocationList.prune();
+
+        assertThat(revocationList.size()).isZero();
+        assertThat(revocationList.isRevoked("any", "device", 0)).isFalse();
+        assertThat(Files.readAllLines(directory.resolve("revoked-tokens"))).isEmpty();
+    }
+
+    @Test
+    void testTheFilterGrowsBeyondItsCapacity() {
+        TokenRevocationList revocationList = new TokenRevocationList(applicationProperties);
+        for (int i = 0; i < 100; i++) {
+            revocationList.revoke("token-" + i, Long.MAX_VALUE);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(revocationList.isRevoked("token-" + i, "device", 0)).isTrue();
+        }
+        assertThat(revocationList.isRevoked("token-100", "device", 0)).isFalse();
+    }
+
+    @Test
+    void testTheFilterHasNoFalseNegativesAndFewFalsePositives() {
+        TokenRevocationList.BloomFilter filter = new TokenRevocationList.BloomFilter(1000);
+        for (int i = 0; i < 1000; i++) {
+            filter.add("revoked-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            assertThat(filter.mightContain("revoked-" + (i % 1000))).isTrue();
+            if (filter.mightContain("valid-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(300);
+    }
+}
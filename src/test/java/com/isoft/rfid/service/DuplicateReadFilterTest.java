@@ -0,0 +1,62 @@
+package com.isoft.rfid.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class DuplicateReadFilterTest {
+
+    private static final long HIGH = 0x3034257BL;
+
+    private static final long LOW = 0xF7194E4000001A85L;
+
+    private static final long WINDOW = 1000;
+
+    @Test
+    void testReadsWithinTheWindowAreDuplicates() {
+        DuplicateReadFilter filter = new DuplicateReadFilter(16, 64, 100, WINDOW);
+
+        assertThat(filter.isDuplicate(HIGH, LOW, 1, 10_000, WINDOW)).isFalse();
+        assertThat(filter.isDuplicate(HIGH, LOW, 1, 10_500, WINDOW)).isTrue();
+        assertThat(filter.isDuplicate(HIGH, LOW, 1, 10_900, WINDOW)).isTrue();
+        assertThat(filter.isDuplicate(HIGH, LOW, 1, 11_000, WINDOW)).isFalse();
+        assertThat(filter.isDuplicate(HIGH, LOW, 1, 11_200, WINDOW)).isTrue();
+    }
+
+    @Test
+    void testWindowIsScopedToTheReaderAntennaAndEpc() {
+        DuplicateReadFilter filter = new DuplicateReadFilter(16, 64, 100, WINDOW);
+
+        assertThat(filter.isDuplicate(HIGH, LOW, 1, 10_000, WINDOW)).isFalse();
+        assertThat(filter.isDuplicate(HIGH, LOW, 2, 10_000, WINDOW)).isFalse();
+        assertThat(filter.isDuplicate(HIGH, LOW + 1, 1, 10_000, WINDOW)).isFalse();
+        assertThat(filter.isDuplicate(HIGH + 1, LOW, 1, 10_000, WINDOW)).isFalse();
+        assertThat(filter.isDuplicate(HIGH, LOW, 2, 10_100, WINDOW)).isTrue();
+    }
+
+    @Test
+    void testStaleEntriesAreReclaimedWithoutGrowingBeyondTheMaximum() {
+        DuplicateReadFilter filter = new DuplicateReadFilter(16, 64, 100, WINDOW);
+
+        for (int i = 0; i < 100_000; i++) {
+            assertThat(filter.isDuplicate(HIGH, i, 1, i * 100L, WINDOW)).isFalse();
+        }
+
+        assertThat(filter.getCapacity()).isLessThanOrEqualTo(64);
+        assertThat(filter.isDuplicate(HIGH, 99_999, 1, 9_999_950L, WINDOW)).isTrue();
+    }
+
+    @Test
+    void testTableGrowsWhileEntriesAreLive() {
+        DuplicateReadFilter filter = new DuplicateReadFilter(16, 1024, 100, WINDOW);
+
+        for (int i = 0; i < 500; i++) {
+            filter.isDuplicate(HIGH, i, 1, 10_000, WINDOW);
+        }
+
+        assertThat(filter.getCapacity()).isEqualTo(1024);
+        for (int i = 0; i < 500; i++) {
+            assertThat(filter.isDuplicate(HIGH, i, 1, 10_100, WINDOW)).isTrue();
+        }
+    }
+}
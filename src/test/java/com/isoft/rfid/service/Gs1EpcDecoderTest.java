@@ -0,0 +1,58 @@
+package com.isoft.rfid.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.isoft.rfid.domain.Epc;
+import com.isoft.rfid.domain.Gs1Identity;
+import org.junit.jupiter.api.Test;
+
+class Gs1EpcDecoderTest {
+
+    private final Gs1EpcDecoder decoder = new Gs1EpcDecoder();
+
+    @Test
+    void testDecodeSgtin96() {
+        Gs1Identity identity = decoder.decode(Epc.parse("3074257BF7194E4000001A85"));
+
+        assertThat(identity.getScheme()).isEqualTo(Gs1Identity.Scheme.SGTIN);
+        assertThat(identity.getFilter()).isEqualTo(3);
+        assertThat(identity.getCompanyPrefix()).isEqualTo(614141);
+        assertThat(identity.getSerial()).isEqualTo(6789);
+        assertThat(identity.toUri()).isEqualTo("urn:epc:id:sgtin:0614141.812345.6789");
+        assertThat(identity.getGtin()).isEqualTo("80614141123458");
+        assertThat(identity.getSscc()).isNull();
+    }
+
+    @Test
+    void testDecodeSgtin96WithTheLongestCompanyPrefix() {
+        Gs1Identity identity = decoder.decode(Epc.parse("302072FA6468507FFFFFFFFF"));
+
+        assertThat(identity.toUri()).isEqualTo("urn:epc:id:sgtin:123456789012.1.274877906943");
+        assertThat(identity.getGtin()).isEqualTo("11234567890125");
+    }
+
+    @Test
+    void testDecodeSscc96() {
+        Gs1Identity identity = decoder.decode(Epc.parse("3174257BF4499602D2000000"));
+
+        assertThat(identity.toUri()).isEqualTo("urn:epc:id:sscc:0614141.1234567890");
+        assertThat(identity.getSscc()).isEqualTo("106141412345678908");
+        assertThat(identity.getSerial()).isEqualTo(-1);
+    }
+
+    @Test
+    void testDecodeGrai96AndGiai96() {
+        assertThat(decoder.decode(Epc.parse("3374257BF40C0E400000162E")).toUri()).isEqualTo("urn:epc:id:grai:0614141.12345.5678");
+        assertThat(decoder.decode(Epc.parse("3474257BF40000000000162E")).toUri()).isEqualTo("urn:epc:id:giai:0614141.5678");
+    }
+
+    @Test
+    void testUndecodableEpcs() {
+        // Unknown header, reserved partition 7, company prefix beyond 7 digits, too short
+        assertThat(decoder.decode(Epc.parse("E2801160600002054CC2096F"))).isNull();
+        assertThat(decoder.decode(Epc.parse("307C257BF7194E4000001A85"))).isNull();
+        assertThat(decoder.decode(Epc.parse("3077FFFFF7194E4000001A85"))).isNull();
+        assertThat(decoder.decode(Epc.parse("3074257BF7194E40"))).isNull();
+        assertThat(decoder.decode(null)).isNull();
+    }
+}
@@ -0,0 +1,113 @@
+package com.isoft.rfid.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+class LastSeenIndexTest {
+
+    private static final long HIGH = 0x3034257BF7194E40L;
+
+    @Test
+    void testFindsTheLatestSighting() {
+        LastSeenIndex index = new LastSeenIndex(4, 64, 1024);
+        LastSeenIndex.Sighting sighting = new LastSeenIndex.Sighting();
+
+        assertThat(index.find(HIGH, 1, sighting)).isFalse();
+        index.update(HIGH, 1, 0x10002, 10_000, -60f);
+        index.update(HIGH, 1, 0x20001, 11_000, -50f);
+        // Late reads do not move the tag back
+        index.update(HIGH, 1, 0x10001, 10_500, -40f);
+
+        assertThat(index.find(HIGH, 1, sighting)).isTrue();
+        assertThat(sighting.getLocation()).isEqualTo(0x20001);
+        assertThat(sighting.getTimestamp()).isEqualTo(11_000);
+        assertThat(sighting.getRssi()).isEqualTo(-50f);
+        assertThat(index.find(HIGH, 2, sighting)).isFalse();
+        assertThat(index.find(HIGH + 1, 1, sighting)).isFalse();
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testFindAllKeepsTheOrderOfTheEpcs() {
+        LastSeenIndex index = new LastSeenIndex(8, 64, 64 * 1024);
+        for (int i = 0; i < 10_000; i += 2) {
+            index.update(HIGH, i, 0x10000 | (i & 3), 10_000 + i, -60f);
+        }
+        long[] highs = new long[10_000];
+        long[] lows = new long[10_000];
+        for (int i = 0; i < 10_000; i++) {
+            highs[i] = HIGH;
+            lows[i] = 9_999 - i;
+        }
+
+        LastSeenIndex.Sighting[] sightings = index.findAll(highs, lows, 10_000);
+
+        for (int i = 0; i < 10_000; i++) {
+            if (lows[i] % 2 == 0) {
+                assertThat(sightings[i].getTimestamp()).isEqualTo(10_000 + lows[i]);
+            } else {
+                assertThat(sightings[i]).isNull();
+            }
+        }
+    }
+
+    @Test
+    void testForgetsTheOlderEntriesWhenFull() {
+        LastSeenIndex index = new LastSeenIndex(2, 32, 64);
+        LastSeenIndex.Sighting sighting = new LastSeenIndex.Sighting();
+
+        for (int i = 0; i < 100_000; i++) {
+            index.update(HIGH, i, 1, i, -60f);
+        }
+
+        assertThat(index.getCapacity()).isLessThanOrEqualTo(64);
+        assertThat(index.find(HIGH, 99_999, sighting)).isTrue();
+        assertThat(index.find(HIGH, 0, sighting)).isFalse();
+    }
+
+    @Test
+    void testLookupsAreConsistentWhileUpdating() throws InterruptedException {
+        LastSeenIndex index = new LastSeenIndex(4, 16, 64 * 1024);
+        AtomicBoolean done = new AtomicBoolean();
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < 2; w++) {
+            int writer = w;
+            Thread thread = new Thread(() -> {
+                for (int i = 1; i <= 200_000; i++) {
+                    // The location and the RSSI are derived from the timestamp, so a torn read shows up
+                    long low = (i % 5_000) * 2 + writer;
+                    index.update(HIGH, low, i, i, i);
+                }
+            });
+            writers.add(thread);
+            thread.start();
+        }
+        List<String> errors = new ArrayList<>();
+        Thread reader = new Thread(() -> {
+            LastSeenIndex.Sighting sighting = new LastSeenIndex.Sighting();
+            while (!done.get()) {
+                for (int low = 0; low < 10_000; low++) {
+                    if (!index.find(HIGH, low, sighting)) {
+                        continue;
+                    }
+                    if (sighting.getLocation() != sighting.getTimestamp() || sighting.getRssi() != (float) sighting.getTimestamp()) {
+                        errors.add(low + ": " + sighting.getLocation() + " at " + sighting.getTimestamp());
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        done.set(true);
+        reader.join();
+
+        assertThat(errors).isEmpty();
+        assertThat(index.size()).isEqualTo(10_000);
+    }
+}
@@ -0,0 +1,333 @@
+package com.isoft.rfid.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.domain.Epc;
+import com.isoft.rfid.domain.TagRead;
+import com.isoft.rfid.domain.enumeration.PortalTransition;
+import com.isoft.rfid.service.dto.LiveReadDTO;
+import com.isoft.rfid.service.dto.PortalEventDTO;
+import com.isoft.rfid.service.dto.ZoneSummaryDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LiveReadBroadcasterTest {
+
+    private ApplicationProperties applicationProperties;
+
+    private LiveReadBroadcaster broadcaster;
+
+    @BeforeEach
+    public void setup() {
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getLive().setBufferSize(3);
+        applicationProperties.getLive().setMaxSubscribers(2);
+        applicationProperties.getLive().setSenderThreads(2);
+        ApplicationProperties.Portals.Portal door = new ApplicationProperties.Portals.Portal();
+        door.setId("door-1");
+        door.setReaderId("gate-1");
+        door.setInnerAntennas(List.of(1));
+        door.setOuterAntennas(List.of(2));
+        applicationProperties.getPortals().getDoors().add(door);
+        // Flushes are triggered by the tests
+        applicationProperties.getLive().setFlushIntervalMillis(60000);
+        broadcaster = new LiveReadBroadcaster(applicationProperties, new SimpleMeterRegistry());
+        broadcaster.start();
+    }
+
+    @AfterEach
+    public void teardown() {
+        broadcaster.stop();
+    }
+
+    private static TagRead read(String readerId, int serial) {
+        return read(readerId, 1, serial);
+    }
+
+    private static TagRead read(String readerId, int antenna, int serial) {
+        TagRead read = new TagRead();
+        read.setEpc(Epc.of(96, 0x3034257BF7194E40L, (long) serial << 32));
+        read.setReaderId(readerId);
+        read.setAntenna(antenna);
+        read.setRssi(-60 + serial);
+        read.setTimestamp(1668412800000L + serial);
+        return read;
+    }
+
+    private static final class RecordingSink implements LiveReadBroadcaster.Sink {
+
+        final BlockingQueue<List<LiveReadDTO>> reads = new LinkedBlockingQueue<>();
+
+        final BlockingQueue<List<ZoneSummaryDTO>> summaries = new LinkedBlockingQueue<>();
+
+        final BlockingQueue<List<PortalEventDTO>> events = new LinkedBlockingQueue<>();
+
+        volatile CountDownLatch blocked;
+
+        final CountDownLatch entered = new CountDownLatch(1);
+
+        volatile boolean closed;
+
+        @Override
+        public void send(List<LiveReadDTO> reads, List<ZoneSummaryDTO> summaries) throws IOException {
+            entered.countDown();
+            CountDownLatch latch = blocked;
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    // As a servlet output stream whose blocking write is interrupted
+                    throw new InterruptedIOException();
+                }
+            }
+            // The tests wait for the reads, so the summaries must be there first
+            this.summaries.add(summaries);
+            this.reads.add(reads);
+        }
+
+        @Override
+        public void sendPortalEvents(List<PortalEventDTO> events) {
+            this.events.add(events);
+        }
+
+        @Override
+        public void heartbeat() {}
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @Test
+    void sendsBufferedReadsInOneBatch() throws InterruptedException {
+        RecordingSink sink = new RecordingSink();
+        broadcaster.subscribe(null, sink);
+
+        broadcaster.publish(read("dock-1", 1));
+        broadcaster.publish(read("dock-2", 2));
+        broadcaster.flush();
+
+        List<LiveReadDTO> batch = sink.reads.poll(5, TimeUnit.SECONDS);
+        assertThat(batch).extracting(LiveReadDTO::getReaderId).containsExactly("dock-1", "dock-2");
+        assertThat(sink.summaries.poll()).isEmpty();
+    }
+
+    @Test
+    void foldsReadsThatDoNotFitIntoZoneSummaries() throws InterruptedException {
+        RecordingSink sink = new RecordingSink();
+        broadcaster.subscribe(null, sink);
+
+        for (int i = 1; i <= 10; i++) {
+            broadcaster.publish(read(i % 2 == 0 ? "dock-2" : "dock-1", i));
+        }
+        broadcaster.flush();
+
+        assertThat(sink.reads.poll(5, TimeUnit.SECONDS)).hasSize(3);
+        List<ZoneSummaryDTO> summaries = sink.summaries.poll();
+        assertThat(summaries).extracting(ZoneSummaryDTO::getZone).containsExactly("dock-2", "dock-1");
+        assertThat(summaries.get(0).getCount()).isEqualTo(4);
+        assertThat(summaries.get(0).getLastEpc()).isEqualTo("3034257BF7194E400000000A");
+        assertThat(summaries.get(1).getCount()).isEqualTo(3);
+        assertThat(summaries.get(1).getMaxRssi()).isEqualTo(-51);
+    }
+
+    @Test
+    void slowSubscriberDoesNotHoldBackTheOthers() throws InterruptedException {
+        RecordingSink slow = new RecordingSink();
+        slow.blocked = new CountDownLatch(1);
+        RecordingSink fast = new RecordingSink();
+        broadcaster.subscribe(null, slow);
+        broadcaster.subscribe(null, fast);
+
+        broadcaster.publish(read("dock-1", 1));
+        broadcaster.flush();
+        assertThat(fast.reads.poll(5, TimeUnit.SECONDS)).hasSize(1);
+        assertThat(slow.entered.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 2; i <= 1000; i++) {
+            broadcaster.publish(read("dock-1", i));
+        }
+        broadcaster.flush();
+        assertThat(fast.reads.poll(5, TimeUnit.SECONDS)).hasSize(3);
+        slow.blocked.countDown();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> slow.reads.size() == 1);
+        broadcaster.flush();
+        await().atMost(Duration.ofSeconds(5)).until(() -> slow.reads.size() == 2);
+        slow.reads.poll();
+        assertThat(slow.reads.poll()).hasSize(3);
+        assertThat(slow.summaries.poll()).isEmpty();
+        assertThat(slow.summaries.poll()).singleElement().extracting(ZoneSummaryDTO::getCount).isEqualTo(996L);
+    }
+
+    @Test
+    void filtersByReaderAndLimitsSubscribers() throws InterruptedException {
+        RecordingSink sink = new RecordingSink();
+        LiveReadBroadcaster.Subscription subscription = broadcaster.subscribe(Set.of("dock-2"), sink);
+        assertThat(broadcaster.subscribe(null, new RecordingSink())).isNotNull();
+        assertThat(broadcaster.subscribe(null, new RecordingSink())).isNull();
+
+        broadcaster.publish(read("dock-1", 1));
+        broadcaster.publish(read("dock-2", 2));
+        broadcaster.flush();
+
+        assertThat(sink.reads.poll(5, TimeUnit.SECONDS)).extracting(LiveReadDTO::getReaderId).containsExactly("dock-2");
+        subscription.close();
+        subscription.close();
+        assertThat(broadcaster.subscribe(null, new RecordingSink())).isNotNull();
+    }
+
+    @Test
+    void closesSubscriptionsWhoseSubscriberIsGone() {
+        broadcaster.subscribe(
+            null,
+            new LiveReadBroadcaster.Sink() {
+                @Override
+                public void send(List<LiveReadDTO> reads, List<ZoneSummaryDTO> summaries) throws IOException {
+                    throw new IOException("Broken pipe");
+                }
+
+                @Override
+                public void sendPortalEvents(List<PortalEventDTO> events) {}
+
+                @Override
+                public void heartbeat() {}
+
+                @Override
+                public void close() {}
+            }
+        );
+        broadcaster.publish(read("dock-1", 1));
+        broadcaster.flush();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> broadcaster.subscribe(null, new RecordingSink()) != null);
+    }
+
+    @Test
+    void sendsPortalEventsAndDropsTheOldestBeyondTheBuffer() throws InterruptedException {
+        RecordingSink sink = new RecordingSink();
+        broadcaster.subscribe(Set.of("dock-1"), sink);
+
+        for (int i = 1; i <= 5; i++) {
+            broadcaster.publish(new PortalEventDTO("door-1", "dock-1", "3034257BF7194E4000000001", PortalTransition.IN, i));
+        }
+        broadcaster.publish(new PortalEventDTO("door-2", "dock-2", "3034257BF7194E4000000001", PortalTransition.IN, 6));
+        broadcaster.flush();
+
+        assertThat(sink.events.poll(5, TimeUnit.SECONDS)).extracting(PortalEventDTO::getTimestamp).containsExactly(3L, 4L, 5L);
+        assertThat(sink.reads).isEmpty();
+    }
+
+    @Test
+    void summarizesReadsByPortalZoneThenByReader() throws InterruptedException {
+        RecordingSink sink = new RecordingSink();
+        broadcaster.subscribe(null, sink);
+
+        for (int i = 1; i <= 3; i++) {
+            broadcaster.publish(read("dock-1", i));
+        }
+        broadcaster.publish(read("gate-1", 1, 4));
+        broadcaster.publish(read("gate-1", 2, 5));
+        broadcaster.publish(read("gate-1", 3, 6));
+        broadcaster.flush();
+
+        assertThat(sink.reads.poll(5, TimeUnit.SECONDS)).hasSize(3);
+        List<ZoneSummaryDTO> summaries = sink.summaries.poll();
+        assertThat(summaries).extracting(ZoneSummaryDTO::getZone).containsExactly("door-1", "gate-1");
+        assertThat(summaries).extracting(ZoneSummaryDTO::getCount).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void closesSubscribersThatStopReceiving() throws InterruptedException {
+        broadcaster.stop();
+        applicationProperties.getLive().setSendTimeoutMillis(100);
+        broadcaster = new LiveReadBroadcaster(applicationProperties, new SimpleMeterRegistry());
+        broadcaster.start();
+        RecordingSink stalled = new RecordingSink();
+        stalled.blocked = new CountDownLatch(1);
+        RecordingSink otherStalled = new RecordingSink();
+        otherStalled.blocked = new CountDownLatch(1);
+        broadcaster.subscribe(null, stalled);
+        broadcaster.subscribe(null, otherStalled);
+
+        broadcaster.publish(read("dock-1", 1));
+        broadcaster.flush();
+        // Both sender threads are now held
+        assertThat(stalled.entered.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(otherStalled.entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        await()
+            .atMost(Duration.ofSeconds(5))
+            .until(() -> {
+                broadcaster.flush();
+                return stalled.closed && otherStalled.closed;
+            });
+        RecordingSink sink = new RecordingSink();
+        assertThat(broadcaster.subscribe(null, sink)).isNotNull();
+        broadcaster.publish(read("dock-1", 2));
+        broadcaster.flush();
+        assertThat(sink.reads.poll(5, TimeUnit.SECONDS)).hasSize(1);
+        assertThat(stalled.reads).isEmpty();
+    }
+
+    @Test
+    void closesAStalledSubscriberWithoutWaitingForItsSend() {
+        broadcaster.stop();
+        applicationProperties.getLive().setSendTimeoutMillis(100);
+        broadcaster = new LiveReadBroadcaster(applicationProperties, new SimpleMeterRegistry());
+        broadcaster.start();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        // As an SseEmitter, whose completion waits for the send in progress
+        broadcaster.subscribe(
+            null,
+            new LiveReadBroadcaster.Sink() {
+                @Override
+                public synchronized void send(List<LiveReadDTO> reads, List<ZoneSummaryDTO> summaries) throws IOException {
+                    entered.countDown();
+                    try {
+                        new CountDownLatch(1).await();
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                }
+
+                @Override
+                public void sendPortalEvents(List<PortalEventDTO> events) {}
+
+                @Override
+                public void heartbeat() {}
+
+                @Override
+                public synchronized void close() {
+                    closed.countDown();
+                }
+            }
+        );
+
+        broadcaster.publish(read("dock-1", 1));
+        broadcaster.flush();
+
+        await()
+            .atMost(Duration.ofSeconds(5))
+            .until(() -> {
+                // Fails if the flush waits for the stalled send
+                CompletableFuture.runAsync(broadcaster::flush).get(1, TimeUnit.SECONDS);
+                return entered.getCount() == 0 && closed.getCount() == 0;
+            });
+    }
+}
@@ -0,0 +1,185 @@
+package com.isoft.rfid.service;
+
+import static com.isoft.rfid.service.PortalTransitionEngine.INNER;
+import static com.isoft.rfid.service.PortalTransitionEngine.OUTER;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.isoft.rfid.domain.Epc;
+import com.isoft.rfid.domain.enumeration.PortalTransition;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PortalTransitionEngineTest {
+
+    private static final long HIGH = 0x3034257BF7194E40L;
+
+    private static final long TRANSITION = 1000;
+
+    private static final long ABSENT = 5000;
+
+    private final List<String> transitions = new ArrayList<>();
+
+    private final PortalTransitionEngine engine = new PortalTransitionEngine(
+        16,
+        64,
+        TRANSITION,
+        ABSENT,
+        (portal, epc, transition, timestamp) -> transitions.add(portal + ":" + epc.getWord(1) + ":" + transition + "@" + timestamp)
+    );
+
+    private void read(long serial, int portal, int side, long timestamp) {
+        engine.onRead(Epc.of(96, HIGH, serial << 32), HIGH, serial << 32, portal, side, timestamp);
+    }
+
+    private static String transition(int portal, long serial, PortalTransition transition, long timestamp) {
+        return portal + ":" + (serial << 32) + ":" + transition + "@" + timestamp;
+    }
+
+    @Test
+    void testOuterThenInnerGoesIn() {
+        read(1, 0, OUTER, 10_000);
+        read(1, 0, OUTER, 10_200);
+        read(1, 0, INNER, 11_000);
+        read(1, 0, INNER, 11_500);
+
+        assertThat(transitions)
+            .containsExactly(
+                transition(0, 1, PortalTransition.ENTER, 10_000),
+                transition(0, 1, PortalTransition.IN, 11_000)
+            );
+    }
+
+    @Test
+    void testCrossingBackGoesOut() {
+        read(1, 0, INNER, 10_000);
+        read(1, 0, OUTER, 10_500);
+        read(1, 0, OUTER, 10_800);
+        read(1, 0, INNER, 11_000);
+        read(1, 0, OUTER, 11_900);
+
+        assertThat(transitions)
+            .containsExactly(
+                transition(0, 1, PortalTransition.ENTER, 10_000),
+                transition(0, 1, PortalTransition.OUT, 10_500),
+                transition(0, 1, PortalTransition.IN, 11_000),
+                transition(0, 1, PortalTransition.OUT, 11_900)
+            );
+    }
+
+    @Test
+    void testNoDirectionBeyondTheTransitionWindow() {
+        read(1, 0, OUTER, 10_000);
+        read(1, 0, INNER, 11_001);
+        read(1, 0, INNER, 11_100);
+
+        assertThat(transitions).containsExactly(transition(0, 1, PortalTransition.ENTER, 10_000));
+    }
+
+    @Test
+    void testStateIsScopedToTheEpcAndPortal() {
+        read(1, 0, OUTER, 10_000);
+        read(2, 0, INNER, 10_100);
+        read(1, 1, INNER, 10_200);
+
+        assertThat(transitions)
+            .containsExactly(
+                transition(0, 1, PortalTransition.ENTER, 10_000),
+                transition(0, 2, PortalTransition.ENTER, 10_100),
+                transition(1, 1, PortalTransition.ENTER, 10_200)
+            );
+        assertThat(engine.size()).isEqualTo(3);
+    }
+
+    @Test
+    void testAbsentTagsExitOldestFirst() {
+        read(1, 0, OUTER, 10_000);
+        read(2, 0, OUTER, 11_000);
+        read(1, 0, OUTER, 12_000);
+        transitions.clear();
+
+        assertThat(engine.expire(16_500, Integer.MAX_VALUE)).isEqualTo(1);
+        assertThat(engine.expire(17_500, Integer.MAX_VALUE)).isEqualTo(1);
+        assertThat(engine.expire(100_000, Integer.MAX_VALUE)).isZero();
+
+        assertThat(transitions)
+            .containsExactly(
+                transition(0, 2, PortalTransition.EXIT, 16_000),
+                transition(0, 1, PortalTransition.EXIT, 17_000)
+            );
+        assertThat(engine.size()).isZero();
+    }
+
+    @Test
+    void testAbsencesAreTimedByArrivalWhateverTheClocksOfTheReaders() {
+        engine.onRead(Epc.of(96, HIGH, 1L << 32), HIGH, 1L << 32, 0, OUTER, 10_000, 10_000);
+        // The reader of the second portal runs an hour late
+        engine.onRead(Epc.of(96, HIGH, 2L << 32), HIGH, 2L << 32, 1, OUTER, 10_100 - 3_600_000, 10_100);
+        engine.onRead(Epc.of(96, HIGH, 3L << 32), HIGH, 3L << 32, 0, OUTER, 10_200, 10_200);
+        transitions.clear();
+
+        assertThat(engine.expire(15_050, Integer.MAX_VALUE)).isEqualTo(1);
+        assertThat(engine.expire(15_150, Integer.MAX_VALUE)).isEqualTo(1);
+        assertThat(engine.expire(15_250, Integer.MAX_VALUE)).isEqualTo(1);
+
+        assertThat(transitions)
+            .containsExactly(
+                transition(0, 1, PortalTransition.EXIT, 15_000),
+                transition(1, 2, PortalTransition.EXIT, 15_100 - 3_600_000),
+                transition(0, 3, PortalTransition.EXIT, 15_200)
+            );
+    }
+
+    @Test
+    void testLateReadKeepsTheTagWithoutMovingIt() {
+        engine.onRead(Epc.of(96, HIGH, 1L << 32), HIGH, 1L << 32, 0, INNER, 10_000, 10_000);
+        engine.onRead(Epc.of(96, HIGH, 2L << 32), HIGH, 2L << 32, 0, OUTER, 11_000, 11_000);
+        // Made before the read of the other side, but arrives after it
+        engine.onRead(Epc.of(96, HIGH, 1L << 32), HIGH, 1L << 32, 0, OUTER, 9_000, 14_000);
+
+        assertThat(engine.expire(16_500, Integer.MAX_VALUE)).isEqualTo(1);
+        assertThat(transitions)
+            .containsExactly(
+                transition(0, 1, PortalTransition.ENTER, 10_000),
+                transition(0, 2, PortalTransition.ENTER, 11_000),
+                transition(0, 2, PortalTransition.EXIT, 16_000)
+            );
+        assertThat(engine.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testTagSeenAgainAfterAnAbsenceExitsThenEntersAgain() {
+        read(1, 0, OUTER, 10_000);
+        read(1, 0, OUTER, 20_000);
+
+        assertThat(transitions)
+            .containsExactly(
+                transition(0, 1, PortalTransition.ENTER, 10_000),
+                transition(0, 1, PortalTransition.EXIT, 15_000),
+                transition(0, 1, PortalTransition.ENTER, 20_000)
+            );
+        assertThat(engine.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testTableGrowsThenEvictsTheTagSeenTheLongestAgo() {
+        for (int i = 1; i <= 64; i++) {
+            read(i, 0, OUTER, 10_000 + i);
+        }
+        assertThat(engine.getCapacity()).isEqualTo(64);
+        read(1, 0, INNER, 10_500);
+        transitions.clear();
+
+        read(65, 0, OUTER, 10_600);
+
+        assertThat(transitions)
+            .containsExactly(
+                transition(0, 2, PortalTransition.EXIT, 10_002),
+                transition(0, 65, PortalTransition.ENTER, 10_600)
+            );
+        read(1, 0, OUTER, 10_700);
+        read(64, 0, INNER, 10_800);
+        assertThat(transitions).endsWith(transition(0, 1, PortalTransition.OUT, 10_700), transition(0, 64, PortalTransition.IN, 10_800));
+        assertThat(engine.size()).isEqualTo(64);
+    }
+}
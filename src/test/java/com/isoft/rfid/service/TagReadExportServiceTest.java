@@ -0,0 +1,148 @@
+package com.isoft.rfid.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.domain.Epc;
+import com.isoft.rfid.domain.TagRead;
+import com.isoft.rfid.repository.search.TagReadCriteria;
+import com.isoft.rfid.repository.search.TagReadSearchRepository;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TagReadExportServiceTest {
+
+    private static final long DAY = 1668384000000L;
+
+    private TagReadSearchRepository repository;
+
+    private TagReadExportService service;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getExport().setSlices(2);
+        properties.getExport().setMaxConcurrentExports(1);
+        repository = mock(TagReadSearchRepository.class);
+        when(repository.openPointInTime(any(), anyString())).thenReturn("pit-1");
+        service = new TagReadExportService(repository, new Gs1EpcDecoder(), new ObjectMapper(), properties);
+    }
+
+    @AfterEach
+    public void teardown() {
+        service.destroy();
+    }
+
+    private static TagRead read(String readerId, int serial) {
+        TagRead read = new TagRead();
+        read.setEpc(Epc.parse(String.format("3034257BF7194E40000000%02X", serial)));
+        read.setReaderId(readerId);
+        read.setAntenna(1);
+        read.setRssi(-60.5);
+        read.setTimestamp(DAY + serial);
+        return read;
+    }
+
+    @Test
+    void testWritesTheReadsOfAllTheSlices() throws Exception {
+        when(repository.scanSlice(eq("pit-1"), anyString(), any(), anyInt(), eq(2), anyInt(), any()))
+            .thenAnswer(invocation -> {
+                int slice = invocation.getArgument(3);
+                TagReadSearchRepository.PageHandler handler = invocation.getArgument(6);
+                return handler.onPage(Arrays.asList(read("dock-" + slice, slice * 2), read("dock,\"" + slice + "\"", slice * 2 + 1)));
+            });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = service.prepare(new TagReadCriteria(), TagReadExportService.Format.CSV).writeTo(out);
+
+        assertThat(count).isEqualTo(4);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines[0]).isEqualTo("epc,readerId,antenna,rssi,timestamp,epcUri");
+        assertThat(lines)
+            .hasSize(5)
+            .contains(
+                "3034257BF7194E4000000000,dock-0,1,-60.5,2022-11-14T00:00:00Z,urn:epc:id:sgtin:0614141.812345.0",
+                "3034257BF7194E4000000003,\"dock,\"\"1\"\"\",1,-60.5,2022-11-14T00:00:00.003Z,urn:epc:id:sgtin:0614141.812345.3"
+            );
+        verify(repository).closePointInTime("pit-1");
+    }
+
+    @Test
+    void testWritesNdjson() throws Exception {
+        when(repository.scanSlice(eq("pit-1"), anyString(), any(), eq(0), eq(2), anyInt(), any()))
+            .thenAnswer(invocation -> {
+                TagReadSearchRepository.PageHandler handler = invocation.getArgument(6);
+                return handler.onPage(Collections.singletonList(read("dock-1", 5)));
+            });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.prepare(new TagReadCriteria(), TagReadExportService.Format.NDJSON).writeTo(out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8))
+            .isEqualTo(
+                "{\"epc\":\"3034257BF7194E4000000005\",\"readerId\":\"dock-1\",\"antenna\":1,\"rssi\":-60.5,\"timestamp\":" +
+                (DAY + 5) +
+                ",\"epcUri\":\"urn:epc:id:sgtin:0614141.812345.5\"}\n"
+            );
+    }
+
+    @Test
+    void testStopsTheSlicesWhenTheClientIsGone() throws Exception {
+        when(repository.scanSlice(eq("pit-1"), anyString(), any(), anyInt(), eq(2), anyInt(), any()))
+            .thenAnswer(invocation -> {
+                TagReadSearchRepository.PageHandler handler = invocation.getArgument(6);
+                while (handler.onPage(Collections.singletonList(read("dock-1", 1)))) {
+                    // An endless history
+                }
+                return false;
+            });
+        OutputStream gone = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        TagReadExportService.Export export = service.prepare(new TagReadCriteria(), TagReadExportService.Format.CSV);
+        assertThat(service.prepare(new TagReadCriteria(), TagReadExportService.Format.CSV)).isNull();
+        assertThatThrownBy(() -> export.writeTo(gone)).isInstanceOf(IOException.class);
+
+        verify(repository).closePointInTime("pit-1");
+        assertThat(service.prepare(new TagReadCriteria(), TagReadExportService.Format.CSV)).isNotNull();
+    }
+
+    @Test
+    void testClosingAnExportNeverWrittenReleasesItsPermit() {
+        TagReadExportService.Export export = service.prepare(new TagReadCriteria(), TagReadExportService.Format.CSV);
+        assertThat(service.prepare(new TagReadCriteria(), TagReadExportService.Format.CSV)).isNull();
+
+        export.close();
+        export.close();
+
+        TagReadExportService.Export next = service.prepare(new TagReadCriteria(), TagReadExportService.Format.CSV);
+        assertThat(next).isNotNull();
+        assertThat(service.prepare(new TagReadCriteria(), TagReadExportService.Format.CSV)).isNull();
+        assertThatThrownBy(() -> export.writeTo(new ByteArrayOutputStream())).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,99 @@
+package com.isoft.rfid.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.domain.TagRead;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TagReadPipelineTest {
+
+    private ApplicationProperties applicationProperties;
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getIngest().setBufferSize(8);
+        applicationProperties.getIngest().setPublishTimeoutMillis(20);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testReadsGoThroughEveryPhaseInOrder() {
+        List<Integer> indexed = new CopyOnWriteArrayList<>();
+        IngestStage dropOdd = stage(IngestStage.Phase.DEDUP, read -> read.getAntenna() % 2 == 0);
+        IngestStage index = stage(IngestStage.Phase.INDEX, read -> indexed.add(read.getAntenna()));
+        TagReadPipeline pipeline = new TagReadPipeline(applicationProperties, meterRegistry, List.of(index, dropOdd));
+        pipeline.start();
+
+        TagRead read = new TagRead();
+        int published = 0;
+        for (int i = 0; i < 1000; i++) {
+            read.setAntenna(i);
+            while (!pipeline.publish(read)) {
+                Thread.onSpinWait();
+            }
+            published++;
+        }
+        pipeline.stop();
+
+        assertThat(published).isEqualTo(1000);
+        assertThat(indexed).hasSize(500).startsWith(0, 2, 4).endsWith(998);
+        assertThat(meterRegistry.get(TagReadPipeline.STAGE_DROPPED_METER_NAME).tag("phase", "dedup").counter().count())
+            .isEqualTo(500);
+        assertThat(pipeline.getPendingCount()).isZero();
+    }
+
+    @Test
+    void testPublishReportsOverloadWhenTheRingIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        IngestStage blocking = stage(
+            IngestStage.Phase.INDEX,
+            read -> {
+                try {
+                    return release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        );
+        TagReadPipeline pipeline = new TagReadPipeline(applicationProperties, meterRegistry, List.of(blocking));
+        pipeline.start();
+
+        TagRead read = new TagRead();
+        for (int i = 0; i < 8; i++) {
+            assertThat(pipeline.publish(read)).isTrue();
+        }
+        assertThat(pipeline.publish(read)).isFalse();
+
+        release.countDown();
+        pipeline.stop();
+        assertThat(pipeline.getPendingCount()).isZero();
+        assertThat(pipeline.publish(read)).isFalse();
+    }
+
+    private static IngestStage stage(IngestStage.Phase phase, Predicate<TagRead> processor) {
+        return new IngestStage() {
+            @Override
+            public Phase getPhase() {
+                return phase;
+            }
+
+            @Override
+            public boolean process(TagRead read) {
+                return processor.test(read);
+            }
+        };
+    }
+}
@@ -0,0 +1,149 @@
+package com.isoft.rfid.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.repository.search.ReadCountBucket;
+import com.isoft.rfid.repository.search.TagReadCriteria;
+import com.isoft.rfid.repository.search.TagReadSearchRepository;
+import com.isoft.rfid.service.dto.ReadCountDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TagReadStatisticsServiceTest {
+
+    private static final long DAY = 1668384000000L;
+
+    private static final long MINUTE = 60 * 1000;
+
+    private final BlockingQueue<String> searches = new LinkedBlockingQueue<>();
+
+    private final ApplicationProperties properties = new ApplicationProperties();
+
+    private final IngestWatermark watermark = new IngestWatermark();
+
+    private TagReadSearchRepository repository;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        properties.getDashboard().setBucketsPerBlock(10);
+        properties.getDashboard().setSettleMillis(0);
+        repository = mock(TagReadSearchRepository.class);
+        when(repository.countReads(any(), anyLong()))
+            .thenAnswer(invocation -> {
+                TagReadCriteria criteria = invocation.getArgument(0);
+                long interval = invocation.getArgument(1);
+                searches.add((criteria.getFrom() - DAY) / MINUTE + "-" + (criteria.getTo() + 1 - DAY) / MINUTE);
+                List<ReadCountBucket> buckets = new ArrayList<>();
+                for (long start = criteria.getFrom(); start <= criteria.getTo(); start += interval) {
+                    buckets.add(new ReadCountBucket(start, (start - DAY) / MINUTE, 1));
+                }
+                return buckets;
+            });
+    }
+
+    private TagReadStatisticsService service() {
+        return new TagReadStatisticsService(repository, watermark, properties, new SimpleMeterRegistry());
+    }
+
+    private static TagReadCriteria range(long fromMinute, long toMinute) {
+        TagReadCriteria criteria = new TagReadCriteria();
+        criteria.setReaderId("dock-1");
+        criteria.setFrom(DAY + fromMinute * MINUTE);
+        criteria.setTo(DAY + toMinute * MINUTE);
+        return criteria;
+    }
+
+    @Test
+    void testOnlyTheBlocksWithNewReadsAreComputedAgain() throws Exception {
+        TagReadStatisticsService service = service();
+
+        List<ReadCountDTO> counts = service.countReads(range(0, 30), MINUTE);
+        assertThat(counts).hasSize(30);
+        assertThat(counts.get(29).getReads()).isEqualTo(29);
+        assertThat(searches.poll()).isEqualTo("0-30");
+
+        assertThat(service.countReads(range(0, 30), MINUTE)).isEqualTo(counts);
+        assertThat(searches).isEmpty();
+
+        watermark.advance(DAY + 15 * MINUTE + 1);
+        assertThat(service.countReads(range(0, 30), MINUTE)).usingRecursiveComparison().isEqualTo(counts);
+        assertThat(searches.poll()).isEqualTo("10-20");
+
+        List<ReadCountDTO> slid = service.countReads(range(5, 35), MINUTE);
+        assertThat(slid).extracting(ReadCountDTO::getReads).startsWith(5L, 6L).endsWith(33L, 34L).hasSize(30);
+        assertThat(searches.poll()).isEqualTo("30-40");
+        assertThat(searches).isEmpty();
+    }
+
+    @Test
+    void testTheRangeIsWidenedToWholeIntervals() throws Exception {
+        TagReadCriteria criteria = range(0, 3);
+        criteria.setFrom(criteria.getFrom() + 1000);
+        criteria.setTo(criteria.getTo() - 1000);
+
+        assertThat(service().countReads(criteria, MINUTE)).extracting(ReadCountDTO::getReads).containsExactly(0L, 1L, 2L);
+    }
+
+    @Test
+    void testBlocksWithUnsettledReadsAreNotCached() throws Exception {
+        properties.getDashboard().setSettleMillis(60 * MINUTE);
+        TagReadStatisticsService service = service();
+        watermark.advance(DAY + 5 * MINUTE);
+
+        service.countReads(range(0, 20), MINUTE);
+        service.countReads(range(0, 20), MINUTE);
+
+        assertThat(searches).containsExactly("0-20", "0-10");
+    }
+
+    @Test
+    void testReplayedReadsChangeAllTheWindows() throws Exception {
+        TagReadStatisticsService service = service();
+        service.countReads(range(0, 20), MINUTE);
+
+        watermark.advanceAll();
+        service.countReads(range(0, 20), MINUTE);
+
+        assertThat(searches).containsExactly("0-20", "0-20");
+    }
+
+    @Test
+    void testCompactedMinutesStillChangeTheirHour() {
+        watermark.advance(DAY + 90 * MINUTE);
+        long sequence = watermark.mark(DAY + 90 * MINUTE, DAY + 91 * MINUTE).getSequence();
+
+        watermark.compact();
+
+        assertThat(watermark.size()).isEqualTo(1);
+        assertThat(watermark.mark(DAY + 70 * MINUTE, DAY + 71 * MINUTE).getSequence()).isEqualTo(sequence);
+        assertThat(watermark.mark(DAY + 30 * MINUTE, DAY + 60 * MINUTE).getSequence()).isZero();
+        assertThat(watermark.mark(DAY + 120 * MINUTE, DAY + 180 * MINUTE).getSequence()).isZero();
+    }
+
+    @Test
+    void testTheCacheEvictsTheLeastRecentlyUsedBlocks() {
+        QueryResultCache<String, List<ReadCountDTO>> cache = new QueryResultCache<>(10, 3, List::size);
+        List<ReadCountDTO> two = List.of(new ReadCountDTO(0, 1, 1), new ReadCountDTO(1, 1, 1));
+
+        cache.put("a", two, 1);
+        cache.put("b", List.of(new ReadCountDTO(0, 1, 1)), 1);
+        assertThat(cache.get("a", 1)).isEqualTo(two);
+        cache.put("c", List.of(new ReadCountDTO(0, 1, 1)), 1);
+
+        assertThat(cache.get("b", 1)).isNull();
+        assertThat(cache.get("a", 2)).isNull();
+        assertThat(cache.get("c", 1)).isNotNull();
+        assertThat(cache.getWeight()).isEqualTo(1);
+        assertThat(cache.getEvictions()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,69 @@
+package com.isoft.rfid.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.domain.TagRead;
+import com.isoft.rfid.repository.search.TagReadIndexPartitions;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.temporal.ChronoUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link TagReadValidationStage}.
+ */
+class TagReadValidationStageTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private TagReadValidationStage stage;
+
+    @BeforeEach
+    public void setup() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getIngest().setMaxClockSkewSeconds(60);
+        applicationProperties.getIndexing().setSealDelayMillis(6 * HOUR);
+        TagReadIndexPartitions partitions = new TagReadIndexPartitions("tag-read", ChronoUnit.DAYS, 64);
+        stage = new TagReadValidationStage(applicationProperties, partitions, meterRegistry);
+    }
+
+    private static TagRead read(long timestamp) {
+        TagRead read = new TagRead();
+        read.setReaderId("dock-1");
+        read.setTimestamp(timestamp);
+        return read;
+    }
+
+    private double rejected(String reason) {
+        return meterRegistry.get(TagReadValidationStage.REJECTED_METER_NAME).tag("reason", reason).counter().count();
+    }
+
+    @Test
+    void acceptsReadsOfTheLastHours() {
+        // Their daily partition is not over, or has been for at most 2 hours, less than half of the seal delay
+        long now = System.currentTimeMillis();
+
+        assertThat(stage.process(read(now))).isTrue();
+        assertThat(stage.process(read(now + 30_000))).isTrue();
+        assertThat(stage.process(read(now - 2 * HOUR))).isTrue();
+        assertThat(rejected("future") + rejected("late")).isZero();
+    }
+
+    @Test
+    void rejectsReadsFromTheFuture() {
+        assertThat(stage.process(read(System.currentTimeMillis() + 120_000))).isFalse();
+        assertThat(rejected("future")).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsReadsWhosePartitionIsAboutToBeSealed() {
+        // Their daily partition has been over for at least a day, longer than half of the seal delay
+        assertThat(stage.process(read(System.currentTimeMillis() - 48 * HOUR))).isFalse();
+        assertThat(stage.process(read(System.currentTimeMillis() - 30 * 24 * HOUR))).isFalse();
+        assertThat(rejected("late")).isEqualTo(2);
+    }
+}
@@ -0,0 +1,218 @@
+package com.isoft.rfid.service.llrp;
+
+import static com.isoft.rfid.service.llrp.LlrpTestMessages.antenna;
+import static com.isoft.rfid.service.llrp.LlrpTestMessages.connectionAttempt;
+import static com.isoft.rfid.service.llrp.LlrpTestMessages.epc96;
+import static com.isoft.rfid.service.llrp.LlrpTestMessages.epcData;
+import static com.isoft.rfid.service.llrp.LlrpTestMessages.message;
+import static com.isoft.rfid.service.llrp.LlrpTestMessages.tagReport;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.domain.Epc;
+import com.isoft.rfid.domain.TagRead;
+import com.isoft.rfid.service.IngestStage;
+import com.isoft.rfid.service.TagReadIngestService;
+import com.isoft.rfid.service.TagReadPipeline;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@link LlrpClientService} against an in-process fake reader.
+ */
+class LlrpClientServiceTest {
+
+    private final BlockingQueue<TagRead> indexed = new LinkedBlockingQueue<>();
+
+    private volatile CountDownLatch indexing = new CountDownLatch(0);
+
+    private MeterRegistry meterRegistry;
+
+    private ServerSocket fakeReader;
+
+    private TagReadPipeline tagReadPipeline;
+
+    private LlrpClientService llrpClientService;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        fakeReader = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        fakeReader.setSoTimeout(5000);
+        meterRegistry = new SimpleMeterRegistry();
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getIngest().setBufferSize(64);
+        ApplicationProperties.Llrp llrp = applicationProperties.getLlrp();
+        llrp.setReconnectMinDelayMillis(10);
+        llrp.setReconnectMaxDelayMillis(50);
+        llrp.setBufferSize(256);
+        ApplicationProperties.Llrp.Reader reader = new ApplicationProperties.Llrp.Reader();
+        reader.setId("dock-1");
+        reader.setHost(fakeReader.getInetAddress().getHostAddress());
+        reader.setPort(fakeReader.getLocalPort());
+        llrp.getReaders().add(reader);
+
+        tagReadPipeline = new TagReadPipeline(applicationProperties, meterRegistry, List.of(indexStage()));
+        tagReadPipeline.start();
+        llrpClientService =
+            new LlrpClientService(applicationProperties, new TagReadIngestService(meterRegistry, tagReadPipeline), meterRegistry);
+        llrpClientService.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        llrpClientService.stop();
+        tagReadPipeline.stop();
+        fakeReader.close();
+    }
+
+    @Test
+    void testReportsAreIngestedAndKeepalivesAcknowledged() throws Exception {
+        try (Socket connection = fakeReader.accept()) {
+            OutputStream out = connection.getOutputStream();
+            DataInputStream in = new DataInputStream(connection.getInputStream());
+            out.write(connectionAttempt(LlrpMessage.CONNECTION_ATTEMPT_SUCCESS));
+            out.write(message(LlrpMessage.KEEPALIVE, 7));
+
+            assertThat(readMessageOfType(in, LlrpMessage.KEEPALIVE_ACK)).isEqualTo(7);
+
+            // A report split in the middle of its header, then of its parameters, and a report larger than a pooled buffer
+            byte[] report = message(LlrpMessage.RO_ACCESS_REPORT, 8, tagReport(epc96("3074257BF7194E4000001A85"), antenna(2)));
+            out.write(report, 0, 4);
+            out.flush();
+            Thread.sleep(20);
+            out.write(report, 4, 10);
+            out.flush();
+            Thread.sleep(20);
+            out.write(report, 14, report.length - 14);
+            byte[][] tags = new byte[20][];
+            for (int i = 0; i < tags.length; i++) {
+                tags[i] = tagReport(epcData(String.format("E28011606000020500%014X", i)), antenna(1));
+            }
+            out.write(message(LlrpMessage.RO_ACCESS_REPORT, 9, tags));
+            out.flush();
+
+            TagRead read = indexed.poll(5, TimeUnit.SECONDS);
+            assertThat(read).isNotNull();
+            assertThat(read.getReaderId()).isEqualTo("dock-1");
+            assertThat(read.getEpc()).isEqualTo(Epc.parse("3074257BF7194E4000001A85"));
+            assertThat(read.getAntenna()).isEqualTo(2);
+            for (int i = 0; i < tags.length; i++) {
+                read = indexed.poll(5, TimeUnit.SECONDS);
+                assertThat(read).isNotNull();
+                assertThat(read.getEpc()).isEqualTo(Epc.parse(String.format("E28011606000020500%014X", i)));
+            }
+            assertThat(llrpClientService.getConnectedCount()).isEqualTo(1);
+        }
+
+        // The reader went away: the client reconnects
+        try (Socket connection = fakeReader.accept()) {
+            connection
+                .getOutputStream()
+                .write(message(LlrpMessage.RO_ACCESS_REPORT, 1, tagReport(epc96("3074257BF7194E4000001A86"), antenna(1))));
+
+            TagRead read = indexed.poll(5, TimeUnit.SECONDS);
+            assertThat(read).isNotNull();
+            assertThat(read.getEpc()).isEqualTo(Epc.parse("3074257BF7194E4000001A86"));
+        }
+        assertThat(meterRegistry.get(LlrpClientService.CONNECTION_FAILURES_METER_NAME).counter().count()).isPositive();
+    }
+
+    @Test
+    void testReportsAreHeldBackWhileIngestionIsOverloaded() throws Exception {
+        indexing = new CountDownLatch(1);
+        try (Socket connection = fakeReader.accept()) {
+            OutputStream out = connection.getOutputStream();
+            // Several times what the pipeline holds, which each tag over the first ones would wait for if published
+            byte[][] tags = new byte[300][];
+            for (int i = 0; i < tags.length; i++) {
+                tags[i] = tagReport(epcData(String.format("E28011606000020500%014X", i)), antenna(1));
+            }
+            out.write(message(LlrpMessage.RO_ACCESS_REPORT, 1, tags));
+            out.write(message(LlrpMessage.RO_ACCESS_REPORT, 2, tagReport(epc96("3074257BF7194E4000001A85"), antenna(2))));
+            out.flush();
+            Thread.sleep(200);
+            assertThat(indexed).isEmpty();
+
+            indexing.countDown();
+
+            for (int i = 0; i < tags.length; i++) {
+                TagRead read = indexed.poll(5, TimeUnit.SECONDS);
+                assertThat(read).isNotNull();
+                assertThat(read.getEpc()).isEqualTo(Epc.parse(String.format("E28011606000020500%014X", i)));
+            }
+            TagRead read = indexed.poll(5, TimeUnit.SECONDS);
+            assertThat(read).isNotNull();
+            assertThat(read.getEpc()).isEqualTo(Epc.parse("3074257BF7194E4000001A85"));
+            assertThat(llrpClientService.getConnectedCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void testRefusedConnectionIsClosed() throws Exception {
+        try (Socket connection = fakeReader.accept()) {
+            connection.setSoTimeout(5000);
+            connection.getOutputStream().write(connectionAttempt(2));
+            DataInputStream in = new DataInputStream(connection.getInputStream());
+
+            assertThat(readMessageOfType(in, -1)).isEqualTo(-1);
+        }
+        assertThat(meterRegistry.get(LlrpClientService.CONNECTION_FAILURES_METER_NAME).counter().count()).isPositive();
+    }
+
+    /**
+     * Skip messages until one of the given type.
+     *
+     * @return the id of the message, or {@code -1} once the client closed the connection.
+     */
+    private static int readMessageOfType(DataInputStream in, int type) throws IOException {
+        while (true) {
+            int typeAndVersion = in.read();
+            if (typeAndVersion < 0) {
+                return -1;
+            }
+            int messageType = ((typeAndVersion << 8) | in.readUnsignedByte()) & 0x3FF;
+            int length = in.readInt();
+            int id = in.readInt();
+            in.skipNBytes(length - LlrpMessage.HEADER_LENGTH);
+            if (messageType == type) {
+                return id;
+            }
+        }
+    }
+
+    private IngestStage indexStage() {
+        return new IngestStage() {
+            @Override
+            public Phase getPhase() {
+                return Phase.INDEX;
+            }
+
+            @Override
+            public boolean process(TagRead read) {
+                try {
+                    indexing.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                TagRead copy = new TagRead();
+                copy.copyFrom(read);
+                indexed.add(copy);
+                return true;
+            }
+        };
+    }
+}
@@ -0,0 +1,78 @@
+package com.isoft.rfid.service.llrp;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Encoders for the LLRP messages a reader sends, for tests.
+ */
+final class LlrpTestMessages {
+
+    private LlrpTestMessages() {}
+
+    static byte[] message(int type, int id, byte[]... parameters) {
+        byte[] body = concat(parameters);
+        return ByteBuffer
+            .allocate(LlrpMessage.HEADER_LENGTH + body.length)
+            .putShort((short) ((LlrpMessage.VERSION << 10) | type))
+            .putInt(LlrpMessage.HEADER_LENGTH + body.length)
+            .putInt(id)
+            .put(body)
+            .array();
+    }
+
+    static byte[] tlv(int type, byte[]... values) {
+        byte[] value = concat(values);
+        return ByteBuffer.allocate(4 + value.length).putShort((short) type).putShort((short) (4 + value.length)).put(value).array();
+    }
+
+    static byte[] epcData(String hex) {
+        return tlv(RoAccessReportDecoder.EPC_DATA, ByteBuffer.allocate(2).putShort((short) (hex.length() * 4)).array(), bytes(hex));
+    }
+
+    static byte[] epc96(String hex) {
+        return concat(new byte[] { (byte) (0x80 | RoAccessReportDecoder.TV_EPC_96) }, bytes(hex));
+    }
+
+    static byte[] antenna(int antenna) {
+        return ByteBuffer.allocate(3).put((byte) (0x80 | RoAccessReportDecoder.TV_ANTENNA_ID)).putShort((short) antenna).array();
+    }
+
+    static byte[] peakRssi(int rssi) {
+        return new byte[] { (byte) (0x80 | RoAccessReportDecoder.TV_PEAK_RSSI), (byte) rssi };
+    }
+
+    static byte[] firstSeen(long epochMillis) {
+        return ByteBuffer
+            .allocate(9)
+            .put((byte) (0x80 | RoAccessReportDecoder.TV_FIRST_SEEN_TIMESTAMP_UTC))
+            .putLong(epochMillis * 1000)
+            .array();
+    }
+
+    static byte[] tagReport(byte[]... parameters) {
+        return tlv(RoAccessReportDecoder.TAG_REPORT_DATA, parameters);
+    }
+
+    static byte[] connectionAttempt(int status) {
+        byte[] utcTimestamp = tlv(128, new byte[8]);
+        byte[] event = tlv(LlrpMessage.CONNECTION_ATTEMPT_EVENT, ByteBuffer.allocate(2).putShort((short) status).array());
+        return message(LlrpMessage.READER_EVENT_NOTIFICATION, 0, tlv(LlrpMessage.READER_EVENT_NOTIFICATION_DATA, utcTimestamp, event));
+    }
+
+    static byte[] bytes(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
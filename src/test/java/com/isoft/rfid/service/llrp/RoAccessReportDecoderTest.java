@@ -0,0 +1,110 @@
+package com.isoft.rfid.service.llrp;
+
+import static com.isoft.rfid.service.llrp.LlrpTestMessages.antenna;
+import static com.isoft.rfid.service.llrp.LlrpTestMessages.epc96;
+import static com.isoft.rfid.service.llrp.LlrpTestMessages.epcData;
+import static com.isoft.rfid.service.llrp.LlrpTestMessages.firstSeen;
+import static com.isoft.rfid.service.llrp.LlrpTestMessages.message;
+import static com.isoft.rfid.service.llrp.LlrpTestMessages.peakRssi;
+import static com.isoft.rfid.service.llrp.LlrpTestMessages.tagReport;
+import static com.isoft.rfid.service.llrp.LlrpTestMessages.tlv;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.isoft.rfid.domain.Epc;
+import com.isoft.rfid.domain.TagRead;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.Test;
+
+class RoAccessReportDecoderTest {
+
+    private static final long FIRST_SEEN = 1_668_412_800_123L;
+
+    private static final long RECEIVED_AT = 1_668_412_900_000L;
+
+    @Test
+    void testDecodeEveryTagOfTheReport() {
+        byte[] report = message(
+            LlrpMessage.RO_ACCESS_REPORT,
+            1,
+            tagReport(epcData("E2801160600002054CC2096F00112233"), antenna(2), peakRssi(-61), firstSeen(FIRST_SEEN)),
+            // A custom TLV parameter, skipped using its length
+            tagReport(epc96("3074257BF7194E4000001A85"), tlv(1023, new byte[] { 1, 2, 3, 4, 5 }), antenna(1)),
+            // No EPC: nothing to report
+            tagReport(antenna(3)),
+            // An unknown TV parameter hides the rest of its TagReportData, but not the following ones
+            tagReport(new byte[] { (byte) 0xFF, 0 }, epc96("3074257BF7194E4000001A86")),
+            tagReport(epc96("3074257BF7194E4000001A87"), antenna(4))
+        );
+        ByteBuffer body = ByteBuffer.allocateDirect(report.length).put(report).position(LlrpMessage.HEADER_LENGTH);
+        List<TagRead> reads = new ArrayList<>();
+
+        int count = RoAccessReportDecoder.decode(body, "dock-1", RECEIVED_AT, new TagRead(), read -> reads.add(copy(read)));
+
+        assertThat(count).isEqualTo(3);
+        assertThat(body.hasRemaining()).isFalse();
+        assertThat(reads).extracting(TagRead::getReaderId).containsOnly("dock-1");
+        assertThat(reads)
+            .extracting(TagRead::getEpc)
+            .containsExactly(
+                Epc.parse("E2801160600002054CC2096F00112233"),
+                Epc.parse("3074257BF7194E4000001A85"),
+                Epc.parse("3074257BF7194E4000001A87")
+            );
+        assertThat(reads).extracting(TagRead::getAntenna).containsExactly(2, 1, 4);
+        assertThat(reads.get(0).getRssi()).isEqualTo(-61);
+        assertThat(reads).extracting(TagRead::getTimestamp).containsExactly(FIRST_SEEN, RECEIVED_AT, RECEIVED_AT);
+    }
+
+    @Test
+    void testDecodingStopsAtTheReadTheSinkRefuses() {
+        byte[] report = message(
+            LlrpMessage.RO_ACCESS_REPORT,
+            1,
+            tagReport(epc96("3074257BF7194E4000001A85")),
+            tagReport(epc96("3074257BF7194E4000001A86")),
+            tagReport(epc96("3074257BF7194E4000001A87"))
+        );
+        ByteBuffer body = ByteBuffer.wrap(report).position(LlrpMessage.HEADER_LENGTH);
+        List<TagRead> reads = new ArrayList<>();
+
+        Predicate<TagRead> takingOne = read -> reads.isEmpty() && reads.add(copy(read));
+
+        int count = RoAccessReportDecoder.decode(body, "dock-1", RECEIVED_AT, new TagRead(), takingOne);
+
+        assertThat(count).isEqualTo(1);
+        assertThat(body.position()).isEqualTo(LlrpMessage.HEADER_LENGTH + tagReport(epc96("3074257BF7194E4000001A85")).length);
+
+        count = RoAccessReportDecoder.decode(body, "dock-1", RECEIVED_AT, new TagRead(), read -> reads.add(copy(read)));
+
+        assertThat(count).isEqualTo(2);
+        assertThat(body.hasRemaining()).isFalse();
+        assertThat(reads)
+            .extracting(TagRead::getEpc)
+            .containsExactly(
+                Epc.parse("3074257BF7194E4000001A85"),
+                Epc.parse("3074257BF7194E4000001A86"),
+                Epc.parse("3074257BF7194E4000001A87")
+            );
+    }
+
+    @Test
+    void testTruncatedParametersAreIgnored() {
+        byte[] parameter = tagReport(epc96("3074257BF7194E4000001A85"));
+        ByteBuffer body = ByteBuffer.wrap(parameter, 0, parameter.length - 1);
+        List<TagRead> reads = new ArrayList<>();
+
+        int count = RoAccessReportDecoder.decode(body, "dock-1", RECEIVED_AT, new TagRead(), reads::add);
+
+        assertThat(count).isZero();
+        assertThat(reads).isEmpty();
+    }
+
+    private static TagRead copy(TagRead read) {
+        TagRead copy = new TagRead();
+        copy.copyFrom(read);
+        return copy;
+    }
+}
@@ -0,0 +1,209 @@
+package com.isoft.rfid.service.spool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.repository.search.TagReadBulkIndexer;
+import com.isoft.rfid.repository.search.TagReadIndexPartitions;
+import com.isoft.rfid.service.IngestWatermark;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the {@link ReadSpool} with a {@link TagReadBulkIndexer} sending to an in-process fake {@code _bulk} endpoint.
+ */
+class ReadSpoolTest {
+
+    private static final String DOCUMENT = "{\"index\":{\"_index\":\"tag-read-2022.11.14\"}}\n{\"epc\":\"3034257BF7194E4000000001\"}\n";
+
+    private static final String OTHER_DOCUMENT =
+        "{\"index\":{\"_index\":\"tag-read-2022.11.14\"}}\n{\"epc\":\"3034257BF7194E4000000002\"}\n";
+
+    private static final String ALL_INDEXED = "{\"took\":1,\"errors\":false,\"items\":[]}";
+
+    @TempDir
+    Path directory;
+
+    private final BlockingQueue<String> requests = new LinkedBlockingQueue<>();
+
+    private final BlockingQueue<String> indexed = new LinkedBlockingQueue<>();
+
+    private final BlockingQueue<String> responses = new LinkedBlockingQueue<>();
+
+    private final CountDownLatch responding = new CountDownLatch(1);
+
+    private volatile boolean held;
+
+    private volatile int status = 503;
+
+    private HttpServer fakeElasticsearch;
+
+    private RestClient restClient;
+
+    private ApplicationProperties applicationProperties;
+
+    private TagReadBulkIndexer indexer;
+
+    private ReadSpool spool;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        fakeElasticsearch = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        fakeElasticsearch.createContext(
+            "/_bulk",
+            exchange -> {
+                String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                requests.add(request);
+                if (held) {
+                    try {
+                        responding.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                int status = this.status;
+                if (status == 200) {
+                    indexed.add(request);
+                }
+                String response = status == 200 ? responses.poll() : null;
+                byte[] body = (response == null ? ALL_INDEXED : response).getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(status, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        );
+        fakeElasticsearch.start();
+        restClient = RestClient.builder(new HttpHost("localhost", fakeElasticsearch.getAddress().getPort())).build();
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getSpool().setDirectory(directory.toString());
+        applicationProperties.getSpool().setSegmentBytes(4096);
+        applicationProperties.getSpool().setReplayIntervalMillis(20);
+        applicationProperties.getSpool().setReplayMaxBackoffMillis(40);
+        indexer =
+            new TagReadBulkIndexer(
+                applicationProperties,
+                restClient,
+                new TagReadIndexPartitions("tag-read", ChronoUnit.DAYS, 64),
+                new ObjectMapper(),
+                new SimpleMeterRegistry()
+            );
+        spool = new ReadSpool(applicationProperties, indexer, new IngestWatermark(), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    public void teardown() throws IOException {
+        spool.stop();
+        indexer.destroy();
+        restClient.close();
+        fakeElasticsearch.stop(0);
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void replaysSpooledReadsOnceElasticsearchIsBack() throws IOException {
+        spool.start();
+        byte[] documents = DOCUMENT.getBytes(StandardCharsets.UTF_8);
+        spool.onFailure(documents, 1, "HTTP 503", true);
+        assertThat(spool.getPendingBytes()).isEqualTo(documents.length + SpoolSegment.HEADER_BYTES);
+        assertThat(segmentCount()).isEqualTo(1);
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> requests.size() >= 2);
+        status = 200;
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> spool.getPendingBytes() == 0);
+        assertThat(segmentCount()).isZero();
+        assertThat(requests).allMatch(DOCUMENT::equals);
+    }
+
+    @Test
+    void recoversSpooledReadsAfterARestart() throws IOException {
+        spool.start();
+        spool.onFailure(DOCUMENT.getBytes(StandardCharsets.UTF_8), 1, "HTTP 503", true);
+        spool.stop();
+
+        status = 200;
+        ReadSpool restarted = new ReadSpool(applicationProperties, indexer, new IngestWatermark(), new SimpleMeterRegistry());
+        restarted.start();
+        try {
+            assertThat(restarted.getPendingBytes()).isPositive();
+            await().atMost(Duration.ofSeconds(5)).until(() -> restarted.getPendingBytes() == 0);
+            // The replays of the first spool all completed, and failed, before it stopped
+            assertThat(indexed).containsExactly(DOCUMENT);
+            assertThat(segmentCount()).isZero();
+        } finally {
+            restarted.stop();
+        }
+    }
+
+    @Test
+    void acknowledgesTheReplayInFlightWhenStopping() throws Exception {
+        status = 200;
+        held = true;
+        spool.start();
+        spool.onFailure(DOCUMENT.getBytes(StandardCharsets.UTF_8), 1, "HTTP 503", true);
+        await().atMost(Duration.ofSeconds(5)).until(() -> requests.size() == 1);
+
+        CompletableFuture<Void> stopped = CompletableFuture.runAsync(spool::stop);
+        await().atMost(Duration.ofSeconds(5)).until(() -> !spool.isRunning());
+        responding.countDown();
+        stopped.get(5, TimeUnit.SECONDS);
+
+        assertThat(indexed).containsExactly(DOCUMENT);
+        assertThat(segmentCount()).isZero();
+    }
+
+    @Test
+    void spoolsAgainOnlyTheDocumentsOfAReplayThatWereNotIndexed() throws IOException {
+        status = 200;
+        responses.add(
+            "{\"took\":1,\"errors\":true,\"items\":[{\"index\":{\"status\":201}}," +
+            "{\"index\":{\"status\":429,\"error\":{\"type\":\"es_rejected_execution_exception\"}}}]}"
+        );
+        spool.start();
+
+        spool.onFailure((DOCUMENT + OTHER_DOCUMENT).getBytes(StandardCharsets.UTF_8), 2, "HTTP 503", true);
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> spool.getPendingBytes() == 0);
+        assertThat(requests).containsExactly(DOCUMENT + OTHER_DOCUMENT, OTHER_DOCUMENT);
+        assertThat(segmentCount()).isZero();
+    }
+
+    @Test
+    void dropsDocumentsRefusedByElasticsearch() throws IOException {
+        spool.start();
+
+        spool.onFailure(DOCUMENT.getBytes(StandardCharsets.UTF_8), 1, "400 mapper_parsing_exception", false);
+
+        assertThat(spool.getPendingBytes()).isZero();
+        assertThat(segmentCount()).isZero();
+    }
+}
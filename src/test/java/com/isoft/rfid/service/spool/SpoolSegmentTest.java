@@ -0,0 +1,72 @@
+package com.isoft.rfid.service.spool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SpoolSegmentTest {
+
+    @TempDir
+    Path directory;
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void recoversPendingRecordsInOrder() throws IOException {
+        Path path = directory.resolve("1.spool");
+        SpoolSegment segment = SpoolSegment.create(path, 1, 1024);
+        assertThat(segment.append(bytes("first"), 5)).isTrue();
+        assertThat(segment.append(bytes("second"), 6)).isTrue();
+        assertThat(segment.append(bytes("third"), 5)).isTrue();
+        segment.acknowledgeFirstPending();
+        segment.flush();
+
+        SpoolSegment recovered = SpoolSegment.recover(path, 1);
+
+        assertThat(recovered.isTruncated()).isFalse();
+        assertThat(recovered.size()).isEqualTo(3 * SpoolSegment.HEADER_BYTES + 16);
+        assertThat(new String(recovered.payload(recovered.firstPending()), StandardCharsets.UTF_8)).isEqualTo("second");
+        recovered.acknowledgeFirstPending();
+        assertThat(new String(recovered.payload(recovered.firstPending()), StandardCharsets.UTF_8)).isEqualTo("third");
+        recovered.acknowledgeFirstPending();
+        assertThat(recovered.hasPending()).isFalse();
+        assertThat(recovered.firstPending()).isEqualTo(-1);
+    }
+
+    @Test
+    void refusesRecordsThatDoNotFit() throws IOException {
+        SpoolSegment segment = SpoolSegment.create(directory.resolve("1.spool"), 1, 32);
+
+        assertThat(segment.append(new byte[20], 20)).isTrue();
+        assertThat(segment.append(new byte[1], 1)).isFalse();
+        assertThat(segment.pendingBytes()).isEqualTo(32);
+    }
+
+    @Test
+    void dropsTheDamagedLastRecordOnRecovery() throws IOException {
+        Path path = directory.resolve("1.spool");
+        SpoolSegment segment = SpoolSegment.create(path, 1, 1024);
+        segment.append(bytes("intact"), 6);
+        segment.append(bytes("damaged"), 7);
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            // Flip a byte of the payload of the second record, as a torn write would
+            file.seek(2L * SpoolSegment.HEADER_BYTES + 6 + 2);
+            file.write('X');
+        }
+
+        SpoolSegment recovered = SpoolSegment.recover(path, 1);
+
+        assertThat(recovered.isTruncated()).isTrue();
+        assertThat(new String(recovered.payload(recovered.firstPending()), StandardCharsets.UTF_8)).isEqualTo("intact");
+        recovered.acknowledgeFirstPending();
+        assertThat(recovered.hasPending()).isFalse();
+        assertThat(recovered.size()).isEqualTo(SpoolSegment.HEADER_BYTES + 6);
+    }
+}
@@ -0,0 +1,50 @@
+package com.isoft.rfid.simulator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class SimulatedReaderTest {
+
+    @Test
+    void testEpcsAreSgtin96() {
+        SimulatedReader reader = new SimulatedReader(812345, SimulatorOptions.parse("--tags=10000"), 0);
+
+        assertThat(SimulatedReader.sgtin96(812345, 6789)).containsExactly(0x30, 0x34, 0x25, 0x7B, 0xF7, 0x19, 0x4E, 0x40, 0, 0, 0x1A, 0x85);
+        reader.next();
+        assertThat(reader.getEpcHex()).hasSize(24).startsWith("3034257BF7194E4");
+    }
+
+    @Test
+    void testDuplicateRatioAndRanges() {
+        SimulatorOptions options = SimulatorOptions.parse("--antennas=2", "--tags=1000000", "--duplicate-ratio=0.75", "--rssi-stddev=30");
+        SimulatedReader reader = new SimulatedReader(1, options, 42);
+        Set<String> seen = new HashSet<>();
+        int duplicates = 0;
+        for (int i = 0; i < 10_000; i++) {
+            reader.next();
+            if (!seen.add(reader.getAntenna() + reader.getEpcHex())) {
+                duplicates++;
+            }
+            assertThat(reader.getAntenna()).isBetween(1, 2);
+            assertThat(reader.getRssi()).isBetween(-100.0, -10.0);
+        }
+
+        assertThat(duplicates).isBetween(7_000, 8_000);
+    }
+
+    @Test
+    void testJsonLine() {
+        SimulatedReader reader = new SimulatedReader(3, SimulatorOptions.parse(), 0);
+        StringBuilder line = new StringBuilder();
+
+        reader.next();
+        reader.appendJson(line, 1_668_412_800_000L);
+
+        assertThat(line.toString())
+            .startsWith("{\"epc\":\"" + reader.getEpcHex() + "\",\"readerId\":\"sim-reader-3\",\"antenna\":" + reader.getAntenna())
+            .endsWith(",\"timestamp\":1668412800000}\n");
+    }
+}
@@ -0,0 +1,102 @@
+package com.isoft.rfid.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.domain.Epc;
+import com.isoft.rfid.domain.TagRead;
+import com.isoft.rfid.repository.search.TagReadCriteria;
+import com.isoft.rfid.repository.search.TagReadSearchRepository;
+import com.isoft.rfid.service.Gs1EpcDecoder;
+import com.isoft.rfid.service.TagReadExportService;
+import com.isoft.rfid.web.rest.errors.ExceptionTranslator;
+import java.util.Collections;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+/**
+ * Unit tests for the {@link TagReadExportResource} REST controller.
+ */
+class TagReadExportResourceTest {
+
+    private TagReadExportService tagReadExportService;
+
+    private MockMvc restMockMvc;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getExport().setSlices(1);
+        applicationProperties.getExport().setMaxConcurrentExports(1);
+        applicationProperties.getExport().setTimeoutMillis(60000);
+        TagReadSearchRepository repository = mock(TagReadSearchRepository.class);
+        when(repository.openPointInTime(any(), anyString())).thenReturn("pit-1");
+        when(repository.scanSlice(eq("pit-1"), anyString(), any(), anyInt(), eq(1), anyInt(), any()))
+            .thenAnswer(invocation -> {
+                TagReadSearchRepository.PageHandler handler = invocation.getArgument(6);
+                TagRead read = new TagRead();
+                read.setEpc(Epc.parse("3034257BF7194E4000001A85"));
+                read.setReaderId("dock-1");
+                read.setAntenna(1);
+                read.setRssi(-60.5);
+                read.setTimestamp(1668384000000L);
+                return handler.onPage(Collections.singletonList(read));
+            });
+        tagReadExportService = new TagReadExportService(repository, new Gs1EpcDecoder(), new ObjectMapper(), applicationProperties);
+        TagReadExportResource resource = new TagReadExportResource(tagReadExportService, applicationProperties);
+        restMockMvc =
+            MockMvcBuilders.standaloneSetup(resource).setControllerAdvice(new ExceptionTranslator(new MockEnvironment())).build();
+    }
+
+    @AfterEach
+    public void teardown() {
+        tagReadExportService.destroy();
+    }
+
+    @Test
+    void testExportIsWrittenAsynchronouslyWithItsOwnTimeout() throws Exception {
+        MvcResult result = restMockMvc.perform(get("/api/tag-reads/export?epc=3034257bf7194e4000001a85")).andReturn();
+        assertThat(result.getRequest().isAsyncStarted()).isTrue();
+        assertThat(result.getRequest().getAsyncContext().getTimeout()).isEqualTo(60000);
+
+        restMockMvc
+            .perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Disposition", "attachment; filename=\"tag-reads.csv\""))
+            .andExpect(
+                content()
+                    .string(
+                        "epc,readerId,antenna,rssi,timestamp,epcUri\n" +
+                        "3034257BF7194E4000001A85,dock-1,1,-60.5,2022-11-14T00:00:00Z,urn:epc:id:sgtin:0614141.812345.6789\n"
+                    )
+            );
+        assertThat(tagReadExportService.prepare(new TagReadCriteria(), TagReadExportService.Format.CSV)).isNotNull();
+    }
+
+    @Test
+    void testInvalidEpcIsRefused() throws Exception {
+        restMockMvc.perform(get("/api/tag-reads/export?epc=not-an-epc")).andExpect(status().isBadRequest());
+        restMockMvc
+            .perform(get("/api/tag-reads/export?format=xml"))
+            .andExpect(request().asyncNotStarted())
+            .andExpect(status().isBadRequest());
+    }
+}
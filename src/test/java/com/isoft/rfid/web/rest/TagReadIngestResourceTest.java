@@ -0,0 +1,133 @@
+package com.isoft.rfid.web.rest;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isoft.rfid.config.ApplicationProperties;
+import com.isoft.rfid.repository.search.TagReadIndexPartitions;
+import com.isoft.rfid.service.TagReadIngestService;
+import com.isoft.rfid.service.TagReadPipeline;
+import com.isoft.rfid.service.TagReadValidationStage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+/**
+ * Unit tests for the {@link TagReadIngestResource} REST controller.
+ */
+class TagReadIngestResourceTest {
+
+    private static final String VALID_READ =
+        "{\"epc\":\"3034257BF7194E4000001A85\",\"readerId\":\"dock-1\",\"antenna\":2,\"rssi\":-52.5,\"timestamp\":\"2022-11-14T08:00:00Z\"}";
+
+    private MeterRegistry meterRegistry;
+
+    private TagReadPipeline tagReadPipeline;
+
+    private MockMvc restMockMvc;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getIngest().setMaxLineLength(256);
+        applicationProperties.getIngest().setBufferSize(64);
+        TagReadIndexPartitions partitions = new TagReadIndexPartitions("tag-read", ChronoUnit.DAYS, 64);
+        tagReadPipeline =
+            new TagReadPipeline(
+                applicationProperties,
+                meterRegistry,
+                List.of(new TagReadValidationStage(applicationProperties, partitions, meterRegistry))
+            );
+        tagReadPipeline.start();
+        TagReadIngestResource resource = new TagReadIngestResource(
+            new TagReadIngestService(meterRegistry, tagReadPipeline),
+            new ObjectMapper(),
+            applicationProperties
+        );
+        restMockMvc = MockMvcBuilders.standaloneSetup(resource).build();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        tagReadPipeline.stop();
+    }
+
+    @Test
+    void testBulkIngestReportsEachLine() throws Exception {
+        String body = String.join(
+            "\n",
+            VALID_READ,
+            "{\"epc\":\"3034257BF7194E4000001A85\",\"readerId\":\"dock-1\"",
+            "",
+            "{\"epc\":\"not-hex\",\"readerId\":\"dock-1\",\"antenna\":1}",
+            "{\"epc\":\"3034257BF7194E4000001A86\",\"readerId\":\"dock-1\",\"antenna\":1,\"extra\":{\"nested\":[1,2]}}\r"
+        );
+
+        restMockMvc
+            .perform(post("/api/tag-reads/bulk").contentType(TagReadIngestResource.APPLICATION_NDJSON_VALUE).content(body))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.accepted").value(2))
+            .andExpect(jsonPath("$.rejected").value(2))
+            .andExpect(jsonPath("$.items", hasSize(4)))
+            .andExpect(jsonPath("$.items[0].line").value(1))
+            .andExpect(jsonPath("$.items[0].status").value("accepted"))
+            .andExpect(jsonPath("$.items[1].status").value("rejected"))
+            .andExpect(jsonPath("$.items[1].error").value("malformed JSON"))
+            .andExpect(jsonPath("$.items[2].line").value(4))
+            .andExpect(jsonPath("$.items[2].status").value("rejected"))
+            .andExpect(jsonPath("$.items[3].line").value(5))
+            .andExpect(jsonPath("$.items[3].status").value("accepted"));
+    }
+
+    @Test
+    void testBulkIngestRejectsOversizedLine() throws Exception {
+        String oversized = "{\"epc\":\"" + "0".repeat(300) + "\"}";
+        String body = oversized + "\n" + VALID_READ + "\n";
+
+        restMockMvc
+            .perform(post("/api/tag-reads/bulk").contentType(TagReadIngestResource.APPLICATION_NDJSON_VALUE).content(body))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items", hasSize(2)))
+            .andExpect(jsonPath("$.items[0].status").value("rejected"))
+            .andExpect(jsonPath("$.items[1].status").value("accepted"));
+    }
+
+    @Test
+    void testBulkIngestRejectsStructuredReadFields() throws Exception {
+        String body = String.join(
+            "\n",
+            "{\"epc\":{\"readerId\":\"dock-1\"},\"readerId\":\"dock-1\",\"antenna\":1}",
+            "{\"epc\":\"3034257BF7194E4000001A85\",\"readerId\":\"dock-1\",\"rssi\":[-52.5],\"antenna\":1}",
+            VALID_READ
+        );
+
+        restMockMvc
+            .perform(post("/api/tag-reads/bulk").contentType(TagReadIngestResource.APPLICATION_NDJSON_VALUE).content(body))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.rejected").value(2))
+            .andExpect(jsonPath("$.items[0].error").value("epc must be a scalar"))
+            .andExpect(jsonPath("$.items[1].error").value("rssi must be a scalar"))
+            .andExpect(jsonPath("$.items[2].status").value("accepted"));
+    }
+
+    @Test
+    void testBulkIngestRejectsInvalidTimestamp() throws Exception {
+        String body = "{\"epc\":\"3034257BF7194E4000001A85\",\"readerId\":\"dock-1\",\"timestamp\":\"yesterday\"}";
+
+        restMockMvc
+            .perform(post("/api/tag-reads/bulk").contentType(TagReadIngestResource.APPLICATION_NDJSON_VALUE).content(body))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.rejected").value(1))
+            .andExpect(jsonPath("$.items[0].error").exists());
+    }
+}